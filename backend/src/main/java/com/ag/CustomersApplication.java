@@ -2,8 +2,11 @@ package com.ag;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// An R2DBC ConnectionFactory bean would switch off the JDBC DataSource that JPA, JdbcTemplate and Flyway rely on,
+// so the reactive profile builds its own connection pool instead of using the auto-configured one
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class CustomersApplication {
     public static void main(String[] args) {
         SpringApplication.run(CustomersApplication.class, args);
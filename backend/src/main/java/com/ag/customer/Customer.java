@@ -1,12 +1,19 @@
 package com.ag.customer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.SourceType;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.Objects;
 
 /**
  * This class represents a {@link Customer} entity with fields for ID, name, email, and age.
  * It includes basic operations such as getters, setters, and overrides for equals, hashCode, and toString methods.
+ *
+ * <p>The version and modification time are bookkeeping kept by the data access layer: they are not part of the JSON
+ * representation, nor of equality, and are {@code null} for customers that were not read from the database.</p>
  */
 @Entity
 public class Customer {
@@ -20,6 +27,12 @@ public class Customer {
     private String email;
     @Column(nullable = false)
     private Integer age;
+    @Version
+    @JsonIgnore
+    private Long version;
+    @UpdateTimestamp(source = SourceType.DB)
+    @JsonIgnore
+    private Instant updatedAt;
 
     /**
      * Default constructor for JPA
@@ -40,6 +53,22 @@ public class Customer {
         this.age = age;
     }
 
+    /**
+     * Constructs a new {@link Customer} as read from the database, including its version and modification time.
+     *
+     * @param id        the unique identifier of the customer
+     * @param name      the name of the customer
+     * @param email     the email of the customer
+     * @param age       the age of the customer
+     * @param version   the version of the customer
+     * @param updatedAt when the customer was last modified
+     */
+    public Customer(Integer id, String name, String email, Integer age, Long version, Instant updatedAt) {
+        this(id, name, email, age);
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
     /**
      * Constructs a new {@link Customer} with the specified name, email, and age.
      * This constructor is typically used when creating a new Customer without specifying an ID.
@@ -121,6 +150,38 @@ public class Customer {
         this.age = age;
     }
 
+    /**
+     * Gets the version of the customer, which is incremented by every update
+     * @return the version, or {@code null} if unknown
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the customer
+     * @param version the version of the customer
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets when the customer was last inserted or updated
+     * @return the modification time, or {@code null} if unknown
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Sets when the customer was last inserted or updated
+     * @param updatedAt the modification time
+     */
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     /**
      * Compares this customer to the specified object for equality.
      *
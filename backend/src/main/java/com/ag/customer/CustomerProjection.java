@@ -0,0 +1,236 @@
+package com.ag.customer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link CustomerProjection} class describes the subset of a {@link Customer}'s fields a caller asked for, so
+ * that only those columns are read from the database and only those fields are written to the response.
+ *
+ * <p>A projected customer is a row of values, an {@code Object[]} in the order of {@link #columns()}, instead of a
+ * {@link Customer}. The ID is always read first, since pages are resumed after it, but only written when it was
+ * requested. The version and modification time can be read along to validate the row, and are never written.</p>
+ */
+public final class CustomerProjection {
+    /**
+     * The fields of a customer that can be read.
+     */
+    public enum Field {
+        ID("id", "id", true),
+        NAME("name", "name", true),
+        EMAIL("email", "email", true),
+        AGE("age", "age", true),
+        VERSION("version", "version", false),
+        UPDATED_AT("updated_at", "updatedAt", false);
+
+        private final String column;
+        private final String attribute;
+        private final boolean requestable;
+
+        Field(String column, String attribute, boolean requestable) {
+            this.column = column;
+            this.attribute = attribute;
+            this.requestable = requestable;
+        }
+
+        /**
+         * Returns the column of the {@code customer} table holding the field, which is also its JSON name.
+         *
+         * @return the column name
+         */
+        public String column() {
+            return column;
+        }
+
+        /**
+         * Returns the attribute of the {@link Customer} entity mapped to the field, for JPQL.
+         *
+         * @return the attribute name
+         */
+        public String attribute() {
+            return attribute;
+        }
+
+        private Object read(ResultSet rs, int index) throws SQLException {
+            return switch (this) {
+                case ID, AGE -> rs.getInt(index);
+                case NAME, EMAIL -> rs.getString(index);
+                case VERSION -> rs.getLong(index);
+                case UPDATED_AT -> {
+                    Timestamp timestamp = rs.getTimestamp(index);
+                    yield timestamp != null ? timestamp.toInstant() : null;
+                }
+            };
+        }
+
+        private Object valueOf(Customer customer) {
+            return switch (this) {
+                case ID -> customer.getId();
+                case NAME -> customer.getName();
+                case EMAIL -> customer.getEmail();
+                case AGE -> customer.getAge();
+                case VERSION -> customer.getVersion();
+                case UPDATED_AT -> customer.getUpdatedAt();
+            };
+        }
+    }
+
+    private final Set<Field> requested;
+    private final List<Field> columns;
+
+    private CustomerProjection(Set<Field> requested, List<Field> columns) {
+        this.requested = Collections.unmodifiableSet(requested);
+        this.columns = List.copyOf(columns);
+    }
+
+    /**
+     * Creates the projection onto the fields with the specified names, e.g. {@code id} and {@code email}.
+     *
+     * @param names the names of the requested fields, case-insensitively; duplicates are ignored
+     * @return the projection
+     * @throws IllegalArgumentException if no field or an unknown field is named
+     */
+    public static CustomerProjection of(Collection<String> names) {
+        Set<Field> requested = EnumSet.noneOf(Field.class);
+        for (String name : names) {
+            String trimmed = name.trim().toLowerCase(Locale.ROOT);
+            Field field = EnumSet.allOf(Field.class).stream()
+                    .filter(candidate -> candidate.requestable && candidate.column.equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown customer field: %s".formatted(name.trim())));
+            requested.add(field);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("At least one customer field must be requested");
+        }
+        List<Field> columns = new ArrayList<>(requested.size() + 1);
+        columns.add(Field.ID);
+        requested.stream().filter(field -> field != Field.ID).forEach(columns::add);
+        return new CustomerProjection(requested, columns);
+    }
+
+    /**
+     * Returns the same projection also reading the version and modification time, to validate the row.
+     *
+     * @return the projection with the version columns, or this projection if it already has them
+     */
+    public CustomerProjection withVersion() {
+        if (columns.contains(Field.VERSION)) {
+            return this;
+        }
+        List<Field> withVersion = new ArrayList<>(columns);
+        withVersion.add(Field.VERSION);
+        withVersion.add(Field.UPDATED_AT);
+        return new CustomerProjection(requested, withVersion);
+    }
+
+    /**
+     * Returns the fields the caller asked for, which are the ones written to the response.
+     *
+     * @return the requested fields
+     */
+    public Set<Field> requested() {
+        return requested;
+    }
+
+    /**
+     * Returns the fields read, in the order of the values of a row, starting with the ID.
+     *
+     * @return the fields read
+     */
+    public List<Field> columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the SQL select list of the projection.
+     *
+     * @return the comma-separated columns, e.g. {@code id, email}
+     */
+    public String sqlColumns() {
+        return columns.stream().map(Field::column).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Returns the JPQL select list of the projection.
+     *
+     * @param alias the identification variable of the {@link Customer} entity
+     * @return the comma-separated paths, e.g. {@code c.id, c.email}
+     */
+    public String jpqlColumns(String alias) {
+        return columns.stream().map(field -> alias + "." + field.attribute()).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Returns a key identifying the requested fields, so that differently projected representations of the same
+     * customers can be told apart, e.g. in entity tags.
+     *
+     * @return the comma-separated names of the requested fields, in column order
+     */
+    public String key() {
+        return requested.stream().map(Field::column).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Reads the row at the current position of the result set, whose columns must be {@link #sqlColumns()}.
+     *
+     * @param rs the result set
+     * @return the values of the row
+     * @throws SQLException if a column cannot be read
+     */
+    public Object[] read(ResultSet rs) throws SQLException {
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = columns.get(i).read(rs, i + 1);
+        }
+        return row;
+    }
+
+    /**
+     * Projects a customer that has already been loaded in full.
+     *
+     * @param customer the customer
+     * @return the values of the row
+     */
+    public Object[] project(Customer customer) {
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = columns.get(i).valueOf(customer);
+        }
+        return row;
+    }
+
+    /**
+     * Returns the ID of a row.
+     *
+     * @param row the values of the row
+     * @return the ID of the customer
+     */
+    public Integer id(Object[] row) {
+        return (Integer) row[0];
+    }
+
+    /**
+     * Returns the version of a row read with {@link #withVersion()}.
+     *
+     * @param row the values of the row
+     * @return the version of the customer, or {@code null} if it was not read
+     */
+    public CustomerVersion version(Object[] row) {
+        int index = columns.indexOf(Field.VERSION);
+        if (index < 0 || row[index] == null || row[index + 1] == null) {
+            return null;
+        }
+        return new CustomerVersion((Long) row[index], (Instant) row[index + 1]);
+    }
+}
@@ -0,0 +1,27 @@
+package com.ag.customer;
+
+/**
+ * The filters of a customer search. Every filter that is not {@code null} must match, and at least one is required.
+ *
+ * @param namePrefix   the text the name starts with, case-insensitively
+ * @param name         text the name contains anywhere, case-insensitively
+ * @param emailDomain  the domain of the email, the part after the {@code @}, case-insensitively
+ * @param minAge       the lowest age to include
+ * @param maxAge       the highest age to include
+ */
+public record CustomerSearch(
+        String namePrefix,
+        String name,
+        String emailDomain,
+        Integer minAge,
+        Integer maxAge
+) {
+    /**
+     * Checks whether any filter is set.
+     *
+     * @return {@code true} if at least one filter is set
+     */
+    public boolean hasFilters() {
+        return namePrefix != null || name != null || emailDomain != null || minAge != null || maxAge != null;
+    }
+}
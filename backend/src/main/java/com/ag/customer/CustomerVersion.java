@@ -0,0 +1,25 @@
+package com.ag.customer;
+
+import java.time.Instant;
+
+/**
+ * The version of a {@link Customer} and when it was last modified, which is all that is needed to tell a client
+ * whether its copy is still current.
+ *
+ * @param version   the version, incremented by every update
+ * @param updatedAt when the customer was last inserted or updated
+ */
+public record CustomerVersion(long version, Instant updatedAt) {
+    /**
+     * Returns the version of the specified customer.
+     *
+     * @param customer the customer
+     * @return the version of the customer, or {@code null} if it was not read from the database
+     */
+    public static CustomerVersion of(Customer customer) {
+        if (customer.getVersion() == null || customer.getUpdatedAt() == null) {
+            return null;
+        }
+        return new CustomerVersion(customer.getVersion(), customer.getUpdatedAt());
+    }
+}
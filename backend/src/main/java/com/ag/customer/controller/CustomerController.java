@@ -1,60 +1,298 @@
 package com.ag.customer.controller;
 
+import com.ag.customer.service.CustomerCsvImportService;
 import com.ag.customer.service.CustomerService;
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
+import com.ag.dto.CustomerBatchResult;
+import com.ag.dto.CustomerFieldsPage;
+import com.ag.dto.CustomerImportResult;
+import com.ag.dto.CustomerPage;
 import com.ag.dto.CustomerRegistrationRequest;
 import com.ag.dto.CustomerUpdateRequest;
+import com.ag.exceptions.PreconditionFailedException;
+import com.ag.exceptions.RequestValidationException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * The {@link CustomerController} handles HTTP requests and sends data to the {@link CustomerService}.
  * It provides endpoints to perform CRUD operations on {@link Customer} entities.
+ *
+ * <p>Customers are sent with a strong {@code ETag} holding their version and a {@code Last-Modified} header. A request
+ * whose {@code If-None-Match} still matches is answered with {@code 304 Not Modified} after looking up only the
+ * version. Lists are sent with a weak {@code ETag}: pages of {@code GET /customers} served from the
+ * {@link com.ag.customer.service.CustomerSnapshot} carry the snapshot's version, and are answered with {@code 304}
+ * before the page is read, while every other list carries a hash of its encoded body. A list checked against its hash
+ * is still read and encoded in full; the {@code 304} only saves sending it.</p>
+ *
+ * <p>The list and single customer endpoints take a {@code fields} parameter, e.g. {@code ?fields=id,email}, to
+ * read and return only some fields; the ETag of such a response also names the fields, or hashes a body holding only
+ * them.</p>
+ *
+ * <p>Customers are returned as JSON unless the {@code Accept} header prefers one of the binary
+ * {@link CustomerEncoding}s, CBOR, Smile or Protobuf, which the ETag then names too. Registrations and updates can be
+ * sent in them as well. List ETags are weak, since only {@code If-None-Match} compares them, which lets the server
+ * compress lists; the ETag of a customer stays strong for {@code If-Match}.</p>
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("api/v1/customers")
 public class CustomerController {
+    /**
+     * The media type accepted by the CSV import endpoint.
+     */
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * The buffer size for exports, so that rows are not written to the socket one at a time.
+     */
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private final CustomerService customerService;
+    private final CustomerCsvImportService customerCsvImportService;
+    private final CustomerJsonCache customerJsonCache;
+    private final CustomerEncoder customerEncoder;
 
     /**
      * Constructs a new {@link CustomerController} with the specified {@link CustomerService}.
      *
-     * @param customerService the service to handle customer-related operations
+     * @param customerService          the service to handle customer-related operations
+     * @param customerCsvImportService the service to bulk import customers from CSV
+     * @param customerJsonCache        the cache of serialized customers that exports are written from
+     * @param customerEncoder          the encoder of responses, in the encoding the client accepts
      */
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, CustomerCsvImportService customerCsvImportService,
+                              CustomerJsonCache customerJsonCache, CustomerEncoder customerEncoder) {
         this.customerService = customerService;
+        this.customerCsvImportService = customerCsvImportService;
+        this.customerJsonCache = customerJsonCache;
+        this.customerEncoder = customerEncoder;
     }
 
     /**
-     * Retrieves all customers.
+     * Retrieves one page of customers ordered by ID.
      *
-     * @return a list of all customers
+     * @param after   the ID to resume after; pass the previous page's {@code nextCursor}
+     * @param limit   the maximum number of customers to return
+     * @param fields  the fields to return, e.g. {@code ?fields=id,email}, or {@code null} for every field
+     * @param request the current request, checked for a matching {@code If-None-Match}
+     * @return the page of customers and the cursor for the next page, as a {@link CustomerPage},
+     * or {@code null} once a {@code 304 Not Modified} response has been prepared
      */
     @GetMapping
-    public List<Customer> getCustomers() {
-        return customerService.getAllCustomers();
+    public ResponseEntity<byte[]> getCustomers(@RequestParam(value = "after", required = false) Integer after,
+                                               @RequestParam(value = "limit", required = false) Integer limit,
+                                               @RequestParam(value = "fields", required = false) List<String> fields,
+                                               WebRequest request) {
+        CustomerProjection projection = projection(fields);
+        CustomerEncoding encoding = encoding(request);
+        // Read before the page, so the page sent is never older than its ETag
+        String eTag = customerService.getCustomersVersion()
+                .map(version -> "W/\"%s%s\"".formatted(version, representation(projection, encoding)))
+                .orElse(null);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
+        byte[] body;
+        if (projection != null) {
+            CustomerFieldsPage page = customerService.getCustomerFieldsPage(projection, after, limit);
+            body = customerEncoder.encodePage(encoding, projection, page.rows(), page.nextCursor());
+        } else {
+            CustomerPage page = customerService.getCustomersPage(after, limit);
+            body = customerEncoder.encodePage(encoding, page.customers(), page.nextCursor());
+        }
+        return eTag != null ? encoded(encoding, body) : list(request, encoding, body);
+    }
+
+    /**
+     * Retrieves the customers with the specified IDs in a single query.
+     *
+     * @param ids     the IDs of the customers to retrieve, e.g. {@code ?ids=1,2,3}
+     * @param request the current request, checked for a matching {@code If-None-Match}
+     * @return the customers found, in the order their IDs were requested, as a list,
+     * or {@code null} once a {@code 304 Not Modified} response has been prepared
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<byte[]> getCustomersByIds(@RequestParam("ids") List<Integer> ids, WebRequest request) {
+        CustomerEncoding encoding = encoding(request);
+        return list(request, encoding, customerEncoder.encodeList(encoding, customerService.getCustomersByIds(ids)));
+    }
+
+    /**
+     * Searches customers by name, email domain and age, one page at a time ordered by ID.
+     * Every filter that is set must match, and each is answered from an index.
+     *
+     * @param namePrefix  the text names start with, case-insensitively
+     * @param name        text names contain anywhere, case-insensitively; at least three characters
+     * @param emailDomain the email domain, e.g. {@code gmail.com}
+     * @param minAge      the lowest age to include
+     * @param maxAge      the highest age to include
+     * @param after       the ID to resume after; pass the previous page's {@code nextCursor}
+     * @param limit       the maximum number of customers to return
+     * @param request     the current request, checked for a matching {@code If-None-Match}
+     * @return the page of matching customers and the cursor for the next page, as a {@link CustomerPage},
+     * or {@code null} once a {@code 304 Not Modified} response has been prepared
+     */
+    @GetMapping("search")
+    public ResponseEntity<byte[]> searchCustomers(@RequestParam(value = "namePrefix", required = false) String namePrefix,
+                                                  @RequestParam(value = "name", required = false) String name,
+                                                  @RequestParam(value = "emailDomain", required = false) String emailDomain,
+                                                  @RequestParam(value = "minAge", required = false) Integer minAge,
+                                                  @RequestParam(value = "maxAge", required = false) Integer maxAge,
+                                                  @RequestParam(value = "after", required = false) Integer after,
+                                                  @RequestParam(value = "limit", required = false) Integer limit,
+                                                  WebRequest request) {
+        CustomerSearch search = new CustomerSearch(namePrefix, name, emailDomain, minAge, maxAge);
+        CustomerEncoding encoding = encoding(request);
+        CustomerPage page = customerService.searchCustomers(search, after, limit);
+        return list(request, encoding, customerEncoder.encodePage(encoding, page.customers(), page.nextCursor()));
+    }
+
+    /**
+     * Suggests customers for a typeahead as the user types, matching the start of their name, of a word of their name
+     * or of their email, case-insensitively.
+     *
+     * @param query   the text typed so far
+     * @param limit   the maximum number of suggestions to return
+     * @param request the current request, whose {@code Accept} header chooses the encoding
+     * @return the suggested customers, shortest completions first, as a list
+     */
+    @GetMapping("suggest")
+    public ResponseEntity<byte[]> suggestCustomers(@RequestParam("q") String query,
+                                                   @RequestParam(value = "limit", required = false) Integer limit,
+                                                   WebRequest request) {
+        CustomerEncoding encoding = encoding(request);
+        return encoded(encoding, customerEncoder.encodeList(encoding, customerService.suggestCustomers(query, limit)));
+    }
+
+    /**
+     * Exports every customer as newline-delimited JSON, streamed straight from a database cursor.
+     * Rows are written as they are read, so a slow client slows the cursor down instead of filling memory.
+     *
+     * @return a streaming body writing one customer per line
+     */
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        StreamingResponseBody body = outputStream -> {
+            // The servlet container owns the stream, so only flush the buffer instead of closing it
+            BufferedOutputStream buffered = new BufferedOutputStream(outputStream, EXPORT_BUFFER_SIZE);
+            customerService.exportCustomers(customer -> {
+                try {
+                    buffered.write(customerJsonCache.toJsonWithoutCaching(customer));
+                    buffered.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            buffered.flush();
+        };
+        return ResponseEntity.ok().body(body);
     }
 
     /**
      * Retrieves a customer by their ID.
+     * A request whose {@code If-None-Match} holds the customer's current ETag is answered from the customer's version
+     * alone, without loading or serializing the customer.
      *
-     * @param id the ID of the customer to retrieve
-     * @return the customer with the specified ID
+     * @param id      the ID of the customer to retrieve
+     * @param fields  the fields to return, e.g. {@code ?fields=id,email}, or {@code null} for every field
+     * @param request the current request, checked for a matching {@code If-None-Match}
+     * @return the customer with the specified ID, or an empty {@code 304 Not Modified} response
      */
     @GetMapping("{id}")
-    public Customer getCustomerById(@PathVariable("id") Integer id) {
-        return customerService.getCustomerById(id);
+    public ResponseEntity<byte[]> getCustomerById(@PathVariable("id") Integer id,
+                                                  @RequestParam(value = "fields", required = false) List<String> fields,
+                                                  WebRequest request) {
+        CustomerProjection projection = projection(fields);
+        CustomerEncoding encoding = encoding(request);
+        String[] ifNoneMatch = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            CustomerVersion version = customerService.getCustomerVersion(id);
+            if (matchesAny(ifNoneMatch, eTag(version, projection, encoding))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag(version, projection, encoding))
+                        .lastModified(version.updatedAt())
+                        .build();
+            }
+        }
+        // Validators come from the customer actually sent, which may be newer than the version looked up above
+        CustomerVersion version;
+        byte[] body;
+        if (projection != null) {
+            // Read the version along so the projected row can be validated like a whole customer
+            CustomerProjection withVersion = projection.withVersion();
+            Object[] row = customerService.getCustomerFieldsById(withVersion, id);
+            version = withVersion.version(row);
+            body = customerEncoder.encode(encoding, withVersion, row);
+        } else {
+            Customer customer = customerService.getCustomerById(id);
+            version = CustomerVersion.of(customer);
+            body = customerEncoder.encode(encoding, customer);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(encoding.mediaType());
+        if (version != null) {
+            response.eTag(eTag(version, projection, encoding)).lastModified(version.updatedAt());
+        }
+        return response.body(body);
     }
 
     /**
      * Registers a new customer.
      *
      * @param customerRegistrationRequest the request containing the customer's registration information
+     * @return an empty response whose {@code Location} header points at the new customer
      */
     @PostMapping
-    public void registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest) {
-        customerService.addCustomer(customerRegistrationRequest);
+    public ResponseEntity<Void> registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest) {
+        Integer id = customerService.addCustomer(customerRegistrationRequest);
+        return ResponseEntity.ok()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(id).toUri())
+                .build();
+    }
+
+    /**
+     * Registers several customers in one request.
+     *
+     * @param customerRegistrationRequests the registrations to add
+     * @return one result per registration, in the order they were submitted
+     */
+    @PostMapping("batch")
+    public List<CustomerBatchResult> registerCustomers(@RequestBody List<CustomerRegistrationRequest> customerRegistrationRequests) {
+        return customerService.addCustomers(customerRegistrationRequests);
+    }
+
+    /**
+     * Imports customers from a CSV request body with a {@code name,email,age} header row.
+     * The body is streamed into the database with {@code COPY}; emails that already exist are skipped.
+     *
+     * @param csv the CSV request body
+     * @return how many rows were read and how many customers were inserted
+     */
+    @PostMapping(value = "import", consumes = TEXT_CSV_VALUE)
+    public CustomerImportResult importCustomers(InputStream csv) {
+        return customerCsvImportService.importCustomers(new InputStreamReader(csv, StandardCharsets.UTF_8));
     }
 
     /**
@@ -65,17 +303,148 @@ public class CustomerController {
     @DeleteMapping("{id}")
     public void deleteCustomer(@PathVariable("id") Integer id) {
         customerService.deleteCustomerById(id);
+        customerJsonCache.invalidate(id);
     }
 
 
     /**
      * Updates the information of an existing customer.
+     * With an {@code If-Match} header holding the customer's ETag, the update only succeeds if the customer has not
+     * changed since; otherwise {@code 412 Precondition Failed} is returned and nothing is written.
      *
      * @param id                    the ID of the customer to update
+     * @param ifMatch               the ETag the client's copy of the customer has, or {@code *} for any version
      * @param updateCustomerRequest the request containing the updated customer information
+     * @return the customer as stored after the update, with its new ETag
      */
     @PutMapping("{id}")
-    public void updateCustomerInformation(@PathVariable("id") Integer id, @RequestBody CustomerUpdateRequest updateCustomerRequest) {
-        customerService.updateCustomer(id, updateCustomerRequest);
+    public ResponseEntity<Customer> updateCustomerInformation(@PathVariable("id") Integer id,
+                                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                              @RequestBody CustomerUpdateRequest updateCustomerRequest) {
+        Customer updated;
+        try {
+            updated = customerService.updateCustomer(id, updateCustomerRequest, expectedVersion(ifMatch));
+        } finally {
+            customerJsonCache.invalidate(id);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        CustomerVersion version = CustomerVersion.of(updated);
+        if (version != null) {
+            response.eTag(eTag(version)).lastModified(version.updatedAt());
+        }
+        return response.body(updated);
+    }
+
+    /**
+     * Answers with a list, or with {@code 304 Not Modified} if the request already holds it. The list's weak ETag is a
+     * hash of the encoded list itself, so it always describes the body it is sent with, wherever that was read from.
+     * Pages served from the snapshot are instead checked against its version before they are read, see
+     * {@link CustomerService#getCustomersVersion()}.
+     */
+    private static ResponseEntity<byte[]> list(WebRequest request, CustomerEncoding encoding, byte[] body) {
+        if (request.checkNotModified("W/\"%s\"".formatted(DigestUtils.md5DigestAsHex(body)))) {
+            return null;
+        }
+        return encoded(encoding, body);
+    }
+
+    private static String eTag(CustomerVersion version) {
+        return eTag(version, null, CustomerEncoding.JSON);
+    }
+
+    /**
+     * Returns the ETag of a customer, which for a projection also names the projected fields, and for a binary
+     * encoding the encoding, since each is a different representation of the customer.
+     */
+    private static String eTag(CustomerVersion version, CustomerProjection projection, CustomerEncoding encoding) {
+        return "\"%d%s\"".formatted(version.version(), representation(projection, encoding));
+    }
+
+    /**
+     * Returns what tells the ETags of a representation apart from those of the full JSON, e.g. {@code ;id,email;cbor}.
+     */
+    private static String representation(CustomerProjection projection, CustomerEncoding encoding) {
+        String fields = projection != null ? ";" + projection.key() : "";
+        return encoding != CustomerEncoding.JSON ? fields + ";" + encoding.key() : fields;
+    }
+
+    /**
+     * Chooses the encoding of the response from the {@code Accept} header, and tells caches that the response
+     * depends on it, whether it is sent in full or as {@code 304 Not Modified}.
+     */
+    private static CustomerEncoding encoding(WebRequest request) {
+        if (request instanceof NativeWebRequest nativeRequest
+                && nativeRequest.getNativeResponse() instanceof HttpServletResponse response) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return CustomerEncoding.negotiate(request.getHeaderValues(HttpHeaders.ACCEPT));
+    }
+
+    /**
+     * Reads the {@code fields} request parameter.
+     *
+     * @return the projection onto the requested fields, or {@code null} if every field is requested
+     */
+    private static CustomerProjection projection(List<String> fields) {
+        if (fields == null) {
+            return null;
+        }
+        try {
+            return CustomerProjection.of(fields);
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the version an {@code If-Match} header expects, from the ETag of the customer in any encoding. A weak or
+     * malformed entity tag can never match a customer's strong ETag, so it is rejected as a failed precondition.
+     *
+     * @return the expected version, or {@code null} if any version may be updated
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        if (ifMatch.contains(",")) {
+            throw new RequestValidationException("If-Match must hold a single entity tag");
+        }
+        String tag = ifMatch.trim();
+        try {
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                String value = tag.substring(1, tag.length() - 1);
+                int separator = value.indexOf(';');
+                if (separator < 0) {
+                    return Long.parseLong(value);
+                }
+                String key = value.substring(separator + 1);
+                if (Arrays.stream(CustomerEncoding.values()).anyMatch(encoding -> encoding.key().equals(key))) {
+                    return Long.parseLong(value.substring(0, separator));
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Not an ETag this service issued
+        }
+        throw new PreconditionFailedException("If-Match %s does not match any customer version".formatted(tag));
+    }
+
+    /**
+     * Checks whether any entity tag listed in the {@code If-None-Match} header values matches the specified ETag,
+     * using the weak comparison the header calls for.
+     */
+    private static boolean matchesAny(String[] ifNoneMatch, String eTag) {
+        for (String value : ifNoneMatch) {
+            for (String tag : value.split(",")) {
+                String trimmed = tag.trim();
+                if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<byte[]> encoded(CustomerEncoding encoding, byte[] body) {
+        return ResponseEntity.ok().contentType(encoding.mediaType()).body(body);
     }
 }
@@ -0,0 +1,143 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.dto.CustomerPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * The {@link CustomerEncoder} class encodes the customers of a response in the {@link CustomerEncoding} a client
+ * asked for.
+ *
+ * <p>JSON is written from the {@link CustomerJsonCache} and the {@link CustomerProjectionWriter} as before. CBOR and
+ * Smile are written with the object mappers of their message converters, and projections with the projection writer
+ * given the format's factory, so they hold the same fields as the JSON. Protobuf is written by
+ * {@link CustomerProtobuf}. Binary encodings are not cached; they are meant for the larger lists other services
+ * fetch, which are rarely sent twice.</p>
+ */
+@Component
+@Profile("!reactive")
+public class CustomerEncoder {
+    private final CustomerJsonCache customerJsonCache;
+    private final CustomerProjectionWriter customerProjectionWriter;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+
+    /**
+     * Constructs a new {@link CustomerEncoder}.
+     *
+     * @param customerJsonCache        the cache of serialized customers that JSON is written from
+     * @param customerProjectionWriter the writer of projected customers
+     * @param cborConverter            the converter whose object mapper writes CBOR
+     * @param smileConverter           the converter whose object mapper writes Smile
+     */
+    public CustomerEncoder(CustomerJsonCache customerJsonCache, CustomerProjectionWriter customerProjectionWriter,
+                           MappingJackson2CborHttpMessageConverter cborConverter,
+                           MappingJackson2SmileHttpMessageConverter smileConverter) {
+        this.customerJsonCache = customerJsonCache;
+        this.customerProjectionWriter = customerProjectionWriter;
+        this.cborMapper = cborConverter.getObjectMapper();
+        this.smileMapper = smileConverter.getObjectMapper();
+    }
+
+    /**
+     * Encodes a customer.
+     *
+     * @param encoding the encoding
+     * @param customer the customer
+     * @return the encoded bytes; callers must not modify them
+     */
+    public byte[] encode(CustomerEncoding encoding, Customer customer) {
+        return switch (encoding) {
+            case JSON -> customerJsonCache.toJson(customer);
+            case CBOR, SMILE -> write(encoding, customer);
+            case PROTOBUF -> CustomerProtobuf.encode(customer);
+        };
+    }
+
+    /**
+     * Encodes a list of customers, as a JSON array or a {@code CustomerList} message.
+     *
+     * @param encoding  the encoding
+     * @param customers the customers
+     * @return the encoded bytes
+     */
+    public byte[] encodeList(CustomerEncoding encoding, List<Customer> customers) {
+        return switch (encoding) {
+            case JSON -> customerJsonCache.toJsonArray(customers);
+            case CBOR, SMILE -> write(encoding, customers);
+            case PROTOBUF -> CustomerProtobuf.encodeList(customers);
+        };
+    }
+
+    /**
+     * Encodes a page of customers, shaped like {@link CustomerPage}.
+     *
+     * @param encoding   the encoding
+     * @param customers  the customers on the page
+     * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+     * @return the encoded bytes
+     */
+    public byte[] encodePage(CustomerEncoding encoding, List<Customer> customers, Integer nextCursor) {
+        return switch (encoding) {
+            case JSON -> customerJsonCache.toJsonPage(customers, nextCursor);
+            case CBOR, SMILE -> write(encoding, new CustomerPage(customers, nextCursor));
+            case PROTOBUF -> CustomerProtobuf.encodePage(customers, nextCursor);
+        };
+    }
+
+    /**
+     * Encodes a projected customer, holding only the requested fields.
+     *
+     * @param encoding   the encoding
+     * @param projection the projection the row was read with
+     * @param row        the values of the row
+     * @return the encoded bytes
+     */
+    public byte[] encode(CustomerEncoding encoding, CustomerProjection projection, Object[] row) {
+        return switch (encoding) {
+            case JSON -> customerProjectionWriter.toJson(projection, row);
+            case CBOR, SMILE -> customerProjectionWriter.write(mapper(encoding).getFactory(), projection, row);
+            case PROTOBUF -> CustomerProtobuf.encode(projection, row);
+        };
+    }
+
+    /**
+     * Encodes a page of projected customers.
+     *
+     * @param encoding   the encoding
+     * @param projection the projection the rows were read with
+     * @param rows       the values of the rows on the page
+     * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+     * @return the encoded bytes
+     */
+    public byte[] encodePage(CustomerEncoding encoding, CustomerProjection projection, List<Object[]> rows,
+                             Integer nextCursor) {
+        return switch (encoding) {
+            case JSON -> customerProjectionWriter.toJsonPage(projection, rows, nextCursor);
+            case CBOR, SMILE ->
+                    customerProjectionWriter.writePage(mapper(encoding).getFactory(), projection, rows, nextCursor);
+            case PROTOBUF -> CustomerProtobuf.encodePage(projection, rows, nextCursor);
+        };
+    }
+
+    private byte[] write(CustomerEncoding encoding, Object value) {
+        try {
+            return mapper(encoding).writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ObjectMapper mapper(CustomerEncoding encoding) {
+        return encoding == CustomerEncoding.CBOR ? cborMapper : smileMapper;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ag.customer.controller;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The encodings customers can be sent and received in, chosen by the {@code Accept} header of a request.
+ *
+ * <p>JSON is the default. The binary encodings are meant for other services: CBOR and Smile carry the same fields as
+ * the JSON, and Protobuf follows the schema in {@code src/main/proto/customer.proto}.</p>
+ */
+public enum CustomerEncoding {
+    JSON(MediaType.APPLICATION_JSON, "json"),
+    CBOR(MediaType.APPLICATION_CBOR, "cbor"),
+    SMILE(new MediaType("application", "x-jackson-smile"), "smile"),
+    PROTOBUF(new MediaType("application", "x-protobuf"), "protobuf");
+
+    private final MediaType mediaType;
+    private final String key;
+
+    CustomerEncoding(MediaType mediaType, String key) {
+        this.mediaType = mediaType;
+        this.key = key;
+    }
+
+    /**
+     * Returns the content type of responses in this encoding.
+     *
+     * @return the media type
+     */
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Returns a short name of the encoding, used to tell the entity tags of its representations apart.
+     *
+     * @return the name, e.g. {@code cbor}
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Chooses the encoding the client prefers, by the quality of the most specific media range of the
+     * {@code Accept} header matching each encoding. Ties go to JSON, then to the order of declaration.
+     *
+     * @param accept the values of the {@code Accept} header, or {@code null} if there is none
+     * @return the preferred encoding, or {@link #JSON} if the header is missing, malformed or accepts none of them
+     */
+    public static CustomerEncoding negotiate(String[] accept) {
+        if (accept == null || accept.length == 0) {
+            return JSON;
+        }
+        List<MediaType> ranges;
+        try {
+            ranges = MediaType.parseMediaTypes(Arrays.asList(accept));
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        CustomerEncoding preferred = JSON;
+        double preferredQuality = 0;
+        for (CustomerEncoding encoding : values()) {
+            double quality = quality(ranges, encoding.mediaType);
+            if (quality > preferredQuality) {
+                preferred = encoding;
+                preferredQuality = quality;
+            }
+        }
+        return preferred;
+    }
+
+    private static double quality(List<MediaType> ranges, MediaType mediaType) {
+        MediaType match = null;
+        for (MediaType range : ranges) {
+            if (range.includes(mediaType) && (match == null || specificity(range) > specificity(match))) {
+                match = range;
+            }
+        }
+        return match != null ? match.getQualityValue() : 0;
+    }
+
+    private static int specificity(MediaType range) {
+        if (range.isWildcardType()) {
+            return 0;
+        }
+        return range.isWildcardSubtype() ? 1 : 2;
+    }
+}
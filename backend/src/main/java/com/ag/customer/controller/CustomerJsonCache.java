@@ -0,0 +1,185 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.Customer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The {@link CustomerJsonCache} class keeps the UTF-8 JSON of recently returned customers, so responses can be written
+ * from bytes instead of serializing the same {@link Customer} again on every request.
+ *
+ * <p>Each entry remembers the customer it was serialized from and is only used for an equal customer, so a changed
+ * customer is never written with old bytes, whichever instance or path changed it. Updates and deletes also drop the
+ * entry explicitly to free its memory. Lists and pages are assembled by concatenating the cached fragments.</p>
+ *
+ * <p>Hit and miss statistics are published under the cache name {@code customer-json}.</p>
+ */
+@Component
+@Profile("!reactive")
+public class CustomerJsonCache {
+    private static final byte[] PAGE_START = "{\"customers\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGE_CURSOR = "],\"nextCursor\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGE_END = {'}'};
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] ARRAY_END = {']'};
+    private static final byte[] SEPARATOR = {','};
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectWriter customerWriter;
+    private final Cache<Integer, Entry> cache;
+    private final boolean enabled;
+
+    /**
+     * Constructs a new {@link CustomerJsonCache}.
+     *
+     * @param objectMapper  the {@link ObjectMapper} that would otherwise write the customers
+     * @param enabled       whether serialized customers are cached; when {@code false} every customer is serialized
+     * @param maximumSize   the maximum number of cached customers
+     * @param meterRegistry the registry the cache statistics are published to
+     */
+    public CustomerJsonCache(ObjectMapper objectMapper,
+                             @Value("${customer.json-cache.enabled:true}") boolean enabled,
+                             @Value("${customer.json-cache.maximum-size:100000}") long maximumSize,
+                             MeterRegistry meterRegistry) {
+        this.customerWriter = objectMapper.writerFor(Customer.class);
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customer-json");
+    }
+
+    /**
+     * Returns the JSON of the customer, serializing and caching it unless an up-to-date copy is cached.
+     *
+     * @param customer the customer
+     * @return the UTF-8 JSON bytes; callers must not modify them
+     */
+    public byte[] toJson(Customer customer) {
+        if (!enabled) {
+            return serialize(customer);
+        }
+        Entry entry = cache.getIfPresent(customer.getId());
+        if (entry != null && entry.customer().equals(customer)) {
+            return entry.json();
+        }
+        byte[] json = serialize(customer);
+        // Keep a copy, since the caller's customer may still be changed
+        cache.put(customer.getId(), new Entry(
+                new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge()), json));
+        return json;
+    }
+
+    /**
+     * Returns the JSON of the customer from the cache if it is up to date, without caching it otherwise.
+     * Used for exports, which would push every frequently requested customer out of the cache.
+     *
+     * @param customer the customer
+     * @return the UTF-8 JSON bytes; callers must not modify them
+     */
+    public byte[] toJsonWithoutCaching(Customer customer) {
+        Entry entry = enabled ? cache.getIfPresent(customer.getId()) : null;
+        return entry != null && entry.customer().equals(customer) ? entry.json() : serialize(customer);
+    }
+
+    /**
+     * Returns the JSON array of the customers.
+     *
+     * @param customers the customers
+     * @return the UTF-8 JSON bytes
+     */
+    public byte[] toJsonArray(List<Customer> customers) {
+        Fragments fragments = new Fragments(customers.size() * 2 + 2);
+        fragments.add(ARRAY_START);
+        addAll(fragments, customers);
+        fragments.add(ARRAY_END);
+        return fragments.join();
+    }
+
+    /**
+     * Returns the JSON of a page of customers, shaped like {@link com.ag.dto.CustomerPage}.
+     *
+     * @param customers  the customers on the page
+     * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+     * @return the UTF-8 JSON bytes
+     */
+    public byte[] toJsonPage(List<Customer> customers, Integer nextCursor) {
+        Fragments fragments = new Fragments(customers.size() * 2 + 4);
+        fragments.add(PAGE_START);
+        addAll(fragments, customers);
+        fragments.add(PAGE_CURSOR);
+        fragments.add(nextCursor == null ? NULL : nextCursor.toString().getBytes(StandardCharsets.UTF_8));
+        fragments.add(PAGE_END);
+        return fragments.join();
+    }
+
+    /**
+     * Drops the cached JSON of a customer that was updated or deleted.
+     *
+     * @param id the ID of the customer
+     */
+    public void invalidate(Integer id) {
+        cache.invalidate(id);
+    }
+
+    private void addAll(Fragments fragments, List<Customer> customers) {
+        for (int i = 0; i < customers.size(); i++) {
+            if (i > 0) {
+                fragments.add(SEPARATOR);
+            }
+            fragments.add(toJson(customers.get(i)));
+        }
+    }
+
+    private byte[] serialize(Customer customer) {
+        try {
+            return customerWriter.writeValueAsBytes(customer);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Entry(Customer customer, byte[] json) {
+    }
+
+    /**
+     * Collects byte arrays and copies them into one array of exactly the combined length.
+     */
+    private static final class Fragments {
+        private final byte[][] parts;
+        private int count;
+        private int length;
+
+        private Fragments(int capacity) {
+            this.parts = new byte[capacity][];
+        }
+
+        private void add(byte[] part) {
+            parts[count++] = part;
+            length = Math.addExact(length, part.length);
+        }
+
+        private byte[] join() {
+            byte[] joined = new byte[length];
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(parts[i], 0, joined, position, parts[i].length);
+                position += parts[i].length;
+            }
+            return joined;
+        }
+    }
+}
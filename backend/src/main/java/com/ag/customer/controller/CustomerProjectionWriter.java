@@ -0,0 +1,138 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.CustomerProjection;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@link CustomerProjectionWriter} class writes projected customers as UTF-8 JSON holding only the requested
+ * fields, streaming the values of each row straight to a {@link JsonGenerator} without building an object to
+ * serialize. Given the {@link JsonFactory} of a binary format such as CBOR or Smile, it writes that format instead.
+ *
+ * <p>Fields are written under their column names and in column order, so a projection of every field looks exactly
+ * like a serialized {@link com.ag.customer.Customer}, and a page like {@link com.ag.dto.CustomerPage}.</p>
+ */
+@Component
+@Profile("!reactive")
+public class CustomerProjectionWriter {
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Constructs a new {@link CustomerProjectionWriter}.
+     *
+     * @param objectMapper the {@link ObjectMapper} whose factory and settings the generators are created with
+     */
+    public CustomerProjectionWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Returns the JSON object of a projected customer.
+     *
+     * @param projection the projection the row was read with
+     * @param row        the values of the row
+     * @return the UTF-8 JSON bytes
+     */
+    public byte[] toJson(CustomerProjection projection, Object[] row) {
+        return write(jsonFactory, projection, row);
+    }
+
+    /**
+     * Returns a projected customer in the format of the specified factory.
+     *
+     * @param factory    the factory of the format, e.g. a {@code CBORFactory}
+     * @param projection the projection the row was read with
+     * @param row        the values of the row
+     * @return the encoded bytes
+     */
+    public byte[] write(JsonFactory factory, CustomerProjection projection, Object[] row) {
+        return write(factory, generator -> writeRow(generator, projection, row));
+    }
+
+    /**
+     * Returns the JSON of a page of projected customers.
+     *
+     * @param projection the projection the rows were read with
+     * @param rows       the values of the rows on the page
+     * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+     * @return the UTF-8 JSON bytes
+     */
+    public byte[] toJsonPage(CustomerProjection projection, List<Object[]> rows, Integer nextCursor) {
+        return writePage(jsonFactory, projection, rows, nextCursor);
+    }
+
+    /**
+     * Returns a page of projected customers in the format of the specified factory.
+     *
+     * @param factory    the factory of the format, e.g. a {@code CBORFactory}
+     * @param projection the projection the rows were read with
+     * @param rows       the values of the rows on the page
+     * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+     * @return the encoded bytes
+     */
+    public byte[] writePage(JsonFactory factory, CustomerProjection projection, List<Object[]> rows, Integer nextCursor) {
+        return write(factory, generator -> {
+            generator.writeStartObject();
+            generator.writeFieldName("customers");
+            // Binary formats can prefix the array with its length, as Jackson does for lists
+            generator.writeStartArray(rows, rows.size());
+            for (Object[] row : rows) {
+                writeRow(generator, projection, row);
+            }
+            generator.writeEndArray();
+            if (nextCursor == null) {
+                generator.writeNullField("nextCursor");
+            } else {
+                generator.writeNumberField("nextCursor", nextCursor);
+            }
+            generator.writeEndObject();
+        });
+    }
+
+    private static void writeRow(JsonGenerator generator, CustomerProjection projection, Object[] row) throws IOException {
+        Set<CustomerProjection.Field> requested = projection.requested();
+        List<CustomerProjection.Field> columns = projection.columns();
+        generator.writeStartObject();
+        for (int i = 0; i < columns.size(); i++) {
+            CustomerProjection.Field field = columns.get(i);
+            if (!requested.contains(field)) {
+                continue;
+            }
+            generator.writeFieldName(field.column());
+            Object value = row[i];
+            if (value instanceof Integer number) {
+                generator.writeNumber(number);
+            } else if (value instanceof String text) {
+                generator.writeString(text);
+            } else {
+                generator.writeNull();
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static byte[] write(JsonFactory factory, JsonWriter writer) {
+        try (ByteArrayBuilder bytes = new ByteArrayBuilder();
+             JsonGenerator generator = factory.createGenerator(bytes)) {
+            writer.write(generator);
+            generator.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,361 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.dto.CustomerPage;
+import com.ag.dto.CustomerRegistrationRequest;
+import com.ag.dto.CustomerUpdateRequest;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link CustomerProtobuf} class encodes customers and requests in the Protobuf wire format described by
+ * {@code src/main/proto/customer.proto}, and decodes them again.
+ *
+ * <p>Fields are written straight from {@link Customer}s and projected rows with a {@link CodedOutputStream}, instead
+ * of being copied into generated message classes first. Each message is sized before it is written, so it is encoded
+ * into a single array of exactly its length. Unknown fields are skipped when decoding, as the schema may grow.</p>
+ */
+public final class CustomerProtobuf {
+    private static final int CUSTOMER_ID = 1;
+    private static final int CUSTOMER_NAME = 2;
+    private static final int CUSTOMER_EMAIL = 3;
+    private static final int CUSTOMER_AGE = 4;
+    private static final int LIST_CUSTOMERS = 1;
+    private static final int PAGE_NEXT_CURSOR = 2;
+    private static final int REQUEST_NAME = 1;
+    private static final int REQUEST_EMAIL = 2;
+    private static final int REQUEST_AGE = 3;
+
+    private static final int CUSTOMER_ID_TAG = CUSTOMER_ID << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int CUSTOMER_NAME_TAG = CUSTOMER_NAME << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int CUSTOMER_EMAIL_TAG = CUSTOMER_EMAIL << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int CUSTOMER_AGE_TAG = CUSTOMER_AGE << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int LIST_CUSTOMERS_TAG = LIST_CUSTOMERS << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int PAGE_NEXT_CURSOR_TAG = PAGE_NEXT_CURSOR << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int REQUEST_NAME_TAG = REQUEST_NAME << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int REQUEST_EMAIL_TAG = REQUEST_EMAIL << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int REQUEST_AGE_TAG = REQUEST_AGE << 3 | WireFormat.WIRETYPE_VARINT;
+
+    private static final Fields<Customer> CUSTOMER_FIELDS = new Fields<>() {
+        @Override
+        public int size(Customer customer) {
+            return customerSize(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+        }
+
+        @Override
+        public void write(CodedOutputStream output, Customer customer) throws IOException {
+            writeCustomer(output, customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+        }
+    };
+
+    private CustomerProtobuf() {
+    }
+
+    /**
+     * Encodes a customer as a {@code Customer} message.
+     *
+     * @param customer the customer
+     * @return the encoded message
+     */
+    public static byte[] encode(Customer customer) {
+        return encode(CUSTOMER_FIELDS.size(customer), output -> CUSTOMER_FIELDS.write(output, customer));
+    }
+
+    /**
+     * Encodes customers as a {@code CustomerList} message.
+     *
+     * @param customers the customers
+     * @return the encoded message
+     */
+    public static byte[] encodeList(List<Customer> customers) {
+        return encodeList(customers, CUSTOMER_FIELDS, null);
+    }
+
+    /**
+     * Encodes a page of customers as a {@code CustomerPage} message.
+     *
+     * @param customers  the customers on the page
+     * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+     * @return the encoded message
+     */
+    public static byte[] encodePage(List<Customer> customers, Integer nextCursor) {
+        return encodeList(customers, CUSTOMER_FIELDS, nextCursor);
+    }
+
+    /**
+     * Encodes a projected customer as a {@code Customer} message holding only the requested fields.
+     *
+     * @param projection the projection the row was read with
+     * @param row        the values of the row
+     * @return the encoded message
+     */
+    public static byte[] encode(CustomerProjection projection, Object[] row) {
+        Fields<Object[]> fields = projectedFields(projection);
+        return encode(fields.size(row), output -> fields.write(output, row));
+    }
+
+    /**
+     * Encodes a page of projected customers as a {@code CustomerPage} message.
+     *
+     * @param projection the projection the rows were read with
+     * @param rows       the values of the rows on the page
+     * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+     * @return the encoded message
+     */
+    public static byte[] encodePage(CustomerProjection projection, List<Object[]> rows, Integer nextCursor) {
+        return encodeList(rows, projectedFields(projection), nextCursor);
+    }
+
+    /**
+     * Encodes a registration as a {@code CustomerRegistrationRequest} message.
+     *
+     * @param request the registration
+     * @return the encoded message
+     */
+    public static byte[] encode(CustomerRegistrationRequest request) {
+        return encodeRequest(request.name(), request.email(), request.age());
+    }
+
+    /**
+     * Encodes an update as a {@code CustomerUpdateRequest} message.
+     *
+     * @param request the update
+     * @return the encoded message
+     */
+    public static byte[] encode(CustomerUpdateRequest request) {
+        return encodeRequest(request.name(), request.email(), request.age());
+    }
+
+    /**
+     * Decodes a {@code Customer} message.
+     *
+     * @param bytes the encoded message
+     * @return the customer, whose absent fields are {@code null}
+     * @throws IOException if the bytes are not a valid message
+     */
+    public static Customer decodeCustomer(byte[] bytes) throws IOException {
+        return readCustomer(CodedInputStream.newInstance(bytes));
+    }
+
+    /**
+     * Decodes a {@code CustomerPage} message, or a {@code CustomerList} message as a page without a next cursor.
+     *
+     * @param bytes the encoded message
+     * @return the page of customers
+     * @throws IOException if the bytes are not a valid message
+     */
+    public static CustomerPage decodePage(byte[] bytes) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        List<Customer> customers = new ArrayList<>();
+        Integer nextCursor = null;
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (tag) {
+                case LIST_CUSTOMERS_TAG -> {
+                    int limit = input.pushLimit(input.readRawVarint32());
+                    customers.add(readCustomer(input));
+                    input.popLimit(limit);
+                }
+                case PAGE_NEXT_CURSOR_TAG -> nextCursor = input.readInt32();
+                default -> input.skipField(tag);
+            }
+        }
+        return new CustomerPage(customers, nextCursor);
+    }
+
+    /**
+     * Decodes a {@code CustomerRegistrationRequest} message.
+     *
+     * @param input the encoded message, read to its end
+     * @return the registration, whose absent fields are {@code null}
+     * @throws IOException if the message cannot be read or is not valid
+     */
+    public static CustomerRegistrationRequest decodeRegistrationRequest(InputStream input) throws IOException {
+        CustomerUpdateRequest fields = decodeUpdateRequest(input);
+        return new CustomerRegistrationRequest(fields.name(), fields.email(), fields.age());
+    }
+
+    /**
+     * Decodes a {@code CustomerUpdateRequest} message.
+     *
+     * @param input the encoded message, read to its end
+     * @return the update, whose absent fields are {@code null}
+     * @throws IOException if the message cannot be read or is not valid
+     */
+    public static CustomerUpdateRequest decodeUpdateRequest(InputStream input) throws IOException {
+        CodedInputStream coded = CodedInputStream.newInstance(input);
+        String name = null;
+        String email = null;
+        Integer age = null;
+        for (int tag = coded.readTag(); tag != 0; tag = coded.readTag()) {
+            switch (tag) {
+                case REQUEST_NAME_TAG -> name = coded.readString();
+                case REQUEST_EMAIL_TAG -> email = coded.readString();
+                case REQUEST_AGE_TAG -> age = coded.readInt32();
+                default -> coded.skipField(tag);
+            }
+        }
+        return new CustomerUpdateRequest(name, email, age);
+    }
+
+    private static Customer readCustomer(CodedInputStream input) throws IOException {
+        Customer customer = new Customer();
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (tag) {
+                case CUSTOMER_ID_TAG -> customer.setId(input.readInt32());
+                case CUSTOMER_NAME_TAG -> customer.setName(input.readString());
+                case CUSTOMER_EMAIL_TAG -> customer.setEmail(input.readString());
+                case CUSTOMER_AGE_TAG -> customer.setAge(input.readInt32());
+                default -> input.skipField(tag);
+            }
+        }
+        return customer;
+    }
+
+    /**
+     * Encodes a list of messages as the {@code customers} field, followed by the next cursor if there is one.
+     */
+    private static <T> byte[] encodeList(List<T> items, Fields<T> fields, Integer nextCursor) {
+        int[] sizes = new int[items.size()];
+        int size = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = fields.size(items.get(i));
+            size += CodedOutputStream.computeTagSize(LIST_CUSTOMERS)
+                    + CodedOutputStream.computeUInt32SizeNoTag(sizes[i]) + sizes[i];
+        }
+        if (nextCursor != null) {
+            size += CodedOutputStream.computeInt32Size(PAGE_NEXT_CURSOR, nextCursor);
+        }
+        return encode(size, output -> {
+            for (int i = 0; i < sizes.length; i++) {
+                output.writeTag(LIST_CUSTOMERS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(sizes[i]);
+                fields.write(output, items.get(i));
+            }
+            if (nextCursor != null) {
+                output.writeInt32(PAGE_NEXT_CURSOR, nextCursor);
+            }
+        });
+    }
+
+    private static byte[] encodeRequest(String name, String email, Integer age) {
+        int size = 0;
+        if (name != null) {
+            size += CodedOutputStream.computeStringSize(REQUEST_NAME, name);
+        }
+        if (email != null) {
+            size += CodedOutputStream.computeStringSize(REQUEST_EMAIL, email);
+        }
+        if (age != null) {
+            size += CodedOutputStream.computeInt32Size(REQUEST_AGE, age);
+        }
+        return encode(size, output -> {
+            if (name != null) {
+                output.writeString(REQUEST_NAME, name);
+            }
+            if (email != null) {
+                output.writeString(REQUEST_EMAIL, email);
+            }
+            if (age != null) {
+                output.writeInt32(REQUEST_AGE, age);
+            }
+        });
+    }
+
+    private static Fields<Object[]> projectedFields(CustomerProjection projection) {
+        int id = index(projection, CustomerProjection.Field.ID);
+        int name = index(projection, CustomerProjection.Field.NAME);
+        int email = index(projection, CustomerProjection.Field.EMAIL);
+        int age = index(projection, CustomerProjection.Field.AGE);
+        return new Fields<>() {
+            @Override
+            public int size(Object[] row) {
+                return customerSize((Integer) value(row, id), (String) value(row, name),
+                        (String) value(row, email), (Integer) value(row, age));
+            }
+
+            @Override
+            public void write(CodedOutputStream output, Object[] row) throws IOException {
+                writeCustomer(output, (Integer) value(row, id), (String) value(row, name),
+                        (String) value(row, email), (Integer) value(row, age));
+            }
+        };
+    }
+
+    /**
+     * Returns the index of a field in the rows of the projection, or {@code -1} if it was not requested.
+     */
+    private static int index(CustomerProjection projection, CustomerProjection.Field field) {
+        return projection.requested().contains(field) ? projection.columns().indexOf(field) : -1;
+    }
+
+    private static Object value(Object[] row, int index) {
+        return index >= 0 ? row[index] : null;
+    }
+
+    private static int customerSize(Integer id, String name, String email, Integer age) {
+        int size = 0;
+        if (id != null) {
+            size += CodedOutputStream.computeInt32Size(CUSTOMER_ID, id);
+        }
+        if (name != null) {
+            size += CodedOutputStream.computeStringSize(CUSTOMER_NAME, name);
+        }
+        if (email != null) {
+            size += CodedOutputStream.computeStringSize(CUSTOMER_EMAIL, email);
+        }
+        if (age != null) {
+            size += CodedOutputStream.computeInt32Size(CUSTOMER_AGE, age);
+        }
+        return size;
+    }
+
+    private static void writeCustomer(CodedOutputStream output, Integer id, String name, String email, Integer age)
+            throws IOException {
+        if (id != null) {
+            output.writeInt32(CUSTOMER_ID, id);
+        }
+        if (name != null) {
+            output.writeString(CUSTOMER_NAME, name);
+        }
+        if (email != null) {
+            output.writeString(CUSTOMER_EMAIL, email);
+        }
+        if (age != null) {
+            output.writeInt32(CUSTOMER_AGE, age);
+        }
+    }
+
+    private static byte[] encode(int size, MessageWriter writer) {
+        byte[] bytes = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        try {
+            writer.write(output);
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes;
+    }
+
+    /**
+     * Sizes and writes the fields of a {@code Customer} message held by some other object.
+     */
+    private interface Fields<T> {
+        int size(T value);
+
+        void write(CodedOutputStream output, T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface MessageWriter {
+        void write(CodedOutputStream output) throws IOException;
+    }
+}
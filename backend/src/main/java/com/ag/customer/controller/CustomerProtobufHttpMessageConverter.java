@@ -0,0 +1,63 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.Customer;
+import com.ag.dto.CustomerRegistrationRequest;
+import com.ag.dto.CustomerUpdateRequest;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * The {@link CustomerProtobufHttpMessageConverter} class reads registration and update request bodies sent as
+ * Protobuf, and writes the customers returned by updates, using {@link CustomerProtobuf}.
+ *
+ * <p>Responses written from encoded bytes by the {@link CustomerController} are encoded there instead.</p>
+ */
+public class CustomerProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    /**
+     * Constructs a new {@link CustomerProtobufHttpMessageConverter} for {@code application/x-protobuf}.
+     */
+    public CustomerProtobufHttpMessageConverter() {
+        super(CustomerEncoding.PROTOBUF.mediaType());
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Customer.class
+                || clazz == CustomerRegistrationRequest.class
+                || clazz == CustomerUpdateRequest.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz != Customer.class && super.canRead(clazz, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return clazz == Customer.class && super.canWrite(clazz, mediaType);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            if (clazz == CustomerRegistrationRequest.class) {
+                return CustomerProtobuf.decodeRegistrationRequest(inputMessage.getBody());
+            }
+            return CustomerProtobuf.decodeUpdateRequest(inputMessage.getBody());
+        } catch (InvalidProtocolBufferException e) {
+            throw new HttpMessageNotReadableException("Invalid Protobuf message: %s".formatted(e.getMessage()),
+                    e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object customer, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(CustomerProtobuf.encode((Customer) customer));
+    }
+}
@@ -0,0 +1,141 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.Customer;
+import com.ag.customer.service.CustomerService;
+import com.ag.customer.service.ReactiveCustomerService;
+import com.ag.dto.CustomerBatchResult;
+import com.ag.dto.CustomerPage;
+import com.ag.dto.CustomerRegistrationRequest;
+import com.ag.dto.CustomerUpdateRequest;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * The {@link ReactiveCustomerController} serves the same customer endpoints as {@link CustomerController} on WebFlux,
+ * when the {@code reactive} profile is active.
+ * Handlers return as soon as their query is sent, so a slow client or query does not hold a thread.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("api/v1/customers")
+public class ReactiveCustomerController {
+    private final ReactiveCustomerService customerService;
+    private final CustomerService blockingCustomerService;
+
+    /**
+     * Constructs a new {@link ReactiveCustomerController}.
+     *
+     * @param customerService         the service to handle customer-related operations
+     * @param blockingCustomerService the blocking service, used for batch registration
+     */
+    public ReactiveCustomerController(ReactiveCustomerService customerService, CustomerService blockingCustomerService) {
+        this.customerService = customerService;
+        this.blockingCustomerService = blockingCustomerService;
+    }
+
+    /**
+     * Retrieves one page of customers ordered by ID.
+     *
+     * @param after the ID to resume after; pass the previous page's {@code nextCursor}
+     * @param limit the maximum number of customers to return
+     * @return the page of customers and the cursor for the next page
+     */
+    @GetMapping
+    public Mono<CustomerPage> getCustomers(@RequestParam(value = "after", required = false) Integer after,
+                                           @RequestParam(value = "limit", required = false) Integer limit) {
+        return customerService.getCustomersPage(after, limit);
+    }
+
+    /**
+     * Retrieves the customers with the specified IDs in a single query.
+     *
+     * @param ids the IDs of the customers to retrieve, e.g. {@code ?ids=1,2,3}
+     * @return the customers found, in the order their IDs were requested
+     */
+    @GetMapping(params = "ids")
+    public Flux<Customer> getCustomersByIds(@RequestParam("ids") List<Integer> ids) {
+        return customerService.getCustomersByIds(ids);
+    }
+
+    /**
+     * Exports every customer as newline-delimited JSON. Rows are only read as fast as the client consumes them.
+     *
+     * @return every customer, one per line
+     */
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Customer> exportCustomers() {
+        return customerService.exportCustomers();
+    }
+
+    /**
+     * Retrieves a customer by their ID.
+     *
+     * @param id the ID of the customer to retrieve
+     * @return the customer with the specified ID
+     */
+    @GetMapping("{id}")
+    public Mono<Customer> getCustomerById(@PathVariable("id") Integer id) {
+        return customerService.getCustomerById(id);
+    }
+
+    /**
+     * Registers a new customer.
+     *
+     * @param customerRegistrationRequest the request containing the customer's registration information
+     * @param request                     the current request, used to build the new customer's URI
+     * @return an empty response whose {@code Location} header points at the new customer
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Void>> registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest,
+                                                       ServerHttpRequest request) {
+        return customerService.addCustomer(customerRegistrationRequest)
+                .map(id -> ResponseEntity.ok()
+                        .location(UriComponentsBuilder.fromUri(request.getURI()).path("/{id}").buildAndExpand(id).toUri())
+                        .<Void>build());
+    }
+
+    /**
+     * Registers several customers at once.
+     * The batch is written with blocking JDBC batch inserts on a worker thread, off the event loop.
+     *
+     * @param customerRegistrationRequests the registrations to add
+     * @return one result per registration, in the order they were submitted
+     */
+    @PostMapping("batch")
+    public Mono<List<CustomerBatchResult>> registerCustomers(@RequestBody List<CustomerRegistrationRequest> customerRegistrationRequests) {
+        return Mono.fromCallable(() -> blockingCustomerService.addCustomers(customerRegistrationRequests))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Deletes a customer by their ID.
+     *
+     * @param id the ID of the customer to delete
+     * @return completes once the customer is deleted
+     */
+    @DeleteMapping("{id}")
+    public Mono<Void> deleteCustomer(@PathVariable("id") Integer id) {
+        return customerService.deleteCustomerById(id);
+    }
+
+    /**
+     * Updates the information of an existing customer.
+     *
+     * @param id                    the ID of the customer to update
+     * @param updateCustomerRequest the request containing the updated customer information
+     * @return the customer as stored after the update
+     */
+    @PutMapping("{id}")
+    public Mono<Customer> updateCustomerInformation(@PathVariable("id") Integer id, @RequestBody CustomerUpdateRequest updateCustomerRequest) {
+        return customerService.updateCustomer(id, updateCustomerRequest);
+    }
+}
@@ -0,0 +1,82 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.service.ReadYourWrites;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * The {@link ReadYourWritesFilter} class keeps a client reading from the primary database for a short while after it
+ * wrote, so that it does not read an older copy of its own changes from a replica that has not caught up yet.
+ *
+ * <p>When a request writes, the response sets a {@value #COOKIE} cookie holding the time until which the client's
+ * reads must go to the primary. Requests carrying an unexpired cookie read from the primary. Only active when read
+ * replicas are configured.</p>
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "customer.datasource.replica-urls")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    /**
+     * The cookie holding the time, in epoch milliseconds, until which the client reads from the primary.
+     */
+    public static final String COOKIE = "customer-read-primary-until";
+
+    private final Duration window;
+
+    /**
+     * Constructs a new {@link ReadYourWritesFilter}.
+     *
+     * @param window how long a client reads from the primary after writing
+     */
+    public ReadYourWritesFilter(@Value("${customer.datasource.read-your-writes-window:5s}") Duration window) {
+        this.window = window;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        ReadYourWrites.begin(readPrimaryUntil(request) > now, () -> {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis() + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+        });
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.end();
+        }
+    }
+
+    private static long readPrimaryUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
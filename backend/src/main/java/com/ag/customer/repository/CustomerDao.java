@@ -1,9 +1,16 @@
 package com.ag.customer.repository;
 
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * The {@link CustomerDao} interface is responsible for accessing the database store for {@link Customer} entities.
@@ -17,6 +24,53 @@ public interface CustomerDao {
      */
     List<Customer> selectAllCustomers();
 
+    /**
+     * Retrieves up to {@code limit} customers whose ID is greater than {@code afterId}, ordered by ID.
+     * The lookup seeks on the primary key index, so every page costs the same regardless of its depth.
+     *
+     * @param afterId the ID to resume after (exclusive)
+     * @param limit   the maximum number of customers to return
+     * @return the customers following {@code afterId}, ordered by ID
+     */
+    List<Customer> selectCustomersAfter(Integer afterId, int limit);
+
+    /**
+     * Retrieves up to {@code limit} customers matching the search whose ID is greater than {@code afterId}, ordered by ID.
+     * Every filter is answered from an index, so a search never scans the whole table.
+     *
+     * @param search  the search filters; at least one must be set
+     * @param afterId the ID to resume after (exclusive)
+     * @param limit   the maximum number of customers to return
+     * @return the matching customers following {@code afterId}, ordered by ID
+     */
+    List<Customer> searchCustomers(CustomerSearch search, Integer afterId, int limit);
+
+    /**
+     * Retrieves only the projected fields of up to {@code limit} customers whose ID is greater than {@code afterId},
+     * ordered by ID, without materializing {@link Customer} objects.
+     *
+     * @param projection the fields to read
+     * @param afterId    the ID to resume after (exclusive)
+     * @param limit      the maximum number of customers to return
+     * @return one row per customer, with values in the order of {@link CustomerProjection#columns()}
+     */
+    List<Object[]> selectCustomerFieldsAfter(CustomerProjection projection, Integer afterId, int limit);
+
+    /**
+     * Streams every customer, ordered by ID, to the given action one row at a time.
+     * Rows are read through a database cursor so memory use does not grow with the size of the table.
+     *
+     * @param action the action to perform for each customer
+     */
+    void streamAllCustomers(Consumer<Customer> action);
+
+    /**
+     * Streams the email of every customer to the given action one row at a time, through a database cursor.
+     *
+     * @param action the action to perform for each email
+     */
+    void streamAllEmails(Consumer<String> action);
+
     /**
      * Retrieves a customer by their ID.
      *
@@ -26,11 +80,64 @@ public interface CustomerDao {
     Optional<Customer> selectCustomerById(Integer id);
 
     /**
-     * Inserts a new customer into the database.
+     * Retrieves the customers with the specified IDs using a single query.
+     *
+     * @param ids the IDs of the customers to retrieve
+     * @return the customers found, in no particular order; IDs without a customer are left out
+     */
+    List<Customer> selectCustomersByIds(Collection<Integer> ids);
+
+    /**
+     * Retrieves only the projected fields of the customer with the specified ID.
+     *
+     * @param projection the fields to read
+     * @param id         the ID of the customer
+     * @return the row of the customer, with values in the order of {@link CustomerProjection#columns()}, or an empty
+     * {@link Optional} if not found
+     */
+    Optional<Object[]> selectCustomerFieldsById(CustomerProjection projection, Integer id);
+
+    /**
+     * Retrieves the version of a customer without reading the rest of the row.
+     *
+     * @param id the ID of the customer
+     * @return an {@link Optional} containing the version of the customer, or an empty {@link Optional} if not found
+     */
+    Optional<CustomerVersion> selectCustomerVersion(Integer id);
+
+    /**
+     * Retrieves a version of the customers that {@link #selectCustomersAfter(Integer, int)} and
+     * {@link #selectCustomerFieldsAfter(CustomerProjection, Integer, int)} currently answer with, if it can be told
+     * without reading them. The version changes whenever they may answer differently.
+     *
+     * @return an {@link Optional} containing the version, or an empty {@link Optional} if it can only be told from the
+     * customers themselves
+     */
+    Optional<String> selectListVersion();
+
+    /**
+     * Inserts a new customer into the database unless their email is already taken.
+     * The uniqueness check and the insert happen in a single atomic statement.
      *
      * @param customer the customer to insert
+     * @return an {@link Optional} containing the generated ID, or an empty {@link Optional} if the email already exists
      */
-    void insertCustomer(Customer customer);
+    Optional<Integer> insertCustomer(Customer customer);
+
+    /**
+     * Inserts several new customers using batched statements.
+     *
+     * @param customers the customers to insert
+     */
+    void insertCustomers(List<Customer> customers);
+
+    /**
+     * Inserts several new customers in one transaction, skipping any whose email is already taken.
+     *
+     * @param customers the customers to insert; their emails must be distinct
+     * @return the generated ID of every inserted customer by email; emails that already existed are left out
+     */
+    Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers);
 
     /**
      * Checks if a customer exists with the specified email.
@@ -41,11 +148,20 @@ public interface CustomerDao {
     boolean existsPersonWithEmail(String email);
 
     /**
-     * Deletes a customer by their ID.
+     * Finds which of the specified emails already belong to a customer, using a single query.
+     *
+     * @param emails the emails to check
+     * @return the subset of {@code emails} that already exist
+     */
+    Set<String> selectExistingEmails(Collection<String> emails);
+
+    /**
+     * Deletes a customer by their ID in a single statement.
      *
      * @param id the ID of the customer to delete
+     * @return the number of customers deleted, which is 0 if no customer has that ID
      */
-    void deleteCustomerById(Integer id);
+    int deleteCustomerById(Integer id);
 
     /**
      * Checks if a customer exists with the specified ID.
@@ -56,9 +172,16 @@ public interface CustomerDao {
     boolean existsPersonById(Integer id);
 
     /**
-     * Updates the information of an existing customer.
+     * Updates the information of an existing customer in a single statement.
+     * Only the non-null name, email and age of {@code updatedCustomer} are written, and nothing is written
+     * when every one of them already holds the supplied value. A write increments the customer's version.
+     * If {@code updatedCustomer} has a version, the row is only written while it still has that version, so an update
+     * based on a stale copy cannot overwrite a newer one.
      *
-     * @param updatedCustomer the customer with updated information
+     * @param updatedCustomer the customer with updated information; its ID selects the row to update
+     * @return an {@link Optional} containing the customer as stored after the update, or an empty {@link Optional}
+     * if no customer has that ID, it is at a different version than expected, or nothing changed
+     * @throws org.springframework.dao.DuplicateKeyException if the new email belongs to another customer
      */
-    void updateCustomer(Customer updatedCustomer);
+    Optional<Customer> updateCustomer(Customer updatedCustomer);
 }
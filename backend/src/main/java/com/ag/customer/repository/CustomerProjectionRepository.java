@@ -0,0 +1,32 @@
+package com.ag.customer.repository;
+
+import com.ag.customer.CustomerProjection;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@link CustomerProjectionRepository} interface is a fragment of {@link CustomerRepository} for projections,
+ * whose select list is only known at run time and so cannot be expressed as a derived or annotated query.
+ */
+public interface CustomerProjectionRepository {
+    /**
+     * Retrieves the projected fields of up to {@code limit} customers whose ID is greater than {@code afterId},
+     * ordered by ID.
+     *
+     * @param projection the fields to read
+     * @param afterId    the ID to resume after (exclusive)
+     * @param limit      the maximum number of customers to return
+     * @return one row per customer, with values in the order of {@link CustomerProjection#columns()}
+     */
+    List<Object[]> findFieldsAfter(CustomerProjection projection, Integer afterId, int limit);
+
+    /**
+     * Retrieves the projected fields of the customer with the specified ID.
+     *
+     * @param projection the fields to read
+     * @param id         the ID of the customer
+     * @return the row of the customer, or an empty {@link Optional} if not found
+     */
+    Optional<Object[]> findFieldsById(CustomerProjection projection, Integer id);
+}
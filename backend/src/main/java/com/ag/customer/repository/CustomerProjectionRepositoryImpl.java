@@ -0,0 +1,45 @@
+package com.ag.customer.repository;
+
+import com.ag.customer.CustomerProjection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@link CustomerProjectionRepositoryImpl} class implements {@link CustomerProjectionRepository} with JPQL tuple
+ * queries selecting only the projected attributes, so no {@link com.ag.customer.Customer} entity is loaded or managed.
+ */
+public class CustomerProjectionRepositoryImpl implements CustomerProjectionRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Object[]> findFieldsAfter(CustomerProjection projection, Integer afterId, int limit) {
+        String jpql = "SELECT %s FROM Customer c WHERE c.id > :afterId ORDER BY c.id".formatted(projection.jpqlColumns("c"));
+        return entityManager.createQuery(jpql, Tuple.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(Tuple::toArray)
+                .toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Object[]> findFieldsById(CustomerProjection projection, Integer id) {
+        String jpql = "SELECT %s FROM Customer c WHERE c.id = :id".formatted(projection.jpqlColumns("c"));
+        return entityManager.createQuery(jpql, Tuple.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .map(Tuple::toArray);
+    }
+}
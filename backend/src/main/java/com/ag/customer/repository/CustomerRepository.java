@@ -1,13 +1,87 @@
 package com.ag.customer.repository;
 
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerVersion;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * The {@link CustomerRepository} interface extends {@link JpaRepository} to provide CRUD operations for {@link Customer} entities.
  * It also includes custom methods to check for the existence of a customer by email and ID.
  */
-public interface CustomerRepository extends JpaRepository<Customer, Integer> {
+public interface CustomerRepository extends JpaRepository<Customer, Integer>, CustomerSearchRepository,
+        CustomerProjectionRepository {
+    /**
+     * Inserts a new customer unless the email is already taken, in a single atomic statement.
+     *
+     * @param name  the name of the customer
+     * @param email the email of the customer
+     * @param age   the age of the customer
+     * @return an {@link Optional} containing the generated ID, or an empty {@link Optional} if the email already exists
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO customer (name, email, age)
+            VALUES (:name, :email, :age)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id
+            """, nativeQuery = true)
+    Optional<Integer> insertIgnoringDuplicateEmail(@Param("name") String name, @Param("email") String email, @Param("age") Integer age);
+
+    /**
+     * Updates the supplied fields of a customer in a single statement, without reading it first. With an expected
+     * version the update is a compare-and-set: it only applies if the customer is still at that version, so a
+     * concurrent update can never be lost and no row needs to be locked in advance.
+     *
+     * @param id       the ID of the customer
+     * @param name     the new name, or {@code null} to keep it
+     * @param email    the new email, or {@code null} to keep it
+     * @param age      the new age, or {@code null} to keep it
+     * @param expected the version the customer must be at, or {@code null} for any version
+     * @return an {@link Optional} containing the customer as stored after the update, or an empty {@link Optional}
+     * if no customer has that ID, it is at a different version, or nothing would change
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE customer
+            SET name = COALESCE(CAST(:name AS text), name),
+                email = COALESCE(CAST(:email AS text), email),
+                age = COALESCE(CAST(:age AS integer), age),
+                version = version + 1,
+                updated_at = now()
+            WHERE id = :id
+              AND (CAST(:expected AS bigint) IS NULL OR version = CAST(:expected AS bigint))
+              AND (name IS DISTINCT FROM COALESCE(CAST(:name AS text), name)
+                OR email IS DISTINCT FROM COALESCE(CAST(:email AS text), email)
+                OR age IS DISTINCT FROM COALESCE(CAST(:age AS integer), age))
+            RETURNING id, name, email, age, version, updated_at
+            """, nativeQuery = true)
+    Optional<Customer> updateIfChanged(@Param("id") Integer id, @Param("name") String name,
+                                       @Param("email") String email, @Param("age") Integer age,
+                                       @Param("expected") Long expected);
+
+    /**
+     * Retrieves the version of a customer without loading the entity.
+     *
+     * @param id the ID of the customer
+     * @return an {@link Optional} containing the version, or an empty {@link Optional} if not found
+     */
+    @Query("SELECT new com.ag.customer.CustomerVersion(c.version, c.updatedAt) FROM Customer c WHERE c.id = :id")
+    Optional<CustomerVersion> findVersionById(@Param("id") Integer id);
+
     /**
      * Checks if a customer exists with the specified email.
      *
@@ -16,6 +90,15 @@ public interface CustomerRepository extends JpaRepository<Customer, Integer> {
      */
     boolean existsCustomerByEmail(String email);
 
+    /**
+     * Finds which of the specified emails already belong to a customer.
+     *
+     * @param emails the emails to check
+     * @return the subset of {@code emails} that already exist
+     */
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     /**
      * Checks if a customer exists with the specified ID.
      *
@@ -23,4 +106,45 @@ public interface CustomerRepository extends JpaRepository<Customer, Integer> {
      * @return true if a customer exists with the specified ID, false otherwise
      */
     boolean existsCustomerById(Integer id);
+
+    /**
+     * Deletes the customer with the specified ID in a single statement, without loading it first.
+     *
+     * @param id the ID of the customer to delete
+     * @return the number of customers deleted, which is 0 if no customer has that ID
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = :id")
+    int deleteCustomerById(@Param("id") Integer id);
+
+    /**
+     * Retrieves customers whose ID is greater than the specified ID, ordered by ID.
+     *
+     * @param id    the ID to resume after (exclusive)
+     * @param limit the maximum number of customers to return
+     * @return the customers following the specified ID, ordered by ID
+     */
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    /**
+     * Streams every customer ordered by ID through a database cursor.
+     * The constructor expression returns detached instances, so the persistence context does not grow while streaming.
+     * Must be called inside a transaction and the returned stream must be closed.
+     *
+     * @return a stream of all customers ordered by ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.ag.customer.Customer(c.id, c.name, c.email, c.age, c.version, c.updatedAt) FROM Customer c ORDER BY c.id")
+    Stream<Customer> streamAllByOrderById();
+
+    /**
+     * Streams the email of every customer through a database cursor.
+     * Must be called inside a transaction and the returned stream must be closed.
+     *
+     * @return a stream of all customer emails
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.email FROM Customer c")
+    Stream<String> streamAllEmails();
 }
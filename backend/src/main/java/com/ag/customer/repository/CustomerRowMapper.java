@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 
 /**
  * The {@link CustomerRowMapper} class implements the {@link RowMapper} interface to map rows of a {@link ResultSet} to {@link Customer} objects.
@@ -22,10 +23,14 @@ public class CustomerRowMapper implements RowMapper<Customer> {
      */
     @Override
     public Customer mapRow(ResultSet resultSet, int rowNum) throws SQLException {
-        return new Customer(
+        Customer customer = new Customer(
                 resultSet.getInt("id"),
                 resultSet.getString("name"),
                 resultSet.getString("email"),
                 resultSet.getInt("age"));
+        customer.setVersion(resultSet.getLong("version"));
+        Timestamp updatedAt = resultSet.getTimestamp("updated_at");
+        customer.setUpdatedAt(updatedAt != null ? updatedAt.toInstant() : null);
+        return customer;
     }
 }
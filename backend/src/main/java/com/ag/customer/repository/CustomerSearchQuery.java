@@ -0,0 +1,89 @@
+package com.ag.customer.repository;
+
+import com.ag.customer.CustomerSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link CustomerSearchQuery} class builds the SQL of a {@link CustomerSearch}, shared by the JDBC and JPA data
+ * access services so that both send the database the same statement.
+ *
+ * <p>Each filter is written exactly as the index that serves it is defined: names are matched with {@code ILIKE}
+ * through the {@code pg_trgm} GIN index, email domains through the expression index on the lower-cased domain, and
+ * ages through the btree index on {@code age}. Only the filters that are set are added, so a prepared statement never
+ * carries an {@code OR ? IS NULL} branch that would keep the planner from using them.</p>
+ */
+public class CustomerSearchQuery {
+    private final String sql;
+    private final List<Object> parameters;
+
+    /**
+     * Constructs the query of a page of search results.
+     *
+     * @param search  the search filters; at least one must be set
+     * @param afterId the ID to resume after (exclusive)
+     * @param limit   the maximum number of customers to return
+     */
+    public CustomerSearchQuery(CustomerSearch search, Integer afterId, int limit) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (search.namePrefix() != null) {
+            conditions.add("name ILIKE ?");
+            values.add(escapeLike(search.namePrefix()) + "%");
+        }
+        if (search.name() != null) {
+            conditions.add("name ILIKE ?");
+            values.add("%" + escapeLike(search.name()) + "%");
+        }
+        if (search.emailDomain() != null) {
+            conditions.add("lower(split_part(email, '@', 2)) = lower(?)");
+            values.add(search.emailDomain());
+        }
+        if (search.minAge() != null) {
+            conditions.add("age >= ?");
+            values.add(search.minAge());
+        }
+        if (search.maxAge() != null) {
+            conditions.add("age <= ?");
+            values.add(search.maxAge());
+        }
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("A customer search needs at least one filter");
+        }
+        conditions.add("id > ?");
+        values.add(afterId);
+        values.add(limit);
+        this.sql = """
+                SELECT id, name, email, age, version, updated_at FROM customer
+                WHERE %s
+                ORDER BY id LIMIT ?
+                """.formatted(String.join(" AND ", conditions));
+        this.parameters = List.copyOf(values);
+    }
+
+    /**
+     * Returns the SQL, with one positional {@code ?} placeholder per parameter.
+     *
+     * @return the SQL of the query
+     */
+    public String sql() {
+        return sql;
+    }
+
+    /**
+     * Returns the values of the placeholders, in order.
+     *
+     * @return the parameters of the query
+     */
+    public List<Object> parameters() {
+        return parameters;
+    }
+
+    /**
+     * Escapes the {@code LIKE} wildcards in user input, so that they are matched literally.
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
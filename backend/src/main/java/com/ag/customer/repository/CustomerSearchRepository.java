@@ -0,0 +1,22 @@
+package com.ag.customer.repository;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerSearch;
+
+import java.util.List;
+
+/**
+ * The {@link CustomerSearchRepository} interface is a fragment of {@link CustomerRepository} for searches, whose
+ * filters are only known at run time and so cannot be expressed as a derived or annotated query.
+ */
+public interface CustomerSearchRepository {
+    /**
+     * Retrieves up to {@code limit} customers matching the search whose ID is greater than {@code afterId}, ordered by ID.
+     *
+     * @param search  the search filters; at least one must be set
+     * @param afterId the ID to resume after (exclusive)
+     * @param limit   the maximum number of customers to return
+     * @return the matching customers following {@code afterId}, ordered by ID
+     */
+    List<Customer> search(CustomerSearch search, Integer afterId, int limit);
+}
@@ -0,0 +1,33 @@
+package com.ag.customer.repository;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerSearch;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.List;
+
+/**
+ * The {@link CustomerSearchRepositoryImpl} class implements {@link CustomerSearchRepository} with a native query built
+ * by {@link CustomerSearchQuery}, so that the JPA data access service searches through the same indexes as JDBC.
+ */
+public class CustomerSearchRepositoryImpl implements CustomerSearchRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Customer> search(CustomerSearch search, Integer afterId, int limit) {
+        CustomerSearchQuery searchQuery = new CustomerSearchQuery(search, afterId, limit);
+        Query query = entityManager.createNativeQuery(searchQuery.sql(), Customer.class);
+        List<Object> parameters = searchQuery.parameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            query.setParameter(i + 1, parameters.get(i));
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.ag.customer.repository;
+
+import com.ag.customer.Customer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * The {@link ReactiveCustomerDao} interface is the non-blocking counterpart of {@link CustomerDao}.
+ * Every method returns immediately and signals its result, or any data access error, through the returned publisher.
+ */
+public interface ReactiveCustomerDao {
+    /**
+     * Retrieves up to {@code limit} customers whose ID is greater than {@code afterId}, ordered by ID.
+     *
+     * @param afterId the ID to resume after (exclusive)
+     * @param limit   the maximum number of customers to return
+     * @return the customers following {@code afterId}, ordered by ID
+     */
+    Flux<Customer> selectCustomersAfter(Integer afterId, int limit);
+
+    /**
+     * Streams every customer, ordered by ID. Rows are pulled from the database as the subscriber requests them.
+     *
+     * @return all customers ordered by ID
+     */
+    Flux<Customer> streamAllCustomers();
+
+    /**
+     * Retrieves a customer by their ID.
+     *
+     * @param id the ID of the customer to retrieve
+     * @return the customer, or an empty {@link Mono} if not found
+     */
+    Mono<Customer> selectCustomerById(Integer id);
+
+    /**
+     * Retrieves the customers with the specified IDs using a single query.
+     *
+     * @param ids the IDs of the customers to retrieve
+     * @return the customers found, in no particular order
+     */
+    Flux<Customer> selectCustomersByIds(Collection<Integer> ids);
+
+    /**
+     * Inserts a new customer unless their email is already taken, in a single atomic statement.
+     *
+     * @param customer the customer to insert
+     * @return the generated ID, or an empty {@link Mono} if the email already exists
+     */
+    Mono<Integer> insertCustomer(Customer customer);
+
+    /**
+     * Deletes a customer by their ID in a single statement.
+     *
+     * @param id the ID of the customer to delete
+     * @return the number of customers deleted, which is 0 if no customer has that ID
+     */
+    Mono<Long> deleteCustomerById(Integer id);
+
+    /**
+     * Checks if a customer exists with the specified ID.
+     *
+     * @param id the ID to check
+     * @return true if a customer exists with the specified ID, false otherwise
+     */
+    Mono<Boolean> existsPersonById(Integer id);
+
+    /**
+     * Updates the non-null name, email and age of an existing customer in a single statement,
+     * writing nothing when every one of them already holds the supplied value.
+     *
+     * @param updatedCustomer the customer with updated information; its ID selects the row to update
+     * @return the customer as stored after the update, or an empty {@link Mono} if no customer has that ID or nothing
+     * changed; signals {@link org.springframework.dao.DuplicateKeyException} if the new email belongs to another customer
+     */
+    Mono<Customer> updateCustomer(Customer updatedCustomer);
+}
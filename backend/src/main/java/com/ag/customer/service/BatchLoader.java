@@ -0,0 +1,163 @@
+package com.ag.customer.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * The {@link BatchLoader} class collects single-key loads arriving close together and serves them with one batch load.
+ *
+ * <p>A caller that finds no load in flight loads its key straight away, so a lone lookup never waits. Callers arriving
+ * while a load is in flight join one open batch, which the caller that opened it loads as soon as the loads in flight
+ * have finished, or once the batching window has passed if they take longer. Keys are thus only collected while
+ * earlier loads keep the data source busy. A batch that reaches the maximum size is loaded immediately by the caller
+ * that filled it. Loads run on the callers' threads and no background threads are involved, so there is nothing to
+ * shut down.</p>
+ *
+ * @param <K> the type of key to load
+ * @param <V> the type of value loaded
+ */
+public class BatchLoader<K, V> {
+    private final Function<Set<K>, Map<K, V>> batchLoadFunction;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Signalled whenever a load finishes or the open batch fills up.
+     */
+    private final Condition changed = lock.newCondition();
+    /**
+     * The batch still accepting keys, or {@code null} if none is open.
+     */
+    private Map<K, CompletableFuture<V>> openBatch;
+    /**
+     * The number of loads running.
+     */
+    private int loading;
+
+    /**
+     * Constructs a new {@link BatchLoader}.
+     *
+     * @param batchLoadFunction loads the values for a set of keys, leaving out keys that have no value
+     * @param window            the longest a batch waits for the loads in flight before it is loaded anyway
+     * @param maxBatchSize      the number of keys at which a batch is loaded without waiting any longer
+     */
+    public BatchLoader(Function<Set<K>, Map<K, V>> batchLoadFunction, Duration window, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be greater than zero");
+        }
+        this.batchLoadFunction = batchLoadFunction;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Loads the value for the key, on its own if nothing else is loading and as part of a batch otherwise.
+     *
+     * @param key the key to load
+     * @return the value, or {@code null} if the key has none
+     */
+    public V load(K key) {
+        Map<K, CompletableFuture<V>> batch;
+        CompletableFuture<V> value;
+        boolean opened = false;
+        boolean ready = false;
+        lock.lock();
+        try {
+            if (openBatch == null && loading == 0) {
+                batch = new LinkedHashMap<>();
+                ready = true;
+            } else {
+                if (openBatch == null) {
+                    openBatch = new LinkedHashMap<>();
+                    opened = true;
+                }
+                batch = openBatch;
+            }
+            value = batch.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (!ready && batch.size() >= maxBatchSize) {
+                openBatch = null;
+                ready = true;
+                changed.signalAll();
+            }
+            if (ready) {
+                loading++;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (ready) {
+            dispatch(batch);
+        } else if (opened && close(batch)) {
+            dispatch(batch);
+        }
+        return await(value);
+    }
+
+    /**
+     * Waits for the loads in flight to finish or the window to close, then stops the batch accepting keys, unless it
+     * already filled up and was dispatched by another caller.
+     */
+    private boolean close(Map<K, CompletableFuture<V>> batch) {
+        lock.lock();
+        try {
+            long remainingNanos = windowNanos;
+            while (openBatch == batch && loading > 0 && remainingNanos > 0) {
+                try {
+                    remainingNanos = changed.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    // Load what has been collected so far rather than leave the other callers waiting
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (openBatch != batch) {
+                return false;
+            }
+            openBatch = null;
+            loading++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch) {
+        try {
+            Map<K, V> values = batchLoadFunction.apply(batch.keySet());
+            batch.forEach((key, value) -> value.complete(values.get(key)));
+        } catch (RuntimeException | Error e) {
+            batch.values().forEach(value -> value.completeExceptionally(e));
+        } finally {
+            lock.lock();
+            try {
+                loading--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private V await(CompletableFuture<V> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            // Rethrow what the batch load threw, as if this caller had loaded the key itself
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link BatchingCustomerDao} class decorates a {@link CustomerDao} so that lookups by a single ID arriving while
+ * another lookup is running are served together by one {@link #selectCustomersByIds(java.util.Collection)} query.
+ *
+ * <p>A lookup that finds no other running is sent straight away. Those arriving meanwhile wait for it, but never longer
+ * than the batching window, and then share one round trip and one pooled connection.</p>
+ */
+public class BatchingCustomerDao extends ForwardingCustomerDao {
+    private final BatchLoader<Integer, Customer> customerLoader;
+
+    /**
+     * Constructs a new {@link BatchingCustomerDao} batching lookups against the specified {@link CustomerDao}.
+     *
+     * @param delegate     the {@link CustomerDao} running the batched queries
+     * @param window       the longest a batch waits for the lookups running before it is queried anyway
+     * @param maxBatchSize the number of IDs at which a batch is queried without waiting any longer
+     */
+    public BatchingCustomerDao(CustomerDao delegate, Duration window, int maxBatchSize) {
+        super(delegate);
+        this.customerLoader = new BatchLoader<>(
+                ids -> delegate.selectCustomersByIds(ids).stream()
+                        .collect(Collectors.toMap(Customer::getId, Function.identity())),
+                window,
+                maxBatchSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        return Optional.ofNullable(customerLoader.load(id));
+    }
+}
@@ -0,0 +1,94 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link BloomFilterCustomerDao} class decorates a {@link CustomerDao} so that the existing emails query of a batch
+ * registration consults an {@link EmailBloomFilter} first.
+ *
+ * <p>Only emails the filter reports as possibly present are looked up in the database, and a batch of new emails
+ * skips the query altogether. Single registrations claim their email with one atomic insert and never check first,
+ * so there is nothing to guard there. Emails written through this DAO are added to the filter both before and after
+ * the write, so a concurrent check never misses them. Emails written elsewhere since the last rebuild, by other
+ * instances or the reactive API, are not in the filter; a batch registration of one is skipped by its insert and
+ * reported as a duplicate.</p>
+ */
+public class BloomFilterCustomerDao extends ForwardingCustomerDao {
+    private final EmailBloomFilter emailFilter;
+
+    /**
+     * Constructs a new {@link BloomFilterCustomerDao} guarding the specified {@link CustomerDao}.
+     *
+     * @param delegate    the {@link CustomerDao} to query when the filter cannot rule an email out
+     * @param emailFilter the filter of known customer emails
+     */
+    public BloomFilterCustomerDao(CustomerDao delegate, EmailBloomFilter emailFilter) {
+        super(delegate);
+        this.emailFilter = emailFilter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        Set<String> candidates = emails.stream()
+                .filter(emailFilter::mightContain)
+                .collect(Collectors.toSet());
+        return candidates.isEmpty() ? Set.of() : delegate.selectExistingEmails(candidates);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        emailFilter.put(customer.getEmail());
+        Optional<Integer> id = delegate.insertCustomer(customer);
+        emailFilter.put(customer.getEmail());
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        customers.forEach(customer -> emailFilter.put(customer.getEmail()));
+        delegate.insertCustomers(customers);
+        customers.forEach(customer -> emailFilter.put(customer.getEmail()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        customers.forEach(customer -> emailFilter.put(customer.getEmail()));
+        Map<String, Integer> ids = delegate.insertCustomersIgnoringDuplicateEmails(customers);
+        customers.forEach(customer -> emailFilter.put(customer.getEmail()));
+        return ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        if (updatedCustomer.getEmail() == null) {
+            return delegate.updateCustomer(updatedCustomer);
+        }
+        emailFilter.put(updatedCustomer.getEmail());
+        Optional<Customer> updated = delegate.updateCustomer(updatedCustomer);
+        emailFilter.put(updatedCustomer.getEmail());
+        return updated;
+    }
+}
@@ -0,0 +1,174 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerVersion;
+import com.ag.customer.repository.CustomerDao;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link CachingCustomerDao} class decorates a {@link CustomerDao} with a read-through cache for lookups by ID.
+ *
+ * <p>Entries are evicted by the {@link CustomerCache}'s own size and TTL policy, and explicitly whenever this DAO inserts, updates or
+ * deletes a customer. Writes that bypass this DAO are only picked up once the entry expires.</p>
+ */
+public class CachingCustomerDao extends ForwardingCustomerDao {
+    private final CustomerCache cache;
+    /**
+     * Counts evictions so a lookup that raced with a write can tell its loaded value may already be stale.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructs a new {@link CachingCustomerDao} caching the results of the specified {@link CustomerDao}.
+     *
+     * @param delegate the {@link CustomerDao} to read through to
+     * @param cache    the cache holding customers by ID
+     */
+    public CachingCustomerDao(CustomerDao delegate, Cache<Integer, Customer> cache) {
+        this(delegate, new CaffeineCustomerCache(cache));
+    }
+
+    /**
+     * Constructs a new {@link CachingCustomerDao} caching the results of the specified {@link CustomerDao}.
+     *
+     * @param delegate the {@link CustomerDao} to read through to
+     * @param cache    the store holding customers by ID
+     */
+    public CachingCustomerDao(CustomerDao delegate, CustomerCache cache) {
+        super(delegate);
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        Customer cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long evictionsBeforeLoad = evictions.get();
+        Optional<Customer> loaded = delegate.selectCustomerById(id);
+        loaded.ifPresent(customer -> {
+            cache.put(id, customer);
+            // A write finished while we were loading, so what we just cached may predate it
+            if (evictions.get() != evictionsBeforeLoad) {
+                cache.invalidate(id);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * {@inheritDoc}
+     * A cached customer answers with the version it was read at, without a query.
+     */
+    @Override
+    public Optional<CustomerVersion> selectCustomerVersion(Integer id) {
+        Customer cached = cache.getIfPresent(id);
+        CustomerVersion version = cached != null ? CustomerVersion.of(cached) : null;
+        return version != null ? Optional.of(version) : delegate.selectCustomerVersion(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * A cached customer is projected without a query; otherwise only the projected columns are read, and nothing is
+     * cached since the row is not a whole customer.
+     */
+    @Override
+    public Optional<Object[]> selectCustomerFieldsById(CustomerProjection projection, Integer id) {
+        Customer cached = cache.getIfPresent(id);
+        // A customer cached without its version cannot validate the projected row
+        boolean usable = cached != null
+                && (!projection.columns().contains(CustomerProjection.Field.VERSION) || CustomerVersion.of(cached) != null);
+        return usable ? Optional.of(projection.project(cached)) : delegate.selectCustomerFieldsById(projection, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        Map<Integer, Customer> cached = cache.getAllPresent(ids);
+        List<Customer> customers = new ArrayList<>(cached.values());
+        List<Integer> missing = ids.stream().filter(id -> !cached.containsKey(id)).toList();
+        if (missing.isEmpty()) {
+            return customers;
+        }
+        long evictionsBeforeLoad = evictions.get();
+        List<Customer> loaded = delegate.selectCustomersByIds(missing);
+        loaded.forEach(customer -> cache.put(customer.getId(), customer));
+        if (evictions.get() != evictionsBeforeLoad) {
+            cache.invalidateAll(loaded.stream().map(Customer::getId).toList());
+        }
+        customers.addAll(loaded);
+        return customers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        Optional<Integer> id = delegate.insertCustomer(customer);
+        id.ifPresent(this::evict);
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        delegate.insertCustomers(customers);
+        // New rows have new IDs, but lookups that were in flight must not cache what they read
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        Map<String, Integer> ids = delegate.insertCustomersIgnoringDuplicateEmails(customers);
+        ids.values().forEach(this::evict);
+        return ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteCustomerById(Integer id) {
+        int deleted = delegate.deleteCustomerById(id);
+        evict(id);
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        try {
+            return delegate.updateCustomer(updatedCustomer);
+        } finally {
+            // Evict even when the update failed part way; the next read simply reloads
+            evict(updatedCustomer.getId());
+        }
+    }
+
+    private void evict(Integer id) {
+        evictions.incrementAndGet();
+        cache.invalidate(id);
+    }
+}
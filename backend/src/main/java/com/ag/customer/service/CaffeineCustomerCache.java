@@ -0,0 +1,63 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.Map;
+
+/**
+ * The {@link CaffeineCustomerCache} class is a {@link CustomerCache} keeping {@link Customer} objects on the heap in a
+ * Caffeine {@link Cache}, which evicts by its own size and TTL policy.
+ */
+public class CaffeineCustomerCache implements CustomerCache {
+    private final Cache<Integer, Customer> cache;
+
+    /**
+     * Constructs a new {@link CaffeineCustomerCache} backed by the specified {@link Cache}.
+     *
+     * @param cache the Caffeine cache holding customers by ID
+     */
+    public CaffeineCustomerCache(Cache<Integer, Customer> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Customer getIfPresent(Integer id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Customer> getAllPresent(Iterable<Integer> ids) {
+        return cache.getAllPresent(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(Integer id, Customer customer) {
+        cache.put(id, customer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate(Integer id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateAll(Iterable<Integer> ids) {
+        cache.invalidateAll(ids);
+    }
+}
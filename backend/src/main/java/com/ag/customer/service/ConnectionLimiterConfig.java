@@ -0,0 +1,77 @@
+package com.ag.customer.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * The {@link ConnectionLimiterConfig} class puts a {@link ConnectionLimitingDataSource} in front of the Hikari pool
+ * when {@code customer.datasource.connection-limiter.enabled} is {@code true}.
+ *
+ * <p>This is meant for the {@code virtual-threads} profile, where every request gets its own virtual thread and
+ * nothing else limits how many of them ask for a connection at once. The limiter is sized to the pool's
+ * {@code maximum-pool-size} and waits as long as the pool's {@code connection-timeout}.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "customer.datasource.connection-limiter.enabled")
+public class ConnectionLimiterConfig {
+    /**
+     * Wraps the auto-configured Hikari {@link DataSource}, so that JDBC, JPA and Flyway all borrow through the limiter.
+     *
+     * @return the post processor wrapping the data source
+     */
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    return new ConnectionLimitingDataSource(hikari, hikari.getMaximumPoolSize(),
+                            Duration.ofMillis(hikari.getConnectionTimeout()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Publishes {@code customer.datasource.permits.available} and {@code customer.datasource.permits.waiting}.
+     *
+     * @param dataSource the wrapped data source
+     * @return the binder registering the gauges
+     */
+    @Bean
+    public MeterBinder connectionLimiterMetrics(DataSource dataSource) {
+        return registry -> {
+            ConnectionLimitingDataSource limiter = unwrap(dataSource);
+            if (limiter == null) {
+                return;
+            }
+            Gauge.builder("customer.datasource.permits.available", limiter, ConnectionLimitingDataSource::getAvailablePermits)
+                    .description("Connections that can be borrowed without waiting")
+                    .register(registry);
+            Gauge.builder("customer.datasource.permits.waiting", limiter, ConnectionLimitingDataSource::getWaitingCallers)
+                    .description("Callers waiting for a connection")
+                    .register(registry);
+        };
+    }
+
+    private static ConnectionLimitingDataSource unwrap(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ConnectionLimitingDataSource.class)
+                    ? dataSource.unwrap(ConnectionLimitingDataSource.class)
+                    : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+
+import java.util.Map;
+
+/**
+ * The {@link CustomerCache} interface is the store behind {@link CachingCustomerDao}, holding customers by ID.
+ *
+ * <p>It is either a Caffeine cache on the heap ({@link CaffeineCustomerCache}) or slabs of off-heap memory
+ * ({@link OffHeapCustomerCache}), selected with {@code customer.cache.store}.</p>
+ */
+public interface CustomerCache {
+    /**
+     * Returns the cached customer with the specified ID.
+     *
+     * @param id the customer ID
+     * @return the customer, or {@code null} if it is not cached
+     */
+    Customer getIfPresent(Integer id);
+
+    /**
+     * Returns the cached customers among the specified IDs.
+     *
+     * @param ids the customer IDs
+     * @return the cached customers by ID; IDs that are not cached are left out
+     */
+    Map<Integer, Customer> getAllPresent(Iterable<Integer> ids);
+
+    /**
+     * Caches a customer, replacing any customer cached under the same ID.
+     *
+     * @param id       the customer ID
+     * @param customer the customer
+     */
+    void put(Integer id, Customer customer);
+
+    /**
+     * Removes the customer with the specified ID from the cache.
+     *
+     * @param id the customer ID
+     */
+    void invalidate(Integer id);
+
+    /**
+     * Removes the customers with the specified IDs from the cache.
+     *
+     * @param ids the customer IDs
+     */
+    void invalidateAll(Iterable<Integer> ids);
+}
@@ -0,0 +1,58 @@
+package com.ag.customer.service;
+
+import com.ag.dto.CustomerImportResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The {@link CustomerCsvImportRunner} imports a CSV file of customers at startup through the {@link CustomerCsvImportService}.
+ *
+ * <p>It is only active when {@code customer.import.file} is set. To run a one-off import without serving HTTP, start
+ * the application with {@code --customer.import.file=customers.csv --spring.main.web-application-type=none};
+ * the process exits once the import finishes.</p>
+ */
+@Component
+@ConditionalOnProperty("customer.import.file")
+public class CustomerCsvImportRunner implements CommandLineRunner {
+    private static final Logger log = LoggerFactory.getLogger(CustomerCsvImportRunner.class);
+
+    private final CustomerCsvImportService customerCsvImportService;
+    private final Path file;
+
+    /**
+     * Constructs a new {@link CustomerCsvImportRunner} for the configured file.
+     *
+     * @param customerCsvImportService the service performing the import
+     * @param file                     the CSV file to import, from {@code customer.import.file}
+     */
+    public CustomerCsvImportRunner(CustomerCsvImportService customerCsvImportService,
+                                   @Value("${customer.import.file}") Path file) {
+        this.customerCsvImportService = customerCsvImportService;
+        this.file = file;
+    }
+
+    /**
+     * Imports the configured file and logs how many customers were inserted.
+     *
+     * @param args the application arguments (unused)
+     * @throws Exception if the file cannot be read or the import fails
+     */
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("Importing customers from {}", file);
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            CustomerImportResult result = customerCsvImportService.importCustomers(reader);
+            log.info("Imported {} of {} customers from {} ({} skipped)",
+                    result.rowsInserted(), result.rowsRead(), file, result.rowsSkipped());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+import com.ag.dto.CustomerImportResult;
+import com.ag.exceptions.RequestValidationException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link CustomerCsvImportService} class bulk loads {@link Customer} records from CSV using PostgreSQL's {@code COPY}.
+ *
+ * <p>The CSV is streamed into a temporary staging table with the driver's {@link CopyManager}, then merged into
+ * {@code customer} with a single {@code INSERT ... SELECT ... ON CONFLICT (email) DO NOTHING}. Existing customers are
+ * never modified, and when an email repeats within the file only one of its rows is kept. The import bypasses the
+ * {@link CustomerDao}, so the staged emails are added to the {@link EmailBloomFilter} before the merge commits, and
+ * the {@link CustomerSnapshot} and the {@link CustomerSuggestionIndex} are caught up with the new rows afterwards,
+ * each if enabled.</p>
+ *
+ * <p>With {@code customer.dao.implementation=sharded} the {@code customer} table of {@code spring.datasource} is not
+ * where customers live. The CSV is still parsed by {@code COPY} into the staging table there, but the staged rows are
+ * then read back and inserted through the {@link CustomerDao} {@value #STAGED_BATCH_SIZE} at a time, which reserves
+ * their emails in the directory and writes each to its shard. Like {@code POST /batch}, a sharded import is only
+ * atomic per batch; a failure leaves the batches written before it in place.</p>
+ */
+@Service
+public class CustomerCsvImportService {
+    private static final String CREATE_STAGING_TABLE_SQL = """
+            CREATE TEMPORARY TABLE customer_import (
+                name TEXT,
+                email TEXT,
+                age INT
+            ) ON COMMIT DROP;
+            """;
+    private static final String COPY_SQL = """
+            COPY customer_import (name, email, age) FROM STDIN WITH (FORMAT csv, HEADER true);
+            """;
+    private static final String MERGE_SQL = """
+            INSERT INTO customer (name, email, age)
+            SELECT DISTINCT ON (email) name, email, age FROM customer_import
+            WHERE name IS NOT NULL AND email IS NOT NULL AND age IS NOT NULL
+            ORDER BY email
+            ON CONFLICT (email) DO NOTHING;
+            """;
+    private static final String SELECT_STAGED_SQL = """
+            SELECT DISTINCT ON (email) name, email, age FROM customer_import
+            WHERE name IS NOT NULL AND email IS NOT NULL AND age IS NOT NULL
+            ORDER BY email;
+            """;
+    private static final String SELECT_STAGED_EMAILS_SQL = """
+            SELECT DISTINCT email FROM customer_import
+            WHERE name IS NOT NULL AND email IS NOT NULL AND age IS NOT NULL;
+            """;
+    /**
+     * The number of staged rows read back at a time, and inserted through the {@link CustomerDao} at a time when sharded.
+     */
+    private static final int STAGED_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerDao customerDao;
+    private final boolean sharded;
+    private final ObjectProvider<CustomerSnapshot> snapshot;
+    private final ObjectProvider<CustomerSuggestionIndex> suggestionIndex;
+    private final ObjectProvider<EmailBloomFilter> emailFilter;
+
+    /**
+     * Constructs a new {@link CustomerCsvImportService} with the specified {@link JdbcTemplate}.
+     *
+     * @param jdbcTemplate    the {@link JdbcTemplate} whose connections are used for the import
+     * @param customerDao     the {@link CustomerDao} the staged customers are inserted through when sharded
+     * @param implementation  the selected data access implementation, {@code jdbc}, {@code jpa} or {@code sharded}
+     * @param snapshot        the in-memory snapshot of the customer table, if enabled
+     * @param suggestionIndex the in-memory index answering typeahead lookups, if enabled
+     * @param emailFilter     the filter of known customer emails, if enabled
+     */
+    public CustomerCsvImportService(JdbcTemplate jdbcTemplate,
+                                    @Qualifier("customerDao") CustomerDao customerDao,
+                                    @Value("${customer.dao.implementation:jdbc}") String implementation,
+                                    ObjectProvider<CustomerSnapshot> snapshot,
+                                    ObjectProvider<CustomerSuggestionIndex> suggestionIndex,
+                                    ObjectProvider<EmailBloomFilter> emailFilter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customerDao = customerDao;
+        this.sharded = implementation.equals("sharded");
+        this.snapshot = snapshot;
+        this.suggestionIndex = suggestionIndex;
+        this.emailFilter = emailFilter;
+    }
+
+    /**
+     * Imports customers from CSV with a {@code name,email,age} header row.
+     * The whole import runs in one transaction; either every accepted row is inserted or none are.
+     *
+     * @param csv the CSV content to import
+     * @return how many rows were read and how many customers were inserted
+     * @throws RequestValidationException if the CSV cannot be parsed into the expected columns
+     */
+    public CustomerImportResult importCustomers(Reader csv) {
+        if (sharded) {
+            // The CustomerDao records every customer it inserts in the filter, the snapshot and the suggestion index itself
+            return copyInTransaction(csv);
+        }
+        CustomerSnapshot customerSnapshot = snapshot.getIfAvailable();
+        CustomerSuggestionIndex index = suggestionIndex.getIfAvailable();
+        // Every ID the import generates is above the highest one known before it started
+        int highestSnapshotId = customerSnapshot == null ? 0 : customerSnapshot.highestId();
+        int highestIndexedId = index == null ? 0 : index.highestId();
+        CustomerImportResult result = copyInTransaction(csv);
+        if (result.rowsInserted() > 0) {
+            if (customerSnapshot != null) {
+                customerSnapshot.catchUp(highestSnapshotId);
+            }
+            if (index != null) {
+                index.catchUp(highestIndexedId);
+            }
+        }
+        return result;
+    }
+
+    private CustomerImportResult copyInTransaction(Reader csv) {
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<CustomerImportResult>) connection -> {
+                // The staging table is dropped on commit, so make sure we are inside a transaction
+                boolean autoCommit = connection.getAutoCommit();
+                if (autoCommit) {
+                    connection.setAutoCommit(false);
+                }
+                try {
+                    CustomerImportResult result = copyAndMerge(connection, csv);
+                    if (autoCommit) {
+                        connection.commit();
+                    }
+                    return result;
+                } catch (SQLException | RuntimeException e) {
+                    if (autoCommit) {
+                        connection.rollback();
+                    }
+                    throw e;
+                } finally {
+                    if (autoCommit) {
+                        connection.setAutoCommit(true);
+                    }
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Malformed rows (wrong column count, non-numeric age, ...) are rejected by COPY itself
+            throw new RequestValidationException("CSV could not be imported: %s"
+                    .formatted(NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+        }
+    }
+
+    private CustomerImportResult copyAndMerge(Connection connection, Reader csv) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_TABLE_SQL);
+        }
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        long rowsRead;
+        try {
+            rowsRead = copyManager.copyIn(COPY_SQL, csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (Statement statement = connection.createStatement()) {
+            if (sharded) {
+                return new CustomerImportResult(rowsRead, insertStaged(statement));
+            }
+            EmailBloomFilter filter = emailFilter.getIfAvailable();
+            if (filter != null) {
+                putStagedEmails(statement, filter);
+            }
+            return new CustomerImportResult(rowsRead, statement.executeUpdate(MERGE_SQL));
+        }
+    }
+
+    /**
+     * Adds the staged emails to the filter before they are merged, so a batch registration checking for them right
+     * after the commit queries the database instead of taking them for new. Emails that already existed or are rolled
+     * back only cost that query.
+     */
+    private void putStagedEmails(Statement statement, EmailBloomFilter filter) throws SQLException {
+        statement.setFetchSize(STAGED_BATCH_SIZE);
+        try (ResultSet resultSet = statement.executeQuery(SELECT_STAGED_EMAILS_SQL)) {
+            while (resultSet.next()) {
+                filter.put(resultSet.getString("email"));
+            }
+        }
+    }
+
+    /**
+     * Reads the staged customers back and inserts them through the {@link CustomerDao} a batch at a time, skipping
+     * emails that are already taken as the merge does.
+     *
+     * @return the number of customers inserted
+     */
+    private long insertStaged(Statement statement) throws SQLException {
+        long rowsInserted = 0;
+        statement.setFetchSize(STAGED_BATCH_SIZE);
+        try (ResultSet resultSet = statement.executeQuery(SELECT_STAGED_SQL)) {
+            boolean more = true;
+            while (more) {
+                List<Customer> batch = new ArrayList<>(STAGED_BATCH_SIZE);
+                while (batch.size() < STAGED_BATCH_SIZE && (more = resultSet.next())) {
+                    batch.add(new Customer(resultSet.getString("name"), resultSet.getString("email"),
+                            resultSet.getInt("age")));
+                }
+                if (!batch.isEmpty()) {
+                    rowsInserted += customerDao.insertCustomersIgnoringDuplicateEmails(batch).size();
+                }
+            }
+        }
+        return rowsInserted;
+    }
+}
@@ -0,0 +1,226 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The {@link CustomerDaoConfig} class assembles the {@link CustomerDao} used by the {@link CustomerService}.
+ *
+ * <p>{@code customer.dao.implementation} picks the data access implementation ({@code jdbc}, {@code jpa} or
+ * {@code sharded}), and
+ * the optional decorators configured under {@code customer.*} are layered on top of it.</p>
+ */
+@Configuration
+@EnableScheduling
+public class CustomerDaoConfig {
+    /**
+     * Selects the data access implementation the decorators are layered on.
+     *
+     * @param jdbc           the JDBC implementation
+     * @param jpa            the JPA implementation
+     * @param sharded        the sharded implementation, if shards are configured
+     * @param implementation which implementation to use, {@code jdbc}, {@code jpa} or {@code sharded}
+     * @return the selected implementation
+     */
+    @Bean("customerDaoImplementation")
+    public CustomerDao customerDaoImplementation(@Qualifier("jdbc") CustomerDao jdbc,
+                                                 @Qualifier("jpa") CustomerDao jpa,
+                                                 ObjectProvider<ShardedCustomerDao> sharded,
+                                                 @Value("${customer.dao.implementation:jdbc}") String implementation) {
+        return switch (implementation) {
+            case "jdbc" -> jdbc;
+            case "jpa" -> jpa;
+            case "sharded" -> sharded.getIfAvailable(() -> {
+                throw new IllegalStateException("customer.dao.implementation is sharded but customer.sharding.shard-urls is not set");
+            });
+            default -> throw new IllegalStateException("Unknown customer.dao.implementation: %s".formatted(implementation));
+        };
+    }
+
+    /**
+     * Creates the in-memory filter of customer emails, which is built at startup and rebuilt on a schedule.
+     *
+     * @param customerDao              the implementation streaming the emails
+     * @param expectedInsertions       the number of emails the filter holds before it needs to grow
+     * @param falsePositiveProbability the upper bound on the probability of reporting an unknown email as present
+     * @return the email filter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "customer.email-filter.enabled", matchIfMissing = true)
+    public EmailBloomFilter emailBloomFilter(@Qualifier("customerDaoImplementation") CustomerDao customerDao,
+                                             @Value("${customer.email-filter.expected-insertions:100000}") long expectedInsertions,
+                                             @Value("${customer.email-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        return new EmailBloomFilter(customerDao, expectedInsertions, falsePositiveProbability);
+    }
+
+    /**
+     * Creates the in-memory columnar snapshot of the customer table, which is built at startup and rebuilt on a
+     * schedule. Opt-in with {@code customer.snapshot.enabled}, as lists served from it lag behind writes made by other
+     * application instances by up to {@code customer.snapshot.rebuild-interval}.
+     *
+     * @param customerDao      the implementation streaming the customers
+     * @param compactThreshold the number of recorded writes at which they are folded into the columns
+     * @param meterRegistry    the registry the size of the snapshot is published to
+     * @return the customer snapshot
+     */
+    @Bean
+    @ConditionalOnProperty(name = "customer.snapshot.enabled")
+    public CustomerSnapshot customerSnapshot(@Qualifier("customerDaoImplementation") CustomerDao customerDao,
+                                             @Value("${customer.snapshot.compact-threshold:10000}") int compactThreshold,
+                                             MeterRegistry meterRegistry) {
+        return new CustomerSnapshot(customerDao, compactThreshold, meterRegistry);
+    }
+
+    /**
+     * Creates the in-memory prefix index of customer names and emails answering typeahead lookups, which is built at
+     * startup and rebuilt on a schedule. Opt-in with {@code customer.suggestions.enabled}, as every build streams the
+     * whole customer table; without it suggestions are searched for in the database.
+     *
+     * @param customerDao      the implementation streaming the customers
+     * @param compactThreshold the number of changed customers at which they are folded into the sorted terms
+     * @param meterRegistry    the registry the size of the index is published to
+     * @return the suggestion index
+     */
+    @Bean
+    @ConditionalOnProperty(name = "customer.suggestions.enabled")
+    public CustomerSuggestionIndex customerSuggestionIndex(@Qualifier("customerDaoImplementation") CustomerDao customerDao,
+                                                           @Value("${customer.suggestions.compact-threshold:10000}") int compactThreshold,
+                                                           MeterRegistry meterRegistry) {
+        return new CustomerSuggestionIndex(customerDao, compactThreshold, meterRegistry);
+    }
+
+    /**
+     * Creates the writer that groups concurrent single-customer inserts into one transaction.
+     * Only created when {@code customer.group-commit.enabled} is {@code true}; it is closed on shutdown after writing
+     * whatever is still queued.
+     *
+     * @param customerDao   the implementation writing each group
+     * @param queueCapacity the number of inserts that may wait before callers block
+     * @param maxBatchSize  the largest number of customers written in one group
+     * @param linger        how long the writer waits for more customers after the first one arrives
+     * @param meterRegistry the registry group sizes are published to
+     * @param environment   the environment, checked for {@code spring.threads.virtual.enabled}
+     * @return the group commit writer
+     */
+    @Bean
+    @ConditionalOnProperty(name = "customer.group-commit.enabled")
+    public GroupCommitWriter groupCommitWriter(@Qualifier("customerDaoImplementation") CustomerDao customerDao,
+                                               @Value("${customer.group-commit.queue-capacity:10000}") int queueCapacity,
+                                               @Value("${customer.group-commit.max-batch-size:500}") int maxBatchSize,
+                                               @Value("${customer.group-commit.linger:5ms}") Duration linger,
+                                               MeterRegistry meterRegistry,
+                                               Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // Keep the writer on a virtual thread too, like the requests handing it work
+            ThreadFactory threadFactory = new VirtualThreadTaskExecutor("customer-group-commit-").getVirtualThreadFactory();
+            return new GroupCommitWriter(customerDao, queueCapacity, maxBatchSize, linger, meterRegistry, threadFactory);
+        }
+        return new GroupCommitWriter(customerDao, queueCapacity, maxBatchSize, linger, meterRegistry);
+    }
+
+    /**
+     * Creates the {@link CustomerDao} used by the application.
+     *
+     * @param implementation       the selected data access implementation
+     * @param groupCommitWriter    the group commit writer, if enabled
+     * @param replicaLagMonitor    the replica lag monitor, if read replicas are configured
+     * @param readYourWritesWindow how long lookups of a customer just written are kept off the replicas
+     * @param emailFilter          the email filter, if enabled
+     * @param snapshot             the in-memory snapshot answering list queries, if enabled
+     * @param suggestionIndex      the in-memory index answering typeahead lookups, if enabled
+     * @param batchingEnabled      whether concurrent lookups by ID are batched into one query
+     * @param batchWindow          the longest a batch waits for the lookups running before it is queried anyway
+     * @param maxBatchSize         the number of IDs at which a batch is queried without waiting any longer
+     * @param cacheEnabled         whether lookups by ID are cached
+     * @param cacheStore           where cached customers are kept, {@code heap} or {@code off-heap}
+     * @param maximumSize          the maximum number of cached customers on the heap
+     * @param offHeapCapacity      the memory reserved for cached customers off the heap
+     * @param slabSize             the size of one off-heap slab, which bounds the size of a cached customer
+     * @param expireAfterWrite     how long a cached customer may be served before it is reloaded
+     * @param meterRegistry        the registry the cache statistics are published to
+     * @return the configured {@link CustomerDao}
+     */
+    @Bean("customerDao")
+    public CustomerDao customerDao(@Qualifier("customerDaoImplementation") CustomerDao implementation,
+                                   ObjectProvider<GroupCommitWriter> groupCommitWriter,
+                                   ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+                                   @Value("${customer.datasource.read-your-writes-window:5s}") Duration readYourWritesWindow,
+                                   ObjectProvider<EmailBloomFilter> emailFilter,
+                                   ObjectProvider<CustomerSnapshot> snapshot,
+                                   ObjectProvider<CustomerSuggestionIndex> suggestionIndex,
+                                   @Value("${customer.batching.enabled:false}") boolean batchingEnabled,
+                                   @Value("${customer.batching.window:2ms}") Duration batchWindow,
+                                   @Value("${customer.batching.max-batch-size:100}") int maxBatchSize,
+                                   @Value("${customer.cache.enabled:true}") boolean cacheEnabled,
+                                   @Value("${customer.cache.store:heap}") String cacheStore,
+                                   @Value("${customer.cache.maximum-size:100000}") long maximumSize,
+                                   @Value("${customer.cache.off-heap.capacity:256MB}") DataSize offHeapCapacity,
+                                   @Value("${customer.cache.off-heap.slab-size:16MB}") DataSize slabSize,
+                                   @Value("${customer.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                                   MeterRegistry meterRegistry) {
+        CustomerDao customerDao = implementation;
+        GroupCommitWriter writer = groupCommitWriter.getIfAvailable();
+        if (writer != null) {
+            customerDao = new GroupCommitCustomerDao(customerDao, writer);
+        }
+        if (replicaLagMonitor.getIfAvailable() != null) {
+            // Sits above group commit so that inserts handed to the writer thread still count as this request's writes
+            customerDao = new ReplicaRoutingCustomerDao(customerDao, readYourWritesWindow);
+        }
+        EmailBloomFilter filter = emailFilter.getIfAvailable();
+        if (filter != null) {
+            customerDao = new BloomFilterCustomerDao(customerDao, filter);
+        }
+        CustomerSnapshot customerSnapshot = snapshot.getIfAvailable();
+        if (customerSnapshot != null) {
+            customerDao = new SnapshotCustomerDao(customerDao, customerSnapshot);
+        }
+        CustomerSuggestionIndex index = suggestionIndex.getIfAvailable();
+        if (index != null) {
+            customerDao = new SuggestionIndexCustomerDao(customerDao, index);
+        }
+        if (batchingEnabled) {
+            // Sits below the cache so only cache misses are batched
+            customerDao = new BatchingCustomerDao(customerDao, batchWindow, maxBatchSize);
+        }
+        if (cacheEnabled) {
+            CustomerCache cache = switch (cacheStore) {
+                case "heap" -> heapCache(maximumSize, expireAfterWrite, meterRegistry);
+                case "off-heap" -> new OffHeapCustomerCache(
+                        offHeapCapacity.toBytes(), Math.toIntExact(slabSize.toBytes()), expireAfterWrite, meterRegistry);
+                default -> throw new IllegalStateException("Unknown customer.cache.store: %s".formatted(cacheStore));
+            };
+            customerDao = new CachingCustomerDao(customerDao, cache);
+        }
+        return customerDao;
+    }
+
+    private static CustomerCache heapCache(long maximumSize, Duration expireAfterWrite, MeterRegistry meterRegistry) {
+        // Caffeine evicts with W-TinyLFU, which keeps hot customers cached under a skewed read pattern
+        Cache<Integer, Customer> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customers");
+        return new CaffeineCustomerCache(cache);
+    }
+}
@@ -0,0 +1,208 @@
+package com.ag.customer.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The {@link CustomerDirectory} class is the global email index of a sharded customer table.
+ *
+ * <p>Every customer, whichever shard holds it, has a row mapping its email to its ID, and the email is the table's
+ * primary key, so reserving an email here is what keeps emails unique across shards. Customer IDs come from the
+ * directory's sequence for the same reason. The schema lives in {@code db/directory}.</p>
+ */
+public class CustomerDirectory {
+    /**
+     * The number of rows fetched per round trip when streaming through a cursor.
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructs a new {@link CustomerDirectory}.
+     *
+     * @param jdbcTemplate the {@link JdbcTemplate} of the directory database
+     */
+    public CustomerDirectory(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Reserves the email for a new customer and allocates the customer's ID.
+     *
+     * @param email the email of the new customer
+     * @return the allocated ID, or an empty {@link Optional} if the email is already taken
+     */
+    public Optional<Integer> reserve(String email) {
+        String sql = """
+                INSERT INTO customer_directory (email, customer_id)
+                VALUES (?, nextval('customer_directory_id_seq'))
+                ON CONFLICT (email) DO NOTHING
+                RETURNING customer_id
+                """;
+        return jdbcTemplate.query(sql, (resultSet, rowNum) -> resultSet.getInt("customer_id"), email)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Reserves the emails for new customers in one statement, skipping emails that are already taken.
+     *
+     * @param emails the emails of the new customers; an email repeated in the list is reserved once
+     * @return the allocated ID of each reserved email
+     */
+    public Map<String, Integer> reserveAll(Collection<String> emails) {
+        String sql = """
+                INSERT INTO customer_directory (email, customer_id)
+                SELECT email, nextval('customer_directory_id_seq') FROM unnest(?::text[]) AS e(email)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING email, customer_id
+                """;
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", emails.toArray())),
+                (RowCallbackHandler) resultSet -> ids.put(resultSet.getString("email"), resultSet.getInt("customer_id")));
+        return ids;
+    }
+
+    /**
+     * Moves the ID sequence past the specified ID, so that new customers never reuse an ID a shard already holds, for
+     * instance after the directory was recreated.
+     *
+     * @param id the highest customer ID in use
+     */
+    public void allocateAfter(int id) {
+        jdbcTemplate.queryForObject("""
+                SELECT setval('customer_directory_id_seq', greatest(?, (SELECT last_value FROM customer_directory_id_seq)))
+                """, Long.class, id);
+    }
+
+    /**
+     * Reserves an email for an existing customer, for instance before changing the customer's email.
+     *
+     * @param email      the email to reserve
+     * @param customerId the ID of the customer
+     * @return {@code true} if the email was reserved by this call, {@code false} if it was already reserved for the
+     * same customer
+     * @throws DuplicateKeyException if the email belongs to another customer
+     */
+    public boolean claim(String email, Integer customerId) {
+        String sql = """
+                INSERT INTO customer_directory (email, customer_id)
+                VALUES (?, ?)
+                ON CONFLICT (email) DO NOTHING
+                """;
+        if (jdbcTemplate.update(sql, email, customerId) == 1) {
+            return true;
+        }
+        Integer owner = jdbcTemplate.query("SELECT customer_id FROM customer_directory WHERE email = ?",
+                        (resultSet, rowNum) -> resultSet.getInt("customer_id"), email)
+                .stream()
+                .findFirst()
+                .orElse(null);
+        if (customerId.equals(owner)) {
+            return false;
+        }
+        throw new DuplicateKeyException("Email %s already exists".formatted(email));
+    }
+
+    /**
+     * Releases the reservations of the specified emails, as long as they are still held by the same customers.
+     *
+     * @param ids the ID of each email to release
+     */
+    public void releaseAll(Map<String, Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = """
+                DELETE FROM customer_directory d
+                USING unnest(?::text[], ?::int[]) AS r(email, customer_id)
+                WHERE d.email = r.email AND d.customer_id = r.customer_id
+                """;
+        List<Map.Entry<String, Integer>> entries = List.copyOf(ids.entrySet());
+        jdbcTemplate.update(sql, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("text", entries.stream().map(Map.Entry::getKey).toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("integer", entries.stream().map(Map.Entry::getValue).toArray()));
+        });
+    }
+
+    /**
+     * Releases every email of the customer except the one to keep.
+     *
+     * @param customerId the ID of the customer
+     * @param keepEmail  the email to keep, or {@code null} to release them all
+     */
+    public void releaseOthers(Integer customerId, String keepEmail) {
+        jdbcTemplate.update("DELETE FROM customer_directory WHERE customer_id = ? AND email IS DISTINCT FROM ?",
+                customerId, keepEmail);
+    }
+
+    /**
+     * Checks whether the email is reserved.
+     *
+     * @param email the email to check
+     * @return {@code true} if a customer holds the email
+     */
+    public boolean contains(String email) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM customer_directory WHERE email = ?)", Boolean.class, email);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * Returns which of the emails are reserved, in one query.
+     *
+     * @param emails the emails to check
+     * @return the emails that a customer holds
+     */
+    public Set<String> containing(Collection<String> emails) {
+        return new HashSet<>(jdbcTemplate.query(
+                "SELECT email FROM customer_directory WHERE email = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", emails.toArray())),
+                (resultSet, rowNum) -> resultSet.getString("email")));
+    }
+
+    /**
+     * Streams every reserved email through a cursor.
+     *
+     * @param action the action applied to each email
+     */
+    public void streamEmails(Consumer<String> action) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            // PostgreSQL only honours the fetch size through a server-side cursor, which needs autocommit off
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT email FROM customer_directory")) {
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        action.accept(resultSet.getString("email"));
+                    }
+                }
+            } finally {
+                if (autoCommit) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+            return null;
+        });
+    }
+}
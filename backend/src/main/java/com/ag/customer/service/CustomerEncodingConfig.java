@@ -0,0 +1,55 @@
+package com.ag.customer.service;
+
+import com.ag.customer.controller.CustomerProtobufHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * The {@link CustomerEncodingConfig} class registers the message converters for the binary encodings of
+ * {@link com.ag.customer.controller.CustomerEncoding}, so request bodies can be sent, and responses returned, as CBOR,
+ * Smile or Protobuf.
+ *
+ * <p>The CBOR and Smile converters take the place of Spring's defaults, with object mappers configured like the JSON
+ * one. They keep their position after the JSON converter, as does the Protobuf converter, which is added last, so
+ * clients accepting anything are still answered in JSON.</p>
+ */
+@Configuration
+@Profile("!reactive")
+public class CustomerEncodingConfig implements WebMvcConfigurer {
+    /**
+     * Creates the CBOR converter.
+     *
+     * @param builder the builder the JSON object mapper is configured with
+     * @return the converter
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Creates the Smile converter.
+     *
+     * @param builder the builder the JSON object mapper is configured with
+     * @return the converter
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CustomerProtobufHttpMessageConverter());
+    }
+}
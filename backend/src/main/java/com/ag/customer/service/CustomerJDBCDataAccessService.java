@@ -1,18 +1,43 @@
 package com.ag.customer.service;
 
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
 import com.ag.customer.repository.CustomerDao;
 import com.ag.customer.repository.CustomerRowMapper;
+import com.ag.customer.repository.CustomerSearchQuery;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 /**
  * The {@link CustomerJDBCDataAccessService} class implements the {@link CustomerDao} interface to provide data access operations for {@link Customer} objects using JDBC.
  */
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
+    /**
+     * The number of rows fetched per round trip when streaming through a cursor.
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+    /**
+     * The number of rows sent to the database per JDBC batch.
+     */
+    private static final int INSERT_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
 
@@ -33,18 +58,97 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     @Override
     public List<Customer> selectAllCustomers() {
         String sql = """
-                SELECT * FROM customer;
+                SELECT id, name, email, age, version, updated_at FROM customer;
                 """;
         return jdbcTemplate.query(sql, customerRowMapper);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersAfter(Integer afterId, int limit) {
+        String sql = """
+                SELECT id, name, email, age, version, updated_at FROM customer WHERE id > ? ORDER BY id LIMIT ?;
+                """;
+        return jdbcTemplate.query(sql, customerRowMapper, afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> searchCustomers(CustomerSearch search, Integer afterId, int limit) {
+        CustomerSearchQuery query = new CustomerSearchQuery(search, afterId, limit);
+        return jdbcTemplate.query(query.sql(), customerRowMapper, query.parameters().toArray());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Object[]> selectCustomerFieldsAfter(CustomerProjection projection, Integer afterId, int limit) {
+        String sql = """
+                SELECT %s FROM customer WHERE id > ? ORDER BY id LIMIT ?;
+                """.formatted(projection.sqlColumns());
+        return jdbcTemplate.query(sql, (rs, rowNum) -> projection.read(rs), afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllCustomers(Consumer<Customer> action) {
+        String sql = """
+                SELECT id, name, email, age, version, updated_at FROM customer ORDER BY id;
+                """;
+        stream(sql, customerRowMapper, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllEmails(Consumer<String> action) {
+        String sql = """
+                SELECT email FROM customer;
+                """;
+        stream(sql, (resultSet, rowNum) -> resultSet.getString("email"), action);
+    }
+
+    private <T> void stream(String sql, RowMapper<T> rowMapper, Consumer<T> action) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            // PostgreSQL only honours the fetch size through a server-side cursor, which needs autocommit off
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    int rowNum = 0;
+                    while (resultSet.next()) {
+                        action.accept(rowMapper.mapRow(resultSet, rowNum++));
+                    }
+                }
+            } finally {
+                // Only end the transaction we opened ourselves; the cursor was read-only
+                if (autoCommit) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+            return null;
+        });
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
         String sql = """
-                SELECT id, name, email, age FROM customer WHERE id = ?;
+                SELECT id, name, email, age, version, updated_at FROM customer WHERE id = ?;
                 """;
         return jdbcTemplate.query(sql, customerRowMapper, id).stream().findFirst();
     }
@@ -53,12 +157,110 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
      * {@inheritDoc}
      */
     @Override
-    public void insertCustomer(Customer customer) {
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        String sql = """
+                SELECT id, name, email, age, version, updated_at FROM customer WHERE id = ANY(?);
+                """;
+        return jdbcTemplate.query(
+                sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", ids.toArray())),
+                customerRowMapper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Object[]> selectCustomerFieldsById(CustomerProjection projection, Integer id) {
+        String sql = """
+                SELECT %s FROM customer WHERE id = ?;
+                """.formatted(projection.sqlColumns());
+        return jdbcTemplate.query(sql, (rs, rowNum) -> projection.read(rs), id).stream().findFirst();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CustomerVersion> selectCustomerVersion(Integer id) {
+        String sql = """
+                SELECT version, updated_at FROM customer WHERE id = ?;
+                """;
+        return jdbcTemplate.query(sql,
+                        (resultSet, rowNum) -> new CustomerVersion(
+                                resultSet.getLong("version"),
+                                resultSet.getTimestamp("updated_at").toInstant()),
+                        id)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> selectListVersion() {
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        String sql = """
+                INSERT INTO customer (name, email, age)
+                VALUES(?, ?, ?)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id;
+                """;
+        return jdbcTemplate.queryForList(sql, Integer.class, customer.getName(), customer.getEmail(), customer.getAge())
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
         String sql = """
                 INSERT INTO customer (name, email, age)
                 VALUES(?, ?, ?);
                 """;
-        jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge());
+        // With reWriteBatchedInserts the driver folds each batch into multi-row INSERT statements
+        jdbcTemplate.batchUpdate(sql, customers, INSERT_BATCH_SIZE, (ps, customer) -> {
+            ps.setString(1, customer.getName());
+            ps.setString(2, customer.getEmail());
+            ps.setInt(3, customer.getAge());
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        // One statement however many rows: each column is bound as an array and unnested back into rows
+        String sql = """
+                INSERT INTO customer (name, email, age)
+                SELECT name, email, age FROM unnest(?::text[], ?::text[], ?::int[]) AS c(name, email, age)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id, email;
+                """;
+        Map<String, Integer> ids = new HashMap<>();
+        jdbcTemplate.query(
+                sql,
+                ps -> {
+                    Connection connection = ps.getConnection();
+                    ps.setArray(1, connection.createArrayOf("text", customers.stream().map(Customer::getName).toArray()));
+                    ps.setArray(2, connection.createArrayOf("text", customers.stream().map(Customer::getEmail).toArray()));
+                    ps.setArray(3, connection.createArrayOf("integer", customers.stream().map(Customer::getAge).toArray()));
+                },
+                resultSet -> {
+                    ids.put(resultSet.getString("email"), resultSet.getInt("id"));
+                });
+        return ids;
     }
 
     /**
@@ -77,11 +279,25 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
      * {@inheritDoc}
      */
     @Override
-    public void deleteCustomerById(Integer id) {
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        String sql = """
+                SELECT email FROM customer WHERE email = ANY(?);
+                """;
+        return new HashSet<>(jdbcTemplate.query(
+                sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", emails.toArray())),
+                (resultSet, rowNum) -> resultSet.getString("email")));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteCustomerById(Integer id) {
         String sql = """
                 DELETE FROM customer WHERE id = ?;
                 """;
-        jdbcTemplate.update(sql, id);
+        return jdbcTemplate.update(sql, id);
     }
 
     /**
@@ -101,20 +317,43 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
      * {@inheritDoc}
      */
     @Override
-    public void updateCustomer(Customer updatedCustomer) {
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        // Build one UPDATE from the supplied columns; the WHERE clause skips the write when nothing would change
+        List<String> assignments = new ArrayList<>(3);
+        List<String> differences = new ArrayList<>(3);
+        List<Object> values = new ArrayList<>(3);
         if (updatedCustomer.getName() != null) {
-            String sql = "UPDATE customer SET name = ? WHERE id = ?;";
-            jdbcTemplate.update(sql, updatedCustomer.getName(), updatedCustomer.getId());
+            assignments.add("name = ?");
+            differences.add("name IS DISTINCT FROM ?");
+            values.add(updatedCustomer.getName());
         }
-
         if (updatedCustomer.getEmail() != null) {
-            String sql = "UPDATE customer SET email = ? WHERE id = ?;";
-            jdbcTemplate.update(sql, updatedCustomer.getEmail(), updatedCustomer.getId());
+            assignments.add("email = ?");
+            differences.add("email IS DISTINCT FROM ?");
+            values.add(updatedCustomer.getEmail());
         }
-
         if (updatedCustomer.getAge() != null) {
-            String sql = "UPDATE customer SET age = ? WHERE id = ?;";
-            jdbcTemplate.update(sql, updatedCustomer.getAge(), updatedCustomer.getId());
+            assignments.add("age = ?");
+            differences.add("age IS DISTINCT FROM ?");
+            values.add(updatedCustomer.getAge());
+        }
+        if (assignments.isEmpty()) {
+            return Optional.empty();
+        }
+        // With an expected version the update becomes a compare-and-set, so no read is needed to detect a conflict
+        String versionCheck = updatedCustomer.getVersion() != null ? " AND version = ?" : "";
+        String sql = """
+                UPDATE customer SET %s, version = version + 1, updated_at = now()
+                WHERE id = ?%s AND (%s)
+                RETURNING id, name, email, age, version, updated_at;
+                """.formatted(String.join(", ", assignments), versionCheck, String.join(" OR ", differences));
+        List<Object> args = new ArrayList<>(values.size() * 2 + 2);
+        args.addAll(values);
+        args.add(updatedCustomer.getId());
+        if (updatedCustomer.getVersion() != null) {
+            args.add(updatedCustomer.getVersion());
         }
+        args.addAll(values);
+        return jdbcTemplate.query(sql, customerRowMapper, args.toArray()).stream().findFirst();
     }
 }
@@ -3,10 +3,23 @@ package com.ag.customer.service;
 import com.ag.customer.repository.CustomerRepository;
 import com.ag.customer.repository.CustomerDao;
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * The {@link CustomerJPADataAccessService} class implements the {@link CustomerDao} interface to provide data access operations for {@link Customer} objects using JPA.
@@ -32,6 +45,52 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return customerRepository.findAll();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersAfter(Integer afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> searchCustomers(CustomerSearch search, Integer afterId, int limit) {
+        return customerRepository.search(search, afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Object[]> selectCustomerFieldsAfter(CustomerProjection projection, Integer afterId, int limit) {
+        return customerRepository.findFieldsAfter(projection, afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<Customer> action) {
+        try (Stream<Customer> customers = customerRepository.streamAllByOrderById()) {
+            customers.forEach(action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllEmails(Consumer<String> action) {
+        try (Stream<String> emails = customerRepository.streamAllEmails()) {
+            emails.forEach(action);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -44,8 +103,63 @@ public class CustomerJPADataAccessService implements CustomerDao {
      * {@inheritDoc}
      */
     @Override
-    public void insertCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        return customerRepository.findAllById(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Object[]> selectCustomerFieldsById(CustomerProjection projection, Integer id) {
+        return customerRepository.findFieldsById(projection, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CustomerVersion> selectCustomerVersion(Integer id) {
+        return customerRepository.findVersionById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> selectListVersion() {
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        return customerRepository.insertIgnoringDuplicateEmail(customer.getName(), customer.getEmail(), customer.getAge());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        customerRepository.saveAll(customers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        // Every insert joins this transaction, so the group still pays for a single commit
+        Map<String, Integer> ids = new HashMap<>();
+        for (Customer customer : customers) {
+            customerRepository.insertIgnoringDuplicateEmail(customer.getName(), customer.getEmail(), customer.getAge())
+                    .ifPresent(id -> ids.put(customer.getEmail(), id));
+        }
+        return ids;
     }
 
     /**
@@ -60,8 +174,16 @@ public class CustomerJPADataAccessService implements CustomerDao {
      * {@inheritDoc}
      */
     @Override
-    public void deleteCustomerById(Integer id) {
-        customerRepository.deleteById(Math.toIntExact(id));
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return customerRepository.findExistingEmails(emails);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteCustomerById(Integer id) {
+        return customerRepository.deleteCustomerById(id);
     }
 
     /**
@@ -76,8 +198,16 @@ public class CustomerJPADataAccessService implements CustomerDao {
      * {@inheritDoc}
      */
     @Override
-    public void updateCustomer(Customer updatedCustomer) {
-        // update the customer
-        customerRepository.save(updatedCustomer);
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        if (updatedCustomer.getName() == null && updatedCustomer.getEmail() == null && updatedCustomer.getAge() == null) {
+            return Optional.empty();
+        }
+        try {
+            // One compare-and-set UPDATE ... RETURNING, like the JDBC implementation, so nothing is read or locked first
+            return customerRepository.updateIfChanged(updatedCustomer.getId(), updatedCustomer.getName(),
+                    updatedCustomer.getEmail(), updatedCustomer.getAge(), updatedCustomer.getVersion());
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateKeyException(e.getMessage(), e);
+        }
     }
 }
@@ -0,0 +1,190 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.ReactiveCustomerDao;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link CustomerR2dbcDataAccessService} class implements the {@link ReactiveCustomerDao} interface on R2DBC,
+ * so no thread is held while a query is in flight.
+ */
+@Repository("r2dbc")
+@Profile("reactive")
+public class CustomerR2dbcDataAccessService implements ReactiveCustomerDao {
+    /**
+     * The number of rows fetched per round trip when streaming.
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Constructs a new {@link CustomerR2dbcDataAccessService} with the specified {@link DatabaseClient}.
+     *
+     * @param databaseClient the {@link DatabaseClient} to be used for data access operations
+     */
+    public CustomerR2dbcDataAccessService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<Customer> selectCustomersAfter(Integer afterId, int limit) {
+        String sql = """
+                SELECT id, name, email, age FROM customer WHERE id > :afterId ORDER BY id LIMIT :limit
+                """;
+        return databaseClient.sql(sql)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .all();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<Customer> streamAllCustomers() {
+        String sql = """
+                SELECT id, name, email, age FROM customer ORDER BY id
+                """;
+        return databaseClient.sql(sql)
+                // Fetch in chunks so a slow subscriber holds back the query instead of buffering the table
+                .filter((statement, next) -> next.execute(statement.fetchSize(STREAM_FETCH_SIZE)))
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .all();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Customer> selectCustomerById(Integer id) {
+        String sql = """
+                SELECT id, name, email, age FROM customer WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .one();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        String sql = """
+                SELECT id, name, email, age FROM customer WHERE id = ANY(:ids)
+                """;
+        return databaseClient.sql(sql)
+                .bind("ids", ids.toArray(Integer[]::new))
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .all();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Integer> insertCustomer(Customer customer) {
+        String sql = """
+                INSERT INTO customer (name, email, age)
+                VALUES (:name, :email, :age)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+                """;
+        return databaseClient.sql(sql)
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .map(row -> row.get("id", Integer.class))
+                .one();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Long> deleteCustomerById(Integer id) {
+        String sql = """
+                DELETE FROM customer WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Boolean> existsPersonById(Integer id) {
+        String sql = """
+                SELECT EXISTS (SELECT 1 FROM customer WHERE id = :id) AS present
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(row -> row.get("present", Boolean.class))
+                .one();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Customer> updateCustomer(Customer updatedCustomer) {
+        // Same single UPDATE as the JDBC implementation; each named value is bound once and used twice
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (updatedCustomer.getName() != null) {
+            values.put("name", updatedCustomer.getName());
+        }
+        if (updatedCustomer.getEmail() != null) {
+            values.put("email", updatedCustomer.getEmail());
+        }
+        if (updatedCustomer.getAge() != null) {
+            values.put("age", updatedCustomer.getAge());
+        }
+        if (values.isEmpty()) {
+            return Mono.empty();
+        }
+        List<String> assignments = new ArrayList<>(values.size());
+        List<String> differences = new ArrayList<>(values.size());
+        values.keySet().forEach(column -> {
+            assignments.add("%1$s = :%1$s".formatted(column));
+            differences.add("%1$s IS DISTINCT FROM :%1$s".formatted(column));
+        });
+        String sql = """
+                UPDATE customer SET %s, version = version + 1, updated_at = now()
+                WHERE id = :id AND (%s)
+                RETURNING id, name, email, age
+                """.formatted(String.join(", ", assignments), String.join(" OR ", differences));
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", updatedCustomer.getId());
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            spec = spec.bind(value.getKey(), value.getValue());
+        }
+        return spec.map(CustomerR2dbcDataAccessService::mapCustomer).one();
+    }
+
+    private static Customer mapCustomer(Readable row) {
+        return new Customer(
+                row.get("id", Integer.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class));
+    }
+}
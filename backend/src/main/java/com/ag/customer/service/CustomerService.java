@@ -1,17 +1,39 @@
 package com.ag.customer.service;
 
 import com.ag.customer.repository.CustomerDao;
-import com.ag.customer.repository.CustomerRepository;
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
+import com.ag.dto.CustomerBatchResult;
+import com.ag.dto.CustomerFieldsPage;
+import com.ag.dto.CustomerPage;
 import com.ag.dto.CustomerRegistrationRequest;
 import com.ag.dto.CustomerUpdateRequest;
 import com.ag.exceptions.DuplicateResourceException;
+import com.ag.exceptions.PreconditionFailedException;
 import com.ag.exceptions.RequestValidationException;
 import com.ag.exceptions.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * The {@code CustomerService} class provides business logic for managing customers.
@@ -19,15 +41,58 @@ import java.util.List;
  */
 @Service
 public class CustomerService {
+    /**
+     * The number of customers returned per page when the caller does not ask for a specific size.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    /**
+     * The largest page a caller may request; bigger requests are capped to this size.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+    /**
+     * The largest number of registrations accepted in a single batch.
+     */
+    public static final int MAX_BATCH_SIZE = 10_000;
+    /**
+     * The shortest text a name search accepts anywhere in a name, the length of a trigram.
+     */
+    public static final int MIN_NAME_SEARCH_LENGTH = 3;
+    /**
+     * The number of suggestions returned when the caller does not ask for a specific number.
+     */
+    public static final int DEFAULT_SUGGESTION_LIMIT = 10;
+    /**
+     * The largest number of suggestions a caller may request; bigger requests are capped to this number.
+     */
+    public static final int MAX_SUGGESTION_LIMIT = 50;
+    /**
+     * The longest text suggestions are looked up for.
+     */
+    public static final int MAX_SUGGESTION_QUERY_LENGTH = 100;
+
     private final CustomerDao customerDao;
+    /**
+     * The in-memory index answering typeahead lookups, or {@code null} if it is disabled.
+     */
+    private final CustomerSuggestionIndex suggestionIndex;
+    /**
+     * Shares one in-flight lookup between concurrent requests for the same customer.
+     */
+    private final SingleFlight<Integer, Optional<Customer>> customerLookups;
 
     /**
      * Constructs a new {@code CustomerService} with the specified {@link CustomerDao}.
      *
-     * @param customerDao the {@link CustomerDao} to be used for data access operations
+     * @param customerDao     the {@link CustomerDao} to be used for data access operations
+     * @param suggestionIndex the in-memory index answering typeahead lookups, if enabled
+     * @param meterRegistry   the registry the lookup coalescing metrics are published to
      */
-    public CustomerService(/*@Qualifier("jpa")*/ @Qualifier("jdbc") CustomerDao customerDao/*, CustomerRepository customerRepository*/) {
+    public CustomerService(@Qualifier("customerDao") CustomerDao customerDao,
+                           ObjectProvider<CustomerSuggestionIndex> suggestionIndex,
+                           MeterRegistry meterRegistry) {
         this.customerDao = customerDao;
+        this.suggestionIndex = suggestionIndex.getIfAvailable();
+        this.customerLookups = new SingleFlight<>(meterRegistry, "customer.lookups");
     }
 
     /**
@@ -39,30 +104,283 @@ public class CustomerService {
         return customerDao.selectAllCustomers();
     }
 
+    /**
+     * Retrieves one page of customers ordered by ID, starting after the given cursor.
+     *
+     * @param after the ID to resume after, or {@code null} to start from the first customer
+     * @param limit the requested page size, or {@code null} for {@link #DEFAULT_PAGE_SIZE}; capped at {@link #MAX_PAGE_SIZE}
+     * @return the page of customers and the cursor for the next page
+     * @throws RequestValidationException if the limit is not positive
+     */
+    public CustomerPage getCustomersPage(Integer after, Integer limit) {
+        return page(after, limit, customerDao::selectCustomersAfter);
+    }
+
+    /**
+     * Retrieves one page of the customers matching a search, ordered by ID, starting after the given cursor.
+     * Every filter is answered from an index, so support tools can look customers up without listing them all.
+     *
+     * @param search the search filters; at least one must be set
+     * @param after  the ID to resume after, or {@code null} to start from the first match
+     * @param limit  the requested page size, or {@code null} for {@link #DEFAULT_PAGE_SIZE}; capped at {@link #MAX_PAGE_SIZE}
+     * @return the page of matching customers and the cursor for the next page
+     * @throws RequestValidationException if no filter is set, a filter is invalid, or the limit is not positive
+     */
+    public CustomerPage searchCustomers(CustomerSearch search, Integer after, Integer limit) {
+        if (!search.hasFilters()) {
+            throw new RequestValidationException("At least one search filter is required");
+        }
+        if (search.namePrefix() != null && search.namePrefix().isBlank()) {
+            throw new RequestValidationException("Name prefix must not be blank");
+        }
+        // Shorter text has no trigram to look up, so the index could not narrow the search down
+        if (search.name() != null && search.name().strip().length() < MIN_NAME_SEARCH_LENGTH) {
+            throw new RequestValidationException("Name must be at least %s characters".formatted(MIN_NAME_SEARCH_LENGTH));
+        }
+        if (search.emailDomain() != null && search.emailDomain().isBlank()) {
+            throw new RequestValidationException("Email domain must not be blank");
+        }
+        if (search.minAge() != null && search.maxAge() != null && search.minAge() > search.maxAge()) {
+            throw new RequestValidationException("Minimum age must not exceed maximum age");
+        }
+        return page(after, limit, (afterId, pageSize) -> customerDao.searchCustomers(search, afterId, pageSize));
+    }
+
+    /**
+     * Suggests customers whose name, a word of their name or email starts with the text typed so far, for typeahead.
+     * Answered from the in-memory {@link CustomerSuggestionIndex}; until it is warm, or if it is disabled, only names
+     * are matched, through the indexed name prefix search.
+     *
+     * @param query the text typed so far
+     * @param limit the requested number of suggestions, or {@code null} for {@link #DEFAULT_SUGGESTION_LIMIT}; capped
+     *              at {@link #MAX_SUGGESTION_LIMIT}
+     * @return the suggested customers, shortest completions first
+     * @throws RequestValidationException if the query is blank or too long, or the limit is not positive
+     */
+    public List<Customer> suggestCustomers(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new RequestValidationException("Suggestion query must not be blank");
+        }
+        if (query.length() > MAX_SUGGESTION_QUERY_LENGTH) {
+            throw new RequestValidationException("Suggestion query must be at most %s characters".formatted(MAX_SUGGESTION_QUERY_LENGTH));
+        }
+        int size = limit == null ? DEFAULT_SUGGESTION_LIMIT : limit;
+        if (size < 1) {
+            throw new RequestValidationException("Suggestion limit must be greater than zero");
+        }
+        size = Math.min(size, MAX_SUGGESTION_LIMIT);
+        List<Integer> ids = suggestionIndex == null ? null : suggestionIndex.suggest(query, size);
+        if (ids == null) {
+            return customerDao.searchCustomers(new CustomerSearch(query.strip(), null, null, null, null), 0, size);
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // Customers deleted by another instance since the index was built are left out
+        Map<Integer, Customer> customers = customerDao.selectCustomersByIds(ids).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        return ids.stream()
+                .map(customers::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Retrieves only the projected fields of one page of customers ordered by ID, starting after the given cursor.
+     *
+     * @param projection the fields to retrieve
+     * @param after      the ID to resume after, or {@code null} to start from the first customer
+     * @param limit      the requested page size, or {@code null} for {@link #DEFAULT_PAGE_SIZE}; capped at
+     *                   {@link #MAX_PAGE_SIZE}
+     * @return the page of projected customers and the cursor for the next page
+     * @throws RequestValidationException if the limit is not positive
+     */
+    public CustomerFieldsPage getCustomerFieldsPage(CustomerProjection projection, Integer after, Integer limit) {
+        int pageSize = pageSize(limit);
+        List<Object[]> rows = customerDao.selectCustomerFieldsAfter(projection, after == null ? 0 : after, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new CustomerFieldsPage(rows, null);
+        }
+        List<Object[]> page = rows.subList(0, pageSize);
+        return new CustomerFieldsPage(List.copyOf(page), projection.id(page.get(pageSize - 1)));
+    }
+
+    private static CustomerPage page(Integer after, Integer limit, BiFunction<Integer, Integer, List<Customer>> query) {
+        int pageSize = pageSize(limit);
+        // Fetch one extra row to find out whether another page follows without a count query
+        List<Customer> customers = query.apply(after == null ? 0 : after, pageSize + 1);
+        if (customers.size() <= pageSize) {
+            return new CustomerPage(customers, null);
+        }
+        List<Customer> page = customers.subList(0, pageSize);
+        return new CustomerPage(List.copyOf(page), page.get(pageSize - 1).getId());
+    }
+
+    private static int pageSize(Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1) {
+            throw new RequestValidationException("Page limit must be greater than zero");
+        }
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Streams every customer, ordered by ID, to the given action without loading them all into memory.
+     *
+     * @param action the action to perform for each customer
+     */
+    public void exportCustomers(Consumer<Customer> action) {
+        customerDao.streamAllCustomers(action);
+    }
+
     /**
      * Retrieves a customer by their ID.
+     * Concurrent requests for the same ID share a single database lookup.
      *
      * @param id the ID of the customer to retrieve
      * @return the {@link Customer} with the specified ID
      * @throws ResourceNotFoundException if no customer with the specified ID is found
      */
     public Customer getCustomerById(Integer id) {
-        return customerDao.selectCustomerById(id).orElseThrow(() -> new ResourceNotFoundException("customer with id[%s] not found".formatted(id)));
+        return customerLookups.execute(id, () -> customerDao.selectCustomerById(id)).orElseThrow(() -> new ResourceNotFoundException("customer with id[%s] not found".formatted(id)));
+    }
+
+    /**
+     * Retrieves only the projected fields of a customer by their ID.
+     *
+     * @param projection the fields to retrieve
+     * @param id         the ID of the customer to retrieve
+     * @return the projected customer, with values in the order of {@link CustomerProjection#columns()}
+     * @throws ResourceNotFoundException if no customer with the specified ID is found
+     */
+    public Object[] getCustomerFieldsById(CustomerProjection projection, Integer id) {
+        return customerDao.selectCustomerFieldsById(projection, id)
+                .orElseThrow(() -> new ResourceNotFoundException("customer with id[%s] not found".formatted(id)));
+    }
+
+    /**
+     * Retrieves the version of a customer, which is cheaper than retrieving the customer and enough to tell whether
+     * a copy of it is still current.
+     *
+     * @param id the ID of the customer
+     * @return the version of the customer with the specified ID
+     * @throws ResourceNotFoundException if no customer with the specified ID is found
+     */
+    public CustomerVersion getCustomerVersion(Integer id) {
+        return customerDao.selectCustomerVersion(id).orElseThrow(() -> new ResourceNotFoundException("customer with id[%s] not found".formatted(id)));
+    }
+
+    /**
+     * Retrieves a version of the pages of customers if it can be told without reading them, as when they are served
+     * from an in-memory snapshot. Read it before the page, which is then at least as new as the version.
+     *
+     * @return an {@link Optional} containing the version, or an empty {@link Optional} if only the pages can tell
+     */
+    public Optional<String> getCustomersVersion() {
+        return customerDao.selectListVersion();
+    }
+
+    /**
+     * Retrieves the customers with the specified IDs using a single query.
+     *
+     * @param ids the IDs of the customers to retrieve; repeated IDs are returned once
+     * @return the customers found, in the order their IDs were requested; IDs without a customer are left out
+     * @throws RequestValidationException if no IDs or more than {@link #MAX_PAGE_SIZE} distinct IDs are requested
+     */
+    public List<Customer> getCustomersByIds(List<Integer> ids) {
+        Set<Integer> distinctIds = ids == null ? Set.of() : ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (distinctIds.isEmpty()) {
+            throw new RequestValidationException("No customer ids requested");
+        }
+        if (distinctIds.size() > MAX_PAGE_SIZE) {
+            throw new RequestValidationException("At most %s customer ids may be requested at once".formatted(MAX_PAGE_SIZE));
+        }
+        Map<Integer, Customer> customers = customerDao.selectCustomersByIds(distinctIds).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        return distinctIds.stream()
+                .map(customers::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     /**
      * Adds a new customer to the database.
      *
      * @param customerRegistrationRequest the request containing customer registration details
+     * @return the ID of the new customer
      * @throws DuplicateResourceException if a customer with the specified email already exists
      */
-    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
-        // If the email exist, throw an exception
-        if (customerDao.existsPersonWithEmail(customerRegistrationRequest.email())) {
-            throw new DuplicateResourceException("Customer with email %s already exist".formatted(customerRegistrationRequest.email()));
+    public Integer addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        // The insert claims the email atomically, so there is no separate existence check to race against
+        Integer id = customerDao.insertCustomer(new Customer(customerRegistrationRequest.name(), customerRegistrationRequest.email(), customerRegistrationRequest.age()))
+                .orElseThrow(() -> new DuplicateResourceException("Customer with email %s already exist".formatted(customerRegistrationRequest.email())));
+        // A lookup of the ID started before the insert would still answer that it does not exist
+        customerLookups.forget(id);
+        return id;
+    }
+
+    /**
+     * Registers several customers at once.
+     * Emails are checked for duplicates within the batch and against the database with a single query,
+     * and every accepted customer is written in one transaction. The insert skips emails that are taken by then, so
+     * a concurrent registration, or an email the check could not see, is reported as a duplicate for that
+     * registration alone.
+     *
+     * @param customerRegistrationRequests the registrations to add
+     * @return one result per registration, in the order they were submitted
+     * @throws RequestValidationException if the batch is empty or larger than {@link #MAX_BATCH_SIZE}
+     */
+    @Transactional
+    public List<CustomerBatchResult> addCustomers(List<CustomerRegistrationRequest> customerRegistrationRequests) {
+        if (customerRegistrationRequests == null || customerRegistrationRequests.isEmpty()) {
+            throw new RequestValidationException("No customers to register");
+        }
+        if (customerRegistrationRequests.size() > MAX_BATCH_SIZE) {
+            throw new RequestValidationException("A batch may contain at most %s customers".formatted(MAX_BATCH_SIZE));
         }
-        // Create the customer and save them to the database
-        customerDao.insertCustomer(new Customer(customerRegistrationRequest.name(), customerRegistrationRequest.email(), customerRegistrationRequest.age()));
+
+        // Reject incomplete registrations and emails repeated within the batch without touching the database
+        CustomerBatchResult[] results = new CustomerBatchResult[customerRegistrationRequests.size()];
+        Map<String, Integer> candidates = new HashMap<>();
+        for (int i = 0; i < customerRegistrationRequests.size(); i++) {
+            CustomerRegistrationRequest request = customerRegistrationRequests.get(i);
+            if (request == null || isBlank(request.name()) || isBlank(request.email()) || request.age() == null) {
+                results[i] = CustomerBatchResult.invalid(i, request == null ? null : request.email(), "Name, email and age are required");
+            } else if (candidates.putIfAbsent(request.email(), i) != null) {
+                results[i] = CustomerBatchResult.duplicate(i, request.email(), "Email %s appears earlier in the batch".formatted(request.email()));
+            }
+        }
+
+        // One query tells us which of the remaining emails are already taken
+        Set<String> existingEmails = candidates.isEmpty() ? Set.of() : customerDao.selectExistingEmails(candidates.keySet());
+        List<Customer> customers = new ArrayList<>(candidates.size());
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            CustomerRegistrationRequest request = customerRegistrationRequests.get(i);
+            if (existingEmails.contains(request.email())) {
+                results[i] = CustomerBatchResult.duplicate(i, request.email(), "Customer with email %s already exist".formatted(request.email()));
+            } else {
+                customers.add(new Customer(request.name(), request.email(), request.age()));
+                results[i] = CustomerBatchResult.created(i, request.email());
+            }
+        }
+
+        if (!customers.isEmpty()) {
+            // Another registration may have claimed an email since the check above, or the check may not have seen
+            // it, so the insert has the final say on which emails are new
+            Map<String, Integer> ids = customerDao.insertCustomersIgnoringDuplicateEmails(customers);
+            for (int i = 0; i < results.length; i++) {
+                String email = customerRegistrationRequests.get(i).email();
+                if (results[i].status() == CustomerBatchResult.Status.CREATED && !ids.containsKey(email)) {
+                    results[i] = CustomerBatchResult.duplicate(i, email, "Customer with email %s already exist".formatted(email));
+                }
+            }
+        }
+        return Arrays.asList(results);
     }
 
     /**
@@ -72,49 +390,75 @@ public class CustomerService {
      * @throws ResourceNotFoundException if no customer with the specified ID is found
      */
     public void deleteCustomerById(Integer id) {
-        // Check if customer exist
-       if (!customerDao.existsPersonById(id)) {
-           throw new ResourceNotFoundException("Customer with id[%s] not found".formatted(id));
-       }
-       // delete customer
-       customerDao.deleteCustomerById(id);
+        // The affected row count tells us whether the customer existed, so no separate check is needed
+        if (customerDao.deleteCustomerById(id) == 0) {
+            throw new ResourceNotFoundException("Customer with id[%s] not found".formatted(id));
+        }
+        customerLookups.forget(id);
     }
 
     /**
      * Updates customer information.
+     * The changed columns are written and read back in a single statement; the email's unique constraint
+     * rejects conflicts, so no prior read or existence check is needed on the success path.
      *
      * @param id the ID of the customer to update
      * @param customerUpdateRequest the request containing updated customer details
+     * @return the customer as stored after the update
      * @throws DuplicateResourceException if a customer with the specified email already exists
      * @throws RequestValidationException if no data changes are found
+     * @throws ResourceNotFoundException if no customer with the specified ID is found
      */
-    public void updateCustomer(Integer id, CustomerUpdateRequest customerUpdateRequest) {
-        Customer customer = getCustomerById(id);
-
-        boolean changes = false;
+    public Customer updateCustomer(Integer id, CustomerUpdateRequest customerUpdateRequest) {
+        return updateCustomer(id, customerUpdateRequest, null);
+    }
 
-        if (customerUpdateRequest.name() != null && !customerUpdateRequest.name().equals(customer.getName())) {
-            customer.setName(customerUpdateRequest.name());
-            changes = true;
+    /**
+     * Updates customer information if the customer is still at the expected version.
+     * The version is compared in the same statement that writes the changes, so an update based on a stale copy is
+     * rejected instead of overwriting a newer one, without reading the customer first.
+     *
+     * @param id the ID of the customer to update
+     * @param customerUpdateRequest the request containing updated customer details
+     * @param expectedVersion the version the caller's copy of the customer has, or {@code null} to update any version
+     * @return the customer as stored after the update
+     * @throws DuplicateResourceException if a customer with the specified email already exists
+     * @throws PreconditionFailedException if the customer is no longer at the expected version
+     * @throws RequestValidationException if no data changes are found
+     * @throws ResourceNotFoundException if no customer with the specified ID is found
+     */
+    public Customer updateCustomer(Integer id, CustomerUpdateRequest customerUpdateRequest, Long expectedVersion) {
+        if (customerUpdateRequest.name() == null && customerUpdateRequest.email() == null && customerUpdateRequest.age() == null) {
+            throw new RequestValidationException("No data changes found");
         }
-
-        if (customerUpdateRequest.email() != null && !customerUpdateRequest.email().equals(customer.getEmail())) {
-            if (customerDao.existsPersonWithEmail(customerUpdateRequest.email())) {
-                throw new DuplicateResourceException("Email %s already exist".formatted(customerUpdateRequest.email()));
-            }
-            customer.setEmail(customerUpdateRequest.email());
-            changes = true;
+        Customer update = new Customer(id, customerUpdateRequest.name(), customerUpdateRequest.email(), customerUpdateRequest.age());
+        update.setVersion(expectedVersion);
+        Optional<Customer> updated;
+        try {
+            updated = customerDao.updateCustomer(update);
+            customerLookups.forget(id);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("Email %s already exist".formatted(customerUpdateRequest.email()));
         }
-
-        if (customerUpdateRequest.age() != null && !customerUpdateRequest.age().equals(customer.getAge())) {
-            customer.setAge(customerUpdateRequest.age());
-            changes = true;
+        if (updated.isPresent()) {
+            return updated.get();
         }
-
-        // if no change exist
-        if (!changes) {
-            throw new RequestValidationException("No data changes found");
+        if (expectedVersion == null) {
+            // Nothing came back: either the customer does not exist or it already holds these values
+            throw customerDao.existsPersonById(id)
+                    ? new RequestValidationException("No data changes found")
+                    : new ResourceNotFoundException("customer with id[%s] not found".formatted(id));
         }
-        customerDao.updateCustomer(customer);
+        // Nothing came back: the customer does not exist, was changed by someone else, or already holds these values
+        CustomerVersion current = getCustomerVersion(id);
+        if (current.version() != expectedVersion) {
+            throw new PreconditionFailedException("customer with id[%s] is at version %s, not %s"
+                    .formatted(id, current.version(), expectedVersion));
+        }
+        throw new RequestValidationException("No data changes found");
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 }
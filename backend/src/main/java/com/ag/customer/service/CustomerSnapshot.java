@@ -0,0 +1,524 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.repository.CustomerDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * The {@link CustomerSnapshot} class keeps a compact, column-oriented copy of the {@code customer} table in memory so
+ * that list queries can be answered without the database.
+ *
+ * <p>IDs and ages are held in {@code int[]} columns sorted by ID, and names and emails as UTF-8 bytes packed into one
+ * {@code byte[]} per column with an {@code int[]} of offsets, so a row costs its string bytes plus 16 bytes instead of
+ * a {@link Customer} with two boxed {@link Integer}s and two {@link String}s. {@link Customer} objects are only
+ * created for the rows a query returns.</p>
+ *
+ * <p>The columns are immutable. Writes made through the application are recorded in a small sorted map of changes
+ * that queries merge over the columns, and once it reaches {@code compactThreshold} entries the changes are folded
+ * into new columns. The new columns are built from a copy of the changes without holding the lock, so queries and
+ * writes carry on meanwhile, and swapped in along with the changes recorded since the copy. The snapshot is built by streaming the table and rebuilt from scratch every
+ * {@code customer.snapshot.rebuild-interval}, which also picks up rows written by other application instances. Until
+ * then those rows are missing, so with several instances the snapshot may be stale by up to the rebuild interval plus
+ * the time a rebuild takes. Until the first build completes the snapshot is not warm and callers query the
+ * database.</p>
+ *
+ * <p>The number of rows and the bytes held by the columns are published as {@code customer.snapshot.rows} and
+ * {@code customer.snapshot.bytes}.</p>
+ */
+public class CustomerSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(CustomerSnapshot.class);
+    /**
+     * Marks a deleted customer in the map of changes.
+     */
+    private static final Customer DELETED = new Customer();
+    /**
+     * The number of customers read from the database per page when catching up with a bulk insert.
+     */
+    private static final int CATCH_UP_PAGE_SIZE = 1000;
+
+    private final CustomerDao customerDao;
+    private final int compactThreshold;
+    /**
+     * Tells the versions of this snapshot apart from those of snapshots in other application instances or runs.
+     */
+    private final String id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    /**
+     * Held while new columns are built, by a rebuild or a compaction, so only one of them replaces the columns at once.
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * The columns answering queries, or {@code null} until the first build completes.
+     */
+    private Columns columns;
+    /**
+     * The customers written since the columns were built, by ID, with {@link #DELETED} for deleted ones.
+     */
+    private TreeMap<Integer, Customer> changes = new TreeMap<>();
+    /**
+     * The customers written while a rebuild streams the table, which the new columns must not lose.
+     */
+    private TreeMap<Integer, Customer> rebuildChanges;
+    /**
+     * Counts the builds and recorded writes, so it changes whenever queries may answer differently.
+     */
+    private long generation;
+
+    /**
+     * Constructs a new {@link CustomerSnapshot} that is built from the specified {@link CustomerDao}.
+     *
+     * @param customerDao      the {@link CustomerDao} streaming the customers to build from
+     * @param compactThreshold the number of recorded changes at which they are folded into new columns
+     * @param meterRegistry    the registry the size of the snapshot is published to
+     */
+    public CustomerSnapshot(CustomerDao customerDao, int compactThreshold, MeterRegistry meterRegistry) {
+        this.customerDao = customerDao;
+        this.compactThreshold = compactThreshold;
+        Gauge.builder("customer.snapshot.rows", this, CustomerSnapshot::size)
+                .description("Customers held by the in-memory snapshot")
+                .register(meterRegistry);
+        Gauge.builder("customer.snapshot.bytes", this, CustomerSnapshot::columnBytes)
+                .description("Bytes held by the columns of the in-memory snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether the snapshot has been built and answers queries.
+     *
+     * @return true once the first build has completed, false otherwise
+     */
+    public boolean isWarm() {
+        lock.readLock().lock();
+        try {
+            return columns != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a version of the customers the snapshot answers queries with. It changes with every build and every
+     * recorded write, and is never the same for two snapshots. A query made after reading it answers with customers at
+     * least as new as the version.
+     *
+     * @return the version, or {@code null} if the snapshot is not warm
+     */
+    public String version() {
+        lock.readLock().lock();
+        try {
+            return columns == null ? null : id + "-" + generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns customers ordered by ID, starting after the specified ID.
+     *
+     * @param afterId the ID to start after
+     * @param limit   the maximum number of customers to return
+     * @return the customers, or {@code null} if the snapshot is not warm
+     */
+    public List<Customer> selectAfter(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                return null;
+            }
+            List<Customer> customers = new ArrayList<>(Math.min(limit, CATCH_UP_PAGE_SIZE));
+            Columns current = columns;
+            merge(current, changes, afterId, limit, index -> customers.add(current.customerAt(index)), customers::add);
+            return customers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the projected fields of customers ordered by ID, starting after the specified ID. Only the requested
+     * columns are decoded, and no {@link Customer} is created for rows that have not changed since the last build.
+     *
+     * @param projection the fields to read; the snapshot holds no versions, so they are always {@code null}
+     * @param afterId    the ID to start after
+     * @param limit      the maximum number of customers to return
+     * @return one row per customer, or {@code null} if the snapshot is not warm
+     */
+    public List<Object[]> selectFieldsAfter(CustomerProjection projection, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                return null;
+            }
+            List<Object[]> rows = new ArrayList<>(Math.min(limit, CATCH_UP_PAGE_SIZE));
+            Columns current = columns;
+            merge(current, changes, afterId, limit,
+                    index -> rows.add(current.project(index, projection)),
+                    customer -> rows.add(projection.project(customer)));
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of customers in the snapshot.
+     *
+     * @return the number of customers, or 0 if the snapshot is not warm
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                return 0;
+            }
+            int size = columns.size;
+            for (Map.Entry<Integer, Customer> change : changes.entrySet()) {
+                boolean inColumns = columns.indexOf(change.getKey()) >= 0;
+                if (change.getValue() == DELETED) {
+                    size -= inColumns ? 1 : 0;
+                } else {
+                    size += inColumns ? 0 : 1;
+                }
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the highest customer ID in the snapshot, to be passed to {@link #catchUp(int)} after a bulk insert.
+     *
+     * @return the highest ID, or 0 if there is none
+     */
+    public int highestId() {
+        lock.readLock().lock();
+        try {
+            int highest = columns == null || columns.size == 0 ? 0 : columns.ids[columns.size - 1];
+            return changes.isEmpty() ? highest : Math.max(highest, changes.lastKey());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records an inserted or updated customer.
+     *
+     * @param customer the customer as stored in the database, including its ID
+     */
+    public void put(Customer customer) {
+        record(customer.getId(), customer);
+    }
+
+    /**
+     * Records a deleted customer.
+     *
+     * @param id the ID of the deleted customer
+     */
+    public void remove(Integer id) {
+        record(id, DELETED);
+    }
+
+    /**
+     * Reads the customers with IDs above the specified one from the database and records them, for writes that do
+     * not report the IDs they generated, such as bulk inserts and CSV imports.
+     *
+     * @param afterId the {@link #highestId()} taken before the write started
+     */
+    public void catchUp(int afterId) {
+        if (!isWarm() && !rebuildLock.isLocked()) {
+            return;
+        }
+        List<Customer> page;
+        int after = afterId;
+        do {
+            page = customerDao.selectCustomersAfter(after, CATCH_UP_PAGE_SIZE);
+            page.forEach(this::put);
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == CATCH_UP_PAGE_SIZE);
+    }
+
+    /**
+     * Builds new columns from the customers in the database and swaps them in.
+     * Runs once at startup and then every {@code customer.snapshot.rebuild-interval}; if a rebuild is already running
+     * the call returns immediately, and if it fails the previous snapshot stays in use.
+     */
+    @Scheduled(fixedDelayString = "${customer.snapshot.rebuild-interval:PT10M}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            // Start recording before streaming so customers written during the scan are not lost
+            lock.writeLock().lock();
+            try {
+                rebuildChanges = new TreeMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Columns.Builder builder = new Columns.Builder();
+            customerDao.streamAllCustomers(builder::add);
+            Columns built = builder.build();
+            lock.writeLock().lock();
+            try {
+                columns = built;
+                changes = rebuildChanges;
+                generation++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Built customer snapshot with {} customers in {} bytes", built.size, built.bytes());
+            compactIfNeeded();
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild customer snapshot, keeping the previous one", e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuildChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    private void record(Integer id, Customer customer) {
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            if (rebuildChanges != null) {
+                rebuildChanges.put(id, customer);
+            }
+            if (columns == null) {
+                return;
+            }
+            changes.put(id, customer);
+            generation++;
+            compact = changes.size() >= compactThreshold;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compact) {
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Folds the changes into new columns once there are {@code compactThreshold} of them. The columns are built from a
+     * copy of the changes outside the lock, and only changes that are still the same when they are swapped in are
+     * dropped from the map. Returns immediately if a rebuild or another compaction is replacing the columns.
+     */
+    private void compactIfNeeded() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            Columns current;
+            TreeMap<Integer, Customer> folded;
+            lock.readLock().lock();
+            try {
+                if (columns == null || changes.size() < compactThreshold) {
+                    return;
+                }
+                current = columns;
+                folded = new TreeMap<>(changes);
+            } finally {
+                lock.readLock().unlock();
+            }
+            Columns.Builder builder = new Columns.Builder();
+            merge(current, folded, 0, Integer.MAX_VALUE, index -> builder.add(current.customerAt(index)), builder::add);
+            Columns compacted = builder.build();
+            lock.writeLock().lock();
+            try {
+                // Queries answer the same either way, so the generation stays as it is
+                columns = compacted;
+                folded.forEach(changes::remove);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private long columnBytes() {
+        lock.readLock().lock();
+        try {
+            return columns == null ? 0 : columns.bytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Passes the customers after {@code afterId} in ID order to one of the actions, the index of a row to
+     * {@code fromColumns} or a changed customer to {@code fromChanges}, with the changes taking precedence over the
+     * columns.
+     */
+    private static void merge(Columns columns, NavigableMap<Integer, Customer> changes, int afterId, int limit,
+                              IntConsumer fromColumns, Consumer<Customer> fromChanges) {
+        int index = columns.indexAfter(afterId);
+        Iterator<Map.Entry<Integer, Customer>> changed = changes.tailMap(afterId, false).entrySet().iterator();
+        Map.Entry<Integer, Customer> change = changed.hasNext() ? changed.next() : null;
+        int emitted = 0;
+        while (emitted < limit && (index < columns.size || change != null)) {
+            if (change == null || (index < columns.size && columns.ids[index] < change.getKey())) {
+                fromColumns.accept(index++);
+                emitted++;
+                continue;
+            }
+            if (index < columns.size && columns.ids[index] == change.getKey()) {
+                index++;
+            }
+            if (change.getValue() != DELETED) {
+                fromChanges.accept(change.getValue());
+                emitted++;
+            }
+            change = changed.hasNext() ? changed.next() : null;
+        }
+    }
+
+    /**
+     * Immutable customer columns, sorted by ID.
+     */
+    private static final class Columns {
+        private final int size;
+        private final int[] ids;
+        private final int[] ages;
+        private final byte[] names;
+        private final int[] nameOffsets;
+        private final byte[] emails;
+        private final int[] emailOffsets;
+
+        private Columns(int size, int[] ids, int[] ages, byte[] names, int[] nameOffsets, byte[] emails, int[] emailOffsets) {
+            this.size = size;
+            this.ids = ids;
+            this.ages = ages;
+            this.names = names;
+            this.nameOffsets = nameOffsets;
+            this.emails = emails;
+            this.emailOffsets = emailOffsets;
+        }
+
+        private int indexOf(int id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        private int indexAfter(int id) {
+            int index = indexOf(id);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        private Customer customerAt(int index) {
+            return new Customer(
+                    ids[index],
+                    new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index], StandardCharsets.UTF_8),
+                    new String(emails, emailOffsets[index], emailOffsets[index + 1] - emailOffsets[index], StandardCharsets.UTF_8),
+                    ages[index]);
+        }
+
+        private Object[] project(int index, CustomerProjection projection) {
+            List<CustomerProjection.Field> fields = projection.columns();
+            Object[] row = new Object[fields.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = switch (fields.get(i)) {
+                    case ID -> ids[index];
+                    case NAME -> new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index], StandardCharsets.UTF_8);
+                    case EMAIL -> new String(emails, emailOffsets[index], emailOffsets[index + 1] - emailOffsets[index], StandardCharsets.UTF_8);
+                    case AGE -> ages[index];
+                    case VERSION, UPDATED_AT -> null;
+                };
+            }
+            return row;
+        }
+
+        private long bytes() {
+            return (long) ids.length * Integer.BYTES * 4 + names.length + emails.length;
+        }
+
+        /**
+         * Collects customers, which must arrive in ascending ID order, into columns.
+         */
+        private static final class Builder {
+            private int size;
+            private int[] ids = new int[1024];
+            private int[] ages = new int[1024];
+            private final ByteColumn names = new ByteColumn();
+            private final ByteColumn emails = new ByteColumn();
+
+            private void add(Customer customer) {
+                if (size > 0 && customer.getId() <= ids[size - 1]) {
+                    throw new IllegalStateException("Customers must be added in ascending ID order");
+                }
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    ages = Arrays.copyOf(ages, size * 2);
+                }
+                ids[size] = customer.getId();
+                ages[size] = customer.getAge();
+                names.add(customer.getName());
+                emails.add(customer.getEmail());
+                size++;
+            }
+
+            private Columns build() {
+                // Trim the spare capacity so the columns hold only what they use
+                return new Columns(size, Arrays.copyOf(ids, size), Arrays.copyOf(ages, size),
+                        names.bytes(), names.offsets(size), emails.bytes(), emails.offsets(size));
+            }
+        }
+
+        /**
+         * Packs strings as UTF-8 into one growing byte array, recording where each one starts.
+         */
+        private static final class ByteColumn {
+            private byte[] bytes = new byte[16 * 1024];
+            private int length;
+            private int[] offsets = new int[1025];
+            private int count;
+
+            private void add(String value) {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                int end = Math.addExact(length, encoded.length);
+                if (end > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(end, 2L * bytes.length)));
+                }
+                System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                length = end;
+                if (count + 1 == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[++count] = length;
+            }
+
+            private byte[] bytes() {
+                return Arrays.copyOf(bytes, length);
+            }
+
+            private int[] offsets(int size) {
+                return Arrays.copyOf(offsets, size + 1);
+            }
+        }
+    }
+}
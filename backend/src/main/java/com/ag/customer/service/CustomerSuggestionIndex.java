@@ -0,0 +1,445 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * The {@link CustomerSuggestionIndex} class answers typeahead lookups by name or email prefix from memory, so a
+ * keystroke does not cost a round trip to the database.
+ *
+ * <p>Every customer is indexed under a few lower-cased terms: the full name, the rest of the name from each further
+ * word, so {@code smi} finds {@code John Smith}, and the email. The terms are kept as a sorted prefix array, their UTF-8
+ * bytes packed into one {@code byte[]} with an {@code int[]} of offsets and an {@code int[]} of the customer IDs, so an
+ * entry costs its bytes plus 8 bytes. A lookup binary searches for the first term starting with the prefix and walks
+ * forward until it has collected enough distinct customers, so its cost depends on the number of suggestions asked
+ * for, not on the size of the table. Suggestions come in the order of the terms they matched, which puts the
+ * shortest completions first.</p>
+ *
+ * <p>Like {@link CustomerSnapshot}, the array is immutable. Writes made through the application are recorded in a
+ * small sorted overlay that lookups merge over the array, and once {@code compactThreshold} customers have changed
+ * the overlay is folded into a new array. The index is built by streaming the table and rebuilt from scratch every
+ * {@code customer.suggestions.rebuild-interval}, which also picks up rows written by other application instances.
+ * Until the first build completes the index is not warm.</p>
+ *
+ * <p>The number of indexed terms and the bytes held by the array are published as {@code customer.suggestions.terms}
+ * and {@code customer.suggestions.bytes}.</p>
+ */
+public class CustomerSuggestionIndex {
+    private static final Logger log = LoggerFactory.getLogger(CustomerSuggestionIndex.class);
+    /**
+     * Marks a deleted customer in the map of changes.
+     */
+    private static final Customer DELETED = new Customer();
+    /**
+     * The number of customers read from the database per page when catching up with a bulk insert.
+     */
+    private static final int CATCH_UP_PAGE_SIZE = 1000;
+
+    private final CustomerDao customerDao;
+    private final int compactThreshold;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * The terms answering lookups, or {@code null} until the first build completes.
+     */
+    private Terms terms;
+    /**
+     * The customers changed since the terms were built, whose entries in {@link #terms} are stale.
+     */
+    private Overlay overlay = new Overlay();
+    /**
+     * The customers written while a rebuild streams the table, which the new terms must not lose.
+     */
+    private TreeMap<Integer, Customer> rebuildChanges;
+
+    /**
+     * Constructs a new {@link CustomerSuggestionIndex} that is built from the specified {@link CustomerDao}.
+     *
+     * @param customerDao      the {@link CustomerDao} streaming the customers to build from
+     * @param compactThreshold the number of changed customers at which the overlay is folded into a new array
+     * @param meterRegistry    the registry the size of the index is published to
+     */
+    public CustomerSuggestionIndex(CustomerDao customerDao, int compactThreshold, MeterRegistry meterRegistry) {
+        this.customerDao = customerDao;
+        this.compactThreshold = compactThreshold;
+        Gauge.builder("customer.suggestions.terms", this, CustomerSuggestionIndex::termCount)
+                .description("Terms held by the in-memory suggestion index")
+                .register(meterRegistry);
+        Gauge.builder("customer.suggestions.bytes", this, CustomerSuggestionIndex::termBytes)
+                .description("Bytes held by the sorted terms of the in-memory suggestion index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether the index has been built and answers lookups.
+     *
+     * @return true once the first build has completed, false otherwise
+     */
+    public boolean isWarm() {
+        lock.readLock().lock();
+        try {
+            return terms != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the customers with a name, a word of their name or an email starting with the prefix,
+     * case-insensitively.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of IDs to return
+     * @return the IDs in the order of the terms they matched, or {@code null} if the index is not warm
+     */
+    public List<Integer> suggest(String prefix, int limit) {
+        byte[] key = normalize(prefix).getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            if (terms == null) {
+                return null;
+            }
+            Set<Integer> ids = new LinkedHashSet<>();
+            int index = terms.indexOf(key);
+            Iterator<Term> changed = overlay.terms.tailSet(new Term(key, Integer.MIN_VALUE)).iterator();
+            Term change = next(changed, key);
+            while (ids.size() < limit && (change != null || terms.startsWith(index, key))) {
+                if (change == null || (terms.startsWith(index, key) && terms.compareTo(index, change) < 0)) {
+                    // Entries of changed customers are stale; their current terms are in the overlay
+                    if (!overlay.customers.containsKey(terms.ids[index])) {
+                        ids.add(terms.ids[index]);
+                    }
+                    index++;
+                } else {
+                    ids.add(change.id());
+                    change = next(changed, key);
+                }
+            }
+            return List.copyOf(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records an inserted or updated customer.
+     *
+     * @param customer the customer as stored in the database, including its ID
+     */
+    public void put(Customer customer) {
+        record(customer.getId(), customer);
+    }
+
+    /**
+     * Records a deleted customer.
+     *
+     * @param id the ID of the deleted customer
+     */
+    public void remove(Integer id) {
+        record(id, DELETED);
+    }
+
+    /**
+     * Reads the customers with IDs above the specified one from the database and records them, for writes that do
+     * not report the IDs they generated, such as bulk inserts.
+     *
+     * @param afterId the {@link #highestId()} taken before the write started
+     */
+    public void catchUp(int afterId) {
+        if (!isWarm() && !rebuildLock.isLocked()) {
+            return;
+        }
+        List<Customer> page;
+        int after = afterId;
+        do {
+            page = customerDao.selectCustomersAfter(after, CATCH_UP_PAGE_SIZE);
+            page.forEach(this::put);
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == CATCH_UP_PAGE_SIZE);
+    }
+
+    /**
+     * Returns the highest customer ID the index knows of, to be passed to {@link #catchUp(int)} after a bulk insert.
+     *
+     * @return the highest ID, or 0 if there is none
+     */
+    public int highestId() {
+        lock.readLock().lock();
+        try {
+            int highest = terms == null ? 0 : terms.highestId;
+            return overlay.customers.isEmpty() ? highest : Math.max(highest, overlay.customers.lastKey());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a new array from the customers in the database and swaps it in.
+     * Runs once at startup and then every {@code customer.suggestions.rebuild-interval}; if a rebuild is already
+     * running the call returns immediately, and if it fails the previous index stays in use.
+     */
+    @Scheduled(fixedDelayString = "${customer.suggestions.rebuild-interval:PT10M}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            // Start recording before streaming so customers written during the scan are not lost
+            lock.writeLock().lock();
+            try {
+                rebuildChanges = new TreeMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Terms.Builder builder = new Terms.Builder();
+            customerDao.streamAllCustomers(builder::add);
+            Terms built = builder.build();
+            lock.writeLock().lock();
+            try {
+                terms = built;
+                overlay = new Overlay();
+                rebuildChanges.forEach(overlay::put);
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Built customer suggestion index with {} terms in {} bytes", built.size, built.bytes());
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild customer suggestion index, keeping the previous one", e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuildChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Normalizes text the way indexed terms are, so that lookups match regardless of case and surrounding spaces.
+     *
+     * @param text the text
+     * @return the lower-cased text with runs of whitespace collapsed into single spaces
+     */
+    static String normalize(String text) {
+        return text.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private void record(Integer id, Customer customer) {
+        lock.writeLock().lock();
+        try {
+            if (rebuildChanges != null) {
+                rebuildChanges.put(id, customer);
+            }
+            if (terms != null) {
+                overlay.put(id, customer);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (overlay.customers.size() >= compactThreshold) {
+            // Both runs are already sorted, which the sort in build() detects and merges in linear time
+            Terms.Builder builder = new Terms.Builder();
+            for (int i = 0; i < terms.size; i++) {
+                if (!overlay.customers.containsKey(terms.ids[i])) {
+                    builder.add(terms.termAt(i), terms.ids[i]);
+                }
+            }
+            overlay.terms.forEach(term -> builder.add(term.text(), term.id()));
+            terms = builder.build();
+            overlay = new Overlay();
+        }
+    }
+
+    private int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms == null ? 0 : terms.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long termBytes() {
+        lock.readLock().lock();
+        try {
+            return terms == null ? 0 : terms.bytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Term next(Iterator<Term> terms, byte[] prefix) {
+        if (!terms.hasNext()) {
+            return null;
+        }
+        Term term = terms.next();
+        return startsWith(term.text(), 0, term.text().length, prefix) ? term : null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int to, byte[] prefix) {
+        return to - from >= prefix.length && Arrays.equals(bytes, from, from + prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * Passes the distinct terms a customer is indexed under to the action.
+     */
+    private static void forEachTerm(Customer customer, Consumer<byte[]> action) {
+        Set<String> terms = new HashSet<>();
+        String name = normalize(customer.getName());
+        terms.add(name);
+        for (int space = name.indexOf(' '); space >= 0; space = name.indexOf(' ', space + 1)) {
+            terms.add(name.substring(space + 1));
+        }
+        terms.add(normalize(customer.getEmail()));
+        terms.forEach(term -> action.accept(term.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * A term and the ID of the customer indexed under it, ordered by the unsigned bytes of the term and then by ID,
+     * the order of the sorted array.
+     */
+    private record Term(byte[] text, int id) {
+        private static final Comparator<Term> ORDER = Comparator
+                .<Term, byte[]>comparing(Term::text, Arrays::compareUnsigned)
+                .thenComparingInt(Term::id);
+    }
+
+    /**
+     * The customers changed since the array was built and the terms they are now indexed under.
+     */
+    private static final class Overlay {
+        /**
+         * The changed customers by ID, with {@link #DELETED} for deleted ones.
+         */
+        private final TreeMap<Integer, Customer> customers = new TreeMap<>();
+        private final TreeSet<Term> terms = new TreeSet<>(Term.ORDER);
+
+        private void put(Integer id, Customer customer) {
+            Customer previous = customers.put(id, customer);
+            if (previous != null && previous != DELETED) {
+                forEachTerm(previous, text -> terms.remove(new Term(text, id)));
+            }
+            if (customer != DELETED) {
+                forEachTerm(customer, text -> terms.add(new Term(text, id)));
+            }
+        }
+    }
+
+    /**
+     * Immutable terms, sorted in {@link Term#ORDER}.
+     */
+    private static final class Terms {
+        private final int size;
+        private final byte[] bytes;
+        private final int[] offsets;
+        private final int[] ids;
+        private final int highestId;
+
+        private Terms(int size, byte[] bytes, int[] offsets, int[] ids, int highestId) {
+            this.size = size;
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.ids = ids;
+            this.highestId = highestId;
+        }
+
+        /**
+         * Returns the index of the first term not below the key.
+         */
+        private int indexOf(byte[] key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (Arrays.compareUnsigned(bytes, offsets[middle], offsets[middle + 1], key, 0, key.length) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private boolean startsWith(int index, byte[] prefix) {
+            return index < size && CustomerSuggestionIndex.startsWith(bytes, offsets[index], offsets[index + 1], prefix);
+        }
+
+        private int compareTo(int index, Term term) {
+            int order = Arrays.compareUnsigned(bytes, offsets[index], offsets[index + 1], term.text(), 0, term.text().length);
+            return order != 0 ? order : Integer.compare(ids[index], term.id());
+        }
+
+        private byte[] termAt(int index) {
+            return Arrays.copyOfRange(bytes, offsets[index], offsets[index + 1]);
+        }
+
+        private long bytes() {
+            return bytes.length + (long) size * Integer.BYTES * 2;
+        }
+
+        /**
+         * Collects the terms of customers, in any order, and sorts them into an array.
+         */
+        private static final class Builder {
+            private final List<Term> terms = new ArrayList<>();
+
+            private void add(Customer customer) {
+                forEachTerm(customer, text -> terms.add(new Term(text, customer.getId())));
+            }
+
+            private void add(byte[] text, int id) {
+                terms.add(new Term(text, id));
+            }
+
+            private Terms build() {
+                terms.sort(Term.ORDER);
+                int length = 0;
+                for (Term term : terms) {
+                    length = Math.addExact(length, term.text().length);
+                }
+                byte[] bytes = new byte[length];
+                int[] offsets = new int[terms.size() + 1];
+                int[] ids = new int[terms.size()];
+                int highestId = 0;
+                for (int i = 0; i < terms.size(); i++) {
+                    Term term = terms.get(i);
+                    System.arraycopy(term.text(), 0, bytes, offsets[i], term.text().length);
+                    offsets[i + 1] = offsets[i] + term.text().length;
+                    ids[i] = term.id();
+                    highestId = Math.max(highestId, term.id());
+                }
+                return new Terms(terms.size(), bytes, offsets, ids, highestId);
+            }
+        }
+    }
+}
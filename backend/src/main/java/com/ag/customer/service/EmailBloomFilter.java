@@ -0,0 +1,109 @@
+package com.ag.customer.service;
+
+import com.ag.customer.repository.CustomerDao;
+import com.google.common.hash.Funnels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@link EmailBloomFilter} class keeps a {@link ScalableBloomFilter} of every customer email in memory.
+ *
+ * <p>The filter is built by streaming the email column and is rebuilt from scratch every
+ * {@code customer.email-filter.rebuild-interval}, which also drops the emails of deleted customers. Until the first
+ * build completes every email is reported as possibly present, so callers fall back to querying the database.</p>
+ */
+public class EmailBloomFilter {
+    private static final Logger log = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+    private final CustomerDao customerDao;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    /**
+     * The filter answering lookups, or {@code null} until the first build completes.
+     */
+    private volatile ScalableBloomFilter<CharSequence> filter;
+    /**
+     * The filter being built, which must also see emails added while the database is being streamed.
+     */
+    private volatile ScalableBloomFilter<CharSequence> rebuilding;
+
+    /**
+     * Constructs a new {@link EmailBloomFilter} that is built from the specified {@link CustomerDao}.
+     *
+     * @param customerDao              the {@link CustomerDao} streaming the emails to build from
+     * @param expectedInsertions       the number of emails the filter holds before it needs to grow
+     * @param falsePositiveProbability the upper bound on the probability of reporting an unknown email as present
+     */
+    public EmailBloomFilter(CustomerDao customerDao, long expectedInsertions, double falsePositiveProbability) {
+        this.customerDao = customerDao;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * Checks whether a customer might have the specified email.
+     *
+     * @param email the email to check
+     * @return {@code false} if no customer has the email, {@code true} if one might
+     */
+    public boolean mightContain(String email) {
+        ScalableBloomFilter<CharSequence> current = filter;
+        return current == null || current.mightContain(email);
+    }
+
+    /**
+     * Records that a customer has the specified email.
+     *
+     * @param email the email to record
+     */
+    public void put(String email) {
+        ScalableBloomFilter<CharSequence> current = filter;
+        if (current != null) {
+            current.put(email);
+        }
+        ScalableBloomFilter<CharSequence> next = rebuilding;
+        if (next != null) {
+            next.put(email);
+        }
+    }
+
+    /**
+     * Checks whether the filter has been built and answers lookups.
+     *
+     * @return true once the first build has completed, false otherwise
+     */
+    public boolean isWarm() {
+        return filter != null;
+    }
+
+    /**
+     * Builds a new filter from the emails in the database and swaps it in.
+     * Runs once at startup and then every {@code customer.email-filter.rebuild-interval}; if a rebuild is already
+     * running the call returns immediately, and if it fails the previous filter stays in use.
+     */
+    @Scheduled(fixedDelayString = "${customer.email-filter.rebuild-interval:PT1H}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            ScalableBloomFilter<CharSequence> next = new ScalableBloomFilter<>(
+                    Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+            // Publish before streaming so emails registered during the scan are not lost
+            rebuilding = next;
+            customerDao.streamAllEmails(next::put);
+            filter = next;
+            log.info("Built email filter with about {} emails in {} stage(s)", next.approximateElementCount(), next.stageCount());
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild email filter, keeping the previous one", e);
+        } finally {
+            rebuilding = null;
+            rebuildLock.unlock();
+        }
+    }
+}
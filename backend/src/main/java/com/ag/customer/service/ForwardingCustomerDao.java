@@ -0,0 +1,183 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
+import com.ag.customer.repository.CustomerDao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The {@link ForwardingCustomerDao} class is a {@link CustomerDao} that forwards every call to another {@link CustomerDao}.
+ * Decorators extend it and override only the operations they change.
+ */
+public abstract class ForwardingCustomerDao implements CustomerDao {
+    protected final CustomerDao delegate;
+
+    /**
+     * Constructs a new {@link ForwardingCustomerDao} forwarding to the specified {@link CustomerDao}.
+     *
+     * @param delegate the {@link CustomerDao} that performs the actual data access
+     */
+    protected ForwardingCustomerDao(CustomerDao delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return delegate.selectAllCustomers();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersAfter(Integer afterId, int limit) {
+        return delegate.selectCustomersAfter(afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> searchCustomers(CustomerSearch search, Integer afterId, int limit) {
+        return delegate.searchCustomers(search, afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Object[]> selectCustomerFieldsAfter(CustomerProjection projection, Integer afterId, int limit) {
+        return delegate.selectCustomerFieldsAfter(projection, afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllCustomers(Consumer<Customer> action) {
+        delegate.streamAllCustomers(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllEmails(Consumer<String> action) {
+        delegate.streamAllEmails(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        return delegate.selectCustomerById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        return delegate.selectCustomersByIds(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Object[]> selectCustomerFieldsById(CustomerProjection projection, Integer id) {
+        return delegate.selectCustomerFieldsById(projection, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CustomerVersion> selectCustomerVersion(Integer id) {
+        return delegate.selectCustomerVersion(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> selectListVersion() {
+        return delegate.selectListVersion();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        return delegate.insertCustomer(customer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        delegate.insertCustomers(customers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        return delegate.insertCustomersIgnoringDuplicateEmails(customers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        return delegate.existsPersonWithEmail(email);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return delegate.selectExistingEmails(emails);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteCustomerById(Integer id) {
+        return delegate.deleteCustomerById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean existsPersonById(Integer id) {
+        return delegate.existsPersonById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        return delegate.updateCustomer(updatedCustomer);
+    }
+}
@@ -0,0 +1,33 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+
+import java.util.Optional;
+
+/**
+ * The {@link GroupCommitCustomerDao} class decorates a {@link CustomerDao} so that single-customer inserts are written
+ * in groups by a {@link GroupCommitWriter} rather than each in its own transaction.
+ */
+public class GroupCommitCustomerDao extends ForwardingCustomerDao {
+    private final GroupCommitWriter writer;
+
+    /**
+     * Constructs a new {@link GroupCommitCustomerDao}.
+     *
+     * @param delegate the {@link CustomerDao} handling every other operation
+     * @param writer   the writer grouping inserts
+     */
+    public GroupCommitCustomerDao(CustomerDao delegate, GroupCommitWriter writer) {
+        super(delegate);
+        this.writer = writer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        return writer.insert(customer);
+    }
+}
@@ -0,0 +1,225 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link GroupCommitWriter} class writes concurrent single-customer inserts together, as one multi-row insert
+ * in one transaction.
+ *
+ * <p>Callers hand their customer to a bounded queue and wait. A single writer thread takes the first waiting customer,
+ * lingers briefly for more up to the maximum batch size, and inserts the group in one statement, so the whole group
+ * shares one commit. Each caller then receives its own result: the generated ID, or nothing if the email was already
+ * taken, including by an earlier caller in the same group. If the group insert fails, each customer is retried on its
+ * own so that one bad row only fails its own caller.</p>
+ *
+ * <p>When the queue is full callers block until there is room. Group sizes are recorded as
+ * {@code customer.group.commit.size}.</p>
+ */
+public class GroupCommitWriter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+    /**
+     * How long the writer waits for work before checking whether it has been closed.
+     */
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final CustomerDao customerDao;
+    private final BlockingQueue<PendingInsert> queue;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final DistributionSummary groupSizes;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new {@link GroupCommitWriter} and starts its writer thread.
+     *
+     * @param customerDao   the {@link CustomerDao} writing each group
+     * @param queueCapacity the number of inserts that may wait before callers block
+     * @param maxBatchSize  the largest number of customers written in one group
+     * @param linger        how long the writer waits for more customers after the first one arrives
+     * @param meterRegistry the registry group sizes are published to
+     */
+    public GroupCommitWriter(CustomerDao customerDao, int queueCapacity, int maxBatchSize, Duration linger,
+                             MeterRegistry meterRegistry) {
+        this(customerDao, queueCapacity, maxBatchSize, linger, meterRegistry, runnable -> {
+            Thread thread = new Thread(runnable, "customer-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Constructs a new {@link GroupCommitWriter} and starts its writer thread from the specified factory.
+     *
+     * @param customerDao   the {@link CustomerDao} writing each group
+     * @param queueCapacity the number of inserts that may wait before callers block
+     * @param maxBatchSize  the largest number of customers written in one group
+     * @param linger        how long the writer waits for more customers after the first one arrives
+     * @param meterRegistry the registry group sizes are published to
+     * @param threadFactory creates the writer thread, for instance a virtual one
+     */
+    public GroupCommitWriter(CustomerDao customerDao, int queueCapacity, int maxBatchSize, Duration linger,
+                             MeterRegistry meterRegistry, ThreadFactory threadFactory) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be greater than zero");
+        }
+        this.customerDao = customerDao;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = linger.toNanos();
+        this.groupSizes = DistributionSummary.builder("customer.group.commit.size")
+                .description("Customers written per group commit")
+                .register(meterRegistry);
+        this.writer = threadFactory.newThread(this::run);
+        this.writer.start();
+    }
+
+    /**
+     * Inserts the customer as part of the next group and waits for the group to commit.
+     *
+     * @param customer the customer to insert
+     * @return an {@link Optional} containing the generated ID, or an empty {@link Optional} if the email already exists
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public Optional<Integer> insert(Customer customer) {
+        if (!running) {
+            throw new IllegalStateException("Group commit writer is closed");
+        }
+        PendingInsert pending = new PendingInsert(customer, new CompletableFuture<>());
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to queue customer insert", e);
+        }
+        if (!writer.isAlive() && queue.remove(pending)) {
+            // Closed while we were queueing, after the writer made its last pass
+            throw new IllegalStateException("Group commit writer is closed");
+        }
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            // Rethrow what the insert threw, as if this caller had run it itself
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting inserts, writes what is already queued and stops the writer thread.
+     * If the calling thread is interrupted while waiting for the writer, the inserts still queued are failed and the
+     * thread's interrupt status is restored.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything still queued after the writer stopped will never be written
+        List<PendingInsert> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(pending -> pending.result().completeExceptionally(
+                new IllegalStateException("Group commit writer is closed")));
+    }
+
+    private void run() {
+        List<PendingInsert> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                collect(group);
+                write(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                group.forEach(pending -> pending.result().completeExceptionally(
+                        new IllegalStateException("Group commit writer was interrupted", e)));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Group commit failed", e);
+                group.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Adds waiting inserts to the group until it is full or the linger time has passed.
+     */
+    private void collect(List<PendingInsert> group) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (group.size() < maxBatchSize) {
+            queue.drainTo(group, maxBatchSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void write(List<PendingInsert> group) {
+        // The first caller for an email gets to insert it; later ones in the group see it as taken, as they would in turn
+        Map<String, PendingInsert> byEmail = new LinkedHashMap<>();
+        for (PendingInsert pending : group) {
+            if (byEmail.putIfAbsent(pending.customer().getEmail(), pending) != null) {
+                pending.result().complete(Optional.empty());
+            }
+        }
+        List<Customer> customers = byEmail.values().stream().map(PendingInsert::customer).toList();
+        groupSizes.record(customers.size());
+        try {
+            Map<String, Integer> ids = customerDao.insertCustomersIgnoringDuplicateEmails(customers);
+            byEmail.forEach((email, pending) -> pending.result().complete(Optional.ofNullable(ids.get(email))));
+        } catch (RuntimeException e) {
+            if (byEmail.size() == 1) {
+                byEmail.values().forEach(pending -> pending.result().completeExceptionally(e));
+                return;
+            }
+            log.warn("Group commit of {} customers failed, retrying them one at a time", byEmail.size(), e);
+            byEmail.values().forEach(this::writeAlone);
+        }
+    }
+
+    private void writeAlone(PendingInsert pending) {
+        try {
+            pending.result().complete(customerDao.insertCustomer(pending.customer()));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private record PendingInsert(Customer customer, CompletableFuture<Optional<Integer>> result) {
+    }
+}
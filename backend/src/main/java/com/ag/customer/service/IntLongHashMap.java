@@ -0,0 +1,155 @@
+package com.ag.customer.service;
+
+import java.util.Arrays;
+
+/**
+ * The {@link IntLongHashMap} class maps {@code int} keys to {@code long} values without boxing.
+ *
+ * <p>Keys and values live in two parallel primitive arrays with open addressing and linear probing, so the map is two
+ * objects however many entries it holds, and the garbage collector never has to trace its contents. Removal shifts
+ * the following entries back instead of leaving tombstones, so lookups stay short under constant churn. Not thread
+ * safe.</p>
+ */
+public class IntLongHashMap {
+    /**
+     * The value returned for missing keys; it cannot be stored.
+     */
+    public static final long MISSING = -1L;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * Constructs a new {@link IntLongHashMap} sized for the specified number of entries.
+     *
+     * @param expectedSize the number of entries the map holds before it has to grow
+     */
+    public IntLongHashMap(int expectedSize) {
+        long needed = Math.max(16, (long) Math.ceil(expectedSize / LOAD_FACTOR));
+        allocate((int) Math.min(1 << 30, Long.highestOneBit(needed * 2 - 1)));
+    }
+
+    /**
+     * Returns the value of the specified key.
+     *
+     * @param key the key
+     * @return the value, or {@link #MISSING} if the key is absent
+     */
+    public long get(int key) {
+        for (int slot = slotOf(key); values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     *
+     * @param key   the key
+     * @param value the value, which must not be {@link #MISSING}
+     */
+    public void put(int key, long value) {
+        if (value == MISSING) {
+            throw new IllegalArgumentException("Cannot store the missing value marker");
+        }
+        int slot = slotOf(key);
+        for (; values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            resize();
+        }
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @param key the key
+     * @return the removed value, or {@link #MISSING} if the key was absent
+     */
+    public long remove(int key) {
+        int slot = slotOf(key);
+        for (; values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                long removed = values[slot];
+                shiftBack(slot);
+                size--;
+                return removed;
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Fills the gap at {@code free} with the next entry of the probe run that may move there, and repeats from that
+     * entry's slot until the run ends.
+     */
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == MISSING) {
+                values[free] = MISSING;
+                return;
+            }
+            int home = slotOf(keys[slot]);
+            // The entry may move back if its home slot is not between the gap and where it sits now
+            boolean movable = free <= slot ? home <= free || home > slot : home <= free && home > slot;
+            if (movable) {
+                keys[free] = keys[slot];
+                values[free] = values[slot];
+                free = slot;
+            }
+        }
+    }
+
+    private int slotOf(int key) {
+        // Customer IDs are sequential, so spread them before masking to keep probe runs short
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int slot = slotOf(oldKeys[i]);
+                while (values[slot] != MISSING) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+}
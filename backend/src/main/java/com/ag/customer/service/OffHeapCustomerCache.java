@@ -0,0 +1,302 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link OffHeapCustomerCache} class is a {@link CustomerCache} keeping customers serialized in direct
+ * {@link ByteBuffer} slabs outside the Java heap, so the cache adds no objects for the garbage collector to trace
+ * however many customers it holds.
+ *
+ * <p>Each customer is written as one record, and an {@link IntLongHashMap} maps its ID to the slab and offset of the
+ * record. Modification times are kept in microseconds, the precision of the database. Records are appended to the current slab. When it is full the oldest slab is compacted and reused: records
+ * that were replaced, invalidated or expired are dropped, records read since the slab was last compacted get a second
+ * chance and are copied to the start of the slab, and the rest are evicted. This approximates LRU eviction at the cost
+ * of one copy per surviving record. Survivors may fill at most half a slab, so writes always make progress.</p>
+ *
+ * <p>Hits and misses are published as {@code cache.gets} and the number of entries as {@code cache.size}, tagged
+ * {@code cache=customers} like the heap cache, and the reserved memory as {@code customer.cache.off-heap.bytes}.</p>
+ */
+public class OffHeapCustomerCache implements CustomerCache {
+    private static final int LENGTH = 0;
+    private static final int ACCESSED = LENGTH + Integer.BYTES;
+    private static final int ID = ACCESSED + 1;
+    private static final int AGE = ID + Integer.BYTES;
+    private static final int EXPIRES_AT = AGE + Integer.BYTES;
+    private static final int VERSION = EXPIRES_AT + Long.BYTES;
+    private static final int UPDATED_AT = VERSION + Long.BYTES;
+    private static final int NAME = UPDATED_AT + Long.BYTES;
+    /**
+     * Stored for a version or modification time the customer does not have.
+     */
+    private static final long UNKNOWN = Long.MIN_VALUE;
+    /**
+     * The number of customers the index is sized for at first; it doubles as more are cached.
+     */
+    private static final int INITIAL_INDEX_SIZE = 1024;
+
+    private final ByteBuffer[] slabs;
+    /**
+     * The slab that survivors of a compaction are copied into before it takes the compacted slab's place.
+     */
+    private ByteBuffer spare;
+    private final int[] used;
+    private final int slabSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private final IntLongHashMap index;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private int head;
+
+    /**
+     * Constructs a new {@link OffHeapCustomerCache}.
+     *
+     * @param capacity         the off-heap memory to reserve for records, in bytes; at least two slabs are reserved
+     * @param slabSize         the size of one slab, in bytes, which is also the largest record the cache accepts
+     * @param expireAfterWrite how long a cached customer may be served before it is reloaded
+     * @param meterRegistry    the registry the cache statistics are published to
+     */
+    public OffHeapCustomerCache(long capacity, int slabSize, Duration expireAfterWrite, MeterRegistry meterRegistry) {
+        this(capacity, slabSize, expireAfterWrite, meterRegistry, System::nanoTime);
+    }
+
+    OffHeapCustomerCache(long capacity, int slabSize, Duration expireAfterWrite, MeterRegistry meterRegistry,
+                         LongSupplier nanoTime) {
+        int slabCount = (int) Math.max(2, capacity / slabSize);
+        this.slabs = new ByteBuffer[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            slabs[i] = ByteBuffer.allocateDirect(slabSize);
+        }
+        this.spare = ByteBuffer.allocateDirect(slabSize);
+        this.used = new int[slabCount];
+        this.slabSize = slabSize;
+        this.ttlNanos = expireAfterWrite.toNanos();
+        this.nanoTime = nanoTime;
+        // Sizing the index for the most records the slabs could hold would take its heap up front, whether or not
+        // the cache ever fills, so it starts small and grows with the customers actually cached
+        this.index = new IntLongHashMap(INITIAL_INDEX_SIZE);
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", "customers", "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", "customers", "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", "customers")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, OffHeapCustomerCache::size)
+                .tags("cache", "customers")
+                .register(meterRegistry);
+        Gauge.builder("customer.cache.off-heap.bytes", () -> (long) (slabCount + 1) * slabSize)
+                .description("Off-heap memory reserved by the customer cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Customer getIfPresent(Integer id) {
+        lock.readLock().lock();
+        try {
+            Customer customer = read(id);
+            (customer == null ? misses : hits).increment();
+            return customer;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Customer> getAllPresent(Iterable<Integer> ids) {
+        Map<Integer, Customer> customers = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Integer id : ids) {
+                Customer customer = read(id);
+                if (customer != null) {
+                    customers.put(id, customer);
+                    hits.increment();
+                } else {
+                    misses.increment();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return customers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(Integer id, Customer customer) {
+        byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+        int length = NAME + Integer.BYTES + name.length + Integer.BYTES + email.length;
+        lock.writeLock().lock();
+        try {
+            if (length > slabSize) {
+                // Too large to cache; make sure an older copy is not served instead
+                index.remove(id);
+                return;
+            }
+            while (used[head] + length > slabSize) {
+                head = (head + 1) % slabs.length;
+                compact(head);
+            }
+            int offset = used[head];
+            ByteBuffer slab = slabs[head];
+            slab.putInt(offset + LENGTH, length);
+            slab.put(offset + ACCESSED, (byte) 0);
+            slab.putInt(offset + ID, id);
+            slab.putInt(offset + AGE, customer.getAge());
+            slab.putLong(offset + EXPIRES_AT, nanoTime.getAsLong() + ttlNanos);
+            slab.putLong(offset + VERSION, customer.getVersion() != null ? customer.getVersion() : UNKNOWN);
+            slab.putLong(offset + UPDATED_AT, customer.getUpdatedAt() != null
+                    ? ChronoUnit.MICROS.between(Instant.EPOCH, customer.getUpdatedAt()) : UNKNOWN);
+            slab.putInt(offset + NAME, name.length);
+            slab.put(offset + NAME + Integer.BYTES, name);
+            int emailAt = offset + NAME + Integer.BYTES + name.length;
+            slab.putInt(emailAt, email.length);
+            slab.put(emailAt + Integer.BYTES, email);
+            used[head] = offset + length;
+            index.put(id, location(head, offset));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate(Integer id) {
+        lock.writeLock().lock();
+        try {
+            // The record's bytes are reclaimed when its slab is next compacted
+            index.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateAll(Iterable<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(index::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of cached customers, including expired ones that have not been dropped yet.
+     *
+     * @return the number of entries
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Customer read(int id) {
+        long location = index.get(id);
+        if (location == IntLongHashMap.MISSING) {
+            return null;
+        }
+        ByteBuffer slab = slabs[slabOf(location)];
+        int offset = offsetOf(location);
+        if (slab.getLong(offset + EXPIRES_AT) - nanoTime.getAsLong() < 0) {
+            return null;
+        }
+        // Racing readers may all set the flag; it only tells the next compaction to keep the record
+        slab.put(offset + ACCESSED, (byte) 1);
+        int nameLength = slab.getInt(offset + NAME);
+        byte[] name = new byte[nameLength];
+        slab.get(offset + NAME + Integer.BYTES, name);
+        int emailAt = offset + NAME + Integer.BYTES + nameLength;
+        byte[] email = new byte[slab.getInt(emailAt)];
+        slab.get(emailAt + Integer.BYTES, email);
+        Customer customer = new Customer(id, new String(name, StandardCharsets.UTF_8),
+                new String(email, StandardCharsets.UTF_8), slab.getInt(offset + AGE));
+        long version = slab.getLong(offset + VERSION);
+        customer.setVersion(version != UNKNOWN ? version : null);
+        long updatedAt = slab.getLong(offset + UPDATED_AT);
+        customer.setUpdatedAt(updatedAt != UNKNOWN ? Instant.EPOCH.plus(updatedAt, ChronoUnit.MICROS) : null);
+        return customer;
+    }
+
+    /**
+     * Empties the slab for reuse, moving recently read records to its start and dropping the rest from the index.
+     */
+    private void compact(int slabIndex) {
+        ByteBuffer slab = slabs[slabIndex];
+        long now = nanoTime.getAsLong();
+        int survivors = 0;
+        for (int offset = 0; offset < used[slabIndex]; ) {
+            int length = slab.getInt(offset + LENGTH);
+            int id = slab.getInt(offset + ID);
+            if (index.get(id) == location(slabIndex, offset)) {
+                boolean keep = slab.get(offset + ACCESSED) != 0
+                        && slab.getLong(offset + EXPIRES_AT) - now >= 0
+                        && survivors + length <= slabSize / 2;
+                if (keep) {
+                    spare.put(survivors, slab, offset, length);
+                    spare.put(survivors + ACCESSED, (byte) 0);
+                    index.put(id, location(slabIndex, survivors));
+                    survivors += length;
+                } else {
+                    index.remove(id);
+                    evictions.increment();
+                }
+            }
+            offset += length;
+        }
+        slabs[slabIndex] = spare;
+        spare = slab;
+        used[slabIndex] = survivors;
+    }
+
+    private static long location(int slabIndex, int offset) {
+        return ((long) slabIndex << 32) | offset;
+    }
+
+    private static int slabOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+}
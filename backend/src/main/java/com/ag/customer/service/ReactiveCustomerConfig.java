@@ -0,0 +1,72 @@
+package com.ag.customer.service;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * The {@link ReactiveCustomerConfig} class sets up the non-blocking stack used by the {@code reactive} profile.
+ *
+ * <p>Requests are served by Netty on a small number of event loop threads, and customers are read and written through
+ * an R2DBC connection pool configured under {@code customer.r2dbc.*}. The pool is created here rather than exposed as a
+ * {@link io.r2dbc.spi.ConnectionFactory} bean, because such a bean would switch off the JDBC {@code DataSource} that
+ * Flyway still needs to migrate the schema.</p>
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveCustomerConfig implements DisposableBean {
+    private ConnectionPool connectionPool;
+
+    /**
+     * Creates the {@link DatabaseClient} backed by a pool of R2DBC connections.
+     *
+     * @param url             the R2DBC URL of the database
+     * @param username        the database user
+     * @param password        the database password
+     * @param maximumPoolSize the maximum number of open connections
+     * @return the {@link DatabaseClient}
+     */
+    @Bean
+    public DatabaseClient customerDatabaseClient(@Value("${customer.r2dbc.url}") String url,
+                                                 @Value("${customer.r2dbc.username}") String username,
+                                                 @Value("${customer.r2dbc.password}") String password,
+                                                 @Value("${customer.r2dbc.maximum-pool-size:10}") int maximumPoolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(maximumPoolSize)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    /**
+     * Serves the reactive profile with Netty; Tomcat is also on the classpath for the servlet stack and would
+     * otherwise be preferred.
+     *
+     * @return the Netty server factory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Closes the R2DBC connection pool.
+     */
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.ReactiveCustomerDao;
+import com.ag.dto.CustomerPage;
+import com.ag.dto.CustomerRegistrationRequest;
+import com.ag.dto.CustomerUpdateRequest;
+import com.ag.exceptions.DuplicateResourceException;
+import com.ag.exceptions.RequestValidationException;
+import com.ag.exceptions.ResourceNotFoundException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.ag.customer.service.CustomerService.DEFAULT_PAGE_SIZE;
+import static com.ag.customer.service.CustomerService.MAX_PAGE_SIZE;
+
+/**
+ * The {@code ReactiveCustomerService} class is the non-blocking counterpart of {@link CustomerService}.
+ * It applies the same rules and signals the same exceptions, through the returned publishers, using a
+ * {@link ReactiveCustomerDao}.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveCustomerService {
+    private final ReactiveCustomerDao customerDao;
+
+    /**
+     * Constructs a new {@code ReactiveCustomerService} with the specified {@link ReactiveCustomerDao}.
+     *
+     * @param customerDao the {@link ReactiveCustomerDao} to be used for data access operations
+     */
+    public ReactiveCustomerService(ReactiveCustomerDao customerDao) {
+        this.customerDao = customerDao;
+    }
+
+    /**
+     * Retrieves one page of customers ordered by ID, starting after the given cursor.
+     *
+     * @param after the ID to resume after, or {@code null} to start from the first customer
+     * @param limit the requested page size, or {@code null} for {@link CustomerService#DEFAULT_PAGE_SIZE}; capped at
+     *              {@link CustomerService#MAX_PAGE_SIZE}
+     * @return the page of customers and the cursor for the next page; signals {@link RequestValidationException} if
+     * the limit is not positive
+     */
+    public Mono<CustomerPage> getCustomersPage(Integer after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1) {
+            return Mono.error(new RequestValidationException("Page limit must be greater than zero"));
+        }
+        int cappedPageSize = Math.min(pageSize, MAX_PAGE_SIZE);
+        // Fetch one extra row to find out whether another page follows without a count query
+        return customerDao.selectCustomersAfter(after == null ? 0 : after, cappedPageSize + 1)
+                .collectList()
+                .map(customers -> {
+                    if (customers.size() <= cappedPageSize) {
+                        return new CustomerPage(customers, null);
+                    }
+                    List<Customer> page = customers.subList(0, cappedPageSize);
+                    return new CustomerPage(List.copyOf(page), page.get(cappedPageSize - 1).getId());
+                });
+    }
+
+    /**
+     * Retrieves the customers with the specified IDs using a single query.
+     *
+     * @param ids the IDs of the customers to retrieve; repeated IDs are returned once
+     * @return the customers found, in the order their IDs were requested; signals {@link RequestValidationException}
+     * if no IDs or more than {@link CustomerService#MAX_PAGE_SIZE} distinct IDs are requested
+     */
+    public Flux<Customer> getCustomersByIds(List<Integer> ids) {
+        Set<Integer> distinctIds = ids == null ? Set.of() : ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (distinctIds.isEmpty()) {
+            return Flux.error(new RequestValidationException("No customer ids requested"));
+        }
+        if (distinctIds.size() > MAX_PAGE_SIZE) {
+            return Flux.error(new RequestValidationException("At most %s customer ids may be requested at once".formatted(MAX_PAGE_SIZE)));
+        }
+        return customerDao.selectCustomersByIds(distinctIds)
+                .collectMap(Customer::getId, Function.identity())
+                .flatMapIterable(customers -> order(distinctIds, customers));
+    }
+
+    /**
+     * Streams every customer, ordered by ID, as the subscriber requests them.
+     *
+     * @return all customers ordered by ID
+     */
+    public Flux<Customer> exportCustomers() {
+        return customerDao.streamAllCustomers();
+    }
+
+    /**
+     * Retrieves a customer by their ID.
+     *
+     * @param id the ID of the customer to retrieve
+     * @return the customer; signals {@link ResourceNotFoundException} if no customer with the specified ID is found
+     */
+    public Mono<Customer> getCustomerById(Integer id) {
+        return customerDao.selectCustomerById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("customer with id[%s] not found".formatted(id))));
+    }
+
+    /**
+     * Adds a new customer to the database.
+     *
+     * @param customerRegistrationRequest the request containing customer registration details
+     * @return the ID of the new customer; signals {@link DuplicateResourceException} if the email already exists
+     */
+    public Mono<Integer> addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        return customerDao.insertCustomer(new Customer(customerRegistrationRequest.name(), customerRegistrationRequest.email(), customerRegistrationRequest.age()))
+                .switchIfEmpty(Mono.error(() -> new DuplicateResourceException("Customer with email %s already exist".formatted(customerRegistrationRequest.email()))));
+    }
+
+    /**
+     * Deletes a customer by their ID.
+     *
+     * @param id the ID of the customer to delete
+     * @return completes once deleted; signals {@link ResourceNotFoundException} if no customer with the specified ID is found
+     */
+    public Mono<Void> deleteCustomerById(Integer id) {
+        return customerDao.deleteCustomerById(id)
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.error(new ResourceNotFoundException("Customer with id[%s] not found".formatted(id)))
+                        : Mono.empty());
+    }
+
+    /**
+     * Updates customer information.
+     *
+     * @param id                    the ID of the customer to update
+     * @param customerUpdateRequest the request containing updated customer details
+     * @return the customer as stored after the update; signals {@link DuplicateResourceException} if the email belongs
+     * to another customer, {@link RequestValidationException} if nothing would change and
+     * {@link ResourceNotFoundException} if no customer with the specified ID is found
+     */
+    public Mono<Customer> updateCustomer(Integer id, CustomerUpdateRequest customerUpdateRequest) {
+        if (customerUpdateRequest.name() == null && customerUpdateRequest.email() == null && customerUpdateRequest.age() == null) {
+            return Mono.error(new RequestValidationException("No data changes found"));
+        }
+        Customer update = new Customer(id, customerUpdateRequest.name(), customerUpdateRequest.email(), customerUpdateRequest.age());
+        return customerDao.updateCustomer(update)
+                .onErrorMap(DuplicateKeyException.class,
+                        e -> new DuplicateResourceException("Email %s already exist".formatted(customerUpdateRequest.email())))
+                // Nothing was returned: either the customer is missing or it already holds these values
+                .switchIfEmpty(Mono.defer(() -> customerDao.existsPersonById(id)
+                        .flatMap(exists -> Mono.error(exists
+                                ? new RequestValidationException("No data changes found")
+                                : new ResourceNotFoundException("customer with id[%s] not found".formatted(id))))));
+    }
+
+    private static List<Customer> order(Set<Integer> ids, Map<Integer, Customer> customers) {
+        return ids.stream()
+                .map(customers::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,129 @@
+package com.ag.customer.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link ReadReplicaConfig} class splits reads and writes across the primary database and the read replicas
+ * listed in {@code customer.datasource.replica-urls}.
+ *
+ * <p>The primary is configured by {@code spring.datasource.*} as usual. Each replica gets its own Hikari pool with the
+ * primary's credentials and {@code spring.datasource.hikari.*} settings. The application's {@link DataSource} becomes a
+ * {@link ReadWriteRoutingDataSource} over all of them, so Flyway, JPA and the JDBC template keep working unchanged and
+ * use the primary unless a {@link ReplicaRoutingCustomerDao} sends a read to a replica.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "customer.datasource.replica-urls")
+public class ReadReplicaConfig implements DisposableBean {
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+    /**
+     * Creates the connection pool of the primary database.
+     *
+     * @param properties the {@code spring.datasource.*} properties
+     * @return the primary pool
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    /**
+     * Creates a connection pool per replica and the monitor deciding which of them may serve reads.
+     *
+     * @param properties    the {@code spring.datasource.*} properties, whose credentials the replicas share
+     * @param environment   the environment the {@code spring.datasource.hikari.*} settings are bound from
+     * @param replicaUrls   the JDBC URLs of the replicas
+     * @param maxLag        how far behind the primary a replica may be and still serve reads
+     * @param meterRegistry the registry the lag of each replica is published to
+     * @return the replica lag monitor
+     */
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceProperties properties,
+                                               Environment environment,
+                                               @Value("${customer.datasource.replica-urls}") List<String> replicaUrls,
+                                               @Value("${customer.datasource.replica-max-lag:5s}") Duration maxLag,
+                                               MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i))
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + i);
+            replicaPools.add(replica);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaLagMonitor(replicas, maxLag, meterRegistry);
+    }
+
+    /**
+     * Creates the thread that checks the replicas every {@code customer.datasource.replica-lag-check-interval}.
+     * The checks do not share the application's scheduler, whose single thread is busy for as long as a full-table
+     * rebuild of the email filter, the snapshot or the suggestion index takes.
+     *
+     * @param lagMonitor    the monitor of the replicas
+     * @param checkInterval the time between the end of one check and the start of the next
+     * @return the executor, shut down with the application context
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService replicaLagCheckExecutor(ReplicaLagMonitor lagMonitor,
+                                                            @Value("${customer.datasource.replica-lag-check-interval:PT1S}") Duration checkInterval) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("customer-replica-lag-");
+        threadFactory.setDaemon(true);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        executor.scheduleWithFixedDelay(lagMonitor::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Creates the {@link DataSource} used by the application, routing to the primary or a replica.
+     *
+     * @param primary       the primary database
+     * @param lagMonitor    the monitor of the replicas
+     * @param meterRegistry the registry fallbacks to the primary are counted in
+     * @return the routing data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 ReplicaLagMonitor lagMonitor,
+                                 MeterRegistry meterRegistry) {
+        return new ReadWriteRoutingDataSource(primary, lagMonitor, meterRegistry);
+    }
+
+    /**
+     * Closes the replica connection pools.
+     */
+    @Override
+    public void destroy() {
+        replicaPools.forEach(HikariDataSource::close);
+    }
+}
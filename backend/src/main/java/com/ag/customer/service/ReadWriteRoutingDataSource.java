@@ -0,0 +1,91 @@
+package com.ag.customer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The {@link ReadWriteRoutingDataSource} class hands out connections to the primary database, or to a read replica for
+ * reads that were explicitly allowed to use one.
+ *
+ * <p>Everything goes to the primary unless it runs inside {@link #readFromReplica(Supplier)}. Such reads are spread
+ * round robin over the replicas the {@link ReplicaLagMonitor} currently considers healthy, and fall back to the primary
+ * when there are none; those fallbacks are counted as {@code customer.datasource.replica.fallbacks}.</p>
+ *
+ * <p>The choice is made when a connection is borrowed, so a transaction that started on the primary stays there.</p>
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    /**
+     * The lookup key of the primary database.
+     */
+    public static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter fallbacks;
+
+    /**
+     * Constructs a new {@link ReadWriteRoutingDataSource}.
+     *
+     * @param primary       the primary database, used for all writes
+     * @param lagMonitor    the monitor of the replicas that may serve reads
+     * @param meterRegistry the registry fallbacks to the primary are counted in
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.fallbacks = Counter.builder("customer.datasource.replica.fallbacks")
+                .description("Reads sent to the primary because no replica was healthy")
+                .register(meterRegistry);
+        Map<Object, Object> targets = new LinkedHashMap<>(lagMonitor.getReplicas());
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Runs the read with connections from a healthy replica, if there is one.
+     *
+     * @param read the read to run
+     * @param <T>  the type of the result
+     * @return the result of the read
+     */
+    public static <T> T readFromReplica(Supplier<T> read) {
+        Boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                REPLICA_READ.remove();
+            } else {
+                REPLICA_READ.set(previous);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!Boolean.TRUE.equals(REPLICA_READ.get())) {
+            return PRIMARY;
+        }
+        List<String> healthy = lagMonitor.getHealthyReplicas();
+        if (healthy.isEmpty()) {
+            fallbacks.increment();
+            return PRIMARY;
+        }
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+}
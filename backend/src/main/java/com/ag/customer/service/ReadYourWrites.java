@@ -0,0 +1,69 @@
+package com.ag.customer.service;
+
+/**
+ * The {@link ReadYourWrites} class tracks, for the request being handled on the current thread, whether its reads must
+ * go to the primary database so that it sees its own writes.
+ *
+ * <p>A request reads from the primary if it was marked as such when it began, typically because the same client wrote
+ * moments ago, or once it has written anything itself. The first write of a request runs the callback given when the
+ * request began, which lets the web layer tell the client to keep reading from the primary for a while.</p>
+ *
+ * <p>Outside a request, for instance in scheduled work, reads are never pinned to the primary by this class.</p>
+ */
+public final class ReadYourWrites {
+    private static final ThreadLocal<Request> CURRENT = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * Starts tracking a request on the current thread.
+     *
+     * @param readPrimary  whether the request must read from the primary from the start
+     * @param onFirstWrite run the first time the request writes
+     */
+    public static void begin(boolean readPrimary, Runnable onFirstWrite) {
+        CURRENT.set(new Request(readPrimary, onFirstWrite));
+    }
+
+    /**
+     * Stops tracking the request on the current thread.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns whether the request on the current thread must read from the primary.
+     *
+     * @return {@code true} if reads must go to the primary
+     */
+    public static boolean mustReadPrimary() {
+        Request request = CURRENT.get();
+        return request != null && request.readPrimary;
+    }
+
+    /**
+     * Records that the request on the current thread wrote to the primary.
+     */
+    static void wrote() {
+        Request request = CURRENT.get();
+        if (request == null || request.wrote) {
+            return;
+        }
+        request.wrote = true;
+        request.readPrimary = true;
+        request.onFirstWrite.run();
+    }
+
+    private static final class Request {
+        private final Runnable onFirstWrite;
+        private boolean readPrimary;
+        private boolean wrote;
+
+        private Request(boolean readPrimary, Runnable onFirstWrite) {
+            this.readPrimary = readPrimary;
+            this.onFirstWrite = onFirstWrite;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ag.customer.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link ReplicaLagMonitor} class periodically measures how far each read replica is behind the primary, and
+ * reports which replicas are close enough to serve reads.
+ *
+ * <p>A replica is healthy when it answered the last check and was at most {@code maxLag} behind. A replica that is
+ * receiving WAL and has replayed everything it received is not behind at all, even if the primary has been idle for a
+ * while. A replica without a WAL receiver receives nothing new, so it is as far behind as its last replayed
+ * transaction is old, and never healthy if it has replayed none. Until the first check completes no replica is
+ * healthy, so reads go to the primary.</p>
+ *
+ * <p>The lag of each replica is published as {@code customer.datasource.replica.lag} in seconds, tagged with the
+ * replica name; it is {@code NaN} while the replica cannot be reached.</p>
+ */
+public class ReplicaLagMonitor {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    private static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver)
+                    THEN EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+            END
+            """;
+
+    private final Map<String, DataSource> replicas;
+    private final Map<String, JdbcTemplate> jdbcTemplates = new LinkedHashMap<>();
+    private final Map<String, Double> lagSeconds = new ConcurrentHashMap<>();
+    private final double maxLagSeconds;
+    private volatile List<String> healthyReplicas = List.of();
+
+    /**
+     * Constructs a new {@link ReplicaLagMonitor}.
+     *
+     * @param replicas      the replicas to watch, by name
+     * @param maxLag        how far behind the primary a replica may be and still serve reads
+     * @param meterRegistry the registry the lag of each replica is published to
+     */
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replicas = Map.copyOf(replicas);
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        replicas.forEach((name, dataSource) -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            // A replica that takes longer than this to answer is too slow to read from anyway
+            jdbcTemplate.setQueryTimeout((int) Math.max(1, maxLag.toSeconds()));
+            jdbcTemplates.put(name, jdbcTemplate);
+            lagSeconds.put(name, Double.NaN);
+            Gauge.builder("customer.datasource.replica.lag", lagSeconds, lags -> lags.getOrDefault(name, Double.NaN))
+                    .description("Seconds the replica is behind the primary")
+                    .tag("replica", name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        });
+    }
+
+    /**
+     * Returns the replicas being watched.
+     *
+     * @return the replicas by name
+     */
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Returns the replicas that may currently serve reads.
+     *
+     * @return the names of the healthy replicas
+     */
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    /**
+     * Measures the lag of every replica and updates which of them are healthy.
+     * Runs every {@code customer.datasource.replica-lag-check-interval} on a thread of its own, see
+     * {@link ReadReplicaConfig#replicaLagCheckExecutor}.
+     */
+    public void check() {
+        List<String> healthy = new ArrayList<>(jdbcTemplates.size());
+        jdbcTemplates.forEach((name, jdbcTemplate) -> {
+            double lag = measure(name, jdbcTemplate);
+            lagSeconds.put(name, lag);
+            if (lag <= maxLagSeconds) {
+                healthy.add(name);
+            } else if (!Double.isNaN(lag)) {
+                log.debug("Replica {} is {}s behind, reading from the primary instead", name, lag);
+            }
+        });
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    private double measure(String name, JdbcTemplate jdbcTemplate) {
+        try {
+            // Only a replica without a WAL receiver that has never replayed a transaction has no lag to report
+            Double lag = jdbcTemplate.queryForObject(LAG_SQL, Double.class);
+            return lag == null ? Double.POSITIVE_INFINITY : lag;
+        } catch (RuntimeException e) {
+            // Anything escaping would cancel the checks scheduled after this one
+            log.warn("Replica {} could not be checked, reading from the primary instead", name, e);
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
+import com.ag.customer.repository.CustomerDao;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The {@link ReplicaRoutingCustomerDao} class decorates a {@link CustomerDao} so that its reads are served by a read
+ * replica, through a {@link ReadWriteRoutingDataSource}, while its writes go to the primary.
+ *
+ * <p>Reads stay on the primary when they must see a recent write: for the rest of a request that wrote, as tracked by
+ * {@link ReadYourWrites}, and for lookups of a customer written through this DAO within the read-your-writes window,
+ * whichever request asks. The latter keeps a decorator above this one, such as the cache, from loading an outdated
+ * copy of a customer that was just changed.</p>
+ *
+ * <p>A read whose replica cannot be reached is retried on the primary. Streaming reads are not retried, since rows
+ * may already have been passed on.</p>
+ */
+public class ReplicaRoutingCustomerDao extends ForwardingCustomerDao {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingCustomerDao.class);
+
+    private final Cache<Integer, Boolean> recentlyWritten;
+
+    /**
+     * Constructs a new {@link ReplicaRoutingCustomerDao}.
+     *
+     * @param delegate             the {@link CustomerDao} whose data source is a {@link ReadWriteRoutingDataSource}
+     * @param readYourWritesWindow how long lookups of a customer written through this DAO stay on the primary
+     */
+    public ReplicaRoutingCustomerDao(CustomerDao delegate, Duration readYourWritesWindow) {
+        super(delegate);
+        this.recentlyWritten = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return read(delegate::selectAllCustomers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersAfter(Integer afterId, int limit) {
+        return read(() -> delegate.selectCustomersAfter(afterId, limit));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> searchCustomers(CustomerSearch search, Integer afterId, int limit) {
+        return read(() -> delegate.searchCustomers(search, afterId, limit));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Object[]> selectCustomerFieldsAfter(CustomerProjection projection, Integer afterId, int limit) {
+        return read(() -> delegate.selectCustomerFieldsAfter(projection, afterId, limit));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllCustomers(Consumer<Customer> action) {
+        stream(() -> delegate.streamAllCustomers(action));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllEmails(Consumer<String> action) {
+        stream(() -> delegate.streamAllEmails(action));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        if (recentlyWritten.getIfPresent(id) != null) {
+            return delegate.selectCustomerById(id);
+        }
+        return read(() -> delegate.selectCustomerById(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        if (!recentlyWritten.getAllPresent(ids).isEmpty()) {
+            return delegate.selectCustomersByIds(ids);
+        }
+        return read(() -> delegate.selectCustomersByIds(ids));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Object[]> selectCustomerFieldsById(CustomerProjection projection, Integer id) {
+        if (recentlyWritten.getIfPresent(id) != null) {
+            return delegate.selectCustomerFieldsById(projection, id);
+        }
+        return read(() -> delegate.selectCustomerFieldsById(projection, id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CustomerVersion> selectCustomerVersion(Integer id) {
+        if (recentlyWritten.getIfPresent(id) != null) {
+            return delegate.selectCustomerVersion(id);
+        }
+        return read(() -> delegate.selectCustomerVersion(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        Optional<Integer> id = delegate.insertCustomer(customer);
+        id.ifPresent(this::wrote);
+        ReadYourWrites.wrote();
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        delegate.insertCustomers(customers);
+        ReadYourWrites.wrote();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        Map<String, Integer> ids = delegate.insertCustomersIgnoringDuplicateEmails(customers);
+        ids.values().forEach(this::wrote);
+        ReadYourWrites.wrote();
+        return ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        return read(() -> delegate.existsPersonWithEmail(email));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return read(() -> delegate.selectExistingEmails(emails));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteCustomerById(Integer id) {
+        // Marked before the delete too, so a lookup racing with it does not read the customer back from a replica
+        wrote(id);
+        int deleted = delegate.deleteCustomerById(id);
+        wrote(id);
+        ReadYourWrites.wrote();
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean existsPersonById(Integer id) {
+        if (recentlyWritten.getIfPresent(id) != null) {
+            return delegate.existsPersonById(id);
+        }
+        return read(() -> delegate.existsPersonById(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        wrote(updatedCustomer.getId());
+        Optional<Customer> updated = delegate.updateCustomer(updatedCustomer);
+        wrote(updatedCustomer.getId());
+        ReadYourWrites.wrote();
+        return updated;
+    }
+
+    private void wrote(Integer id) {
+        recentlyWritten.put(id, Boolean.TRUE);
+    }
+
+    private <T> T read(Supplier<T> read) {
+        if (ReadYourWrites.mustReadPrimary()) {
+            return read.get();
+        }
+        try {
+            return ReadWriteRoutingDataSource.readFromReplica(read);
+        } catch (DataAccessResourceFailureException e) {
+            log.warn("Read from replica failed, retrying on the primary", e);
+            return read.get();
+        }
+    }
+
+    private void stream(Runnable stream) {
+        if (ReadYourWrites.mustReadPrimary()) {
+            stream.run();
+            return;
+        }
+        ReadWriteRoutingDataSource.readFromReplica(() -> {
+            stream.run();
+            return null;
+        });
+    }
+}
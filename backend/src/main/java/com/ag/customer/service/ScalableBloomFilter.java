@@ -0,0 +1,130 @@
+package com.ag.customer.service;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@link ScalableBloomFilter} class is a Bloom filter that keeps its false positive probability bounded
+ * however many elements are added.
+ *
+ * <p>Elements go into a chain of fixed-size Bloom filters. Once the newest one reaches its capacity a new stage is added
+ * with twice the capacity and half the false positive probability, so the probabilities of all stages sum to at most
+ * the configured one. It never answers "absent" for an element that was put, and it is safe for concurrent use.</p>
+ *
+ * @param <T> the type of element held by the filter
+ */
+public class ScalableBloomFilter<T> {
+    /**
+     * The factor by which each new stage tightens the false positive probability of the previous one.
+     */
+    private static final double TIGHTENING_RATIO = 0.5;
+    /**
+     * The factor by which each new stage grows the capacity of the previous one.
+     */
+    private static final int GROWTH_FACTOR = 2;
+
+    private final Funnel<? super T> funnel;
+    private final List<Stage<T>> stages = new CopyOnWriteArrayList<>();
+    private final ReentrantLock growLock = new ReentrantLock();
+
+    /**
+     * Constructs a new, empty {@link ScalableBloomFilter}.
+     *
+     * @param funnel                   the {@link Funnel} turning elements into bytes to hash
+     * @param initialCapacity          the number of elements the first stage holds before a new stage is added
+     * @param falsePositiveProbability the upper bound on the probability of {@link #mightContain(Object)} returning
+     *                                 {@code true} for an element that was never put, between 0 and 1 exclusive
+     */
+    public ScalableBloomFilter(Funnel<? super T> funnel, long initialCapacity, double falsePositiveProbability) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be greater than zero");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+        }
+        this.funnel = funnel;
+        // The stage probabilities form a geometric series, so starting at p * (1 - r) bounds their sum by p
+        stages.add(newStage(initialCapacity, falsePositiveProbability * (1 - TIGHTENING_RATIO)));
+    }
+
+    /**
+     * Checks whether the element might have been put into this filter.
+     *
+     * @param element the element to check
+     * @return {@code false} if the element was definitely never put, {@code true} if it probably was
+     */
+    public boolean mightContain(T element) {
+        for (Stage<T> stage : stages) {
+            if (stage.filter().mightContain(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts the element into this filter.
+     *
+     * @param element the element to put
+     */
+    public void put(T element) {
+        // Elements already answered by an earlier stage would only use up the capacity of the newest one
+        if (mightContain(element)) {
+            return;
+        }
+        Stage<T> stage = currentStage();
+        if (stage.filter().put(element)) {
+            stage.count().incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the approximate number of distinct elements put into this filter.
+     *
+     * @return the approximate number of elements
+     */
+    public long approximateElementCount() {
+        return stages.stream().mapToLong(stage -> stage.count().get()).sum();
+    }
+
+    /**
+     * Returns the number of stages this filter has grown to.
+     *
+     * @return the number of stages
+     */
+    public int stageCount() {
+        return stages.size();
+    }
+
+    private Stage<T> currentStage() {
+        Stage<T> newest = stages.get(stages.size() - 1);
+        if (newest.count().get() < newest.capacity()) {
+            return newest;
+        }
+        growLock.lock();
+        try {
+            // Another thread may have grown the filter while we waited for the lock
+            newest = stages.get(stages.size() - 1);
+            if (newest.count().get() >= newest.capacity()) {
+                newest = newStage(newest.capacity() * GROWTH_FACTOR, newest.falsePositiveProbability() * TIGHTENING_RATIO);
+                stages.add(newest);
+            }
+            return newest;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private Stage<T> newStage(long capacity, double falsePositiveProbability) {
+        return new Stage<>(BloomFilter.create(funnel, capacity, falsePositiveProbability),
+                capacity, falsePositiveProbability, new AtomicLong());
+    }
+
+    private record Stage<T>(BloomFilter<T> filter, long capacity, double falsePositiveProbability, AtomicLong count) {
+    }
+}
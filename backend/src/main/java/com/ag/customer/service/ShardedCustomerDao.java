@@ -0,0 +1,436 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
+import com.ag.customer.repository.CustomerDao;
+import com.ag.customer.repository.CustomerRowMapper;
+import com.google.common.hash.Hashing;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link ShardedCustomerDao} class implements the {@link CustomerDao} interface over several PostgreSQL databases,
+ * each holding a share of the customers in its own {@code customer} table.
+ *
+ * <p>A customer lives on the shard picked by a consistent hash of its ID, so lookups, updates and deletes by ID touch
+ * one shard. IDs and emails are owned by a {@link CustomerDirectory}: registering a customer first reserves its email
+ * there, which allocates the ID and keeps emails unique across shards, and then writes the row to its shard. Email
+ * checks only query the directory.</p>
+ *
+ * <p>Queries that span shards are sent to all of them in parallel and merged by ID, so lists, pages and exports come
+ * back in the same order as from a single database. A write spanning shards is not atomic; if one shard fails, the
+ * rows already written elsewhere and the reserved emails are removed again before the error is rethrown.</p>
+ */
+public class ShardedCustomerDao implements CustomerDao {
+    /**
+     * The number of customers fetched from a shard per page when streaming, and written to it per JDBC batch.
+     */
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final Comparator<Customer> BY_ID = Comparator.comparing(Customer::getId);
+
+    private final List<Shard> shards;
+    private final CustomerDirectory directory;
+    private final Executor executor;
+
+    /**
+     * Constructs a new {@link ShardedCustomerDao}.
+     *
+     * @param shards    the {@link JdbcTemplate} of each shard, in a fixed order; reordering them moves customers
+     * @param directory the directory of customer emails and IDs
+     * @param executor  runs the queries sent to several shards at once
+     */
+    public ShardedCustomerDao(List<JdbcTemplate> shards, CustomerDirectory directory, Executor executor) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+        this.shards = shards.stream()
+                .map(jdbcTemplate -> new Shard(jdbcTemplate, new CustomerJDBCDataAccessService(jdbcTemplate, customerRowMapper)))
+                .toList();
+        this.directory = directory;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the index of the shard holding the customer with the specified ID.
+     *
+     * @param id the customer ID
+     * @return the shard index
+     */
+    public int shardOf(Integer id) {
+        // Jump consistent hashing: adding a shard only moves the customers that end up on the new one
+        return Hashing.consistentHash(id, shards.size());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return merge(scatter(shard -> shard.dao().selectAllCustomers()), Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersAfter(Integer afterId, int limit) {
+        // Each shard's first page holds every customer that can make the merged first page
+        return merge(scatter(shard -> shard.dao().selectCustomersAfter(afterId, limit)), limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> searchCustomers(CustomerSearch search, Integer afterId, int limit) {
+        return merge(scatter(shard -> shard.dao().searchCustomers(search, afterId, limit)), limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Object[]> selectCustomerFieldsAfter(CustomerProjection projection, Integer afterId, int limit) {
+        return scatter(shard -> shard.dao().selectCustomerFieldsAfter(projection, afterId, limit)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(projection::id))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllCustomers(Consumer<Customer> action) {
+        // Merge the shards page by page, so customers come out in ID order without holding a cursor open per shard
+        List<ShardCursor> cursors = shards.stream().map(ShardCursor::new).toList();
+        scatter(cursors, ShardCursor::fill);
+        PriorityQueue<ShardCursor> heads = new PriorityQueue<>(Comparator.comparing(ShardCursor::peek, BY_ID));
+        cursors.stream().filter(ShardCursor::hasNext).forEach(heads::add);
+        while (!heads.isEmpty()) {
+            ShardCursor cursor = heads.poll();
+            action.accept(cursor.next());
+            if (cursor.hasNext()) {
+                heads.add(cursor);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllEmails(Consumer<String> action) {
+        directory.streamEmails(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        return shardFor(id).dao().selectCustomerById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Object[]> selectCustomerFieldsById(CustomerProjection projection, Integer id) {
+        return shardFor(id).dao().selectCustomerFieldsById(projection, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        Map<Shard, List<Integer>> idsByShard = ids.stream()
+                .collect(Collectors.groupingBy(this::shardFor, LinkedHashMap::new, Collectors.toList()));
+        if (idsByShard.size() == 1) {
+            Map.Entry<Shard, List<Integer>> only = idsByShard.entrySet().iterator().next();
+            return only.getKey().dao().selectCustomersByIds(only.getValue());
+        }
+        return gather(idsByShard.entrySet().stream()
+                .map(entry -> supply(() -> entry.getKey().dao().selectCustomersByIds(entry.getValue())))
+                .toList())
+                .stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CustomerVersion> selectCustomerVersion(Integer id) {
+        return shardFor(id).dao().selectCustomerVersion(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> selectListVersion() {
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        Optional<Integer> id = directory.reserve(customer.getEmail());
+        if (id.isEmpty()) {
+            return id;
+        }
+        try {
+            insertInto(shardFor(id.get()), List.of(withId(id.get(), customer)));
+        } catch (RuntimeException e) {
+            directory.releaseAll(Map.of(customer.getEmail(), id.get()));
+            throw e;
+        }
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        Map<String, Integer> ids = directory.reserveAll(customers.stream().map(Customer::getEmail).toList());
+        if (ids.size() < customers.size()) {
+            // Same outcome as the unique constraint failing the batch on a single database
+            directory.releaseAll(ids);
+            throw new DuplicateKeyException("A customer email in the batch already exists");
+        }
+        write(customers, ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        Map<String, Integer> ids = directory.reserveAll(customers.stream().map(Customer::getEmail).toList());
+        // The first customer with a reserved email gets it, as with ON CONFLICT DO NOTHING on a single database
+        Map<String, Customer> reserved = new LinkedHashMap<>();
+        customers.stream()
+                .filter(customer -> ids.containsKey(customer.getEmail()))
+                .forEach(customer -> reserved.putIfAbsent(customer.getEmail(), customer));
+        write(List.copyOf(reserved.values()), ids);
+        return ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        return directory.contains(email);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return directory.containing(emails);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteCustomerById(Integer id) {
+        int deleted = shardFor(id).dao().deleteCustomerById(id);
+        // Only free the email once the row is gone, so it cannot be registered again while the old row still exists
+        directory.releaseOthers(id, null);
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean existsPersonById(Integer id) {
+        return shardFor(id).dao().existsPersonById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        Integer id = updatedCustomer.getId();
+        String email = updatedCustomer.getEmail();
+        boolean claimed = email != null && directory.claim(email, id);
+        Optional<Customer> updated;
+        try {
+            updated = shardFor(id).dao().updateCustomer(updatedCustomer);
+        } catch (RuntimeException e) {
+            if (claimed) {
+                directory.releaseAll(Map.of(email, id));
+            }
+            throw e;
+        }
+        if (updated.isPresent()) {
+            // The customer now holds only its current email
+            directory.releaseOthers(id, updated.get().getEmail());
+        } else if (claimed) {
+            directory.releaseAll(Map.of(email, id));
+        }
+        return updated;
+    }
+
+    /**
+     * Writes customers whose emails were reserved to their shards, in parallel, undoing everything if a shard fails.
+     */
+    private void write(List<Customer> customers, Map<String, Integer> ids) {
+        Map<Shard, List<Customer>> customersByShard = customers.stream()
+                .map(customer -> withId(ids.get(customer.getEmail()), customer))
+                .collect(Collectors.groupingBy(customer -> shardFor(customer.getId()), LinkedHashMap::new, Collectors.toList()));
+        List<CompletableFuture<Void>> writes = customersByShard.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> insertInto(entry.getKey(), entry.getValue()), executor))
+                .toList();
+        try {
+            gather(writes);
+        } catch (RuntimeException e) {
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).exceptionally(ignored -> null).join();
+            customersByShard.forEach((shard, written) -> shard.jdbcTemplate().update(
+                    "DELETE FROM customer WHERE id = ANY(?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", written.stream().map(Customer::getId).toArray()))));
+            directory.releaseAll(ids);
+            throw e;
+        }
+    }
+
+    private void insertInto(Shard shard, List<Customer> customers) {
+        String sql = """
+                INSERT INTO customer (id, name, email, age)
+                VALUES (?, ?, ?, ?)
+                """;
+        shard.jdbcTemplate().batchUpdate(sql, customers, STREAM_PAGE_SIZE, (ps, customer) -> {
+            ps.setInt(1, customer.getId());
+            ps.setString(2, customer.getName());
+            ps.setString(3, customer.getEmail());
+            ps.setInt(4, customer.getAge());
+        });
+    }
+
+    private Shard shardFor(Integer id) {
+        return shards.get(shardOf(id));
+    }
+
+    private static Customer withId(Integer id, Customer customer) {
+        return new Customer(id, customer.getName(), customer.getEmail(), customer.getAge());
+    }
+
+    private <T> List<T> scatter(Function<Shard, T> query) {
+        return scatter(shards, query);
+    }
+
+    private <S, T> List<T> scatter(List<S> targets, Function<S, T> query) {
+        if (targets.size() == 1) {
+            return List.of(query.apply(targets.get(0)));
+        }
+        return gather(targets.stream().map(target -> supply(() -> query.apply(target))).toList());
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    private static <T> List<T> gather(List<CompletableFuture<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                // Rethrow what the shard threw, as if the query had run on the caller's thread
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Merges lists that are each sorted by ID into one sorted list of at most {@code limit} customers.
+     */
+    private static List<Customer> merge(List<List<Customer>> sortedLists, int limit) {
+        return sortedLists.stream()
+                .flatMap(List::stream)
+                .sorted(BY_ID)
+                .limit(limit)
+                .toList();
+    }
+
+    private record Shard(JdbcTemplate jdbcTemplate, CustomerDao dao) {
+    }
+
+    /**
+     * Reads one shard's customers in ID order, a page at a time.
+     */
+    private static final class ShardCursor {
+        private final Shard shard;
+        private final Deque<Customer> page = new ArrayDeque<>();
+        private Integer after = 0;
+        private boolean exhausted;
+
+        private ShardCursor(Shard shard) {
+            this.shard = shard;
+        }
+
+        private ShardCursor fill() {
+            List<Customer> customers = shard.dao().selectCustomersAfter(after, STREAM_PAGE_SIZE);
+            page.addAll(customers);
+            exhausted = customers.size() < STREAM_PAGE_SIZE;
+            if (!customers.isEmpty()) {
+                after = customers.get(customers.size() - 1).getId();
+            }
+            return this;
+        }
+
+        private boolean hasNext() {
+            return !page.isEmpty();
+        }
+
+        private Customer peek() {
+            return page.peekFirst();
+        }
+
+        private Customer next() {
+            Customer customer = page.pollFirst();
+            if (page.isEmpty() && !exhausted) {
+                fill();
+            }
+            return customer;
+        }
+    }
+}
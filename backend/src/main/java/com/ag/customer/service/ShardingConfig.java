@@ -0,0 +1,136 @@
+package com.ag.customer.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@link ShardingConfig} class sets up the {@link ShardedCustomerDao}, selected with
+ * {@code customer.dao.implementation=sharded}, over the databases listed in {@code customer.sharding.shard-urls}.
+ *
+ * <p>Each shard gets its own Hikari pool with {@code spring.datasource}'s credentials and
+ * {@code spring.datasource.hikari.*} settings. The {@link CustomerDirectory} lives in the database at
+ * {@code customer.sharding.directory-url}, by default {@code spring.datasource.url}. At startup {@code db/migration} is
+ * applied to every shard and {@code db/directory} to the directory, with its own history table so it can share a
+ * database with a shard.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "customer.sharding.shard-urls")
+public class ShardingConfig implements DisposableBean {
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    /**
+     * Creates the sharded {@link com.ag.customer.repository.CustomerDao} after migrating the shards and the directory,
+     * and moves the directory's ID sequence past the IDs the shards already hold.
+     *
+     * @param properties    the {@code spring.datasource.*} properties, whose credentials the shards share
+     * @param environment   the environment the {@code spring.datasource.hikari.*} settings are bound from
+     * @param shardUrls     the JDBC URLs of the shards; their order decides which shard holds which customer
+     * @param directoryUrl  the JDBC URL of the directory database
+     * @param shardExecutor runs the queries sent to several shards at once
+     * @return the sharded DAO
+     */
+    @Bean("sharded")
+    public ShardedCustomerDao shardedCustomerDao(DataSourceProperties properties,
+                                                 Environment environment,
+                                                 @Value("${customer.sharding.shard-urls}") List<String> shardUrls,
+                                                 @Value("${customer.sharding.directory-url:${spring.datasource.url}}") String directoryUrl,
+                                                 @Qualifier("shardExecutor") ExecutorService shardExecutor) {
+        List<JdbcTemplate> shards = new ArrayList<>(shardUrls.size());
+        for (int i = 0; i < shardUrls.size(); i++) {
+            DataSource shard = pool(properties, environment, shardUrls.get(i), "shard-" + i);
+            migrate(shard);
+            shards.add(new JdbcTemplate(shard));
+        }
+        DataSource directory = pool(properties, environment, directoryUrl, "directory");
+        migrateDirectory(directory);
+        CustomerDirectory customerDirectory = new CustomerDirectory(new JdbcTemplate(directory));
+        for (JdbcTemplate shard : shards) {
+            Integer maxId = shard.queryForObject("SELECT max(id) FROM customer", Integer.class);
+            if (maxId != null) {
+                customerDirectory.allocateAfter(maxId);
+            }
+        }
+        return new ShardedCustomerDao(shards, customerDirectory, shardExecutor);
+    }
+
+    /**
+     * Creates the threads that query the shards in parallel, sized so every shard connection can be busy at once.
+     *
+     * @param shardUrls       the JDBC URLs of the shards
+     * @param maximumPoolSize the connections per shard
+     * @return the executor, shut down with the application context
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService shardExecutor(@Value("${customer.sharding.shard-urls}") List<String> shardUrls,
+                                         @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("customer-shard-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(shardUrls.size() * maximumPoolSize, threadFactory);
+    }
+
+    /**
+     * Applies {@code db/migration} to a shard.
+     *
+     * @param shard the shard database
+     */
+    public static void migrate(DataSource shard) {
+        Flyway.configure()
+                .dataSource(shard)
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+    }
+
+    /**
+     * Applies {@code db/directory} to the directory database.
+     *
+     * @param directory the directory database
+     */
+    public static void migrateDirectory(DataSource directory) {
+        Flyway.configure()
+                .dataSource(directory)
+                .locations("classpath:db/directory")
+                .table("flyway_directory_history")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+
+    /**
+     * Closes the shard and directory connection pools.
+     */
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private DataSource pool(DataSourceProperties properties, Environment environment, String url, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pools.add(pool);
+        return pool;
+    }
+}
@@ -0,0 +1,106 @@
+package com.ag.customer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * The {@link SingleFlight} class coalesces concurrent calls for the same key into one execution.
+ *
+ * <p>The first caller for a key runs the supplied call; callers arriving while it is in flight wait for and share its
+ * result or exception instead of running the call again. Nothing is remembered once the call completes, so this only
+ * saves work under concurrency. A caller joining a call may still receive a result read before a write that finished
+ * before the caller arrived, since the call started earlier; writers call {@link #forget} once their write is done,
+ * so that later callers start a new call instead.</p>
+ *
+ * <p>Every call is counted under {@code <name>} with an {@code outcome} tag of {@code executed} or {@code coalesced};
+ * the coalescing ratio is {@code coalesced / (executed + coalesced)}. {@code <name>.in.flight} gauges the number of
+ * calls currently running.</p>
+ *
+ * @param <K> the type of key identifying identical calls
+ * @param <V> the type of result shared between them
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    /**
+     * Constructs a new {@link SingleFlight} publishing its metrics under the specified name.
+     *
+     * @param meterRegistry the registry the metrics are published to
+     * @param name          the metric name
+     */
+    public SingleFlight(MeterRegistry meterRegistry, String name) {
+        this.executed = Counter.builder(name)
+                .description("Calls that ran because no identical call was in flight")
+                .tag("outcome", "executed")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder(name)
+                .description("Calls that shared the result of an identical call already in flight")
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder(name + ".in.flight", inFlight, ConcurrentMap::size)
+                .description("Calls currently in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call for the key, or joins the identical call already in flight.
+     *
+     * @param key  the key identifying the call
+     * @param call the call to run if none is in flight for the key
+     * @return the result of the call
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        executed.increment();
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Later callers must start a new call rather than reuse this result
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Detaches the call in flight for the key, if any, so that callers arriving from now on start a new call. Callers
+     * already waiting for it still receive its result, but it is no longer counted as in flight.
+     *
+     * @param key the key whose result may have changed
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    private V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // Rethrow what the call threw, so waiters see the same exception as the caller that ran it
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
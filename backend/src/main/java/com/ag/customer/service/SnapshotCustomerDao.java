@@ -0,0 +1,179 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.repository.CustomerDao;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The {@link SnapshotCustomerDao} class decorates a {@link CustomerDao} so that list queries are answered from a
+ * {@link CustomerSnapshot} instead of the database.
+ *
+ * <p>Listing, paging, projecting and exporting customers read the snapshot once it is warm. Every write is passed on to the
+ * database first and recorded in the snapshot after it succeeded; bulk inserts, which do not report the IDs they
+ * generated, are caught up by reading the new rows back. A write made in a transaction is recorded once the
+ * transaction commits, so the snapshot never serves rows that are rolled back.</p>
+ */
+public class SnapshotCustomerDao extends ForwardingCustomerDao {
+    /**
+     * The number of customers taken from the snapshot at a time while exporting.
+     */
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    private final CustomerSnapshot snapshot;
+
+    /**
+     * Constructs a new {@link SnapshotCustomerDao} serving list queries of the specified {@link CustomerDao}.
+     *
+     * @param delegate the {@link CustomerDao} to query until the snapshot is warm, and to write to
+     * @param snapshot the in-memory snapshot of the customer table
+     */
+    public SnapshotCustomerDao(CustomerDao delegate, CustomerSnapshot snapshot) {
+        super(delegate);
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Once the snapshot is warm this is the snapshot's version, as it answers every page from then on.
+     */
+    @Override
+    public Optional<String> selectListVersion() {
+        String version = snapshot.version();
+        return version != null ? Optional.of(version) : delegate.selectListVersion();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectAllCustomers() {
+        List<Customer> customers = snapshot.selectAfter(0, Integer.MAX_VALUE);
+        return customers != null ? customers : delegate.selectAllCustomers();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Customer> selectCustomersAfter(Integer afterId, int limit) {
+        List<Customer> customers = snapshot.selectAfter(afterId, limit);
+        return customers != null ? customers : delegate.selectCustomersAfter(afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Object[]> selectCustomerFieldsAfter(CustomerProjection projection, Integer afterId, int limit) {
+        List<Object[]> rows = snapshot.selectFieldsAfter(projection, afterId, limit);
+        return rows != null ? rows : delegate.selectCustomerFieldsAfter(projection, afterId, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void streamAllCustomers(Consumer<Customer> action) {
+        if (!snapshot.isWarm()) {
+            delegate.streamAllCustomers(action);
+            return;
+        }
+        // Page through the snapshot so a slow consumer does not hold up writers
+        List<Customer> page;
+        int after = 0;
+        do {
+            page = snapshot.selectAfter(after, STREAM_PAGE_SIZE);
+            page.forEach(action);
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        Optional<Integer> id = delegate.insertCustomer(customer);
+        id.ifPresent(value -> afterCommit(
+                () -> snapshot.put(new Customer(value, customer.getName(), customer.getEmail(), customer.getAge()))));
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        // Every ID the insert generates is above the highest one known before it started
+        int highestId = snapshot.highestId();
+        delegate.insertCustomers(customers);
+        afterCommit(() -> snapshot.catchUp(highestId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        Map<String, Integer> ids = delegate.insertCustomersIgnoringDuplicateEmails(customers);
+        List<Customer> inserted = new ArrayList<>(ids.size());
+        Set<String> recorded = new HashSet<>();
+        for (Customer customer : customers) {
+            Integer id = ids.get(customer.getEmail());
+            // Only the first customer with an email was inserted
+            if (id != null && recorded.add(customer.getEmail())) {
+                inserted.add(new Customer(id, customer.getName(), customer.getEmail(), customer.getAge()));
+            }
+        }
+        afterCommit(() -> inserted.forEach(snapshot::put));
+        return ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteCustomerById(Integer id) {
+        int deleted = delegate.deleteCustomerById(id);
+        if (deleted > 0) {
+            afterCommit(() -> snapshot.remove(id));
+        }
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        Optional<Customer> updated = delegate.updateCustomer(updatedCustomer);
+        updated.ifPresent(customer -> afterCommit(() -> snapshot.put(customer)));
+        return updated;
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away outside of one.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
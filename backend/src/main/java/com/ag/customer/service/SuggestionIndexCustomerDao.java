@@ -0,0 +1,92 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The {@link SuggestionIndexCustomerDao} class decorates a {@link CustomerDao} so that every write made through it is
+ * also recorded in a {@link CustomerSuggestionIndex}.
+ *
+ * <p>Writes are passed on to the database first and recorded in the index after they succeeded; bulk inserts, which do
+ * not report the IDs they generated, are caught up by reading the new rows back.</p>
+ */
+public class SuggestionIndexCustomerDao extends ForwardingCustomerDao {
+    private final CustomerSuggestionIndex suggestionIndex;
+
+    /**
+     * Constructs a new {@link SuggestionIndexCustomerDao} keeping the specified index up to date.
+     *
+     * @param delegate        the {@link CustomerDao} to write to
+     * @param suggestionIndex the in-memory index of customer names and emails
+     */
+    public SuggestionIndexCustomerDao(CustomerDao delegate, CustomerSuggestionIndex suggestionIndex) {
+        super(delegate);
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Integer> insertCustomer(Customer customer) {
+        Optional<Integer> id = delegate.insertCustomer(customer);
+        id.ifPresent(value -> suggestionIndex.put(new Customer(value, customer.getName(), customer.getEmail(), customer.getAge())));
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        // Every ID the insert generates is above the highest one known before it started
+        int highestId = suggestionIndex.highestId();
+        delegate.insertCustomers(customers);
+        suggestionIndex.catchUp(highestId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> insertCustomersIgnoringDuplicateEmails(List<Customer> customers) {
+        Map<String, Integer> ids = delegate.insertCustomersIgnoringDuplicateEmails(customers);
+        Set<String> recorded = new HashSet<>();
+        for (Customer customer : customers) {
+            Integer id = ids.get(customer.getEmail());
+            // Only the first customer with an email was inserted
+            if (id != null && recorded.add(customer.getEmail())) {
+                suggestionIndex.put(new Customer(id, customer.getName(), customer.getEmail(), customer.getAge()));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteCustomerById(Integer id) {
+        int deleted = delegate.deleteCustomerById(id);
+        if (deleted > 0) {
+            suggestionIndex.remove(id);
+        }
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Customer> updateCustomer(Customer updatedCustomer) {
+        Optional<Customer> updated = delegate.updateCustomer(updatedCustomer);
+        updated.ifPresent(suggestionIndex::put);
+        return updated;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ag.dto;
+
+/**
+ * A DTO (Data Transfer Object) representing the outcome of one item of a batch registration request.
+ *
+ * <p>Results are returned in the same order as the submitted registrations, and {@code index}
+ * points back at the item it describes.</p>
+ *
+ * @param index the position of the registration within the submitted batch
+ * @param email the email address of the registration
+ * @param status whether the customer was created or why it was skipped
+ * @param message a human readable explanation when the customer was not created
+ */
+public record CustomerBatchResult(
+        int index,
+        String email,
+        Status status,
+        String message
+) {
+    /**
+     * The outcome of a single registration within a batch.
+     */
+    public enum Status {
+        /** The customer was inserted. */
+        CREATED,
+        /** The email already exists, either in the database or earlier in the same batch. */
+        DUPLICATE,
+        /** The registration is missing required information. */
+        INVALID
+    }
+
+    /**
+     * Creates a result for a customer that was inserted.
+     *
+     * @param index the position of the registration within the batch
+     * @param email the email address of the registration
+     * @return a {@link Status#CREATED} result
+     */
+    public static CustomerBatchResult created(int index, String email) {
+        return new CustomerBatchResult(index, email, Status.CREATED, null);
+    }
+
+    /**
+     * Creates a result for a registration whose email is already taken.
+     *
+     * @param index   the position of the registration within the batch
+     * @param email   the email address of the registration
+     * @param message why the email counts as a duplicate
+     * @return a {@link Status#DUPLICATE} result
+     */
+    public static CustomerBatchResult duplicate(int index, String email, String message) {
+        return new CustomerBatchResult(index, email, Status.DUPLICATE, message);
+    }
+
+    /**
+     * Creates a result for a registration that failed validation.
+     *
+     * @param index   the position of the registration within the batch
+     * @param email   the email address of the registration
+     * @param message what is wrong with the registration
+     * @return an {@link Status#INVALID} result
+     */
+    public static CustomerBatchResult invalid(int index, String email, String message) {
+        return new CustomerBatchResult(index, email, Status.INVALID, message);
+    }
+}
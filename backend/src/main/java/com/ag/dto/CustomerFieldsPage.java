@@ -0,0 +1,17 @@
+package com.ag.dto;
+
+import com.ag.customer.CustomerProjection;
+
+import java.util.List;
+
+/**
+ * One page of projected customers returned by keyset pagination, shaped like {@link CustomerPage} once written.
+ *
+ * @param rows       the projected customers on this page, ordered by ID, with values in the order of
+ *                   {@link CustomerProjection#columns()}
+ * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+ */
+public record CustomerFieldsPage(
+        List<Object[]> rows,
+        Integer nextCursor
+) {}
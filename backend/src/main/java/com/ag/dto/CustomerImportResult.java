@@ -0,0 +1,24 @@
+package com.ag.dto;
+
+/**
+ * A DTO (Data Transfer Object) summarising a CSV customer import.
+ *
+ * <p>Rows that were read but not inserted either repeat an email that already exists
+ * (in the table or earlier in the file) or are missing a required column.</p>
+ *
+ * @param rowsRead the number of data rows read from the CSV
+ * @param rowsInserted the number of customers inserted into the table
+ */
+public record CustomerImportResult(
+        long rowsRead,
+        long rowsInserted
+) {
+    /**
+     * Gets the number of rows that were read but not inserted.
+     *
+     * @return the number of skipped rows
+     */
+    public long rowsSkipped() {
+        return rowsRead - rowsInserted;
+    }
+}
@@ -0,0 +1,19 @@
+package com.ag.dto;
+
+import com.ag.customer.Customer;
+
+import java.util.List;
+
+/**
+ * A DTO (Data Transfer Object) representing one page of customers returned by keyset pagination.
+ *
+ * <p>Customers are ordered by ID. To fetch the following page, pass {@code nextCursor} back as the
+ * {@code after} request parameter. A {@code null} cursor means there are no more customers.</p>
+ *
+ * @param customers the customers on this page, ordered by ID
+ * @param nextCursor the ID to resume after, or {@code null} if this is the last page
+ */
+public record CustomerPage(
+        List<Customer> customers,
+        Integer nextCursor
+) {}
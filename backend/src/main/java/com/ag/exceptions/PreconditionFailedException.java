@@ -0,0 +1,20 @@
+package com.ag.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a conditional request expected a resource to be at a version it no longer has.
+ *
+ * <p>This exception is annotated with {@link ResponseStatus} to map it to an HTTP status code.
+ * In this case, it maps to {@code HttpStatus.PRECONDITION_FAILED} (412), indicating that the resource was changed
+ * since the client last read it, so the client should read it again before retrying.</p>
+ *
+ * @see org.springframework.http.HttpStatus#PRECONDITION_FAILED
+ */
+@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
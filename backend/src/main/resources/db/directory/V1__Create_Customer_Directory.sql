@@ -0,0 +1,9 @@
+-- Global view of a sharded customer table: hands out customer ids and keeps emails unique across all shards
+CREATE SEQUENCE customer_directory_id_seq AS integer;
+
+CREATE TABLE customer_directory(
+    email TEXT PRIMARY KEY,
+    customer_id INT NOT NULL
+);
+
+CREATE INDEX customer_directory_customer_id_idx ON customer_directory (customer_id);
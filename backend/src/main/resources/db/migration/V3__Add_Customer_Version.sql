@@ -0,0 +1,4 @@
+-- Every update increments the row's version, which clients see as its ETag
+ALTER TABLE customer
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
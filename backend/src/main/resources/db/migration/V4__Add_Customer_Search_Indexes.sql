@@ -0,0 +1,11 @@
+-- Every search filter is served by an index; the queries are built in CustomerSearchQuery to match them
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Name prefixes and substrings, case-insensitively with ILIKE
+CREATE INDEX customer_name_trgm_idx ON customer USING gin (name gin_trgm_ops);
+
+-- Email domains, in ID order so a page of one domain is read straight off the index
+CREATE INDEX customer_email_domain_idx ON customer (lower(split_part(email, '@', 2)), id);
+
+-- Age ranges
+CREATE INDEX customer_age_idx ON customer (age);
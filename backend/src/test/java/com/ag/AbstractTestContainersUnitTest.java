@@ -1,10 +1,13 @@
 package com.ag;
 
 import com.github.javafaker.Faker;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
 import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.BeforeAll;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -60,5 +63,39 @@ public abstract class AbstractTestContainersUnitTest {
         return new JdbcTemplate(getDataSource());
     }
 
+    /**
+     * Creates another database in the container, if it does not exist yet, for tests that need several databases.
+     * @param name the name of the database
+     * @return a data source connected to it
+     */
+    protected static DataSource createDatabase(String name) {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_database WHERE datname = ?)", Boolean.class, name);
+        if (!Boolean.TRUE.equals(exists)) {
+            jdbcTemplate.execute("CREATE DATABASE \"" + name + "\"");
+        }
+        return DataSourceBuilder
+                .create()
+                .driverClassName(postgreSQLContainer.getDriverClassName())
+                .url("jdbc:postgresql://%s:%d/%s".formatted(postgreSQLContainer.getHost(),
+                        postgreSQLContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT), name))
+                .username(postgreSQLContainer.getUsername())
+                .password(postgreSQLContainer.getPassword())
+                .build();
+    }
+
+    protected static DatabaseClient getDatabaseClient() {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                .option(ConnectionFactoryOptions.HOST, postgreSQLContainer.getHost())
+                .option(ConnectionFactoryOptions.PORT, postgreSQLContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT))
+                .option(ConnectionFactoryOptions.DATABASE, postgreSQLContainer.getDatabaseName())
+                .option(ConnectionFactoryOptions.USER, postgreSQLContainer.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, postgreSQLContainer.getPassword())
+                .build();
+        return DatabaseClient.create(ConnectionFactories.get(options));
+    }
+
     protected final Faker FAKER = new Faker();
 }
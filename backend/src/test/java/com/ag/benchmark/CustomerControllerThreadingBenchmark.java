@@ -0,0 +1,157 @@
+package com.ag.benchmark;
+
+import com.ag.CustomersApplication;
+import com.ag.customer.Customer;
+import com.ag.customer.service.CustomerService;
+import com.ag.dto.CustomerRegistrationRequest;
+import com.github.javafaker.Faker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+/**
+ * Compares {@code CustomerController} on Tomcat's platform thread pool with the {@code virtual-threads} profile.
+ *
+ * <p>The load mixes lookups by ID, which are mostly served from the cache, with page queries that always need one of
+ * the pool's connections. With platform threads the page queries tie up request threads while they wait for a
+ * connection, and the cached lookups queue behind them; with virtual threads only the page queries wait.</p>
+ *
+ * <p>Not part of the regular test run. Start PostgreSQL as for the integration tests and run on Java 21 with
+ * {@code mvn test -Dtest=CustomerControllerThreadingBenchmark}; results are printed to standard output.</p>
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class CustomerControllerThreadingBenchmark {
+    private static final String CUSTOMER_URI = "/api/v1/customers";
+    private static final int CUSTOMERS = 500;
+    private static final int WARM_UP_REQUESTS = 2_000;
+    private static final int REQUESTS = 20_000;
+    private static final int CONCURRENCY = 1_000;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    @Test
+    void platformVersusVirtualThreads() {
+        Map<String, Result> platform = run(false);
+        Map<String, Result> virtual = run(true);
+
+        System.out.printf("%-10s %-9s %10s %10s %10s %8s%n", "threads", "endpoint", "req/s", "p50 ms", "p99 ms", "errors");
+        print("platform", platform);
+        print("virtual", virtual);
+        assertThat(platform.values()).allSatisfy(result -> assertThat(result.errors()).isZero());
+        assertThat(virtual.values()).allSatisfy(result -> assertThat(result.errors()).isZero());
+    }
+
+    private Map<String, Result> run(boolean virtualThreads) {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(CustomersApplication.class)
+                .properties("server.port=0", "spring.main.banner-mode=off");
+        if (virtualThreads) {
+            application.profiles("virtual-threads");
+        }
+        try (ConfigurableApplicationContext context = application.run()) {
+            String baseUri = "http://localhost:%s%s".formatted(
+                    context.getEnvironment().getProperty("local.server.port"), CUSTOMER_URI);
+            List<Integer> ids = seed(context.getBean(CustomerService.class));
+            load(baseUri, ids, WARM_UP_REQUESTS);
+            return load(baseUri, ids, REQUESTS);
+        }
+    }
+
+    private List<Integer> seed(CustomerService customerService) {
+        Faker faker = new Faker();
+        customerService.addCustomers(IntStream.range(0, CUSTOMERS)
+                .mapToObj(i -> new CustomerRegistrationRequest(
+                        faker.name().fullName(), UUID.randomUUID() + faker.internet().emailAddress(), 30))
+                .toList());
+        return customerService.getCustomersPage(null, CUSTOMERS).customers().stream()
+                .map(Customer::getId)
+                .toList();
+    }
+
+    /**
+     * Sends the requests, alternating lookups by ID and page queries, keeping {@link #CONCURRENCY} in flight.
+     */
+    private Map<String, Result> load(String baseUri, List<Integer> ids, int requests) {
+        Queue<Long> byIdLatencies = new ConcurrentLinkedQueue<>();
+        Queue<Long> pageLatencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger byIdErrors = new AtomicInteger();
+        AtomicInteger pageErrors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long started = System.nanoTime();
+        assertThatCode(() -> {
+            for (int i = 0; i < requests; i++) {
+                Integer id = ids.get(random.nextInt(ids.size()));
+                boolean byId = i % 2 == 0;
+                URI uri = URI.create(byId ? baseUri + "/" + id : baseUri + "?after=" + id + "&limit=50");
+                Queue<Long> latencies = byId ? byIdLatencies : pageLatencies;
+                AtomicInteger errors = byId ? byIdErrors : pageErrors;
+
+                inFlight.acquire();
+                long sent = System.nanoTime();
+                client.sendAsync(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, e) -> {
+                            latencies.add(System.nanoTime() - sent);
+                            if (e != null || response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                            inFlight.release();
+                        });
+            }
+            inFlight.acquire(CONCURRENCY);
+        }).doesNotThrowAnyException();
+        long elapsed = System.nanoTime() - started;
+
+        return Map.of(
+                "by id", Result.of(byIdLatencies, byIdErrors.get(), elapsed),
+                "page", Result.of(pageLatencies, pageErrors.get(), elapsed));
+    }
+
+    private static void print(String threads, Map<String, Result> results) {
+        results.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(result -> System.out.printf("%-10s %-9s %10.0f %10.1f %10.1f %8d%n",
+                        threads, result.getKey(), result.getValue().throughput(),
+                        result.getValue().p50Millis(), result.getValue().p99Millis(), result.getValue().errors()));
+    }
+
+    private record Result(double throughput, double p50Millis, double p99Millis, int errors) {
+        static Result of(Queue<Long> latencies, int errors, long elapsedNanos) {
+            List<Long> sorted = new ArrayList<>(latencies);
+            sorted.sort(null);
+            double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+            return new Result(sorted.size() / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99), errors);
+        }
+
+        private static double percentile(List<Long> sorted, double percentile) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            long nanos = sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.ag.benchmark;
+
+import com.ag.customer.Customer;
+import com.ag.customer.controller.CustomerProtobuf;
+import com.ag.dto.CustomerPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.javafaker.Faker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the size and the encode and decode times of a page of customers in JSON and in the binary encodings the
+ * {@code CustomerController} offers, CBOR, Smile and Protobuf.
+ *
+ * <p>The page holds {@link #CUSTOMERS} customers, the largest page the API returns. JSON, CBOR and Smile are written
+ * and read with Jackson object mappers, and Protobuf with {@link CustomerProtobuf}. Sizes are also given gzipped, as
+ * the server compresses large responses for clients that accept it.</p>
+ *
+ * <p>Not part of the regular test run; nothing needs to be running. Run with
+ * {@code mvn test -Dtest=CustomerEncodingBenchmark -Dbenchmark=true}; results are printed to standard output.</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerEncodingBenchmark {
+    private static final int CUSTOMERS = 1_000;
+    private static final int WARM_UP_ITERATIONS = 2_000;
+    private static final int ITERATIONS = 2_000;
+
+    @Test
+    void binaryEncodingsVersusJson() throws Exception {
+        CustomerPage page = page();
+        List<Result> results = List.of(
+                measure("json", page, jackson(new ObjectMapper())),
+                measure("cbor", page, jackson(new ObjectMapper(new CBORFactory()))),
+                measure("smile", page, jackson(new ObjectMapper(new SmileFactory()))),
+                measure("protobuf", page, new Codec() {
+                    @Override
+                    public byte[] encode(CustomerPage value) {
+                        return CustomerProtobuf.encodePage(value.customers(), value.nextCursor());
+                    }
+
+                    @Override
+                    public CustomerPage decode(byte[] bytes) throws IOException {
+                        return CustomerProtobuf.decodePage(bytes);
+                    }
+                }));
+
+        System.out.printf("%-9s %10s %10s %12s %12s%n", "encoding", "bytes", "gzipped", "encode us", "decode us");
+        results.forEach(result -> System.out.printf("%-9s %10d %10d %12.1f %12.1f%n", result.encoding(),
+                result.bytes(), result.gzippedBytes(), result.encodeMicros(), result.decodeMicros()));
+        Result json = results.get(0);
+        assertThat(results.subList(1, results.size()))
+                .allSatisfy(result -> assertThat(result.bytes()).isLessThan(json.bytes()));
+    }
+
+    private static CustomerPage page() {
+        Faker faker = new Faker();
+        List<Customer> customers = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(new Customer(100_000 + i, faker.name().fullName(),
+                    UUID.randomUUID() + faker.internet().emailAddress(), faker.number().numberBetween(18, 100)));
+        }
+        return new CustomerPage(customers, 100_000 + CUSTOMERS - 1);
+    }
+
+    private static Codec jackson(ObjectMapper mapper) {
+        return new Codec() {
+            @Override
+            public byte[] encode(CustomerPage value) throws IOException {
+                return mapper.writeValueAsBytes(value);
+            }
+
+            @Override
+            public CustomerPage decode(byte[] bytes) throws IOException {
+                return mapper.readValue(bytes, CustomerPage.class);
+            }
+        };
+    }
+
+    /**
+     * Encodes and decodes the page repeatedly, checking it survives the round trip, and returns the median times.
+     */
+    private static Result measure(String encoding, CustomerPage page, Codec codec) throws IOException {
+        byte[] bytes = codec.encode(page);
+        assertThat(codec.decode(bytes)).isEqualTo(page);
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            codec.decode(codec.encode(page));
+        }
+        long[] encodeNanos = new long[ITERATIONS];
+        long[] decodeNanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long started = System.nanoTime();
+            byte[] encoded = codec.encode(page);
+            long encodedAt = System.nanoTime();
+            codec.decode(encoded);
+            decodeNanos[i] = System.nanoTime() - encodedAt;
+            encodeNanos[i] = encodedAt - started;
+        }
+        return new Result(encoding, bytes.length, gzip(bytes).length, median(encodeNanos), median(decodeNanos));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(gzipped)) {
+            output.write(bytes);
+        }
+        return gzipped.toByteArray();
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    private interface Codec {
+        byte[] encode(CustomerPage value) throws IOException;
+
+        CustomerPage decode(byte[] bytes) throws IOException;
+    }
+
+    private record Result(String encoding, int bytes, int gzippedBytes, double encodeMicros, double decodeMicros) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.ag.benchmark;
+
+import com.ag.AbstractTestContainersUnitTest;
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerRowMapper;
+import com.ag.customer.service.CustomerJDBCDataAccessService;
+import com.ag.customer.service.GroupCommitWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput of concurrent single-customer inserts written one transaction each with the same inserts
+ * grouped by a {@link GroupCommitWriter}.
+ *
+ * <p>{@link #CALLERS} threads insert {@link #INSERTS} customers between them through a pool of
+ * {@link #CONNECTIONS} connections, first with {@link CustomerJDBCDataAccessService#insertCustomer} and then through
+ * a writer configured like the {@code customer.group-commit} defaults. The gain depends on how expensive a commit is
+ * on the server, so it is larger on slower disks.</p>
+ *
+ * <p>Not part of the regular test run; the database is started as for the unit tests. Run with
+ * {@code mvn test -Dtest=GroupCommitBenchmark -Dbenchmark=true}; results are printed to standard output.</p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GroupCommitBenchmark extends AbstractTestContainersUnitTest {
+    private static final int CALLERS = 200;
+    private static final int CONNECTIONS = 2;
+    private static final int WARM_UP_INSERTS = 5_000;
+    private static final int INSERTS = 20_000;
+
+    @Test
+    void groupCommitVersusOneTransactionPerInsert() throws Exception {
+        double single;
+        double grouped;
+        try (HikariDataSource pool = DataSourceBuilder.derivedFrom(getJdbcTemplate().getDataSource())
+                .type(HikariDataSource.class)
+                .build()) {
+            pool.setMaximumPoolSize(CONNECTIONS);
+            CustomerJDBCDataAccessService customerDao =
+                    new CustomerJDBCDataAccessService(new JdbcTemplate(pool), new CustomerRowMapper());
+            measure(customerDao::insertCustomer, WARM_UP_INSERTS);
+            single = measure(customerDao::insertCustomer, INSERTS);
+            try (GroupCommitWriter writer = new GroupCommitWriter(customerDao, 10_000, 500, Duration.ofMillis(5),
+                    new SimpleMeterRegistry())) {
+                measure(writer::insert, WARM_UP_INSERTS);
+                grouped = measure(writer::insert, INSERTS);
+            }
+        }
+
+        System.out.printf("%-24s %12s%n", "mode", "inserts/s");
+        System.out.printf("%-24s %12.0f%n", "one transaction each", single);
+        System.out.printf("%-24s %12.0f%n", "group commit", grouped);
+        assertThat(grouped).isGreaterThan(single);
+    }
+
+    /**
+     * Inserts the customers from {@link #CALLERS} threads at once and returns the inserts per second.
+     */
+    private double measure(Function<Customer, Optional<Integer>> insert, int inserts) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Optional<Integer>>> ids = new ArrayList<>(inserts);
+            long started = System.nanoTime();
+            for (int i = 0; i < inserts; i++) {
+                Customer customer = new Customer("name-" + i, UUID.randomUUID() + "@benchmark.io", 30);
+                ids.add(callers.submit(() -> insert.apply(customer)));
+            }
+            for (Future<Optional<Integer>> id : ids) {
+                assertThat(id.get()).isPresent();
+            }
+            long elapsed = System.nanoTime() - started;
+            return inserts / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            callers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ag.customer.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerEncodingTest {
+
+    @Test
+    void negotiateDefaultsToJson() {
+        // When
+        // Then
+        assertThat(CustomerEncoding.negotiate(null)).isEqualTo(CustomerEncoding.JSON);
+        assertThat(CustomerEncoding.negotiate(new String[]{"*/*"})).isEqualTo(CustomerEncoding.JSON);
+        assertThat(CustomerEncoding.negotiate(new String[]{"application/*"})).isEqualTo(CustomerEncoding.JSON);
+        assertThat(CustomerEncoding.negotiate(new String[]{"text/html"})).isEqualTo(CustomerEncoding.JSON);
+        assertThat(CustomerEncoding.negotiate(new String[]{"not a media type"})).isEqualTo(CustomerEncoding.JSON);
+    }
+
+    @Test
+    void negotiateChoosesAcceptedBinaryEncoding() {
+        // When
+        // Then
+        assertThat(CustomerEncoding.negotiate(new String[]{"application/cbor"})).isEqualTo(CustomerEncoding.CBOR);
+        assertThat(CustomerEncoding.negotiate(new String[]{"application/x-jackson-smile, */*;q=0.1"}))
+                .isEqualTo(CustomerEncoding.SMILE);
+        assertThat(CustomerEncoding.negotiate(new String[]{"text/plain", "application/x-protobuf"}))
+                .isEqualTo(CustomerEncoding.PROTOBUF);
+    }
+
+    @Test
+    void negotiatePrefersHighestQuality() {
+        // When
+        CustomerEncoding actual = CustomerEncoding.negotiate(
+                new String[]{"application/json;q=0.5, application/cbor;q=0.8, application/x-protobuf;q=0.9"});
+        // Then
+        assertThat(actual).isEqualTo(CustomerEncoding.PROTOBUF);
+    }
+
+    @Test
+    void negotiateTakesQualityFromMostSpecificRange() {
+        // When
+        CustomerEncoding actual = CustomerEncoding.negotiate(
+                new String[]{"application/*;q=0.9, application/json;q=0.1, application/x-protobuf;q=0"});
+        // Then
+        assertThat(actual).isEqualTo(CustomerEncoding.CBOR);
+    }
+}
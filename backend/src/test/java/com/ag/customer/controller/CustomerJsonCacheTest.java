@@ -0,0 +1,106 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.Customer;
+import com.ag.dto.CustomerPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerJsonCacheTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CustomerJsonCache underTest;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerJsonCache(objectMapper, true, 100, meterRegistry);
+    }
+
+    @Test
+    void toJsonMatchesJackson() throws Exception {
+        // Given
+        Customer customer = new Customer(1, "Zoë \"Z\" Ångström", "zoe@gmail.com", 31);
+        // When
+        byte[] actual = underTest.toJson(customer);
+        // Then
+        assertThat(actual).isEqualTo(objectMapper.writeValueAsBytes(customer));
+    }
+
+    @Test
+    void toJsonReusesTheBytesOfAnUnchangedCustomer() {
+        // Given
+        byte[] first = underTest.toJson(new Customer(1, "alex", "alex@gmail.com", 20));
+        // When
+        byte[] second = underTest.toJson(new Customer(1, "alex", "alex@gmail.com", 20));
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "customer-json").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void toJsonReserializesAChangedCustomer() {
+        // Given
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        underTest.toJson(customer);
+        customer.setEmail("alex.new@gmail.com");
+        // When
+        byte[] actual = underTest.toJson(customer);
+        // Then
+        assertThat(new String(actual, StandardCharsets.UTF_8)).contains("alex.new@gmail.com");
+    }
+
+    @Test
+    void invalidateDropsTheCachedBytes() {
+        // Given
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        byte[] first = underTest.toJson(customer);
+        // When
+        underTest.invalidate(1);
+        // Then
+        assertThat(underTest.toJson(customer)).isNotSameAs(first).isEqualTo(first);
+    }
+
+    @Test
+    void toJsonPageMatchesJackson() throws Exception {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer(1, "alex", "alex@gmail.com", 20),
+                new Customer(2, "jamila", "jamila@gmail.com", 22));
+        // When / Then
+        assertThat(underTest.toJsonPage(customers, 2))
+                .isEqualTo(objectMapper.writeValueAsBytes(new CustomerPage(customers, 2)));
+        assertThat(underTest.toJsonPage(List.of(), null))
+                .isEqualTo(objectMapper.writeValueAsBytes(new CustomerPage(List.of(), null)));
+    }
+
+    @Test
+    void toJsonArrayMatchesJackson() throws Exception {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer(1, "alex", "alex@gmail.com", 20),
+                new Customer(2, "jamila", "jamila@gmail.com", 22));
+        // When / Then
+        assertThat(underTest.toJsonArray(customers)).isEqualTo(objectMapper.writeValueAsBytes(customers));
+        assertThat(underTest.toJsonArray(List.of())).isEqualTo(objectMapper.writeValueAsBytes(List.of()));
+    }
+
+    @Test
+    void toJsonWithoutCachingLeavesTheCacheAlone() {
+        // Given
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        byte[] exported = underTest.toJsonWithoutCaching(customer);
+        // When
+        byte[] actual = underTest.toJson(customer);
+        // Then
+        assertThat(actual).isNotSameAs(exported).isEqualTo(exported);
+    }
+}
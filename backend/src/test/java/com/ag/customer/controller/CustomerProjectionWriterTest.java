@@ -0,0 +1,58 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.dto.CustomerPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerProjectionWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomerProjectionWriter underTest = new CustomerProjectionWriter(objectMapper);
+
+    @Test
+    void toJsonWritesOnlyRequestedFields() {
+        // Given
+        CustomerProjection projection = CustomerProjection.of(List.of("email")).withVersion();
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        customer.setVersion(3L);
+        customer.setUpdatedAt(Instant.parse("2024-05-01T10:15:30Z"));
+        // When
+        byte[] actual = underTest.toJson(projection, projection.project(customer));
+        // Then
+        assertThat(new String(actual, StandardCharsets.UTF_8)).isEqualTo("{\"email\":\"alex@gmail.com\"}");
+    }
+
+    @Test
+    void toJsonPageOfEveryFieldMatchesJackson() throws Exception {
+        // Given
+        CustomerProjection projection = CustomerProjection.of(List.of("AGE", "email", " name", "id", "id"));
+        Customer first = new Customer(1, "Zoë \"Z\" Ångström", "zoe@gmail.com", 31);
+        Customer second = new Customer(2, "sam", "sam@gmail.com", 21);
+        // When
+        byte[] actual = underTest.toJsonPage(projection,
+                List.of(projection.project(first), projection.project(second)), 2);
+        // Then
+        assertThat(actual).isEqualTo(objectMapper.writeValueAsBytes(new CustomerPage(List.of(first, second), 2)));
+    }
+
+    @Test
+    void writePageOfEveryFieldMatchesJacksonInCbor() throws Exception {
+        // Given
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        CustomerProjection projection = CustomerProjection.of(List.of("id", "name", "email", "age"));
+        Customer customer = new Customer(1, "Zoë", "zoe@gmail.com", 31);
+        // When
+        byte[] actual = underTest.writePage(cborMapper.getFactory(), projection,
+                List.<Object[]>of(projection.project(customer)), null);
+        // Then
+        assertThat(actual).isEqualTo(cborMapper.writeValueAsBytes(new CustomerPage(List.of(customer), null)));
+    }
+}
@@ -0,0 +1,128 @@
+package com.ag.customer.controller;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.dto.CustomerPage;
+import com.ag.dto.CustomerRegistrationRequest;
+import com.ag.dto.CustomerUpdateRequest;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerProtobufTest {
+
+    @Test
+    void encodeWritesFieldsOfCustomerMessage() throws Exception {
+        // Given
+        Customer customer = new Customer(7, "Zoë Ångström", "zoe@gmail.com", 31);
+        // When
+        UnknownFieldSet actual = UnknownFieldSet.parseFrom(CustomerProtobuf.encode(customer));
+        // Then
+        assertThat(actual.getField(1).getVarintList()).containsExactly(7L);
+        assertThat(actual.getField(2).getLengthDelimitedList()).containsExactly(ByteString.copyFromUtf8("Zoë Ångström"));
+        assertThat(actual.getField(3).getLengthDelimitedList()).containsExactly(ByteString.copyFromUtf8("zoe@gmail.com"));
+        assertThat(actual.getField(4).getVarintList()).containsExactly(31L);
+    }
+
+    @Test
+    void encodePageRoundTrips() throws Exception {
+        // Given
+        Customer first = new Customer(1, "alex", "alex@gmail.com", 20);
+        Customer second = new Customer(2, "sam", "sam@gmail.com", -1);
+        // When
+        CustomerPage actual = CustomerProtobuf.decodePage(CustomerProtobuf.encodePage(List.of(first, second), 2));
+        // Then
+        assertThat(actual).isEqualTo(new CustomerPage(List.of(first, second), 2));
+    }
+
+    @Test
+    void encodeListHasNoNextCursor() throws Exception {
+        // Given
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        // When
+        CustomerPage actual = CustomerProtobuf.decodePage(CustomerProtobuf.encodeList(List.of(customer)));
+        // Then
+        assertThat(actual).isEqualTo(new CustomerPage(List.of(customer), null));
+        assertThat(CustomerProtobuf.encodeList(List.of())).isEmpty();
+    }
+
+    @Test
+    void encodeProjectionWritesOnlyRequestedFields() throws Exception {
+        // Given
+        CustomerProjection projection = CustomerProjection.of(List.of("email", "age")).withVersion();
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        customer.setVersion(3L);
+        // When
+        Customer actual = CustomerProtobuf.decodeCustomer(
+                CustomerProtobuf.encode(projection, projection.project(customer)));
+        // Then
+        assertThat(actual.getId()).isNull();
+        assertThat(actual.getName()).isNull();
+        assertThat(actual.getEmail()).isEqualTo("alex@gmail.com");
+        assertThat(actual.getAge()).isEqualTo(20);
+    }
+
+    @Test
+    void encodePageOfEveryFieldMatchesCustomers() {
+        // Given
+        CustomerProjection projection = CustomerProjection.of(List.of("id", "name", "email", "age"));
+        Customer first = new Customer(1, "alex", "alex@gmail.com", 20);
+        Customer second = new Customer(2, "sam", "sam@gmail.com", 21);
+        // When
+        byte[] actual = CustomerProtobuf.encodePage(projection,
+                List.of(projection.project(first), projection.project(second)), null);
+        // Then
+        assertThat(actual).isEqualTo(CustomerProtobuf.encodeList(List.of(first, second)));
+    }
+
+    @Test
+    void decodeRequestsLeavesAbsentFieldsNull() throws Exception {
+        // Given
+        byte[] registration = CustomerProtobuf.encode(new CustomerRegistrationRequest("alex", "alex@gmail.com", 20));
+        byte[] update = CustomerProtobuf.encode(new CustomerUpdateRequest(null, "new@gmail.com", null));
+        // When
+        CustomerRegistrationRequest actualRegistration =
+                CustomerProtobuf.decodeRegistrationRequest(new ByteArrayInputStream(registration));
+        CustomerUpdateRequest actualUpdate = CustomerProtobuf.decodeUpdateRequest(new ByteArrayInputStream(update));
+        // Then
+        assertThat(actualRegistration).isEqualTo(new CustomerRegistrationRequest("alex", "alex@gmail.com", 20));
+        assertThat(actualUpdate).isEqualTo(new CustomerUpdateRequest(null, "new@gmail.com", null));
+    }
+
+    @Test
+    void decodeSkipsUnknownFields() throws Exception {
+        // Given
+        byte[] known = CustomerProtobuf.encode(new CustomerUpdateRequest("alex", null, 20));
+        byte[] unknown = UnknownFieldSet.newBuilder()
+                .addField(9, UnknownFieldSet.Field.newBuilder().addLengthDelimited(ByteString.copyFromUtf8("x")).build())
+                .addField(10, UnknownFieldSet.Field.newBuilder().addFixed64(42L).build())
+                .build()
+                .toByteArray();
+        byte[] message = new byte[unknown.length + known.length];
+        System.arraycopy(unknown, 0, message, 0, unknown.length);
+        System.arraycopy(known, 0, message, unknown.length, known.length);
+        // When
+        CustomerUpdateRequest actual = CustomerProtobuf.decodeUpdateRequest(new ByteArrayInputStream(message));
+        // Then
+        assertThat(actual).isEqualTo(new CustomerUpdateRequest("alex", null, 20));
+    }
+
+    @Test
+    void decodeRejectsTruncatedMessage() {
+        // Given
+        byte[] message = CustomerProtobuf.encode(new CustomerRegistrationRequest("alex", "alex@gmail.com", 20));
+        byte[] truncated = new byte[message.length - 5];
+        System.arraycopy(message, 0, truncated, 0, truncated.length);
+        // When
+        // Then
+        assertThatThrownBy(() -> CustomerProtobuf.decodeRegistrationRequest(new ByteArrayInputStream(truncated)))
+                .isInstanceOf(InvalidProtocolBufferException.class);
+    }
+}
@@ -2,14 +2,21 @@ package com.ag.customer.repository;
 
 import com.ag.AbstractTestContainersUnitTest;
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -18,6 +25,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 class CustomerRepositoryTest extends AbstractTestContainersUnitTest {
     @Autowired
     private CustomerRepository underTest;
+    @Autowired
+    private TestEntityManager entityManager;
     @BeforeEach
     void setUp() {
         underTest.deleteAll();
@@ -82,4 +91,95 @@ class CustomerRepositoryTest extends AbstractTestContainersUnitTest {
         // Then
         assertThat(actual).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findVersionByIdReturnsVersionIncrementedByEveryUpdate() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = underTest.saveAndFlush(new Customer(FAKER.name().fullName(), email, 20));
+        CustomerVersion inserted = underTest.findVersionById(customer.getId()).orElseThrow();
+        // When
+        entityManager.clear();
+        underTest.updateIfChanged(customer.getId(), null, null, 21, null).orElseThrow();
+        // Then
+        CustomerVersion updated = underTest.findVersionById(customer.getId()).orElseThrow();
+        assertThat(updated.version()).isEqualTo(inserted.version() + 1);
+        assertThat(updated.updatedAt()).isAfterOrEqualTo(inserted.updatedAt());
+        assertThat(underTest.findVersionById(-1)).isEmpty();
+    }
+
+    @Test
+    void updateIfChangedOnlyAppliesAtExpectedVersionAndWhenSomethingChanges() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = underTest.saveAndFlush(new Customer(FAKER.name().fullName(), email, 20));
+        long version = underTest.findVersionById(customer.getId()).orElseThrow().version();
+        // The rows returned by the update must not be answered from the persistence context
+        entityManager.clear();
+        // When
+        Optional<Customer> updated = underTest.updateIfChanged(customer.getId(), "foo", null, null, version);
+        Optional<Customer> stale = underTest.updateIfChanged(customer.getId(), "bar", null, null, version);
+        Optional<Customer> unchanged = underTest.updateIfChanged(customer.getId(), "foo", email, 20, null);
+        // Then
+        assertThat(updated).hasValueSatisfying(actual -> {
+            assertThat(actual.getName()).isEqualTo("foo");
+            assertThat(actual.getEmail()).isEqualTo(email);
+            assertThat(actual.getAge()).isEqualTo(20);
+            assertThat(actual.getVersion()).isEqualTo(version + 1);
+        });
+        assertThat(stale).isEmpty();
+        assertThat(unchanged).isEmpty();
+    }
+
+    @Test
+    void streamAllByOrderByIdReadsVersionAndModificationTime() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = underTest.saveAndFlush(new Customer(FAKER.name().fullName(), email, 20));
+        entityManager.clear();
+        underTest.updateIfChanged(customer.getId(), null, null, 21, null).orElseThrow();
+        CustomerVersion expected = underTest.findVersionById(customer.getId()).orElseThrow();
+        // When
+        List<Customer> actual;
+        try (Stream<Customer> customers = underTest.streamAllByOrderById()) {
+            actual = customers.toList();
+        }
+        // Then
+        assertThat(actual).singleElement().satisfies(streamed -> {
+            assertThat(streamed.getAge()).isEqualTo(21);
+            assertThat(streamed.getVersion()).isEqualTo(expected.version());
+            assertThat(streamed.getUpdatedAt()).isEqualTo(expected.updatedAt());
+        });
+    }
+
+    @Test
+    void searchFindsCustomersByNamePrefixAndAge() {
+        // Given
+        String name = "Searched " + UUID.randomUUID();
+        Customer young = underTest.saveAndFlush(new Customer(name, FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20));
+        Customer old = underTest.saveAndFlush(new Customer(name, FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 50));
+        // When
+        var actual = underTest.search(new CustomerSearch(name, null, null, 30, null), 0, 10);
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(old.getId());
+        assertThat(actual.get(0).getVersion()).isNotNull();
+        assertThat(young.getId()).isLessThan(old.getId());
+    }
+
+    @Test
+    void findFieldsReadsOnlyProjectedAttributes() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = underTest.saveAndFlush(new Customer(FAKER.name().fullName(), email, 20));
+        CustomerProjection projection = CustomerProjection.of(List.of("email")).withVersion();
+        // When
+        var page = underTest.findFieldsAfter(projection, customer.getId() - 1, 1);
+        var byId = underTest.findFieldsById(projection, customer.getId());
+        // Then
+        assertThat(page).hasSize(1);
+        assertThat(page.get(0)).startsWith(customer.getId(), email);
+        assertThat(projection.version(page.get(0))).isEqualTo(underTest.findVersionById(customer.getId()).orElseThrow());
+        assertThat(byId).hasValueSatisfying(row -> assertThat(row).isEqualTo(page.get(0)));
+        assertThat(underTest.findFieldsById(projection, -1)).isEmpty();
+    }
+}
@@ -0,0 +1,81 @@
+package com.ag.customer.repository;
+
+import com.ag.AbstractTestContainersUnitTest;
+import com.ag.customer.CustomerSearch;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerSearchQueryTest extends AbstractTestContainersUnitTest {
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+
+    @Test
+    void everyFilterCanBeServedByAnIndex() {
+        List<CustomerSearch> searches = List.of(
+                new CustomerSearch("ali", null, null, null, null),
+                new CustomerSearch(null, "lic", null, null, null),
+                new CustomerSearch(null, null, "Example.com", null, null),
+                new CustomerSearch(null, null, null, 18, 30));
+        for (CustomerSearch search : searches) {
+            // When
+            String plan = explain(new CustomerSearchQuery(search, 0, 10));
+            // Then
+            assertThat(plan).as("plan of %s", search).doesNotContain("Seq Scan");
+        }
+    }
+
+    @Test
+    void searchWithoutFiltersIsRejected() {
+        // Given
+        CustomerSearch search = new CustomerSearch(null, null, null, null, null);
+        // When
+        // Then
+        assertThatThrownBy(() -> new CustomerSearchQuery(search, 0, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void likeWildcardsAreEscaped() {
+        // Given
+        CustomerSearch search = new CustomerSearch("50%_", null, null, null, null);
+        // When
+        var actual = new CustomerSearchQuery(search, 0, 10).parameters();
+        // Then
+        assertThat(actual).containsExactly("50\\%\\_%", 0, 10);
+    }
+
+    /**
+     * Returns the plan of the query with sequential scans disabled, which still picks one if no index applies.
+     */
+    private String explain(CustomerSearchQuery query) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query.sql())) {
+                for (int i = 0; i < query.parameters().size(); i++) {
+                    statement.setObject(i + 1, query.parameters().get(i));
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("RESET enable_seqscan");
+                }
+            }
+        });
+    }
+}
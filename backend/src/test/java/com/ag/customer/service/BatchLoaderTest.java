@@ -0,0 +1,202 @@
+package com.ag.customer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class BatchLoaderTest {
+    private final List<Set<Integer>> batches = new CopyOnWriteArrayList<>();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void loadsLoneKeyWithoutWaitingForTheWindow() {
+        // Given
+        BatchLoader<Integer, String> underTest = new BatchLoader<>(this::loadNames, Duration.ofMinutes(1), 100);
+        // When
+        String name = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> underTest.load(1));
+        // Then
+        assertThat(name).isEqualTo("customer1");
+        assertThat(batches).containsExactly(Set.of(1));
+    }
+
+    @Test
+    void batchesKeysArrivingWhileALoadIsInFlight() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        BatchLoader<Integer, String> underTest =
+                new BatchLoader<>(ids -> loadNamesBlockingOnFirst(ids, release), Duration.ofMinutes(1), 100);
+        Future<String> first = executor.submit(() -> underTest.load(1));
+        awaitBatches(1);
+        // When
+        List<Thread> callers = new CopyOnWriteArrayList<>();
+        List<Future<String>> names = new ArrayList<>();
+        for (int id = 2; id <= 5; id++) {
+            int key = id;
+            names.add(executor.submit(() -> {
+                callers.add(Thread.currentThread());
+                return underTest.load(key);
+            }));
+        }
+        awaitWaiting(callers, 4);
+        release.countDown();
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("customer1");
+        for (int id = 2; id <= 5; id++) {
+            assertThat(names.get(id - 2).get(5, TimeUnit.SECONDS)).isEqualTo("customer" + id);
+        }
+        assertThat(batches).containsExactly(Set.of(1), Set.of(2, 3, 4, 5));
+    }
+
+    @Test
+    void loadsBatchOnceTheWindowPassesEvenIfALoadIsStillInFlight() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        BatchLoader<Integer, String> underTest =
+                new BatchLoader<>(ids -> loadNamesBlockingOnFirst(ids, release), Duration.ofMillis(50), 100);
+        Future<String> first = executor.submit(() -> underTest.load(1));
+        awaitBatches(1);
+        // When
+        String second = underTest.load(2);
+        // Then
+        assertThat(second).isEqualTo("customer2");
+        assertThat(first).isNotDone();
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("customer1");
+        assertThat(batches).containsExactly(Set.of(1), Set.of(2));
+    }
+
+    @Test
+    void loadsFullBatchWithoutWaitingForTheWindow() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        BatchLoader<Integer, String> underTest =
+                new BatchLoader<>(ids -> loadNamesBlockingOnFirst(ids, release), Duration.ofMinutes(1), 2);
+        Future<String> first = executor.submit(() -> underTest.load(1));
+        awaitBatches(1);
+        // When
+        Future<String> second = executor.submit(() -> underTest.load(2));
+        String third = underTest.load(3);
+        // Then
+        assertThat(third).isEqualTo("customer3");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("customer2");
+        assertThat(batches).containsExactly(Set.of(1), Set.of(2, 3));
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("customer1");
+    }
+
+    @Test
+    void returnsNullForKeysWithoutValue() {
+        // Given
+        BatchLoader<Integer, String> underTest = new BatchLoader<>(this::loadNames, Duration.ZERO, 100);
+        // When
+        String name = underTest.load(-1);
+        // Then
+        assertThat(name).isNull();
+    }
+
+    @Test
+    void keysArrivingAfterTheWindowStartANewBatch() {
+        // Given
+        BatchLoader<Integer, String> underTest = new BatchLoader<>(this::loadNames, Duration.ZERO, 100);
+        // When
+        underTest.load(1);
+        underTest.load(2);
+        // Then
+        assertThat(batches).containsExactly(Set.of(1), Set.of(2));
+    }
+
+    @Test
+    void everyCallerInTheBatchReceivesTheLoadFailure() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        BatchLoader<Integer, String> underTest = new BatchLoader<>(ids -> {
+            if (ids.contains(1)) {
+                return loadNamesBlockingOnFirst(ids, release);
+            }
+            throw new IllegalStateException("database unavailable");
+        }, Duration.ofMinutes(1), 2);
+        Future<String> first = executor.submit(() -> underTest.load(1));
+        awaitBatches(1);
+        // When
+        Future<String> second = executor.submit(() -> underTest.load(2));
+        // Then
+        assertThatThrownBy(() -> underTest.load(3))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("database unavailable");
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("customer1");
+    }
+
+    /**
+     * Loads names like {@link #loadNames(Set)}, holding the batch with key 1 in flight until released.
+     */
+    private Map<Integer, String> loadNamesBlockingOnFirst(Set<Integer> ids, CountDownLatch release) {
+        Map<Integer, String> names = loadNames(ids);
+        if (ids.contains(1)) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return names;
+    }
+
+    private void awaitBatches(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batches.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits until the callers are all parked, waiting for their batch to be loaded.
+     */
+    private static void awaitWaiting(List<Thread> callers, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((callers.size() < expected || callers.stream().anyMatch(caller ->
+                caller.getState() != Thread.State.WAITING && caller.getState() != Thread.State.TIMED_WAITING))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private Map<Integer, String> loadNames(Set<Integer> ids) {
+        batches.add(Set.copyOf(ids));
+        return ids.stream()
+                .filter(id -> id > 0)
+                .collect(Collectors.toMap(Function.identity(), id -> "customer" + id));
+    }
+}
@@ -0,0 +1,141 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BloomFilterCustomerDaoTest {
+    private BloomFilterCustomerDao underTest;
+    private EmailBloomFilter emailFilter;
+
+    @Mock
+    private CustomerDao customerDao;
+
+    @BeforeEach
+    void setUp() {
+        emailFilter = new EmailBloomFilter(customerDao, 100, 0.01);
+        underTest = new BloomFilterCustomerDao(customerDao, emailFilter);
+    }
+
+    @Test
+    void selectExistingEmailsQueriesDatabaseUntilFilterIsWarm() {
+        // Given
+        when(customerDao.selectExistingEmails(Set.of("alex@gmail.com"))).thenReturn(Set.of());
+        // When
+        Set<String> existing = underTest.selectExistingEmails(List.of("alex@gmail.com"));
+        // Then
+        assertThat(existing).isEmpty();
+        assertThat(emailFilter.isWarm()).isFalse();
+        verify(customerDao).selectExistingEmails(Set.of("alex@gmail.com"));
+    }
+
+    @Test
+    void selectExistingEmailsOnlyQueriesPossibleHits() {
+        // Given
+        warmWith("alex@gmail.com");
+        when(customerDao.selectExistingEmails(Set.of("alex@gmail.com"))).thenReturn(Set.of("alex@gmail.com"));
+        // When
+        Set<String> existing = underTest.selectExistingEmails(List.of("alex@gmail.com", "jamila@gmail.com"));
+        // Then
+        assertThat(existing).containsExactly("alex@gmail.com");
+        verify(customerDao).selectExistingEmails(Set.of("alex@gmail.com"));
+    }
+
+    @Test
+    void selectExistingEmailsSkipsDatabaseWhenNoEmailIsKnown() {
+        // Given
+        warmWith("alex@gmail.com");
+        // When
+        Set<String> existing = underTest.selectExistingEmails(List.of("jamila@gmail.com", "ali@gmail.com"));
+        // Then
+        assertThat(existing).isEmpty();
+        verify(customerDao, never()).selectExistingEmails(any());
+    }
+
+    @Test
+    void insertCustomerAddsEmailToFilter() {
+        // Given
+        warmWith("alex@gmail.com");
+        Customer customer = new Customer("jamila", "jamila@gmail.com", 22);
+        when(customerDao.insertCustomer(customer)).thenReturn(Optional.of(2));
+        // When
+        underTest.insertCustomer(customer);
+        // Then
+        assertThat(emailFilter.mightContain("jamila@gmail.com")).isTrue();
+    }
+
+    @Test
+    void insertCustomersAddsEveryEmailToFilter() {
+        // Given
+        warmWith("alex@gmail.com");
+        List<Customer> customers = List.of(
+                new Customer("jamila", "jamila@gmail.com", 22),
+                new Customer("ali", "ali@gmail.com", 30));
+        // When
+        underTest.insertCustomers(customers);
+        // Then
+        verify(customerDao).insertCustomers(customers);
+        assertThat(emailFilter.mightContain("jamila@gmail.com")).isTrue();
+        assertThat(emailFilter.mightContain("ali@gmail.com")).isTrue();
+    }
+
+    @Test
+    void updateCustomerAddsNewEmailToFilter() {
+        // Given
+        warmWith("alex@gmail.com");
+        Customer update = new Customer(1, null, "alex.new@gmail.com", null);
+        // When
+        underTest.updateCustomer(update);
+        // Then
+        verify(customerDao).updateCustomer(update);
+        assertThat(emailFilter.mightContain("alex.new@gmail.com")).isTrue();
+    }
+
+    @Test
+    void rebuildDropsEmailsNoLongerInDatabase() {
+        // Given
+        warmWith("alex@gmail.com");
+        // When
+        warmWith("jamila@gmail.com");
+        // Then
+        assertThat(emailFilter.mightContain("jamila@gmail.com")).isTrue();
+        assertThat(emailFilter.mightContain("alex@gmail.com")).isFalse();
+    }
+
+    @Test
+    void failedRebuildKeepsPreviousFilter() {
+        // Given
+        warmWith("alex@gmail.com");
+        doThrow(new IllegalStateException("connection refused")).when(customerDao).streamAllEmails(any());
+        // When
+        emailFilter.rebuild();
+        // Then
+        assertThat(emailFilter.mightContain("alex@gmail.com")).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void warmWith(String... emails) {
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            for (String email : emails) {
+                action.accept(email);
+            }
+            return null;
+        }).when(customerDao).streamAllEmails(any(Consumer.class));
+        emailFilter.rebuild();
+    }
+}
@@ -0,0 +1,199 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerVersion;
+import com.ag.customer.repository.CustomerDao;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCustomerDaoTest {
+    private CachingCustomerDao underTest;
+    private Cache<Integer, Customer> cache;
+
+    @Mock
+    private CustomerDao customerDao;
+
+    @BeforeEach
+    void setUp() {
+        cache = Caffeine.newBuilder().maximumSize(100).recordStats().build();
+        underTest = new CachingCustomerDao(customerDao, cache);
+    }
+
+    @Test
+    void selectCustomerByIdIsServedFromCacheAfterFirstLookup() {
+        // Given
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        when(customerDao.selectCustomerById(1)).thenReturn(Optional.of(customer));
+        // When
+        Optional<Customer> first = underTest.selectCustomerById(1);
+        Optional<Customer> second = underTest.selectCustomerById(1);
+        // Then
+        assertThat(first).hasValue(customer);
+        assertThat(second).hasValue(customer);
+        verify(customerDao, times(1)).selectCustomerById(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void selectCustomerVersionIsServedFromCachedCustomer() {
+        // Given
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        customer.setVersion(4L);
+        customer.setUpdatedAt(Instant.parse("2024-05-01T10:15:30Z"));
+        cache.put(1, customer);
+        CustomerVersion uncached = new CustomerVersion(1L, Instant.parse("2024-04-01T08:00:00Z"));
+        when(customerDao.selectCustomerVersion(2)).thenReturn(Optional.of(uncached));
+        // When
+        Optional<CustomerVersion> cached = underTest.selectCustomerVersion(1);
+        Optional<CustomerVersion> loaded = underTest.selectCustomerVersion(2);
+        // Then
+        assertThat(cached).hasValue(new CustomerVersion(4L, Instant.parse("2024-05-01T10:15:30Z")));
+        assertThat(loaded).hasValue(uncached);
+        verify(customerDao, never()).selectCustomerVersion(1);
+    }
+
+    @Test
+    void selectCustomerFieldsByIdProjectsCachedCustomer() {
+        // Given
+        CustomerProjection projection = CustomerProjection.of(List.of("email"));
+        cache.put(1, new Customer(1, "alex", "alex@gmail.com", 20));
+        // When
+        Optional<Object[]> actual = underTest.selectCustomerFieldsById(projection, 1);
+        // Then
+        assertThat(actual).hasValueSatisfying(row -> assertThat(row).containsExactly(1, "alex@gmail.com"));
+        verify(customerDao, never()).selectCustomerFieldsById(any(), any());
+    }
+
+    @Test
+    void selectCustomerFieldsByIdLoadsVersionMissingFromCachedCustomer() {
+        // Given
+        CustomerProjection projection = CustomerProjection.of(List.of("email")).withVersion();
+        cache.put(1, new Customer(1, "alex", "alex@gmail.com", 20));
+        Object[] row = {1, "alex@gmail.com", 4L, Instant.parse("2024-05-01T10:15:30Z")};
+        when(customerDao.selectCustomerFieldsById(projection, 1)).thenReturn(Optional.of(row));
+        // When
+        Optional<Object[]> actual = underTest.selectCustomerFieldsById(projection, 1);
+        // Then
+        assertThat(actual).containsSame(row);
+        assertThat(cache.getIfPresent(1)).isNotNull();
+    }
+
+    @Test
+    void selectCustomersByIdsOnlyLoadsCustomersMissingFromCache() {
+        // Given
+        Customer alex = new Customer(1, "alex", "alex@gmail.com", 20);
+        Customer jamila = new Customer(2, "jamila", "jamila@gmail.com", 22);
+        cache.put(1, alex);
+        when(customerDao.selectCustomersByIds(List.of(2, 3))).thenReturn(List.of(jamila));
+        // When
+        List<Customer> customers = underTest.selectCustomersByIds(List.of(1, 2, 3));
+        // Then
+        assertThat(customers).containsExactlyInAnyOrder(alex, jamila);
+        assertThat(cache.getIfPresent(2)).isEqualTo(jamila);
+        assertThat(cache.getIfPresent(3)).isNull();
+    }
+
+    @Test
+    void selectCustomersByIdsSkipsDelegateWhenAllCached() {
+        // Given
+        Customer alex = new Customer(1, "alex", "alex@gmail.com", 20);
+        cache.put(1, alex);
+        // When
+        List<Customer> customers = underTest.selectCustomersByIds(List.of(1));
+        // Then
+        assertThat(customers).containsExactly(alex);
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void selectCustomerByIdDoesNotCacheMissingCustomers() {
+        // Given
+        when(customerDao.selectCustomerById(1)).thenReturn(Optional.empty());
+        // When
+        underTest.selectCustomerById(1);
+        underTest.selectCustomerById(1);
+        // Then
+        verify(customerDao, times(2)).selectCustomerById(1);
+        assertThat(cache.getIfPresent(1)).isNull();
+    }
+
+    @Test
+    void updateCustomerEvictsCachedCustomer() {
+        // Given
+        Customer customer = new Customer(1, "alex", "alex@gmail.com", 20);
+        Customer updated = new Customer(1, "alex", "alex@gmail.com", 21);
+        cache.put(1, customer);
+        when(customerDao.updateCustomer(updated)).thenReturn(Optional.of(updated));
+        // When
+        underTest.updateCustomer(updated);
+        // Then
+        assertThat(cache.getIfPresent(1)).isNull();
+    }
+
+    @Test
+    void deleteCustomerByIdEvictsCachedCustomer() {
+        // Given
+        cache.put(1, new Customer(1, "alex", "alex@gmail.com", 20));
+        when(customerDao.deleteCustomerById(1)).thenReturn(1);
+        // When
+        int actual = underTest.deleteCustomerById(1);
+        // Then
+        assertThat(actual).isEqualTo(1);
+        assertThat(cache.getIfPresent(1)).isNull();
+    }
+
+    @Test
+    void insertCustomerEvictsGeneratedId() {
+        // Given
+        Customer customer = new Customer("alex", "alex@gmail.com", 20);
+        cache.put(1, new Customer(1, "stale", "stale@gmail.com", 20));
+        when(customerDao.insertCustomer(customer)).thenReturn(Optional.of(1));
+        // When
+        Optional<Integer> actual = underTest.insertCustomer(customer);
+        // Then
+        assertThat(actual).hasValue(1);
+        assertThat(cache.getIfPresent(1)).isNull();
+    }
+
+    @Test
+    void lookupRacingWithAWriteIsNotCached() {
+        // Given
+        Customer stale = new Customer(1, "alex", "alex@gmail.com", 20);
+        when(customerDao.selectCustomerById(1)).thenAnswer(invocation -> {
+            // A concurrent update commits while this lookup is still reading
+            underTest.deleteCustomerById(2);
+            return Optional.of(stale);
+        });
+        // When
+        Optional<Customer> actual = underTest.selectCustomerById(1);
+        // Then
+        assertThat(actual).hasValue(stale);
+        assertThat(cache.getIfPresent(1)).isNull();
+    }
+
+    @Test
+    void nonCachedOperationsAreForwarded() {
+        // Given
+        List<Customer> customers = List.of(new Customer(1, "alex", "alex@gmail.com", 20));
+        when(customerDao.selectCustomersAfter(0, 10)).thenReturn(customers);
+        // When
+        List<Customer> actual = underTest.selectCustomersAfter(0, 10);
+        // Then
+        assertThat(actual).isEqualTo(customers);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ag.customer.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionLimitingDataSourceTest {
+    private ConnectionLimitingDataSource underTest;
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ConnectionLimitingDataSource(dataSource, 1, Duration.ofMillis(50));
+    }
+
+    @Test
+    void getConnectionTimesOutWhenAllPermitsAreTaken() throws SQLException {
+        // Given
+        when(dataSource.getConnection()).thenReturn(connection);
+        underTest.getConnection();
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getConnection())
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("waiting for a database connection");
+        verify(dataSource, times(1)).getConnection();
+    }
+
+    @Test
+    void closingTheConnectionReturnsItsPermit() throws SQLException {
+        // Given
+        when(dataSource.getConnection()).thenReturn(connection);
+        Connection borrowed = underTest.getConnection();
+        assertThat(underTest.getAvailablePermits()).isZero();
+        // When
+        borrowed.close();
+        // Then
+        verify(connection).close();
+        assertThat(underTest.getAvailablePermits()).isEqualTo(1);
+        assertThat(underTest.getConnection()).isNotNull();
+    }
+
+    @Test
+    void closingTheConnectionTwiceReturnsOnePermit() throws SQLException {
+        // Given
+        when(dataSource.getConnection()).thenReturn(connection);
+        Connection borrowed = underTest.getConnection();
+        // When
+        borrowed.close();
+        borrowed.close();
+        // Then
+        assertThat(underTest.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void failedBorrowReturnsItsPermit() throws SQLException {
+        // Given
+        when(dataSource.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        // When
+        assertThatThrownBy(() -> underTest.getConnection())
+                .isInstanceOf(SQLException.class)
+                .hasMessage("pool exhausted");
+        // Then
+        assertThat(underTest.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void otherCallsArePassedToTheConnection() throws SQLException {
+        // Given
+        when(dataSource.getConnection()).thenReturn(connection);
+        Connection borrowed = underTest.getConnection();
+        // When
+        borrowed.setAutoCommit(false);
+        // Then
+        verify(connection).setAutoCommit(false);
+        assertThat(underTest.getAvailablePermits()).isZero();
+    }
+}
@@ -0,0 +1,160 @@
+package com.ag.customer.service;
+
+import com.ag.AbstractTestContainersUnitTest;
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+import com.ag.customer.repository.CustomerRowMapper;
+import com.ag.dto.CustomerImportResult;
+import com.ag.exceptions.RequestValidationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.StringReader;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class CustomerCsvImportServiceTest extends AbstractTestContainersUnitTest {
+    private CustomerCsvImportService underTest;
+    private CustomerJDBCDataAccessService customerDao;
+
+    @BeforeEach
+    void setUp() {
+        customerDao = new CustomerJDBCDataAccessService(getJdbcTemplate(), new CustomerRowMapper());
+        underTest = new CustomerCsvImportService(getJdbcTemplate(), customerDao, "jdbc",
+                new StaticListableBeanFactory().getBeanProvider(CustomerSnapshot.class),
+                new StaticListableBeanFactory().getBeanProvider(CustomerSuggestionIndex.class),
+                new StaticListableBeanFactory().getBeanProvider(EmailBloomFilter.class));
+    }
+
+    @Test
+    void importCustomers() {
+        // Given
+        String existingEmail = UUID.randomUUID() + FAKER.internet().emailAddress();
+        String newEmail = UUID.randomUUID() + FAKER.internet().emailAddress();
+        customerDao.insertCustomer(new Customer("alex", existingEmail, 20));
+        String csv = """
+                name,email,age
+                sam,%s,21
+                "Smith, Tom",%s,22
+                tom,%s,23
+                """.formatted(existingEmail, newEmail, newEmail);
+        // When
+        CustomerImportResult actual = underTest.importCustomers(new StringReader(csv));
+        // Then
+        assertThat(actual.rowsRead()).isEqualTo(3);
+        assertThat(actual.rowsInserted()).isEqualTo(1);
+        assertThat(actual.rowsSkipped()).isEqualTo(2);
+        assertThat(customerDao.selectAllCustomers())
+                .filteredOn(c -> c.getEmail().equals(newEmail))
+                .singleElement()
+                .satisfies(c -> assertThat(c.getName()).isIn("Smith, Tom", "tom"));
+        assertThat(customerDao.selectAllCustomers())
+                .filteredOn(c -> c.getEmail().equals(existingEmail))
+                .singleElement()
+                .satisfies(c -> assertThat(c.getName()).isEqualTo("alex"));
+    }
+
+    @Test
+    void importCustomersThroughCustomerDaoWhenSharded() {
+        // Given
+        CustomerDao shardedDao = spy(customerDao);
+        underTest = new CustomerCsvImportService(getJdbcTemplate(), shardedDao, "sharded",
+                new StaticListableBeanFactory().getBeanProvider(CustomerSnapshot.class),
+                new StaticListableBeanFactory().getBeanProvider(CustomerSuggestionIndex.class),
+                new StaticListableBeanFactory().getBeanProvider(EmailBloomFilter.class));
+        String existingEmail = UUID.randomUUID() + FAKER.internet().emailAddress();
+        String newEmail = UUID.randomUUID() + FAKER.internet().emailAddress();
+        customerDao.insertCustomer(new Customer("alex", existingEmail, 20));
+        String csv = """
+                name,email,age
+                sam,%s,21
+                "Smith, Tom",%s,22
+                tom,%s,23
+                ,missing-name@gmail.com,24
+                """.formatted(existingEmail, newEmail, newEmail);
+        // When
+        CustomerImportResult actual = underTest.importCustomers(new StringReader(csv));
+        // Then
+        assertThat(actual.rowsRead()).isEqualTo(4);
+        assertThat(actual.rowsInserted()).isEqualTo(1);
+        verify(shardedDao).insertCustomersIgnoringDuplicateEmails(anyList());
+        assertThat(customerDao.selectAllCustomers())
+                .filteredOn(c -> c.getEmail().equals(newEmail))
+                .singleElement()
+                .satisfies(c -> assertThat(c.getName()).isIn("Smith, Tom", "tom"));
+        assertThat(customerDao.existsPersonWithEmail("missing-name@gmail.com")).isFalse();
+    }
+
+    @Test
+    void importCustomersCatchesUpSuggestionIndex() {
+        // Given
+        CustomerSuggestionIndex index = new CustomerSuggestionIndex(customerDao, 1000, new SimpleMeterRegistry());
+        index.rebuild();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("customerSuggestionIndex", index);
+        underTest = new CustomerCsvImportService(getJdbcTemplate(), customerDao, "jdbc",
+                new StaticListableBeanFactory().getBeanProvider(CustomerSnapshot.class),
+                beanFactory.getBeanProvider(CustomerSuggestionIndex.class),
+                new StaticListableBeanFactory().getBeanProvider(EmailBloomFilter.class));
+        String name = "imported" + UUID.randomUUID().toString().replace("-", "");
+        String email = UUID.randomUUID() + FAKER.internet().emailAddress();
+        String csv = """
+                name,email,age
+                %s,%s,21
+                """.formatted(name, email);
+        // When
+        underTest.importCustomers(new StringReader(csv));
+        // Then
+        Integer id = customerDao.selectAllCustomers().stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        assertThat(index.suggest(name, 10)).containsExactly(id);
+    }
+
+    @Test
+    void importCustomersAddsEmailsToEmailFilter() {
+        // Given
+        EmailBloomFilter emailFilter = new EmailBloomFilter(customerDao, 1000, 0.001);
+        emailFilter.rebuild();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("emailBloomFilter", emailFilter);
+        underTest = new CustomerCsvImportService(getJdbcTemplate(), customerDao, "jdbc",
+                new StaticListableBeanFactory().getBeanProvider(CustomerSnapshot.class),
+                new StaticListableBeanFactory().getBeanProvider(CustomerSuggestionIndex.class),
+                beanFactory.getBeanProvider(EmailBloomFilter.class));
+        String email = UUID.randomUUID() + FAKER.internet().emailAddress();
+        String csv = """
+                name,email,age
+                sam,%s,21
+                """.formatted(email);
+        // When
+        underTest.importCustomers(new StringReader(csv));
+        // Then
+        assertThat(emailFilter.mightContain(email)).isTrue();
+    }
+
+    @Test
+    void willThrowWhenCsvIsMalformed() {
+        // Given
+        String email = UUID.randomUUID() + FAKER.internet().emailAddress();
+        String csv = """
+                name,email,age
+                sam,%s,not-a-number
+                """.formatted(email);
+        // When
+        assertThatThrownBy(() -> underTest.importCustomers(new StringReader(csv)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageStartingWith("CSV could not be imported");
+        // Then
+        assertThat(customerDao.existsPersonWithEmail(email)).isFalse();
+    }
+}
@@ -2,16 +2,24 @@ package com.ag.customer.service;
 
 import com.ag.AbstractTestContainersUnitTest;
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
 import com.ag.customer.repository.CustomerRowMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
@@ -38,6 +46,69 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
         assertThat(customers).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersAfter() {
+        // Given
+        Customer first = generateCustomer();
+        Customer second = generateCustomer();
+        underTest.insertCustomer(first);
+        underTest.insertCustomer(second);
+        Integer firstId = underTest
+                .selectAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(first.getEmail())).map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        // When
+        List<Customer> actual = underTest.selectCustomersAfter(firstId, 1);
+        // Then
+        assertThat(actual).hasSize(1);
+        assertThat(actual.get(0).getId()).isGreaterThan(firstId);
+    }
+
+    @Test
+    void selectCustomersAfterReturnsEmptyPastTheLastCustomer() {
+        // Given
+        underTest.insertCustomer(generateCustomer());
+        Integer lastId = underTest
+                .selectAllCustomers()
+                .stream()
+                .map(Customer::getId)
+                .max(Integer::compareTo)
+                .orElseThrow();
+        // When
+        List<Customer> actual = underTest.selectCustomersAfter(lastId, 10);
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // Given
+        Customer customer = generateCustomer();
+        underTest.insertCustomer(customer);
+        // When
+        List<Customer> streamed = new ArrayList<>();
+        underTest.streamAllCustomers(streamed::add);
+        // Then
+        assertThat(streamed)
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id", "version", "updatedAt")
+                .contains(customer);
+        assertThat(streamed).extracting(Customer::getId).isSorted();
+    }
+
+    @Test
+    void streamAllEmails() {
+        // Given
+        Customer customer = generateCustomer();
+        underTest.insertCustomer(customer);
+        // When
+        List<String> streamed = new ArrayList<>();
+        underTest.streamAllEmails(streamed::add);
+        // Then
+        assertThat(streamed).contains(customer.getEmail());
+    }
+
     @Test
     void selectCustomerById() {
         // Given
@@ -76,6 +147,40 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
         assertThat(actual).isEmpty();
     }
 
+    @Test
+    void insertCustomersIgnoringDuplicateEmailsReturnsIdsOfInsertedCustomers() {
+        // Given
+        Customer existing = generateCustomer();
+        underTest.insertCustomer(existing);
+        Customer first = generateCustomer();
+        Customer second = generateCustomer();
+        Customer taken = generateCustomer(existing.getEmail());
+        // When
+        Map<String, Integer> ids = underTest.insertCustomersIgnoringDuplicateEmails(List.of(first, taken, second));
+        // Then
+        assertThat(ids).containsOnlyKeys(first.getEmail(), second.getEmail());
+        assertThat(underTest.selectCustomerById(ids.get(first.getEmail())))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo(first.getName()));
+        assertThat(underTest.selectCustomerById(ids.get(second.getEmail())))
+                .hasValueSatisfying(c -> assertThat(c.getAge()).isEqualTo(second.getAge()));
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        // Given
+        Customer first = generateCustomer();
+        Customer second = generateCustomer();
+        Integer firstId = underTest.insertCustomer(first).orElseThrow();
+        Integer secondId = underTest.insertCustomer(second).orElseThrow();
+        // When
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(firstId, secondId, -1));
+        // Then
+        assertThat(actual)
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id", "version", "updatedAt")
+                .containsExactlyInAnyOrder(first, second);
+        assertThat(actual).extracting(Customer::getId).containsExactlyInAnyOrder(firstId, secondId);
+    }
+
     @Test
     void insertCustomer() {
         // Given
@@ -86,6 +191,54 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
         assertThat(underTest.selectAllCustomers()).isNotEmpty();
     }
 
+    @Test
+    void insertCustomerReturnsGeneratedId() {
+        // Given
+        Customer customer = generateCustomer();
+        // When
+        Optional<Integer> actual = underTest.insertCustomer(customer);
+        // Then
+        assertThat(actual).isPresent();
+        assertThat(underTest.selectCustomerById(actual.get())).isPresent().hasValueSatisfying(c ->
+                assertThat(c.getEmail()).isEqualTo(customer.getEmail()));
+    }
+
+    @Test
+    void insertCustomerReturnsEmptyWhenEmailExists() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(generateCustomer(email));
+        // When
+        Optional<Integer> actual = underTest.insertCustomer(generateCustomer(email));
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void insertCustomers() {
+        // Given
+        Customer first = generateCustomer();
+        Customer second = generateCustomer();
+        // When
+        underTest.insertCustomers(List.of(first, second));
+        // Then
+        assertThat(underTest.selectAllCustomers())
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id", "version", "updatedAt")
+                .contains(first, second);
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String missingEmail = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(generateCustomer(email));
+        // When
+        Set<String> actual = underTest.selectExistingEmails(List.of(email, missingEmail));
+        // Then
+        assertThat(actual).containsExactly(email);
+    }
+
     @Test
     void existsPersonWithEmail() {
         // Given
@@ -121,12 +274,23 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
                 .findFirst()
                 .orElseThrow();
         // When
-        underTest.deleteCustomerById(id);
+        int deleted = underTest.deleteCustomerById(id);
         // Then
+        assertThat(deleted).isEqualTo(1);
         Optional<Customer> actual = underTest.selectCustomerById(id);
         assertThat(actual).isNotPresent();
     }
 
+    @Test
+    void deleteCustomerByIdReturnsZeroWhenCustomerDoesNotExist() {
+        // Given
+        int id = -1;
+        // When
+        int actual = underTest.deleteCustomerById(id);
+        // Then
+        assertThat(actual).isZero();
+    }
+
     @Test
     void existsCustomerWithId() {
         // Given
@@ -299,6 +463,187 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainersUnitTest {
             assertThat(c.getEmail()).isEqualTo(customer.getEmail());
         });
     }
+    @Test
+    void updateCustomerReturnsUpdatedRow() {
+        // Given
+        Customer customer = generateCustomer(29);
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        Customer update = new Customer();
+        update.setId(id);
+        update.setAge(49);
+        // When
+        Optional<Customer> actual = underTest.updateCustomer(update);
+        // Then
+        assertThat(actual).isPresent().hasValue(new Customer(id, customer.getName(), customer.getEmail(), 49));
+    }
+
+    @Test
+    void updateCustomerReturnsEmptyWhenValuesAreUnchanged() {
+        // Given
+        Customer customer = generateCustomer(29);
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        // When
+        Optional<Customer> actual = underTest.updateCustomer(new Customer(id, customer.getName(), customer.getEmail(), 29));
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void updateCustomerReturnsEmptyWhenCustomerDoesNotExist() {
+        // Given
+        Customer update = new Customer(-1, "foo", null, null);
+        // When
+        Optional<Customer> actual = underTest.updateCustomer(update);
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void updateCustomerThrowsWhenEmailBelongsToAnotherCustomer() {
+        // Given
+        Customer taken = generateCustomer();
+        underTest.insertCustomer(taken);
+        Integer id = underTest.insertCustomer(generateCustomer()).orElseThrow();
+        Customer update = new Customer();
+        update.setId(id);
+        update.setEmail(taken.getEmail());
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(update)).isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void updateCustomerIncrementsVersion() {
+        // Given
+        Integer id = underTest.insertCustomer(generateCustomer(29)).orElseThrow();
+        CustomerVersion before = underTest.selectCustomerVersion(id).orElseThrow();
+        Customer update = new Customer();
+        update.setId(id);
+        update.setAge(49);
+        // When
+        Customer updated = underTest.updateCustomer(update).orElseThrow();
+        // Then
+        CustomerVersion after = underTest.selectCustomerVersion(id).orElseThrow();
+        assertThat(after.version()).isEqualTo(before.version() + 1);
+        assertThat(after.updatedAt()).isAfterOrEqualTo(before.updatedAt());
+        assertThat(CustomerVersion.of(updated)).isEqualTo(after);
+        assertThat(CustomerVersion.of(underTest.selectCustomerById(id).orElseThrow())).isEqualTo(after);
+    }
+
+    @Test
+    void updateCustomerOnlyWritesTheExpectedVersion() {
+        // Given
+        Integer id = underTest.insertCustomer(generateCustomer(29)).orElseThrow();
+        long version = underTest.selectCustomerVersion(id).orElseThrow().version();
+        Customer stale = new Customer(id, null, null, 50);
+        stale.setVersion(version - 1);
+        Customer current = new Customer(id, null, null, 51);
+        current.setVersion(version);
+        // When
+        Optional<Customer> rejected = underTest.updateCustomer(stale);
+        Optional<Customer> accepted = underTest.updateCustomer(current);
+        // Then
+        assertThat(rejected).isEmpty();
+        assertThat(accepted).isPresent();
+        assertThat(accepted.get().getAge()).isEqualTo(51);
+        assertThat(accepted.get().getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void selectCustomerVersionReturnsEmptyWhenCustomerDoesNotExist() {
+        // When
+        Optional<CustomerVersion> actual = underTest.selectCustomerVersion(-1);
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void searchCustomersByNamePrefixAndInfix() {
+        // Given
+        String token = UUID.randomUUID().toString();
+        Customer match = new Customer("Search-" + token + "-Smith", FAKER.internet().emailAddress() + "-" + token, 30);
+        underTest.insertCustomer(match);
+        underTest.insertCustomer(generateCustomer());
+        // When
+        List<Customer> byPrefix = underTest.searchCustomers(
+                new CustomerSearch("search-" + token, null, null, null, null), 0, 10);
+        List<Customer> byInfix = underTest.searchCustomers(
+                new CustomerSearch(null, token.toUpperCase() + "-sMITH", null, null, null), 0, 10);
+        // Then
+        assertThat(byPrefix).extracting(Customer::getEmail).containsExactly(match.getEmail());
+        assertThat(byInfix).extracting(Customer::getEmail).containsExactly(match.getEmail());
+    }
+
+    @Test
+    void searchCustomersMatchesLikeWildcardsLiterally() {
+        // Given
+        String token = UUID.randomUUID().toString();
+        underTest.insertCustomer(new Customer("Wild" + token, FAKER.internet().emailAddress() + "-" + token, 30));
+        // When
+        List<Customer> actual = underTest.searchCustomers(
+                new CustomerSearch("W_ld%" + token, null, null, null, null), 0, 10);
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void searchCustomersByEmailDomainAndAgeRange() {
+        // Given
+        String domain = UUID.randomUUID() + ".example.com";
+        underTest.insertCustomer(generateCustomer("young@" + domain, 20));
+        underTest.insertCustomer(generateCustomer("middle@" + domain, 40));
+        underTest.insertCustomer(generateCustomer("old@" + domain, 60));
+        // When
+        List<Customer> actual = underTest.searchCustomers(
+                new CustomerSearch(null, null, domain.toUpperCase(), 30, 60), 0, 10);
+        // Then
+        assertThat(actual).extracting(Customer::getEmail)
+                .containsExactly("middle@" + domain, "old@" + domain);
+    }
+
+    @Test
+    void searchCustomersResumesAfterTheCursor() {
+        // Given
+        String domain = UUID.randomUUID() + ".example.com";
+        underTest.insertCustomer(generateCustomer("first@" + domain));
+        underTest.insertCustomer(generateCustomer("second@" + domain));
+        CustomerSearch search = new CustomerSearch(null, null, domain, null, null);
+        List<Customer> firstPage = underTest.searchCustomers(search, 0, 1);
+        // When
+        List<Customer> secondPage = underTest.searchCustomers(search, firstPage.get(0).getId(), 1);
+        // Then
+        assertThat(firstPage).extracting(Customer::getEmail).containsExactly("first@" + domain);
+        assertThat(secondPage).extracting(Customer::getEmail).containsExactly("second@" + domain);
+    }
+
+    @Test
+    void selectCustomerFieldsAfterReadsOnlyProjectedColumns() {
+        // Given
+        Customer customer = generateCustomer();
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        CustomerProjection projection = CustomerProjection.of(List.of("email"));
+        // When
+        List<Object[]> actual = underTest.selectCustomerFieldsAfter(projection, id - 1, 1);
+        // Then
+        assertThat(actual).containsExactly(new Object[]{id, customer.getEmail()});
+    }
+
+    @Test
+    void selectCustomerFieldsByIdReadsVersionAlong() {
+        // Given
+        Customer customer = generateCustomer();
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        CustomerProjection projection = CustomerProjection.of(List.of("name", "age")).withVersion();
+        // When
+        Optional<Object[]> actual = underTest.selectCustomerFieldsById(projection, id);
+        // Then
+        assertThat(actual).hasValueSatisfying(row -> {
+            assertThat(row).startsWith(id, customer.getName(), customer.getAge());
+            assertThat(projection.version(row)).isEqualTo(underTest.selectCustomerVersion(id).orElseThrow());
+        });
+        assertThat(underTest.selectCustomerFieldsById(projection, -1)).isEmpty();
+    }
+
     // Helper Method
     private Customer generateCustomer() {
         // Given
@@ -10,8 +10,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.verify;
@@ -44,6 +49,38 @@ class CustomerJPADataAccessServiceTest extends AbstractTestContainersUnitTest {
      verify(customerRepository).findAll();
     }
 
+    @Test
+    void selectCustomersAfter() {
+        // Given
+        int afterId = 10;
+        // When
+        underTest.selectCustomersAfter(afterId, 5);
+        // Then
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(5));
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // Given
+        Customer customer = new Customer(1, FAKER.name().fullName(), FAKER.internet().emailAddress(), 20);
+        Mockito.when(customerRepository.streamAllByOrderById()).thenReturn(Stream.of(customer));
+        // When
+        underTest.streamAllCustomers(c -> assertEquals(customer, c));
+        // Then
+        verify(customerRepository).streamAllByOrderById();
+    }
+
+    @Test
+    void streamAllEmails() {
+        // Given
+        String email = FAKER.internet().emailAddress();
+        Mockito.when(customerRepository.streamAllEmails()).thenReturn(Stream.of(email));
+        // When
+        underTest.streamAllEmails(e -> assertEquals(email, e));
+        // Then
+        verify(customerRepository).streamAllEmails();
+    }
+
     @Test
     void selectCustomerById() {
         // Given
@@ -54,6 +91,29 @@ class CustomerJPADataAccessServiceTest extends AbstractTestContainersUnitTest {
         verify(customerRepository).findById(1);
     }
 
+    @Test
+    void insertCustomersIgnoringDuplicateEmails() {
+        // Given
+        Customer first = new Customer(FAKER.name().fullName(), "first@gmail.com", 20);
+        Customer taken = new Customer(FAKER.name().fullName(), "taken@gmail.com", 30);
+        Mockito.when(customerRepository.insertIgnoringDuplicateEmail(first.getName(), "first@gmail.com", 20)).thenReturn(Optional.of(1));
+        Mockito.when(customerRepository.insertIgnoringDuplicateEmail(taken.getName(), "taken@gmail.com", 30)).thenReturn(Optional.empty());
+        // When
+        Map<String, Integer> ids = underTest.insertCustomersIgnoringDuplicateEmails(List.of(first, taken));
+        // Then
+        assertEquals(Map.of("first@gmail.com", 1), ids);
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        // Given
+        List<Integer> ids = List.of(1, 2, 3);
+        // When
+        underTest.selectCustomersByIds(ids);
+        // Then
+        verify(customerRepository).findAllById(ids);
+    }
+
     @Test
     void insertCustomer() {
         // Given
@@ -62,7 +122,28 @@ class CustomerJPADataAccessServiceTest extends AbstractTestContainersUnitTest {
         // When
        underTest.insertCustomer(customer);
         // Then
-        verify(customerRepository).save(customer);
+        verify(customerRepository).insertIgnoringDuplicateEmail(customer.getName(), email, 20);
+    }
+
+    @Test
+    void insertCustomers() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        List<Customer> customers = List.of(new Customer(FAKER.name().fullName(), email, 20));
+        // When
+        underTest.insertCustomers(customers);
+        // Then
+        verify(customerRepository).saveAll(customers);
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Given
+        List<String> emails = List.of(FAKER.internet().emailAddress() + "-" + UUID.randomUUID());
+        // When
+        underTest.selectExistingEmails(emails);
+        // Then
+        verify(customerRepository).findExistingEmails(emails);
     }
 
     @Test
@@ -82,7 +163,8 @@ class CustomerJPADataAccessServiceTest extends AbstractTestContainersUnitTest {
         // When
         underTest.deleteCustomerById(id);
         // Then
-        verify(customerRepository).deleteById(id);
+        verify(customerRepository).deleteCustomerById(id);
+        verify(customerRepository, Mockito.never()).deleteById(id);
 
     }
 
@@ -100,10 +182,31 @@ class CustomerJPADataAccessServiceTest extends AbstractTestContainersUnitTest {
     void updateCustomer() {
         // Given
         String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
-        Customer customer = new Customer(FAKER.name().fullName(), email, 20);
+        Customer updated = new Customer(1, FAKER.name().fullName(), email, 21);
+        Mockito.when(customerRepository.updateIfChanged(1, null, null, 21, 3L)).thenReturn(Optional.of(updated));
+        Customer update = new Customer();
+        update.setId(1);
+        update.setAge(21);
+        update.setVersion(3L);
+        // When
+        Optional<Customer> actual = underTest.updateCustomer(update);
+        // Then
+        verify(customerRepository).updateIfChanged(1, null, null, 21, 3L);
+        assertTrue(actual.isPresent());
+        assertEquals(21, actual.get().getAge());
+        verify(customerRepository, Mockito.never()).saveAndFlush(Mockito.any());
+    }
+
+    @Test
+    void updateCustomerSkipsQueryWhenNothingSupplied() {
+        // Given
+        Customer update = new Customer();
+        update.setId(1);
         // When
-        underTest.updateCustomer(customer);
+        Optional<Customer> actual = underTest.updateCustomer(update);
         // Then
-        verify(customerRepository).save(customer);
+        assertTrue(actual.isEmpty());
+        verify(customerRepository, Mockito.never())
+                .updateIfChanged(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
     }
 }
\ No newline at end of file
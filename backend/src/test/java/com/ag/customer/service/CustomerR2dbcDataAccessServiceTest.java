@@ -0,0 +1,137 @@
+package com.ag.customer.service;
+
+import com.ag.AbstractTestContainersUnitTest;
+import com.ag.customer.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerR2dbcDataAccessServiceTest extends AbstractTestContainersUnitTest {
+    private CustomerR2dbcDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerR2dbcDataAccessService(getDatabaseClient());
+    }
+
+    @Test
+    void insertCustomerAndSelectById() {
+        // Given
+        Customer customer = generateCustomer();
+        // When
+        Integer id = underTest.insertCustomer(customer).block();
+        // Then
+        assertThat(id).isNotNull();
+        StepVerifier.create(underTest.selectCustomerById(id))
+                .expectNext(new Customer(id, customer.getName(), customer.getEmail(), customer.getAge()))
+                .verifyComplete();
+    }
+
+    @Test
+    void insertCustomerIsEmptyWhenEmailAlreadyExists() {
+        // Given
+        Customer customer = generateCustomer();
+        underTest.insertCustomer(customer).block();
+        // When
+        // Then
+        StepVerifier.create(underTest.insertCustomer(generateCustomer(customer.getEmail())))
+                .verifyComplete();
+    }
+
+    @Test
+    void selectCustomerByIdIsEmptyWhenCustomerDoesNotExist() {
+        // Given
+        int id = -1;
+        // When
+        // Then
+        StepVerifier.create(underTest.selectCustomerById(id))
+                .verifyComplete();
+    }
+
+    @Test
+    void selectCustomersAfter() {
+        // Given
+        Integer firstId = underTest.insertCustomer(generateCustomer()).block();
+        Integer secondId = underTest.insertCustomer(generateCustomer()).block();
+        // When
+        List<Customer> actual = underTest.selectCustomersAfter(firstId, 1).collectList().block();
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(secondId);
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // Given
+        Integer id = underTest.insertCustomer(generateCustomer()).block();
+        // When
+        List<Customer> actual = underTest.streamAllCustomers().collectList().block();
+        // Then
+        assertThat(actual).extracting(Customer::getId).contains(id).isSorted();
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        // Given
+        Integer firstId = underTest.insertCustomer(generateCustomer()).block();
+        Integer secondId = underTest.insertCustomer(generateCustomer()).block();
+        // When
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(firstId, secondId, -1)).collectList().block();
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactlyInAnyOrder(firstId, secondId);
+    }
+
+    @Test
+    void deleteCustomerById() {
+        // Given
+        Integer id = underTest.insertCustomer(generateCustomer()).block();
+        // When
+        Long deleted = underTest.deleteCustomerById(id).block();
+        // Then
+        assertThat(deleted).isEqualTo(1L);
+        StepVerifier.create(underTest.existsPersonById(id))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void updateCustomerName() {
+        // Given
+        Customer customer = generateCustomer();
+        Integer id = underTest.insertCustomer(customer).block();
+        String newName = FAKER.name().fullName() + "-" + UUID.randomUUID();
+        // When
+        // Then
+        StepVerifier.create(underTest.updateCustomer(new Customer(id, newName, null, null)))
+                .expectNext(new Customer(id, newName, customer.getEmail(), customer.getAge()))
+                .verifyComplete();
+    }
+
+    @Test
+    void updateCustomerIsEmptyWhenNothingChanges() {
+        // Given
+        Customer customer = generateCustomer();
+        Integer id = underTest.insertCustomer(customer).block();
+        // When
+        // Then
+        StepVerifier.create(underTest.updateCustomer(new Customer(id, customer.getName(), null, customer.getAge())))
+                .verifyComplete();
+    }
+
+    private Customer generateCustomer() {
+        return generateCustomer(FAKER.internet().emailAddress() + "-" + UUID.randomUUID());
+    }
+
+    private Customer generateCustomer(String email) {
+        Random r = new Random();
+        int low = 18, high = 60;
+        Integer age = r.nextInt(high - low) + low;
+        String name = FAKER.name().fullName() + "-" + UUID.randomUUID();
+        return new Customer(name, email, age);
+    }
+}
@@ -2,21 +2,39 @@ package com.ag.customer.service;
 
 import com.ag.AbstractTestContainersUnitTest;
 import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.CustomerSearch;
+import com.ag.customer.CustomerVersion;
 import com.ag.customer.repository.CustomerDao;
+import com.ag.dto.CustomerBatchResult;
+import com.ag.dto.CustomerFieldsPage;
+import com.ag.dto.CustomerPage;
 import com.ag.dto.CustomerRegistrationRequest;
 import com.ag.dto.CustomerUpdateRequest;
 import com.ag.exceptions.DuplicateResourceException;
+import com.ag.exceptions.PreconditionFailedException;
 import com.ag.exceptions.RequestValidationException;
 import com.ag.exceptions.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -29,12 +47,16 @@ class CustomerServiceTest extends AbstractTestContainersUnitTest {
 
     @Mock
     private CustomerDao customerDao;
+    @Mock
+    private ObjectProvider<CustomerSuggestionIndex> suggestionIndexProvider;
+    @Captor
+    private ArgumentCaptor<List<Customer>> customersCaptor;
     private CustomerUpdateRequest alex;
 
     @BeforeEach
     void setUp() {
         // Initialize the mock itself
-        underTest = new CustomerService(customerDao);
+        underTest = new CustomerService(customerDao, suggestionIndexProvider, new SimpleMeterRegistry());
     }
 
     @Test
@@ -45,6 +67,168 @@ class CustomerServiceTest extends AbstractTestContainersUnitTest {
         verify(customerDao).selectAllCustomers();
     }
 
+    @Test
+    void getCustomersPage() {
+        // Given
+        Customer first = new Customer(11, "alex", "alex@gmail.com", 20);
+        Customer second = new Customer(12, "sam", "sam@gmail.com", 21);
+        Customer third = new Customer(13, "tom", "tom@gmail.com", 22);
+        when(customerDao.selectCustomersAfter(10, 3)).thenReturn(List.of(first, second, third));
+        // When
+        CustomerPage actual = underTest.getCustomersPage(10, 2);
+        // Then
+        assertThat(actual.customers()).containsExactly(first, second);
+        assertThat(actual.nextCursor()).isEqualTo(12);
+    }
+
+    @Test
+    void getCustomersPageHasNoCursorOnLastPage() {
+        // Given
+        Customer customer = new Customer(11, "alex", "alex@gmail.com", 20);
+        when(customerDao.selectCustomersAfter(0, CustomerService.DEFAULT_PAGE_SIZE + 1)).thenReturn(List.of(customer));
+        // When
+        CustomerPage actual = underTest.getCustomersPage(null, null);
+        // Then
+        assertThat(actual.customers()).containsExactly(customer);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void getCustomersPageCapsLimitAtMaxPageSize() {
+        // When
+        underTest.getCustomersPage(0, CustomerService.MAX_PAGE_SIZE * 10);
+        // Then
+        verify(customerDao).selectCustomersAfter(0, CustomerService.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void searchCustomersPagesTheResults() {
+        // Given
+        CustomerSearch search = new CustomerSearch(null, null, "gmail.com", 18, null);
+        Customer first = new Customer(11, "alex", "alex@gmail.com", 20);
+        Customer second = new Customer(12, "sam", "sam@gmail.com", 21);
+        when(customerDao.searchCustomers(search, 10, 2)).thenReturn(List.of(first, second));
+        // When
+        CustomerPage actual = underTest.searchCustomers(search, 10, 1);
+        // Then
+        assertThat(actual.customers()).containsExactly(first);
+        assertThat(actual.nextCursor()).isEqualTo(11);
+    }
+
+    @Test
+    void willThrowWhenSearchHasNoFilters() {
+        // When
+        assertThatThrownBy(() -> underTest.searchCustomers(new CustomerSearch(null, null, null, null, null), null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("At least one search filter is required");
+        // Then
+        verify(customerDao, never()).searchCustomers(any(), any(), anyInt());
+    }
+
+    @Test
+    void willThrowWhenSearchedNameIsTooShort() {
+        // When
+        assertThatThrownBy(() -> underTest.searchCustomers(new CustomerSearch(null, " al ", null, null, null), null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Name must be at least 3 characters");
+        // Then
+        verify(customerDao, never()).searchCustomers(any(), any(), anyInt());
+    }
+
+    @Test
+    void willThrowWhenSearchedAgeRangeIsEmpty() {
+        // When
+        assertThatThrownBy(() -> underTest.searchCustomers(new CustomerSearch(null, null, null, 40, 30), null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Minimum age must not exceed maximum age");
+        // Then
+        verify(customerDao, never()).searchCustomers(any(), any(), anyInt());
+    }
+
+    @Test
+    void suggestCustomersLoadsSuggestedIdsInIndexOrder() {
+        // Given
+        CustomerSuggestionIndex suggestionIndex = mock(CustomerSuggestionIndex.class);
+        when(suggestionIndexProvider.getIfAvailable()).thenReturn(suggestionIndex);
+        underTest = new CustomerService(customerDao, suggestionIndexProvider, new SimpleMeterRegistry());
+        Customer alex = new Customer(11, "alex", "alex@gmail.com", 20);
+        Customer alba = new Customer(12, "alba", "alba@gmail.com", 21);
+        when(suggestionIndex.suggest("al", CustomerService.MAX_SUGGESTION_LIMIT)).thenReturn(List.of(12, 13, 11));
+        when(customerDao.selectCustomersByIds(List.of(12, 13, 11))).thenReturn(List.of(alex, alba));
+        // When
+        List<Customer> actual = underTest.suggestCustomers("al", CustomerService.MAX_SUGGESTION_LIMIT * 2);
+        // Then
+        assertThat(actual).containsExactly(alba, alex);
+    }
+
+    @Test
+    void suggestCustomersSearchesNamePrefixesWithoutIndex() {
+        // Given
+        Customer alex = new Customer(11, "alex", "alex@gmail.com", 20);
+        when(customerDao.searchCustomers(new CustomerSearch("al", null, null, null, null), 0, CustomerService.DEFAULT_SUGGESTION_LIMIT))
+                .thenReturn(List.of(alex));
+        // When
+        List<Customer> actual = underTest.suggestCustomers(" al ", null);
+        // Then
+        assertThat(actual).containsExactly(alex);
+    }
+
+    @Test
+    void willThrowWhenSuggestionQueryIsBlank() {
+        // When
+        assertThatThrownBy(() -> underTest.suggestCustomers(" ", null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Suggestion query must not be blank");
+        // Then
+        verify(customerDao, never()).searchCustomers(any(), any(), anyInt());
+    }
+
+    @Test
+    void getCustomerFieldsPage() {
+        // Given
+        CustomerProjection projection = CustomerProjection.of(List.of("email"));
+        Object[] first = {11, "alex@gmail.com"};
+        Object[] second = {12, "sam@gmail.com"};
+        when(customerDao.selectCustomerFieldsAfter(projection, 10, 2)).thenReturn(List.of(first, second));
+        // When
+        CustomerFieldsPage actual = underTest.getCustomerFieldsPage(projection, 10, 1);
+        // Then
+        assertThat(actual.rows()).containsExactly(first);
+        assertThat(actual.nextCursor()).isEqualTo(11);
+    }
+
+    @Test
+    void willThrowWhenProjectedCustomerDoesNotExist() {
+        // Given
+        CustomerProjection projection = CustomerProjection.of(List.of("email"));
+        when(customerDao.selectCustomerFieldsById(projection, 10)).thenReturn(Optional.empty());
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomerFieldsById(projection, 10))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id[10] not found");
+    }
+
+    @Test
+    void willThrowWhenPageLimitIsNotPositive() {
+        // When
+        assertThatThrownBy(() -> underTest.getCustomersPage(0, 0))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Page limit must be greater than zero");
+        // Then
+        verify(customerDao, never()).selectCustomersAfter(any(), anyInt());
+    }
+
+    @Test
+    void exportCustomers() {
+        // Given
+        Consumer<Customer> action = customer -> {};
+        // When
+        underTest.exportCustomers(action);
+        // Then
+        verify(customerDao).streamAllCustomers(action);
+    }
+
     @Test
     void canGetCustomerById() {
         // Given
@@ -72,15 +256,50 @@ class CustomerServiceTest extends AbstractTestContainersUnitTest {
                         .formatted(id));
     }
 
+    @Test
+    void canGetCustomersByIdsInRequestedOrder() {
+        // Given
+        Customer alex = new Customer(1, FAKER.name().fullName(), FAKER.internet().emailAddress(), 20);
+        Customer jamila = new Customer(2, FAKER.name().fullName(), FAKER.internet().emailAddress(), 22);
+        when(customerDao.selectCustomersByIds(Set.of(1, 2, 3))).thenReturn(List.of(alex, jamila));
+        // When
+        List<Customer> actual = underTest.getCustomersByIds(List.of(2, 3, 1, 2));
+        // Then
+        assertThat(actual).containsExactly(jamila, alex);
+    }
+
+    @Test
+    void willThrowWhenNoCustomerIdsRequested() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomersByIds(List.of()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No customer ids requested");
+        verify(customerDao, never()).searchCustomers(any(), any(), anyInt());
+    }
+
+    @Test
+    void willThrowWhenTooManyCustomerIdsRequested() {
+        // Given
+        List<Integer> ids = IntStream.rangeClosed(1, CustomerService.MAX_PAGE_SIZE + 1).boxed().toList();
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomersByIds(ids))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("At most %s customer ids may be requested at once".formatted(CustomerService.MAX_PAGE_SIZE));
+        verify(customerDao, never()).searchCustomers(any(), any(), anyInt());
+    }
+
     @Test
     void addCustomer() {
         // Given
         String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
-        when(customerDao.existsPersonWithEmail(email)).thenReturn(false);
+        when(customerDao.insertCustomer(any())).thenReturn(Optional.of(7));
         CustomerRegistrationRequest request = new CustomerRegistrationRequest("alex", email, 20);
         // When
-        underTest.addCustomer(request);
+        Integer id = underTest.addCustomer(request);
         // Then
+        assertThat(id).isEqualTo(7);
         ArgumentCaptor<Customer>customerCaptor = ArgumentCaptor.forClass(Customer.class);
         verify(customerDao).insertCustomer(customerCaptor.capture());
         Customer capturedCustomer = customerCaptor.getValue();
@@ -94,76 +313,162 @@ class CustomerServiceTest extends AbstractTestContainersUnitTest {
     void willThrowWhenEmailExistsWhileAddingACustomer() {
         // Given
         String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
-        when(customerDao.existsPersonWithEmail(email)).thenReturn(true);
+        when(customerDao.insertCustomer(any())).thenReturn(Optional.empty());
         CustomerRegistrationRequest request = new CustomerRegistrationRequest("alex", email, 20);
         // When
         assertThatThrownBy(() -> underTest.addCustomer(request))
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("Customer with email %s already exist".formatted(email));
         // Then
-        verify(customerDao, never()).insertCustomer(any());
+        verify(customerDao, never()).existsPersonWithEmail(any());
+    }
+
+    @Test
+    void addCustomers() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String takenEmail = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("alex", email, 20),
+                new CustomerRegistrationRequest("sam", email, 21),
+                new CustomerRegistrationRequest("tom", takenEmail, 22),
+                new CustomerRegistrationRequest(null, "nobody@gmail.com", 23));
+        when(customerDao.selectExistingEmails(Set.of(email, takenEmail))).thenReturn(Set.of(takenEmail));
+        when(customerDao.insertCustomersIgnoringDuplicateEmails(any())).thenReturn(Map.of(email, 1));
+        // When
+        List<CustomerBatchResult> actual = underTest.addCustomers(requests);
+        // Then
+        assertThat(actual).extracting(CustomerBatchResult::status).containsExactly(
+                CustomerBatchResult.Status.CREATED,
+                CustomerBatchResult.Status.DUPLICATE,
+                CustomerBatchResult.Status.DUPLICATE,
+                CustomerBatchResult.Status.INVALID);
+        assertThat(actual).extracting(CustomerBatchResult::index).containsExactly(0, 1, 2, 3);
+        verify(customerDao).insertCustomersIgnoringDuplicateEmails(customersCaptor.capture());
+        assertThat(customersCaptor.getValue()).singleElement().satisfies(c -> {
+            assertThat(c.getId()).isNull();
+            assertThat(c.getName()).isEqualTo("alex");
+            assertThat(c.getEmail()).isEqualTo(email);
+            assertThat(c.getAge()).isEqualTo(20);
+        });
+    }
+
+    @Test
+    void addCustomersSkipsInsertWhenNothingIsNew() {
+        // Given
+        String takenEmail = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        when(customerDao.selectExistingEmails(Set.of(takenEmail))).thenReturn(Set.of(takenEmail));
+        // When
+        List<CustomerBatchResult> actual = underTest.addCustomers(List.of(new CustomerRegistrationRequest("alex", takenEmail, 20)));
+        // Then
+        assertThat(actual).extracting(CustomerBatchResult::status).containsExactly(CustomerBatchResult.Status.DUPLICATE);
+        verify(customerDao, never()).insertCustomersIgnoringDuplicateEmails(any());
+    }
+
+    @Test
+    void willThrowWhenBatchIsEmpty() {
+        // When
+        assertThatThrownBy(() -> underTest.addCustomers(List.of()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No customers to register");
+        // Then
+        verify(customerDao, never()).searchCustomers(any(), any(), anyInt());
+    }
+
+    @Test
+    void willThrowWhenBatchIsTooLarge() {
+        // Given
+        List<CustomerRegistrationRequest> requests = Collections.nCopies(
+                CustomerService.MAX_BATCH_SIZE + 1, new CustomerRegistrationRequest("alex", "alex@gmail.com", 20));
+        // When
+        assertThatThrownBy(() -> underTest.addCustomers(requests))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("A batch may contain at most %s customers".formatted(CustomerService.MAX_BATCH_SIZE));
+        // Then
+        verify(customerDao, never()).searchCustomers(any(), any(), anyInt());
+    }
+
+    @Test
+    void addCustomersReportsEmailsTakenAfterTheCheckAsDuplicates() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String takenEmail = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        when(customerDao.selectExistingEmails(Set.of(email, takenEmail))).thenReturn(Set.of());
+        when(customerDao.insertCustomersIgnoringDuplicateEmails(any())).thenReturn(Map.of(email, 1));
+        // When
+        List<CustomerBatchResult> actual = underTest.addCustomers(List.of(
+                new CustomerRegistrationRequest("alex", email, 20),
+                new CustomerRegistrationRequest("sam", takenEmail, 21)));
+        // Then
+        assertThat(actual).extracting(CustomerBatchResult::status).containsExactly(
+                CustomerBatchResult.Status.CREATED,
+                CustomerBatchResult.Status.DUPLICATE);
+        assertThat(actual.get(1).message()).isEqualTo("Customer with email %s already exist".formatted(takenEmail));
     }
 
     @Test
     void deleteCustomerById() {
         // Given
         int id = 10;
-        when(customerDao.existsPersonById(id)).thenReturn(true);
+        when(customerDao.deleteCustomerById(id)).thenReturn(1);
         // When
         underTest.deleteCustomerById(id);
         // Then
         verify(customerDao).deleteCustomerById(id);
+        verify(customerDao, never()).existsPersonById(any());
     }
 
     @Test
     void willThrowWhenDeleteCustomerByIdNotExist() {
         // Given
         int id = 10;
-        when(customerDao.existsPersonById(id)).thenReturn(false);
+        when(customerDao.deleteCustomerById(id)).thenReturn(0);
         // When
         assertThatThrownBy(() -> underTest
                 .deleteCustomerById(id))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("Customer with id[%s] not found".formatted(id));
         // Then
-        verify(customerDao, never()).deleteCustomerById(id);
+        verify(customerDao, never()).existsPersonById(any());
     }
 
     @Test
     void canUpdateAllCustomersProperties() {
         // Given
         int id = 10;
-        Customer customer = new Customer(FAKER.name().fullName(), "alex@gmail.com", 20);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
         String newEmail = "alex.1@gmail.com";
-        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", newEmail, 20);
-        when(customerDao.existsPersonWithEmail(newEmail)).thenReturn(false);
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", newEmail, 21);
+        Customer updated = new Customer(id, "Alex", newEmail, 21);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.of(updated));
         // When
-        underTest.updateCustomer(id, request);
+        Customer actual = underTest.updateCustomer(id, request);
         // Then
+        assertThat(actual).isEqualTo(updated);
         ArgumentCaptor<Customer> customerCaptor = ArgumentCaptor.forClass(Customer.class);
         verify(customerDao).updateCustomer(customerCaptor.capture());
         Customer capturedCustomer = customerCaptor.getValue();
+        assertThat(capturedCustomer.getId()).isEqualTo(id);
         assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
         assertThat(capturedCustomer.getEmail()).isEqualTo(request.email());
         assertThat(capturedCustomer.getName()).isEqualTo(request.name());
+        verify(customerDao, never()).selectCustomerById(any());
+        verify(customerDao, never()).existsPersonWithEmail(any());
     }
 
     @Test
     void canUpdateOnlyCustomerName() {
         // Given
         int id = 10;
-        Customer customer = new Customer(FAKER.name().fullName(), "alex@gmail.com", 20);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
         CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", null, null);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 20)));
         // When
         underTest.updateCustomer(id, request);
         // Then
         ArgumentCaptor<Customer> customerCaptor = ArgumentCaptor.forClass(Customer.class);
         verify(customerDao).updateCustomer(customerCaptor.capture());
         Customer capturedCustomer = customerCaptor.getValue();
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(capturedCustomer.getAge()).isNull();
+        assertThat(capturedCustomer.getEmail()).isNull();
         assertThat(capturedCustomer.getName()).isEqualTo(request.name());
     }
 
@@ -171,29 +476,27 @@ class CustomerServiceTest extends AbstractTestContainersUnitTest {
     void canUpdateOnlyCustomerEmail() {
         // Given
         int id = 10;
-        Customer customer = new Customer(FAKER.name().fullName(), "alex@gmail.com", 20);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
         String newEmail = "alex.1@gmail.com";
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, newEmail, null);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.of(new Customer(id, "alex", newEmail, 20)));
         // When
         underTest.updateCustomer(id, request);
         // Then
         ArgumentCaptor<Customer> customerCaptor = ArgumentCaptor.forClass(Customer.class);
         verify(customerDao).updateCustomer(customerCaptor.capture());
         Customer capturedCustomer = customerCaptor.getValue();
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
+        assertThat(capturedCustomer.getAge()).isNull();
         assertThat(capturedCustomer.getEmail()).isEqualTo(request.email());
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
+        assertThat(capturedCustomer.getName()).isNull();
     }
 
     @Test
     void canUpdateOnlyCustomerAge() {
         // Given
         int id = 10;
-        Customer customer = new Customer(FAKER.name().fullName(), "alex@gmail.com", 20);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
         int newAge = 22;
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, null, newAge);
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.of(new Customer(id, "alex", "alex@gmail.com", newAge)));
         // When
         underTest.updateCustomer(id, request);
         // Then
@@ -201,26 +504,23 @@ class CustomerServiceTest extends AbstractTestContainersUnitTest {
         verify(customerDao).updateCustomer(customerCaptor.capture());
         Customer capturedCustomer = customerCaptor.getValue();
         assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getName()).isNull();
     }
 
     @Test
     void willThrowWhenTryingToUpdateCustomerEmailWhenAlreadyTaken() {
         // Given
         int id = 10;
-        Customer customer = new Customer(FAKER.name().fullName(), "alex@gmail.com", 20);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
         String newEmail = "alex.1@gmail.com";
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, newEmail, null);
-        when(customerDao.existsPersonWithEmail(newEmail)).thenReturn(true);
+        when(customerDao.updateCustomer(any())).thenThrow(new DuplicateKeyException("duplicate key"));
         // When
+        // Then
         assertThatThrownBy(() -> underTest
                 .updateCustomer(id, request))
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("Email %s already exist".formatted(request.email()));
-        // Then
-        verify(customerDao, never()).updateCustomer(any());
     }
 
     @Test
@@ -228,16 +528,82 @@ class CustomerServiceTest extends AbstractTestContainersUnitTest {
         // Given
         int id = 10;
         Customer customer = new Customer(FAKER.name().fullName(), "alex@gmail.com", 20);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.existsPersonById(id)).thenReturn(true);
         CustomerUpdateRequest request = new CustomerUpdateRequest(customer.getName(), customer.getEmail(), customer.getAge());
         // When
        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
                .isInstanceOf(RequestValidationException.class)
                .hasMessage("No data changes found");
+    }
+
+    @Test
+    void willThrowWhenCustomerUpdateRequestIsEmpty() {
+        // Given
+        int id = 10;
+        CustomerUpdateRequest request = new CustomerUpdateRequest(null, null, null);
+        // When
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found");
         // Then
         verify(customerDao, never()).updateCustomer(any());
     }
 
+    @Test
+    void willThrowWhenUpdatingCustomerThatDoesNotExist() {
+        // Given
+        int id = 10;
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.existsPersonById(id)).thenReturn(false);
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", null, null);
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id[%s] not found".formatted(id));
+    }
+
+    @Test
+    void updateCustomerPassesExpectedVersionToDao() {
+        // Given
+        int id = 10;
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 20)));
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", null, null);
+        // When
+        underTest.updateCustomer(id, request, 3L);
+        // Then
+        ArgumentCaptor<Customer> customerCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDao).updateCustomer(customerCaptor.capture());
+        assertThat(customerCaptor.getValue().getVersion()).isEqualTo(3L);
+        verify(customerDao, never()).selectCustomerVersion(any());
+    }
 
+    @Test
+    void willThrowWhenUpdatingCustomerAtAnotherVersion() {
+        // Given
+        int id = 10;
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.selectCustomerVersion(id)).thenReturn(Optional.of(new CustomerVersion(4L, Instant.now())));
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", null, null);
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request, 3L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("customer with id[%s] is at version 4, not 3".formatted(id));
+    }
 
-}
\ No newline at end of file
+    @Test
+    void willThrowWhenCustomerAtExpectedVersionHasNoChanges() {
+        // Given
+        int id = 10;
+        when(customerDao.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDao.selectCustomerVersion(id)).thenReturn(Optional.of(new CustomerVersion(3L, Instant.now())));
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", null, null);
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request, 3L))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found");
+    }
+}
@@ -0,0 +1,152 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitWriterTest {
+    private GroupCommitWriter underTest;
+    private MeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @Mock
+    private CustomerDao customerDao;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // A long linger so that every concurrent insert in a test lands in the same group
+        underTest = new GroupCommitWriter(customerDao, 100, 3, Duration.ofSeconds(5), meterRegistry);
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        underTest.close();
+    }
+
+    @Test
+    void concurrentInsertsAreWrittenAsOneGroup() throws Exception {
+        // Given
+        Customer alex = new Customer("alex", "alex@gmail.com", 20);
+        Customer jamila = new Customer("jamila", "jamila@gmail.com", 22);
+        Customer ali = new Customer("ali", "ali@gmail.com", 30);
+        when(customerDao.insertCustomersIgnoringDuplicateEmails(anyList()))
+                .thenReturn(Map.of("alex@gmail.com", 1, "jamila@gmail.com", 2, "ali@gmail.com", 3));
+        // When
+        List<Optional<Integer>> ids = insertConcurrently(alex, jamila, ali);
+        // Then
+        assertThat(ids).containsExactlyInAnyOrder(Optional.of(1), Optional.of(2), Optional.of(3));
+        verify(customerDao, times(1)).insertCustomersIgnoringDuplicateEmails(anyList());
+        assertThat(meterRegistry.get("customer.group.commit.size").summary().max()).isEqualTo(3);
+    }
+
+    @Test
+    void insertOfTakenEmailReturnsEmpty() throws Exception {
+        // Given
+        Customer alex = new Customer("alex", "alex@gmail.com", 20);
+        Customer jamila = new Customer("jamila", "jamila@gmail.com", 22);
+        Customer ali = new Customer("ali", "ali@gmail.com", 30);
+        when(customerDao.insertCustomersIgnoringDuplicateEmails(anyList()))
+                .thenReturn(Map.of("alex@gmail.com", 1, "ali@gmail.com", 3));
+        // When
+        List<Optional<Integer>> ids = insertConcurrently(alex, jamila, ali);
+        // Then
+        assertThat(ids).containsExactlyInAnyOrder(Optional.of(1), Optional.empty(), Optional.of(3));
+    }
+
+    @Test
+    void onlyFirstInsertOfAnEmailWithinAGroupSucceeds() throws Exception {
+        // Given
+        Customer alex = new Customer("alex", "alex@gmail.com", 20);
+        Customer alexAgain = new Customer("alex again", "alex@gmail.com", 21);
+        Customer ali = new Customer("ali", "ali@gmail.com", 30);
+        when(customerDao.insertCustomersIgnoringDuplicateEmails(anyList()))
+                .thenReturn(Map.of("alex@gmail.com", 1, "ali@gmail.com", 3));
+        // When
+        List<Optional<Integer>> ids = insertConcurrently(alex, alexAgain, ali);
+        // Then
+        assertThat(ids).containsExactlyInAnyOrder(Optional.of(1), Optional.empty(), Optional.of(3));
+        verify(customerDao).insertCustomersIgnoringDuplicateEmails(argThat(customers -> customers.size() == 2));
+    }
+
+    @Test
+    void failedGroupIsRetriedOneCustomerAtATime() throws Exception {
+        // Given
+        Customer alex = new Customer("alex", "alex@gmail.com", 20);
+        Customer invalid = new Customer(null, "jamila@gmail.com", 22);
+        Customer ali = new Customer("ali", "ali@gmail.com", 30);
+        when(customerDao.insertCustomersIgnoringDuplicateEmails(anyList()))
+                .thenThrow(new DataIntegrityViolationException("null value in column \"name\""));
+        when(customerDao.insertCustomer(alex)).thenReturn(Optional.of(1));
+        when(customerDao.insertCustomer(invalid)).thenThrow(new DataIntegrityViolationException("null value in column \"name\""));
+        when(customerDao.insertCustomer(ali)).thenReturn(Optional.of(3));
+        // When
+        Future<Optional<Integer>> alexId = executor.submit(() -> underTest.insert(alex));
+        Future<Optional<Integer>> invalidId = executor.submit(() -> underTest.insert(invalid));
+        Future<Optional<Integer>> aliId = executor.submit(() -> underTest.insert(ali));
+        // Then
+        assertThat(alexId.get(10, TimeUnit.SECONDS)).hasValue(1);
+        assertThat(aliId.get(10, TimeUnit.SECONDS)).hasValue(3);
+        assertThatThrownBy(() -> invalidId.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void willThrowWhenInsertingAfterClose() {
+        // Given
+        underTest.close();
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insert(new Customer("alex", "alex@gmail.com", 20)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Group commit writer is closed");
+        verify(customerDao, never()).insertCustomersIgnoringDuplicateEmails(any());
+    }
+
+    private List<Optional<Integer>> insertConcurrently(Customer... customers) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Integer>>> futures = new ArrayList<>();
+        for (Customer customer : customers) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return underTest.insert(customer);
+            }));
+        }
+        start.countDown();
+        List<Optional<Integer>> ids = new ArrayList<>();
+        for (Future<Optional<Integer>> future : futures) {
+            ids.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ag.customer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntLongHashMapTest {
+
+    @Test
+    void returnsMissingForAbsentKeys() {
+        // Given
+        IntLongHashMap underTest = new IntLongHashMap(16);
+        underTest.put(1, 10);
+        // When
+        long actual = underTest.get(2);
+        // Then
+        assertThat(actual).isEqualTo(IntLongHashMap.MISSING);
+        assertThat(underTest.remove(2)).isEqualTo(IntLongHashMap.MISSING);
+    }
+
+    @Test
+    void growsPastItsExpectedSize() {
+        // Given
+        IntLongHashMap underTest = new IntLongHashMap(16);
+        // When
+        IntStream.range(0, 10_000).forEach(i -> underTest.put(i, i * 3L));
+        // Then
+        assertThat(underTest.size()).isEqualTo(10_000);
+        assertThat(IntStream.range(0, 10_000)).allMatch(i -> underTest.get(i) == i * 3L);
+    }
+
+    @Test
+    void keepsEveryOtherKeyReachableAfterRemovals() {
+        // Given
+        IntLongHashMap underTest = new IntLongHashMap(1_000);
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        // When
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range makes long probe runs and many removals from the middle of them
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextBoolean()) {
+                underTest.put(key, i);
+                expected.put(key, (long) i);
+            } else {
+                assertThat(underTest.remove(key)).isEqualTo(expected.getOrDefault(key, IntLongHashMap.MISSING));
+                expected.remove(key);
+            }
+        }
+        // Then
+        assertThat(underTest.size()).isEqualTo(expected.size());
+        assertThat(IntStream.range(-1_000, 1_000))
+                .allMatch(key -> underTest.get(key) == expected.getOrDefault(key, IntLongHashMap.MISSING));
+    }
+
+    @Test
+    void rejectsTheMissingMarkerAsAValue() {
+        // Given
+        IntLongHashMap underTest = new IntLongHashMap(16);
+        // When / Then
+        assertThatThrownBy(() -> underTest.put(1, IntLongHashMap.MISSING))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,150 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapCustomerCacheTest {
+    /**
+     * Two slabs that fit three of the customers made by {@link #customer(int)} each.
+     */
+    private static final int SLAB_SIZE = 176;
+
+    private OffHeapCustomerCache underTest;
+    private MeterRegistry meterRegistry;
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new OffHeapCustomerCache(2 * SLAB_SIZE, SLAB_SIZE, Duration.ofMinutes(10), meterRegistry, nanoTime::get);
+    }
+
+    @Test
+    void getIfPresentReturnsWhatWasPut() {
+        // Given
+        Customer customer = new Customer(7, "Zoë Ångström", "zoe@gmail.com", 31);
+        customer.setVersion(3L);
+        customer.setUpdatedAt(Instant.parse("2024-05-01T10:15:30.123456Z"));
+        underTest.put(7, customer);
+        // When
+        Customer actual = underTest.getIfPresent(7);
+        // Then
+        assertThat(actual).usingRecursiveComparison().isEqualTo(customer);
+        assertThat(underTest.getIfPresent(8)).isNull();
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void putReplacesTheCachedCustomer() {
+        // Given
+        underTest.put(1, customer(1));
+        // When
+        underTest.put(1, new Customer(1, "alex", "alex@gmail.com", 40));
+        // Then
+        assertThat(underTest.getIfPresent(1).getEmail()).isEqualTo("alex@gmail.com");
+        assertThat(underTest.size()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateRemovesTheCustomer() {
+        // Given
+        underTest.put(1, customer(1));
+        underTest.put(2, customer(2));
+        // When
+        underTest.invalidate(1);
+        underTest.invalidateAll(List.of(2));
+        // Then
+        assertThat(underTest.getIfPresent(1)).isNull();
+        assertThat(underTest.getIfPresent(2)).isNull();
+    }
+
+    @Test
+    void getAllPresentLeavesOutMissingCustomers() {
+        // Given
+        underTest.put(1, customer(1));
+        underTest.put(3, customer(3));
+        // When
+        Map<Integer, Customer> actual = underTest.getAllPresent(List.of(1, 2, 3));
+        // Then
+        assertThat(actual).containsOnlyKeys(1, 3);
+    }
+
+    @Test
+    void expiredCustomersAreNotServed() {
+        // Given
+        underTest.put(1, customer(1));
+        // When
+        nanoTime.addAndGet(Duration.ofMinutes(11).toNanos());
+        // Then
+        assertThat(underTest.getIfPresent(1)).isNull();
+    }
+
+    @Test
+    void reusingTheOldestSlabKeepsRecentlyReadCustomers() {
+        // Given
+        IntStream.rangeClosed(1, 6).forEach(id -> underTest.put(id, customer(id)));
+        underTest.getIfPresent(1);
+        // When
+        underTest.put(7, customer(7));
+        // Then
+        assertThat(underTest.getIfPresent(1)).isNotNull();
+        assertThat(underTest.getIfPresent(2)).isNull();
+        assertThat(underTest.getIfPresent(3)).isNull();
+        assertThat(IntStream.rangeClosed(4, 7)).allMatch(id -> underTest.getIfPresent(id) != null);
+        assertThat(meterRegistry.get("cache.evictions").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsWorkingAfterManyRoundsOfEviction() {
+        // Given
+        underTest.put(0, customer(0));
+        // When
+        for (int id = 1; id <= 1_000; id++) {
+            underTest.put(id % 10, customer(id % 10));
+            // Keep reading customer 0 so it always gets its second chance
+            underTest.getIfPresent(0);
+        }
+        // Then
+        assertThat(underTest.getIfPresent(0)).isNotNull();
+        assertThat(underTest.size()).isLessThanOrEqualTo(6);
+    }
+
+    @Test
+    void indexGrowsWithTheCustomersCached() {
+        // Given
+        underTest = new OffHeapCustomerCache(2 * 1024 * 1024, 1024 * 1024, Duration.ofMinutes(10), meterRegistry,
+                nanoTime::get);
+        // When
+        IntStream.range(0, 10_000).forEach(id -> underTest.put(id, customer(id)));
+        // Then
+        assertThat(underTest.size()).isEqualTo(10_000);
+        assertThat(IntStream.range(0, 10_000)).allMatch(id -> underTest.getIfPresent(id).getId().equals(id));
+    }
+
+    @Test
+    void customersLargerThanASlabAreNotCached() {
+        // Given
+        underTest.put(1, customer(1));
+        // When
+        underTest.put(1, new Customer(1, "x".repeat(SLAB_SIZE), "alex@gmail.com", 40));
+        // Then
+        assertThat(underTest.getIfPresent(1)).isNull();
+    }
+
+    private static Customer customer(int id) {
+        return new Customer(id, "name-" + id, "c" + id + "@x.io", 20 + id);
+    }
+}
@@ -0,0 +1,175 @@
+package com.ag.customer.service;
+
+import com.ag.AbstractTestContainersUnitTest;
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerRowMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against two independent databases standing in for a primary and its replica, so that each read shows which
+ * of them answered it.
+ */
+class ReplicaRoutingCustomerDaoTest extends AbstractTestContainersUnitTest {
+    @Container
+    private static final PostgreSQLContainer<?> replicaContainer =
+            new PostgreSQLContainer<>("postgres:latest")
+                    .withDatabaseName("chetan-dao-unit-test-replica")
+                    .withUsername("chetan").withPassword("password");
+
+    private ReplicaRoutingCustomerDao underTest;
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure().dataSource(getReplicaDataSource()).load().migrate();
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        primary = getJdbcTemplate();
+        DataSource replicaDataSource = getReplicaDataSource();
+        replica = new JdbcTemplate(replicaDataSource);
+        underTest = routedTo(replicaDataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.end();
+    }
+
+    @Test
+    void readsGoToTheReplica() {
+        // Given
+        String email = insertInto(replica);
+        // When
+        boolean actual = underTest.existsPersonWithEmail(email);
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        // Given
+        Customer customer = generateCustomer();
+        // When
+        Optional<Integer> id = underTest.insertCustomer(customer);
+        // Then
+        assertThat(id).isPresent();
+        assertThat(countByEmail(primary, customer.getEmail())).isEqualTo(1);
+        assertThat(countByEmail(replica, customer.getEmail())).isZero();
+    }
+
+    @Test
+    void readsAfterAWriteInTheSameRequestGoToThePrimary() {
+        // Given
+        AtomicInteger firstWrites = new AtomicInteger();
+        ReadYourWrites.begin(false, firstWrites::incrementAndGet);
+        Customer customer = generateCustomer();
+        assertThat(underTest.existsPersonWithEmail(customer.getEmail())).isFalse();
+        underTest.insertCustomer(customer);
+        underTest.insertCustomer(generateCustomer());
+        // When
+        boolean actual = underTest.existsPersonWithEmail(customer.getEmail());
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(firstWrites).hasValue(1);
+    }
+
+    @Test
+    void readsOfAStickyRequestGoToThePrimary() {
+        // Given
+        String email = insertInto(primary);
+        ReadYourWrites.begin(true, () -> {
+        });
+        // When
+        boolean actual = underTest.existsPersonWithEmail(email);
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void lookupOfARecentlyWrittenCustomerGoesToThePrimary() {
+        // Given
+        Customer customer = generateCustomer();
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        // When
+        Optional<Customer> actual = underTest.selectCustomerById(id);
+        // Then
+        assertThat(actual).map(Customer::getEmail).contains(customer.getEmail());
+        assertThat(underTest.existsPersonById(id)).isTrue();
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenNoReplicaIsHealthy() {
+        // Given
+        DataSource unreachable = new DriverManagerDataSource("jdbc:postgresql://localhost:1/customer", "chetan", "password");
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = routedTo(unreachable);
+        String email = insertInto(primary);
+        // When
+        boolean actual = underTest.existsPersonWithEmail(email);
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(meterRegistry.get("customer.datasource.replica.fallbacks").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("customer.datasource.replica.lag").gauge().value()).isNaN();
+    }
+
+    private ReplicaRoutingCustomerDao routedTo(DataSource replicaDataSource) {
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(
+                Map.of("replica-0", replicaDataSource), Duration.ofSeconds(5), meterRegistry);
+        lagMonitor.check();
+        DataSource routing = new ReadWriteRoutingDataSource(primary.getDataSource(), lagMonitor, meterRegistry);
+        CustomerJDBCDataAccessService jdbc = new CustomerJDBCDataAccessService(new JdbcTemplate(routing), new CustomerRowMapper());
+        return new ReplicaRoutingCustomerDao(jdbc, Duration.ofSeconds(5));
+    }
+
+    private String insertInto(JdbcTemplate database) {
+        Customer customer = generateCustomer();
+        database.update("INSERT INTO customer (name, email, age) VALUES (?, ?, ?)",
+                customer.getName(), customer.getEmail(), customer.getAge());
+        return customer.getEmail();
+    }
+
+    private static int countByEmail(JdbcTemplate database, String email) {
+        Integer count = database.queryForObject("SELECT count(*) FROM customer WHERE email = ?", Integer.class, email);
+        return count == null ? 0 : count;
+    }
+
+    private static DataSource getReplicaDataSource() {
+        return DataSourceBuilder.create()
+                .driverClassName(replicaContainer.getDriverClassName())
+                .url(replicaContainer.getJdbcUrl())
+                .username(replicaContainer.getUsername())
+                .password(replicaContainer.getPassword())
+                .build();
+    }
+
+    private Customer generateCustomer() {
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String name = FAKER.name().fullName() + "-" + UUID.randomUUID();
+        return new Customer(name, email, 30);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ag.customer.service;
+
+import com.google.common.hash.Funnels;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void neverReportsAPutElementAsAbsent() {
+        // Given
+        ScalableBloomFilter<CharSequence> underTest = newFilter(100, 0.01);
+        // When
+        IntStream.range(0, 10_000).forEach(i -> underTest.put("customer" + i + "@gmail.com"));
+        // Then
+        assertThat(IntStream.range(0, 10_000))
+                .allMatch(i -> underTest.mightContain("customer" + i + "@gmail.com"));
+    }
+
+    @Test
+    void growsNewStagesOnceCapacityIsReached() {
+        // Given
+        ScalableBloomFilter<CharSequence> underTest = newFilter(100, 0.01);
+        // When
+        IntStream.range(0, 1_000).forEach(i -> underTest.put("customer" + i + "@gmail.com"));
+        // Then
+        assertThat(underTest.stageCount()).isGreaterThan(1);
+        assertThat(underTest.approximateElementCount()).isBetween(950L, 1_000L);
+    }
+
+    @Test
+    void keepsFalsePositiveRateWithinConfiguredProbabilityAfterGrowing() {
+        // Given
+        ScalableBloomFilter<CharSequence> underTest = newFilter(1_000, 0.01);
+        IntStream.range(0, 20_000).forEach(i -> underTest.put("customer" + i + "@gmail.com"));
+        // When
+        long falsePositives = IntStream.range(0, 20_000)
+                .filter(i -> underTest.mightContain("stranger" + i + "@gmail.com"))
+                .count();
+        // Then
+        assertThat(falsePositives / 20_000.0).isLessThan(0.02);
+    }
+
+    @Test
+    void willThrowWhenFalsePositiveProbabilityIsOutOfRange() {
+        assertThatThrownBy(() -> newFilter(100, 1.0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("False positive probability must be between 0 and 1");
+    }
+
+    @Test
+    void willThrowWhenInitialCapacityIsNotPositive() {
+        assertThatThrownBy(() -> newFilter(0, 0.01))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Initial capacity must be greater than zero");
+    }
+
+    private static ScalableBloomFilter<CharSequence> newFilter(long initialCapacity, double falsePositiveProbability) {
+        return new ScalableBloomFilter<>(Funnels.stringFunnel(StandardCharsets.UTF_8), initialCapacity, falsePositiveProbability);
+    }
+}
@@ -0,0 +1,190 @@
+package com.ag.customer.service;
+
+import com.ag.AbstractTestContainersUnitTest;
+import com.ag.customer.Customer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against three databases in the test container acting as shards, with the directory sharing the first one.
+ */
+class ShardedCustomerDaoTest extends AbstractTestContainersUnitTest {
+    private static final int SHARDS = 3;
+    private static final List<JdbcTemplate> shards = new ArrayList<>();
+    private static ExecutorService executor;
+
+    private ShardedCustomerDao underTest;
+
+    @BeforeAll
+    static void createShards() {
+        shards.clear();
+        for (int i = 0; i < SHARDS; i++) {
+            JdbcTemplate shard = new JdbcTemplate(createDatabase("customer_shard_" + i));
+            ShardingConfig.migrate(shard.getDataSource());
+            shards.add(shard);
+        }
+        ShardingConfig.migrateDirectory(shards.get(0).getDataSource());
+        executor = Executors.newFixedThreadPool(SHARDS);
+    }
+
+    @AfterAll
+    static void shutdownExecutor() {
+        executor.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ShardedCustomerDao(shards, new CustomerDirectory(shards.get(0)), executor);
+    }
+
+    @Test
+    void insertCustomerStoresItOnlyOnItsShard() {
+        // Given
+        Customer customer = generateCustomer();
+        // When
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        // Then
+        int shard = underTest.shardOf(id);
+        for (int i = 0; i < SHARDS; i++) {
+            assertThat(countById(shards.get(i), id)).isEqualTo(i == shard ? 1 : 0);
+        }
+        assertThat(underTest.selectCustomerById(id)).map(Customer::getEmail).contains(customer.getEmail());
+    }
+
+    @Test
+    void insertCustomerWithAnEmailTakenOnAnotherShardIsRejected() {
+        // Given
+        Customer customer = generateCustomer();
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        // When
+        Optional<Integer> actual = underTest.insertCustomer(new Customer("Other", customer.getEmail(), 40));
+        // Then
+        assertThat(actual).isEmpty();
+        assertThat(underTest.existsPersonWithEmail(customer.getEmail())).isTrue();
+        assertThat(underTest.selectCustomerById(id)).map(Customer::getName).contains(customer.getName());
+    }
+
+    @Test
+    void insertCustomersRejectsTheBatchWhenAnEmailIsTaken() {
+        // Given
+        Customer existing = generateCustomer();
+        underTest.insertCustomer(existing);
+        Customer fresh = generateCustomer();
+        // When / Then
+        assertThatThrownBy(() -> underTest.insertCustomers(List.of(fresh, new Customer("Other", existing.getEmail(), 40))))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.existsPersonWithEmail(fresh.getEmail())).isFalse();
+    }
+
+    @Test
+    void insertCustomersIgnoringDuplicateEmailsSpreadsTheRestOverTheShards() {
+        // Given
+        Customer existing = generateCustomer();
+        underTest.insertCustomer(existing);
+        List<Customer> customers = new ArrayList<>(generateCustomers(12));
+        customers.add(new Customer("Other", existing.getEmail(), 40));
+        // When
+        Map<String, Integer> actual = underTest.insertCustomersIgnoringDuplicateEmails(customers);
+        // Then
+        assertThat(actual).hasSize(12).doesNotContainKey(existing.getEmail());
+        assertThat(actual.values().stream().map(underTest::shardOf).distinct()).hasSizeGreaterThan(1);
+        assertThat(underTest.selectCustomersByIds(actual.values())).hasSize(12);
+    }
+
+    @Test
+    void selectCustomersAfterMergesTheShardsInIdOrder() {
+        // Given
+        List<Integer> ids = generateCustomers(10).stream()
+                .map(customer -> underTest.insertCustomer(customer).orElseThrow())
+                .toList();
+        // When
+        List<Customer> actual = underTest.selectCustomersAfter(ids.get(0) - 1, 5);
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactlyElementsOf(ids.subList(0, 5));
+    }
+
+    @Test
+    void streamAllCustomersIsOrderedById() {
+        // Given
+        List<Integer> ids = generateCustomers(6).stream()
+                .map(customer -> underTest.insertCustomer(customer).orElseThrow())
+                .toList();
+        List<Customer> actual = new ArrayList<>();
+        // When
+        underTest.streamAllCustomers(actual::add);
+        // Then
+        assertThat(actual).isSortedAccordingTo(Comparator.comparing(Customer::getId));
+        assertThat(actual).extracting(Customer::getId).containsAll(ids);
+        assertThat(underTest.selectAllCustomers()).hasSameSizeAs(actual);
+    }
+
+    @Test
+    void updateCustomerRejectsAnEmailHeldByACustomerOnAnotherShard() {
+        // Given
+        Customer first = generateCustomer();
+        underTest.insertCustomer(first);
+        Integer id = underTest.insertCustomer(generateCustomer()).orElseThrow();
+        Customer update = new Customer(id, null, first.getEmail(), null);
+        // When / Then
+        assertThatThrownBy(() -> underTest.updateCustomer(update)).isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void updateCustomerEmailReleasesTheOldEmail() {
+        // Given
+        Customer customer = generateCustomer();
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        String newEmail = "new-" + UUID.randomUUID() + "@example.com";
+        // When
+        Optional<Customer> actual = underTest.updateCustomer(new Customer(id, null, newEmail, null));
+        // Then
+        assertThat(actual).map(Customer::getEmail).contains(newEmail);
+        assertThat(underTest.existsPersonWithEmail(newEmail)).isTrue();
+        assertThat(underTest.existsPersonWithEmail(customer.getEmail())).isFalse();
+    }
+
+    @Test
+    void deleteCustomerByIdReleasesItsEmail() {
+        // Given
+        Customer customer = generateCustomer();
+        Integer id = underTest.insertCustomer(customer).orElseThrow();
+        // When
+        int actual = underTest.deleteCustomerById(id);
+        // Then
+        assertThat(actual).isEqualTo(1);
+        assertThat(underTest.existsPersonById(id)).isFalse();
+        assertThat(underTest.insertCustomer(customer)).isPresent();
+    }
+
+    private static int countById(JdbcTemplate shard, Integer id) {
+        Integer count = shard.queryForObject("SELECT count(*) FROM customer WHERE id = ?", Integer.class, id);
+        return count == null ? 0 : count;
+    }
+
+    private List<Customer> generateCustomers(int count) {
+        return IntStream.range(0, count).mapToObj(i -> generateCustomer()).toList();
+    }
+
+    private Customer generateCustomer() {
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String name = FAKER.name().fullName() + "-" + UUID.randomUUID();
+        return new Customer(name, email, 30);
+    }
+}
@@ -0,0 +1,173 @@
+package com.ag.customer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private SingleFlight<Integer, String> underTest;
+    private MeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new SingleFlight<>(meterRegistry, "lookups");
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsForSameKeyShareOneExecution() throws Exception {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> underTest.execute(1, () -> {
+            executions.incrementAndGet();
+            await(release);
+            return "alex";
+        }));
+        awaitInFlight(1);
+        // When
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 1; i < CALLERS; i++) {
+            followers.add(executor.submit(() -> underTest.execute(1, () -> {
+                executions.incrementAndGet();
+                return "stale";
+            })));
+        }
+        awaitCount("coalesced", CALLERS - 1);
+        release.countDown();
+        // Then
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("alex");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("alex");
+        }
+        assertThat(executions).hasValue(1);
+        assertThat(count("executed")).isEqualTo(1);
+        assertThat(count("coalesced")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void sequentialCallsAreNotCoalesced() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        // When
+        underTest.execute(1, () -> "alex" + executions.incrementAndGet());
+        String second = underTest.execute(1, () -> "alex" + executions.incrementAndGet());
+        // Then
+        assertThat(second).isEqualTo("alex2");
+        assertThat(count("executed")).isEqualTo(2);
+        assertThat(count("coalesced")).isZero();
+    }
+
+    @Test
+    void differentKeysAreNotCoalesced() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> underTest.execute(1, () -> {
+            await(release);
+            return "alex";
+        }));
+        awaitInFlight(1);
+        // When
+        String second = underTest.execute(2, () -> "jamila");
+        release.countDown();
+        // Then
+        assertThat(second).isEqualTo("jamila");
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("alex");
+        assertThat(count("coalesced")).isZero();
+    }
+
+    @Test
+    void callsAfterForgetDoNotJoinTheEarlierCall() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> beforeWrite = executor.submit(() -> underTest.execute(1, () -> {
+            await(release);
+            return "alex";
+        }));
+        awaitInFlight(1);
+        // When
+        underTest.forget(1);
+        String afterWrite = underTest.execute(1, () -> "jamila");
+        release.countDown();
+        // Then
+        assertThat(afterWrite).isEqualTo("jamila");
+        assertThat(beforeWrite.get(5, TimeUnit.SECONDS)).isEqualTo("alex");
+        assertThat(count("executed")).isEqualTo(2);
+        assertThat(count("coalesced")).isZero();
+    }
+
+    @Test
+    void waitingCallersReceiveTheSameException() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> underTest.execute(1, () -> {
+            await(release);
+            throw new IllegalStateException("database unavailable");
+        }));
+        awaitInFlight(1);
+        Future<String> follower = executor.submit(() -> underTest.execute(1, () -> "stale"));
+        awaitCount("coalesced", 1);
+        // When
+        release.countDown();
+        // Then
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("database unavailable");
+        assertThat(meterRegistry.get("lookups.in.flight").gauge().value()).isZero();
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("lookups").tag("outcome", outcome).counter().count();
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("lookups.in.flight").gauge().value() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitCount(String outcome, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(outcome) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.CustomerProjection;
+import com.ag.customer.repository.CustomerDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SnapshotCustomerDaoTest {
+    private SnapshotCustomerDao underTest;
+    private CustomerSnapshot snapshot;
+    private MeterRegistry meterRegistry;
+
+    @Mock
+    private CustomerDao customerDao;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        snapshot = new CustomerSnapshot(customerDao, 3, meterRegistry);
+        underTest = new SnapshotCustomerDao(customerDao, snapshot);
+    }
+
+    @Test
+    void selectCustomersAfterQueriesDatabaseUntilSnapshotIsWarm() {
+        // Given
+        List<Customer> customers = List.of(new Customer(1, "alex", "alex@gmail.com", 21));
+        when(customerDao.selectCustomersAfter(0, 10)).thenReturn(customers);
+        // When
+        List<Customer> actual = underTest.selectCustomersAfter(0, 10);
+        // Then
+        assertThat(actual).isEqualTo(customers);
+        assertThat(snapshot.isWarm()).isFalse();
+    }
+
+    @Test
+    void selectCustomersAfterIsServedFromSnapshot() {
+        // Given
+        warmWith(customer(1), customer(2), customer(5), customer(7));
+        // When
+        List<Customer> actual = underTest.selectCustomersAfter(1, 2);
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(2, 5);
+        assertThat(actual.get(1).getName()).isEqualTo("name-5");
+        assertThat(actual.get(1).getEmail()).isEqualTo("customer-5@gmail.com");
+        assertThat(actual.get(1).getAge()).isEqualTo(25);
+        verify(customerDao, never()).selectCustomersAfter(any(), anyInt());
+    }
+
+    @Test
+    void selectCustomerFieldsAfterIsServedFromSnapshot() {
+        // Given
+        warmWith(customer(1), customer(2), customer(3));
+        snapshot.put(new Customer(2, "alex", "alex@gmail.com", 40));
+        CustomerProjection projection = CustomerProjection.of(List.of("email", "age"));
+        // When
+        List<Object[]> actual = underTest.selectCustomerFieldsAfter(projection, 0, 10);
+        // Then
+        assertThat(actual).containsExactly(
+                new Object[]{1, "customer-1@gmail.com", 21},
+                new Object[]{2, "alex@gmail.com", 40},
+                new Object[]{3, "customer-3@gmail.com", 23});
+        verify(customerDao, never()).selectCustomerFieldsAfter(any(), any(), anyInt());
+    }
+
+    @Test
+    void insertedCustomerAppearsInSnapshot() {
+        // Given
+        warmWith(customer(1), customer(3));
+        Customer customer = new Customer("jamila", "jamila@gmail.com", 22);
+        when(customerDao.insertCustomer(customer)).thenReturn(Optional.of(2));
+        // When
+        underTest.insertCustomer(customer);
+        // Then
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getEmail)
+                .containsExactly("customer-1@gmail.com", "jamila@gmail.com", "customer-3@gmail.com");
+    }
+
+    @Test
+    void writesInATransactionAreRecordedOnceItCommits() {
+        // Given
+        warmWith(customer(1));
+        Customer committed = new Customer("jamila", "jamila@gmail.com", 22);
+        Customer rolledBack = new Customer("sam", "sam@gmail.com", 23);
+        when(customerDao.insertCustomer(committed)).thenReturn(Optional.of(2));
+        when(customerDao.insertCustomer(rolledBack)).thenReturn(Optional.of(3));
+        // When
+        List<Integer> beforeCommit = inTransaction(() -> underTest.insertCustomer(committed), true);
+        inTransaction(() -> underTest.insertCustomer(rolledBack), false);
+        // Then
+        assertThat(beforeCommit).containsExactly(1);
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getId).containsExactly(1, 2);
+    }
+
+    @Test
+    void updatedCustomerReplacesItsRow() {
+        // Given
+        warmWith(customer(1), customer(2));
+        Customer update = new Customer(2, null, "new@gmail.com", null);
+        when(customerDao.updateCustomer(update)).thenReturn(Optional.of(new Customer(2, "name-2", "new@gmail.com", 22)));
+        // When
+        underTest.updateCustomer(update);
+        // Then
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getEmail)
+                .containsExactly("customer-1@gmail.com", "new@gmail.com");
+    }
+
+    @Test
+    void deletedCustomerDisappears() {
+        // Given
+        warmWith(customer(1), customer(2));
+        when(customerDao.deleteCustomerById(1)).thenReturn(1);
+        // When
+        underTest.deleteCustomerById(1);
+        // Then
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getId).containsExactly(2);
+        assertThat(snapshot.size()).isEqualTo(1);
+    }
+
+    @Test
+    void insertCustomersReadsBackGeneratedRows() {
+        // Given
+        warmWith(customer(1), customer(2));
+        List<Customer> customers = List.of(
+                new Customer("jamila", "jamila@gmail.com", 22),
+                new Customer("ali", "ali@gmail.com", 30));
+        when(customerDao.selectCustomersAfter(2, 1000)).thenReturn(List.of(
+                new Customer(3, "jamila", "jamila@gmail.com", 22),
+                new Customer(4, "ali", "ali@gmail.com", 30)));
+        // When
+        underTest.insertCustomers(customers);
+        // Then
+        verify(customerDao).insertCustomers(customers);
+        assertThat(underTest.selectCustomersAfter(2, 10)).extracting(Customer::getEmail)
+                .containsExactly("jamila@gmail.com", "ali@gmail.com");
+    }
+
+    @Test
+    void insertCustomersIgnoringDuplicateEmailsRecordsFirstCustomerPerEmail() {
+        // Given
+        warmWith(customer(1));
+        List<Customer> customers = List.of(
+                new Customer("jamila", "jamila@gmail.com", 22),
+                new Customer("jamila again", "jamila@gmail.com", 23),
+                new Customer("alex", "customer-1@gmail.com", 21));
+        when(customerDao.insertCustomersIgnoringDuplicateEmails(customers)).thenReturn(Map.of("jamila@gmail.com", 2));
+        // When
+        underTest.insertCustomersIgnoringDuplicateEmails(customers);
+        // Then
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getName).containsExactly("name-1", "jamila");
+    }
+
+    @Test
+    void writesAreCompactedIntoTheColumns() {
+        // Given
+        warmWith(customer(1), customer(2), customer(3));
+        when(customerDao.deleteCustomerById(anyInt())).thenReturn(1);
+        // When
+        underTest.deleteCustomerById(2);
+        snapshot.put(customer(4));
+        snapshot.put(customer(9));
+        snapshot.put(new Customer(1, "alex", "alex@gmail.com", 40));
+        // Then
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getName)
+                .containsExactly("alex", "name-3", "name-4", "name-9");
+        assertThat(snapshot.size()).isEqualTo(4);
+        assertThat(snapshot.highestId()).isEqualTo(9);
+        assertThat(meterRegistry.get("customer.snapshot.rows").gauge().value()).isEqualTo(4);
+        assertThat(meterRegistry.get("customer.snapshot.bytes").gauge().value()).isPositive();
+    }
+
+    @Test
+    void queriesAndWritesCarryOnWhileChangesAreCompacted() throws Exception {
+        // Given
+        warmWith(customer(1), customer(2));
+        CountDownLatch compacting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Customer blocking = new Customer(3, "name-3", "customer-3@gmail.com", 23) {
+            @Override
+            public String getName() {
+                // Only the compaction reads the name of a changed customer
+                compacting.countDown();
+                awaitUninterruptibly(release);
+                return super.getName();
+            }
+        };
+        snapshot.put(customer(4));
+        snapshot.put(new Customer(1, "alex", "alex@gmail.com", 40));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> compaction = executor.submit(() -> snapshot.put(blocking));
+            assertThat(compacting.await(5, TimeUnit.SECONDS)).isTrue();
+            // When
+            List<Customer> duringCompaction = executor.submit(underTest::selectAllCustomers).get(2, TimeUnit.SECONDS);
+            executor.submit(() -> snapshot.put(new Customer(2, "sam", "sam@gmail.com", 50))).get(2, TimeUnit.SECONDS);
+            release.countDown();
+            compaction.get(5, TimeUnit.SECONDS);
+            // Then
+            assertThat(duringCompaction).extracting(Customer::getName).containsExactly("alex", "name-2", "name-3", "name-4");
+            assertThat(underTest.selectAllCustomers()).extracting(Customer::getName)
+                    .containsExactly("alex", "sam", "name-3", "name-4");
+            assertThat(snapshot.size()).isEqualTo(4);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void writesDuringRebuildAreKept() {
+        // Given
+        warmWith(customer(1));
+        Customer customer = new Customer("jamila", "jamila@gmail.com", 22);
+        when(customerDao.insertCustomer(customer)).thenReturn(Optional.of(8));
+        // When
+        warmWith(() -> underTest.insertCustomer(customer), customer(1), customer(2));
+        // Then
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getId).containsExactly(1, 2, 8);
+    }
+
+    @Test
+    void streamAllCustomersIsServedFromSnapshot() {
+        // Given
+        warmWith(customer(1), customer(2), customer(3));
+        List<Customer> streamed = new ArrayList<>();
+        // When
+        underTest.streamAllCustomers(streamed::add);
+        // Then
+        assertThat(streamed).extracting(Customer::getId).containsExactly(1, 2, 3);
+        verify(customerDao, times(1)).streamAllCustomers(any());
+    }
+
+    @Test
+    void failedRebuildKeepsPreviousSnapshot() {
+        // Given
+        warmWith(customer(1));
+        doThrow(new IllegalStateException("connection refused")).when(customerDao).streamAllCustomers(any());
+        // When
+        snapshot.rebuild();
+        // Then
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getId).containsExactly(1);
+    }
+
+    @Test
+    void selectListVersionComesFromSnapshotOnceWarm() {
+        // Given
+        when(customerDao.selectListVersion()).thenReturn(Optional.empty());
+        Optional<String> cold = underTest.selectListVersion();
+        warmWith(customer(1), customer(2));
+        Optional<String> warm = underTest.selectListVersion();
+        when(customerDao.deleteCustomerById(2)).thenReturn(1);
+        // When
+        underTest.deleteCustomerById(2);
+        // Then
+        assertThat(cold).isEmpty();
+        assertThat(warm).isPresent();
+        assertThat(underTest.selectListVersion()).isPresent().isNotEqualTo(warm);
+        assertThat(new CustomerSnapshot(customerDao, 3, meterRegistry).version()).isNull();
+        verify(customerDao, times(1)).selectListVersion();
+    }
+
+    @Test
+    void rebuildChangesListVersion() {
+        // Given
+        warmWith(customer(1));
+        Optional<String> before = underTest.selectListVersion();
+        // When
+        snapshot.rebuild();
+        // Then
+        assertThat(underTest.selectListVersion()).isPresent().isNotEqualTo(before);
+    }
+
+    // Runs the write as a transaction would and returns the IDs listed before the transaction completed
+    private List<Integer> inTransaction(Runnable write, boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            write.run();
+            List<Integer> ids = underTest.selectAllCustomers().stream().map(Customer::getId).toList();
+            if (commit) {
+                TransactionSynchronizationUtils.triggerAfterCommit();
+            }
+            TransactionSynchronizationUtils.triggerAfterCompletion(commit
+                    ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+            return ids;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void warmWith(Customer... customers) {
+        warmWith(() -> {
+        }, customers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void warmWith(Runnable duringScan, Customer... customers) {
+        doAnswer(invocation -> {
+            Consumer<Customer> action = invocation.getArgument(0);
+            for (Customer customer : customers) {
+                action.accept(customer);
+                duringScan.run();
+            }
+            return null;
+        }).when(customerDao).streamAllCustomers(any(Consumer.class));
+        snapshot.rebuild();
+    }
+
+    private static Customer customer(int id) {
+        return new Customer(id, "name-" + id, "customer-" + id + "@gmail.com", 20 + id);
+    }
+}
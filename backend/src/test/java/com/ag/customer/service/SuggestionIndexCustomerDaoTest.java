@@ -0,0 +1,198 @@
+package com.ag.customer.service;
+
+import com.ag.customer.Customer;
+import com.ag.customer.repository.CustomerDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SuggestionIndexCustomerDaoTest {
+    private SuggestionIndexCustomerDao underTest;
+    private CustomerSuggestionIndex suggestionIndex;
+    private MeterRegistry meterRegistry;
+
+    @Mock
+    private CustomerDao customerDao;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        suggestionIndex = new CustomerSuggestionIndex(customerDao, 3, meterRegistry);
+        underTest = new SuggestionIndexCustomerDao(customerDao, suggestionIndex);
+    }
+
+    @Test
+    void suggestReturnsNullUntilIndexIsWarm() {
+        // When
+        List<Integer> actual = suggestionIndex.suggest("al", 10);
+        // Then
+        assertThat(actual).isNull();
+        assertThat(suggestionIndex.isWarm()).isFalse();
+    }
+
+    @Test
+    void suggestMatchesNamesWordsAndEmailsCaseInsensitively() {
+        // Given
+        warmWith(
+                new Customer(1, "Alex Smith", "alex@gmail.com", 21),
+                new Customer(2, "Jamila Ahmed", "jamila@gmail.com", 22),
+                new Customer(3, "Sam Jones", "sjones@yahoo.com", 23));
+        // When
+        // Then
+        assertThat(suggestionIndex.suggest("  SMI", 10)).containsExactly(1);
+        assertThat(suggestionIndex.suggest("jamila a", 10)).containsExactly(2);
+        assertThat(suggestionIndex.suggest("sjones@", 10)).containsExactly(3);
+        assertThat(suggestionIndex.suggest("x", 10)).isEmpty();
+    }
+
+    @Test
+    void suggestReturnsShortestCompletionsFirstUpToTheLimit() {
+        // Given
+        warmWith(
+                new Customer(1, "Alexandra", "alexandra@gmail.com", 21),
+                new Customer(2, "Al", "al@gmail.com", 22),
+                new Customer(3, "Alex", "alex@gmail.com", 23));
+        // When
+        List<Integer> actual = suggestionIndex.suggest("al", 2);
+        // Then
+        assertThat(actual).containsExactly(2, 3);
+    }
+
+    @Test
+    void insertedCustomerIsSuggested() {
+        // Given
+        warmWith(new Customer(1, "Alex", "alex@gmail.com", 21));
+        Customer customer = new Customer("Alba", "alba@gmail.com", 22);
+        when(customerDao.insertCustomer(customer)).thenReturn(Optional.of(2));
+        // When
+        underTest.insertCustomer(customer);
+        // Then
+        assertThat(suggestionIndex.suggest("al", 10)).containsExactly(2, 1);
+    }
+
+    @Test
+    void updatedCustomerIsOnlySuggestedUnderItsNewName() {
+        // Given
+        warmWith(new Customer(1, "Alex", "customer-1@gmail.com", 21));
+        Customer update = new Customer(1, "Sam", null, null);
+        when(customerDao.updateCustomer(update)).thenReturn(Optional.of(new Customer(1, "Sam", "customer-1@gmail.com", 21)));
+        // When
+        underTest.updateCustomer(update);
+        // Then
+        assertThat(suggestionIndex.suggest("sa", 10)).containsExactly(1);
+        assertThat(suggestionIndex.suggest("alex", 10)).isEmpty();
+        assertThat(suggestionIndex.suggest("customer-1", 10)).containsExactly(1);
+    }
+
+    @Test
+    void deletedCustomerIsNotSuggested() {
+        // Given
+        warmWith(new Customer(1, "Alex", "alex@gmail.com", 21), new Customer(2, "Alba", "alba@gmail.com", 22));
+        when(customerDao.deleteCustomerById(1)).thenReturn(1);
+        // When
+        underTest.deleteCustomerById(1);
+        // Then
+        assertThat(suggestionIndex.suggest("al", 10)).containsExactly(2);
+    }
+
+    @Test
+    void insertCustomersReadsBackGeneratedRows() {
+        // Given
+        warmWith(new Customer(1, "Alex", "alex@gmail.com", 21));
+        List<Customer> customers = List.of(new Customer("Jamila", "jamila@gmail.com", 22));
+        when(customerDao.selectCustomersAfter(1, 1000)).thenReturn(List.of(new Customer(2, "Jamila", "jamila@gmail.com", 22)));
+        // When
+        underTest.insertCustomers(customers);
+        // Then
+        verify(customerDao).insertCustomers(customers);
+        assertThat(suggestionIndex.suggest("jam", 10)).containsExactly(2);
+    }
+
+    @Test
+    void insertCustomersIgnoringDuplicateEmailsRecordsFirstCustomerPerEmail() {
+        // Given
+        warmWith(new Customer(1, "Alex", "alex@gmail.com", 21));
+        List<Customer> customers = List.of(
+                new Customer("Jamila", "jamila@gmail.com", 22),
+                new Customer("Jamie", "jamila@gmail.com", 23));
+        when(customerDao.insertCustomersIgnoringDuplicateEmails(customers)).thenReturn(Map.of("jamila@gmail.com", 2));
+        // When
+        underTest.insertCustomersIgnoringDuplicateEmails(customers);
+        // Then
+        assertThat(suggestionIndex.suggest("jamila", 10)).containsExactly(2);
+        assertThat(suggestionIndex.suggest("jamie", 10)).isEmpty();
+    }
+
+    @Test
+    void writesAreCompactedIntoTheSortedTerms() {
+        // Given
+        warmWith(new Customer(1, "Alex", "alex@gmail.com", 21), new Customer(2, "Alba", "alba@gmail.com", 22));
+        when(customerDao.deleteCustomerById(anyInt())).thenReturn(1);
+        // When
+        underTest.deleteCustomerById(2);
+        suggestionIndex.put(new Customer(3, "Alma", "alma@gmail.com", 23));
+        suggestionIndex.put(new Customer(1, "Sam", "alex@gmail.com", 21));
+        // Then
+        assertThat(suggestionIndex.suggest("al", 10)).containsExactly(1, 3);
+        assertThat(suggestionIndex.suggest("sa", 10)).containsExactly(1);
+        assertThat(suggestionIndex.highestId()).isEqualTo(3);
+        assertThat(meterRegistry.get("customer.suggestions.terms").gauge().value()).isEqualTo(4);
+        assertThat(meterRegistry.get("customer.suggestions.bytes").gauge().value()).isPositive();
+    }
+
+    @Test
+    void writesDuringRebuildAreKept() {
+        // Given
+        warmWith(new Customer(1, "Alex", "alex@gmail.com", 21));
+        Customer customer = new Customer("Alba", "alba@gmail.com", 22);
+        when(customerDao.insertCustomer(customer)).thenReturn(Optional.of(8));
+        // When
+        warmWith(() -> underTest.insertCustomer(customer), new Customer(1, "Alex", "alex@gmail.com", 21));
+        // Then
+        assertThat(suggestionIndex.suggest("al", 10)).containsExactly(8, 1);
+    }
+
+    @Test
+    void failedRebuildKeepsPreviousIndex() {
+        // Given
+        warmWith(new Customer(1, "Alex", "alex@gmail.com", 21));
+        doThrow(new IllegalStateException("connection refused")).when(customerDao).streamAllCustomers(any());
+        // When
+        suggestionIndex.rebuild();
+        // Then
+        assertThat(suggestionIndex.suggest("alex", 10)).containsExactly(1);
+    }
+
+    private void warmWith(Customer... customers) {
+        warmWith(() -> {
+        }, customers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void warmWith(Runnable duringScan, Customer... customers) {
+        doAnswer(invocation -> {
+            Consumer<Customer> action = invocation.getArgument(0);
+            for (Customer customer : customers) {
+                action.accept(customer);
+                duringScan.run();
+            }
+            return null;
+        }).when(customerDao).streamAllCustomers(any(Consumer.class));
+        suggestionIndex.rebuild();
+    }
+}
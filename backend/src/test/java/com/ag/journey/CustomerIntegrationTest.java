@@ -1,19 +1,36 @@
 package com.ag.journey;
 
 import com.ag.customer.Customer;
+import com.ag.customer.controller.CustomerProtobuf;
+import com.ag.customer.service.CustomerService;
+import com.ag.dto.CustomerPage;
 import com.ag.dto.CustomerRegistrationRequest;
 import com.ag.dto.CustomerUpdateRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.github.javafaker.Faker;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -22,6 +39,8 @@ import static org.springframework.boot.test.context.SpringBootTest.WebEnvironmen
 public class CustomerIntegrationTest {
     @Autowired
     private WebTestClient client;
+    @LocalServerPort
+    private int port;
     private static final String CUSTOMER_URI = "/api/v1/customers";
 
     @Test
@@ -41,19 +60,12 @@ public class CustomerIntegrationTest {
                 .body(Mono.just(request), CustomerRegistrationRequest.class)
                 .exchange()
                 .expectStatus()
-                .isOk();
+                .isOk()
+                .expectHeader()
+                .exists("Location");
 
         // Get all customers
-        List<Customer> allCustomer = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                })
-                .returnResult()
-                .getResponseBody();
+        List<Customer> allCustomer = getAllCustomers();
         Customer expectedCustomer = new Customer(name, email, age);
 
         // Make sure that customer is present
@@ -78,6 +90,16 @@ public class CustomerIntegrationTest {
                 .isOk()
                 .expectBody(new ParameterizedTypeReference<Customer>() {})
                 .isEqualTo(expectedCustomer);
+
+        // Get customers by ids, including one that does not exist
+        client.get()
+                .uri(CUSTOMER_URI + "?ids={id},{missing}", id, Integer.MAX_VALUE)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(new ParameterizedTypeReference<Customer>() {})
+                .isEqualTo(List.of(expectedCustomer));
     }
 
     @Test
@@ -100,16 +122,7 @@ public class CustomerIntegrationTest {
                 .isOk();
 
         // Get all customers
-        List<Customer> allCustomer = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                })
-                .returnResult()
-                .getResponseBody();
+        List<Customer> allCustomer = getAllCustomers();
 
 
         // Get customer by id
@@ -157,16 +170,7 @@ public class CustomerIntegrationTest {
                 .isOk();
 
         // Get all customers
-        List<Customer> allCustomer = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                })
-                .returnResult()
-                .getResponseBody();
+        List<Customer> allCustomer = getAllCustomers();
 
 
         // Get customer by id
@@ -209,4 +213,518 @@ public class CustomerIntegrationTest {
         assertThat(updatedCustomer).isEqualTo(expectedCustomer);
 
     }
+
+    @Test
+    void canRevalidateCustomers() {
+        // Create a registration request
+        Faker faker = new Faker();
+        String email = UUID.randomUUID() + faker.internet().emailAddress();
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                faker.name().fullName(), email, faker.number().numberBetween(1, 100));
+
+        // Send a post request
+        client.post().uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        Integer id = getAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // The customer and a page of customers starting with them both come with an ETag
+        String customerETag = client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .exists(HttpHeaders.LAST_MODIFIED)
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        String listETag = client.get()
+                .uri(CUSTOMER_URI + "?after={after}", id - 1)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(customerETag).isNotNull();
+        assertThat(listETag).isNotNull();
+
+        // Unchanged, so both are only revalidated
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .ifNoneMatch(customerETag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, customerETag)
+                .expectBody()
+                .isEmpty();
+        client.get()
+                .uri(CUSTOMER_URI + "?after={after}", id - 1)
+                .ifNoneMatch(listETag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        // Update customer
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("foo", null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // Changed, so both are sent again with new ETags
+        String updatedETag = client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .ifNoneMatch(customerETag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(updatedETag).isNotNull().isNotEqualTo(customerETag);
+        client.get()
+                .uri(CUSTOMER_URI + "?after={after}", id - 1)
+                .ifNoneMatch(listETag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .value(HttpHeaders.ETAG, eTag -> assertThat(eTag).isNotEqualTo(listETag));
+    }
+
+    @Test
+    void canUpdateCustomerOnlyIfUnchanged() {
+        // Create a registration request
+        Faker faker = new Faker();
+        String email = UUID.randomUUID() + faker.internet().emailAddress();
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                faker.name().fullName(), email, faker.number().numberBetween(1, 100));
+
+        // Send a post request
+        client.post().uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        Integer id = getAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        String eTag = client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).isNotNull();
+
+        // Update customer with the current ETag, which hands back the next one
+        String updatedETag = client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("foo", null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(updatedETag).isNotNull().isNotEqualTo(eTag);
+
+        // Update customer again with the stale ETag
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("bar", null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        // The rejected update wrote nothing
+        Customer customer = client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Customer.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(customer).isNotNull();
+        assertThat(customer.getName()).isEqualTo("foo");
+    }
+
+    @Test
+    void canSearchCustomers() {
+        // Create a registration request with a domain no other customer has
+        Faker faker = new Faker();
+        String domain = UUID.randomUUID() + ".example.com";
+        String email = faker.name().username() + "@" + domain;
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                faker.name().fullName(), email, 42);
+
+        // Send a post request
+        client.post().uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // Search by domain and age range
+        CustomerPage page = client.get()
+                .uri(uriBuilder -> uriBuilder.path(CUSTOMER_URI + "/search")
+                        .queryParam("emailDomain", domain.toUpperCase())
+                        .queryParam("minAge", 40)
+                        .queryParam("maxAge", 50)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(page).isNotNull();
+        assertThat(page.customers()).extracting(Customer::getEmail).containsExactly(email);
+        assertThat(page.nextCursor()).isNull();
+
+        // A search without filters is rejected
+        client.get()
+                .uri(CUSTOMER_URI + "/search")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canSuggestCustomers() {
+        // Create a registration request with a name no other customer starts with
+        Faker faker = new Faker();
+        String name = UUID.randomUUID() + " " + faker.name().lastName();
+        String email = UUID.randomUUID() + faker.internet().emailAddress();
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(name, email, 30);
+
+        // Send a post request
+        client.post().uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // The customer is suggested as soon as the start of the name is typed
+        List<Customer> suggestions = client.get()
+                .uri(uriBuilder -> uriBuilder.path(CUSTOMER_URI + "/suggest")
+                        .queryParam("q", name.substring(0, 8).toUpperCase())
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Customer.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(suggestions).extracting(Customer::getEmail).containsExactly(email);
+    }
+
+    @Test
+    void canRetrieveOnlySomeFields() {
+        // Create a registration request
+        Faker faker = new Faker();
+        String email = UUID.randomUUID() + faker.internet().emailAddress();
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                faker.name().fullName(), email, faker.number().numberBetween(1, 100));
+
+        // Send a post request
+        client.post().uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        Integer id = getAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // The customer holds only the requested fields, under an ETag of its own
+        String eTag = client.get()
+                .uri(CUSTOMER_URI + "/{id}?fields=email", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .json("{\"email\":\"%s\"}".formatted(email), true)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).endsWith(";email\"");
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}?fields=email", id)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        // So does every customer on a page
+        client.get()
+                .uri(CUSTOMER_URI + "?after={after}&limit=1&fields=id,email", id - 1)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.customers[0].id").isEqualTo(id)
+                .jsonPath("$.customers[0].email").isEqualTo(email)
+                .jsonPath("$.customers[0].name").doesNotExist();
+
+        // Unknown fields are rejected
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}?fields=password", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canExchangeCustomersInBinaryEncodings() throws Exception {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        MediaType protobuf = MediaType.parseMediaType("application/x-protobuf");
+
+        // Register one customer in CBOR and one in Protobuf
+        Faker faker = new Faker();
+        CustomerRegistrationRequest cborRequest = new CustomerRegistrationRequest(
+                faker.name().fullName(), UUID.randomUUID() + faker.internet().emailAddress(), 30);
+        CustomerRegistrationRequest protobufRequest = new CustomerRegistrationRequest(
+                faker.name().fullName(), UUID.randomUUID() + faker.internet().emailAddress(), 40);
+        client.post().uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_CBOR)
+                .bodyValue(cborMapper.writeValueAsBytes(cborRequest))
+                .exchange()
+                .expectStatus()
+                .isOk();
+        client.post().uri(CUSTOMER_URI)
+                .contentType(protobuf)
+                .bodyValue(CustomerProtobuf.encode(protobufRequest))
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        List<Customer> allCustomers = getAllCustomers();
+        Customer cborCustomer = allCustomers.stream()
+                .filter(c -> c.getEmail().equals(cborRequest.email()))
+                .findFirst()
+                .orElseThrow();
+        Customer protobufCustomer = allCustomers.stream()
+                .filter(c -> c.getEmail().equals(protobufRequest.email()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(protobufCustomer.getAge()).isEqualTo(40);
+
+        // Get customer by id in Protobuf, under an ETag of its own
+        EntityExchangeResult<byte[]> protobufResult = client.get()
+                .uri(CUSTOMER_URI + "/{id}", protobufCustomer.getId())
+                .accept(protobuf)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(protobuf)
+                .expectHeader()
+                .valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody(byte[].class)
+                .returnResult();
+        assertThat(CustomerProtobuf.decodeCustomer(protobufResult.getResponseBody())).isEqualTo(protobufCustomer);
+        String eTag = protobufResult.getResponseHeaders().getETag();
+        assertThat(eTag).endsWith(";protobuf\"");
+
+        // And in Smile
+        byte[] smile = client.get()
+                .uri(CUSTOMER_URI + "/{id}", cborCustomer.getId())
+                .accept(MediaType.parseMediaType("application/x-jackson-smile"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(smileMapper.readValue(smile, Customer.class)).isEqualTo(cborCustomer);
+
+        // Get a page in CBOR
+        byte[] cbor = client.get()
+                .uri(CUSTOMER_URI + "?after={after}&limit=1", cborCustomer.getId() - 1)
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(cborMapper.readValue(cbor, CustomerPage.class).customers()).containsExactly(cborCustomer);
+
+        // Update customer in Protobuf with the Protobuf ETag
+        byte[] updated = client.put()
+                .uri(CUSTOMER_URI + "/{id}", protobufCustomer.getId())
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(protobuf)
+                .accept(protobuf)
+                .bodyValue(CustomerProtobuf.encode(new CustomerUpdateRequest("foo", null, null)))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        protobufCustomer.setName("foo");
+        assertThat(CustomerProtobuf.decodeCustomer(updated)).isEqualTo(protobufCustomer);
+
+        // Malformed Protobuf is rejected
+        client.post().uri(CUSTOMER_URI)
+                .contentType(protobuf)
+                .bodyValue(new byte[]{0x0a, 0x7f})
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canCompressLargeLists() throws Exception {
+        // Register enough customers in one CBOR batch for a page to pass the compression threshold
+        Faker faker = new Faker();
+        List<CustomerRegistrationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(new CustomerRegistrationRequest(
+                    faker.name().fullName(), UUID.randomUUID() + faker.internet().emailAddress(), 30));
+        }
+        client.post().uri(CUSTOMER_URI + "/batch")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .bodyValue(new ObjectMapper(new CBORFactory()).writeValueAsBytes(requests))
+                .exchange()
+                .expectStatus()
+                .isOk();
+        Integer firstId = getAllCustomers().stream()
+                .filter(c -> c.getEmail().equals(requests.get(0).email()))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // Get the page gzipped, with a client that sends Accept-Encoding as given
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(
+                        "http://localhost:%d%s?after=%d&limit=50".formatted(port, CUSTOMER_URI, firstId - 1)))
+                        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        CustomerPage page;
+        try (GZIPInputStream json = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            page = new ObjectMapper().readValue(json, CustomerPage.class);
+        }
+        assertThat(page.customers())
+                .extracting(Customer::getEmail)
+                .containsExactlyElementsOf(requests.stream().map(CustomerRegistrationRequest::email).toList());
+    }
+
+    @Test
+    void canExportCustomers() {
+        // Create a registration request
+        Faker faker = new Faker();
+        String name = faker.name().fullName();
+        String email = UUID.randomUUID() + faker.internet().emailAddress();
+        int age = faker.number().numberBetween(1, 100);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                name, email, age);
+
+        // Send a post request
+        client.post().uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // Export all customers
+        String export = client.get()
+                .uri(CUSTOMER_URI + "/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        // Every line is one customer and the new one is among them
+        assertThat(export).isNotNull().endsWith("\n");
+        assertThat(export.lines())
+                .allSatisfy(line -> assertThat(line).startsWith("{").endsWith("}"))
+                .anySatisfy(line -> assertThat(line).contains(email));
+    }
+
+    // Helper Method
+    private List<Customer> getAllCustomers() {
+        // Walk every page until the server stops handing out a cursor
+        List<Customer> customers = new ArrayList<>();
+        Integer cursor = 0;
+        while (cursor != null) {
+            Integer after = cursor;
+            CustomerPage page = client.get()
+                    .uri(uriBuilder -> uriBuilder.path(CUSTOMER_URI)
+                            .queryParam("after", after)
+                            .queryParam("limit", CustomerService.MAX_PAGE_SIZE)
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(CustomerPage.class)
+                    .returnResult()
+                    .getResponseBody();
+            assertThat(page).isNotNull();
+            customers.addAll(page.customers());
+            cursor = page.nextCursor();
+        }
+        return customers;
+    }
 }
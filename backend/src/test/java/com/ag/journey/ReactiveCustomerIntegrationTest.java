@@ -0,0 +1,167 @@
+package com.ag.journey;
+
+import com.ag.customer.Customer;
+import com.ag.dto.CustomerRegistrationRequest;
+import com.ag.dto.CustomerUpdateRequest;
+import com.github.javafaker.Faker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveCustomerIntegrationTest {
+    @Autowired
+    private WebTestClient client;
+    private static final String CUSTOMER_URI = "/api/v1/customers";
+
+    @Test
+    void canRegisterAndGetACustomer() {
+        // Register a customer
+        Faker faker = new Faker();
+        String name = faker.name().fullName();
+        String email = UUID.randomUUID() + faker.internet().emailAddress();
+        int age = faker.number().numberBetween(1, 100);
+        Integer id = register(new CustomerRegistrationRequest(name, email, age));
+
+        // Get customer by id
+        Customer expectedCustomer = new Customer(id, name, email, age);
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(new ParameterizedTypeReference<Customer>() {})
+                .isEqualTo(expectedCustomer);
+
+        // Get customers by ids
+        client.get()
+                .uri(CUSTOMER_URI + "?ids={id},{missing}", id, Integer.MAX_VALUE)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(new ParameterizedTypeReference<Customer>() {})
+                .isEqualTo(List.of(expectedCustomer));
+
+        // Registering the same email again is rejected
+        client.post().uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(name, email, age)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(409);
+    }
+
+    @Test
+    void canUpdateCustomer() {
+        // Register a customer
+        Faker faker = new Faker();
+        String email = UUID.randomUUID() + faker.internet().emailAddress();
+        Integer id = register(new CustomerRegistrationRequest(faker.name().fullName(), email, 30));
+
+        // Update the name
+        String newName = faker.name().fullName();
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(newName, null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Customer.class)
+                .isEqualTo(new Customer(id, newName, email, 30));
+
+        // Sending the same values again is rejected
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(newName, null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canDeleteCustomer() {
+        // Register a customer
+        Faker faker = new Faker();
+        Integer id = register(new CustomerRegistrationRequest(
+                faker.name().fullName(), UUID.randomUUID() + faker.internet().emailAddress(), 30));
+
+        // Delete it
+        client.delete()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // It is gone
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void canPageAndExportCustomers() {
+        // Register a customer
+        Faker faker = new Faker();
+        String email = UUID.randomUUID() + faker.internet().emailAddress();
+        Integer id = register(new CustomerRegistrationRequest(faker.name().fullName(), email, 30));
+
+        // The page starting just before it contains it
+        client.get()
+                .uri(CUSTOMER_URI + "?after={after}&limit=1", id - 1)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.customers[0].id").isEqualTo(id);
+
+        // The export contains it
+        List<Customer> exported = client.get()
+                .uri(CUSTOMER_URI + "/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertThat(exported).extracting(Customer::getEmail).contains(email);
+        assertThat(exported).extracting(Customer::getId).isSorted();
+    }
+
+    private Integer register(CustomerRegistrationRequest request) {
+        URI location = client.post().uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Void.class)
+                .getResponseHeaders()
+                .getLocation();
+        assertThat(location).isNotNull();
+        String path = location.getPath();
+        return Integer.valueOf(path.substring(path.lastIndexOf('/') + 1));
+    }
+}